@@ -0,0 +1,79 @@
+package nl.inholland.benchmarks;
+
+import nl.inholland.Database;
+import nl.inholland.dataset.DatasetGenerator;
+import nl.inholland.dataset.DatasetSpec;
+import nl.inholland.model.Showing;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The BenchmarkData class creates the databases the benchmarks run against with the {@link DatasetGenerator}.
+ * The same size always gives the same showings and sales, generated at {@link #REFERENCE_TIME} whatever the day of
+ * the run, so the results of different runs can be compared. Benchmarks that depend on the current time, such as
+ * listing the upcoming showings or saving a snapshot, look from the reference time as well.
+ * <p>
+ * The showings fill the default rooms with four showings a day, half of them in the past and half upcoming, and only
+ * a few percent of the seats are sold, about one sale per showing, so a million showings fit in the heap of a fork.
+ */
+public final class BenchmarkData {
+    // The seed of the random choices, so every run uses the same data
+    public static final long SEED = DatasetSpec.DEFAULT.seed();
+    // The time the databases are generated at, so every run uses the same past and upcoming showings
+    public static final LocalDateTime REFERENCE_TIME = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    // The fraction of the seats sold
+    private static final double OCCUPANCY = 0.02;
+    // The number of different customers
+    private static final int CUSTOMER_COUNT = 10_000;
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Creates a database with at least the given number of showings and their sales; whole days are generated, so
+     * there may be a few showings more.
+     *
+     * @param showingCount The number of showings.
+     * @return The database, without a journal.
+     */
+    public static Database createDatabase(int showingCount) {
+        DatasetSpec spec = DatasetSpec.DEFAULT;
+        int showingsPerDay = spec.roomCount() * spec.showingsPerDay();
+        int dayCount = Math.max(2, (showingCount + showingsPerDay - 1) / showingsPerDay);
+
+        return new DatasetGenerator(spec.withSeed(SEED).withPastDays(dayCount / 2)
+                .withUpcomingDays(dayCount - dayCount / 2).withOccupancy(OCCUPANCY).withCustomerCount(CUSTOMER_COUNT),
+                REFERENCE_TIME).createDatabase();
+    }
+
+    /**
+     * Creates search texts as typed in a search box: parts of titles of the database of three to six characters,
+     * and a few that match no title.
+     *
+     * @param database The database whose titles are searched.
+     * @param count    The number of search texts.
+     * @return The search texts.
+     */
+    public static String[] createSearchTexts(Database database, int count) {
+        Random random = new Random(SEED);
+        List<Showing> showings = database.getShowings();
+        String[] texts = new String[count];
+
+        for (int i = 0; i < count; i++) {
+            if (i % 10 == 9) {
+                texts[i] = "xyz" + i;
+                continue;
+            }
+
+            String title = showings.get(random.nextInt(showings.size())).getTitle();
+            int length = Math.min(title.length(), 3 + random.nextInt(4));
+            int start = random.nextInt(title.length() - length + 1);
+            texts[i] = title.substring(start, start + length);
+        }
+
+        return texts;
+    }
+}
@@ -0,0 +1,61 @@
+package nl.inholland.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Runs the benchmarks with the usual JMH command line options, writing the results as JSON to a file named after
+ * the time of the run in the results directory, so the results of runs can be compared over time. A result file or
+ * format given on the command line takes precedence.
+ * <p>
+ * For example, {@code java -jar target/benchmarks.jar ScheduleBenchmark -p size=1000,10000} runs the schedule
+ * benchmarks for two sizes only.
+ */
+public final class BenchmarkMain {
+    // The directory the results are written to
+    private static final Path RESULTS_DIRECTORY = Path.of("results");
+    // Formatter for the time of a run in the name of its result file
+    private static final DateTimeFormatter RUN_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private BenchmarkMain() {
+    }
+
+    /**
+     * Runs the benchmarks.
+     *
+     * @param args The JMH command line options.
+     * @throws Exception If the options are invalid or the benchmarks cannot be run.
+     */
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+
+        if (commandLine.shouldHelp()) {
+            commandLine.showHelp();
+            return;
+        }
+        if (commandLine.shouldList()) {
+            new Runner(commandLine).list();
+            return;
+        }
+
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+
+        if (!commandLine.getResultFormat().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON);
+        }
+        if (!commandLine.getResult().hasValue()) {
+            Files.createDirectories(RESULTS_DIRECTORY);
+            options.result(RESULTS_DIRECTORY.resolve("jmh-" + RUN_FORMATTER.format(LocalDateTime.now()) + ".json").toString());
+        }
+
+        new Runner(options.build()).run();
+    }
+}
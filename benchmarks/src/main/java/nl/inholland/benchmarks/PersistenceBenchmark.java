@@ -0,0 +1,102 @@
+package nl.inholland.benchmarks;
+
+import nl.inholland.Database;
+import nl.inholland.persistence.InMemorySellingStore;
+import nl.inholland.persistence.SnapshotCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Benchmarks of saving and loading the database as the application does when it stops and starts: writing a
+ * snapshot, which moves past showings to the history segments, and reading it, which leaves the history on disk until
+ * it is needed. The files are written to a temporary directory that is deleted afterwards.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class PersistenceBenchmark {
+    // The number of showings in the database
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    // The database
+    private Database database;
+    // The directory holding the snapshots
+    private Path directory;
+    // The snapshot written by the save benchmark
+    private Path savedSnapshot;
+    // The snapshot read by the load benchmark
+    private Path loadedSnapshot;
+
+    /**
+     * Creates the database and writes the snapshot to load.
+     *
+     * @throws IOException If the snapshot cannot be written.
+     */
+    @Setup
+    public void setUp() throws IOException {
+        database = BenchmarkData.createDatabase(size);
+        directory = Files.createTempDirectory("benchmark-snapshots");
+        savedSnapshot = directory.resolve("saved.snap");
+        loadedSnapshot = directory.resolve("loaded.snap");
+        // Written from a copy, so the saved snapshot moves the past showings to its own segments
+        SnapshotCodec.write(database.copy(), loadedSnapshot, BenchmarkData.REFERENCE_TIME);
+    }
+
+    /**
+     * Deletes the snapshots.
+     *
+     * @throws IOException If a file cannot be deleted.
+     */
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+
+        Files.delete(directory);
+    }
+
+    /**
+     * Writes a snapshot of the database, replacing the previous one. After the first save only the hot partition is
+     * written, as the past showings are archived by then.
+     *
+     * @throws IOException If the snapshot cannot be written.
+     */
+    @Benchmark
+    public void save() throws IOException {
+        SnapshotCodec.write(database, savedSnapshot, BenchmarkData.REFERENCE_TIME);
+    }
+
+    /**
+     * Reads a snapshot of the database.
+     *
+     * @return The database read.
+     * @throws IOException If the snapshot cannot be read.
+     */
+    @Benchmark
+    public Database load() throws IOException {
+        return SnapshotCodec.read(loadedSnapshot, new InMemorySellingStore());
+    }
+}
@@ -0,0 +1,95 @@
+package nl.inholland.benchmarks;
+
+import nl.inholland.Database;
+import nl.inholland.model.Room;
+import nl.inholland.model.Showing;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the time-ordered schedule of the database: listing the upcoming showings, as the sell view does
+ * when it is first shown, and checking a room for overlapping showings, as the add showing form does before saving.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class ScheduleBenchmark {
+    // The number of overlap checks that are cycled through
+    private static final int QUERY_COUNT = 1024;
+
+    // The number of showings in the database
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    // The database
+    private Database database;
+    // The rooms and periods checked for overlaps, spread over the whole schedule
+    private int[] queryRooms;
+    private LocalDateTime[] queryStarts;
+    // The index of the next overlap check
+    private int next;
+
+    /**
+     * Creates the database and builds its schedule, which is built on first use.
+     */
+    @Setup
+    public void setUp() {
+        database = BenchmarkData.createDatabase(size);
+        database.getUpcomingShowings();
+
+        Random random = new Random(BenchmarkData.SEED);
+        List<Room> rooms = database.getRooms();
+        List<Showing> showings = database.getShowings();
+        queryRooms = new int[QUERY_COUNT];
+        queryStarts = new LocalDateTime[QUERY_COUNT];
+
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            queryRooms[i] = rooms.get(random.nextInt(rooms.size())).getId();
+            queryStarts[i] = showings.get(random.nextInt(showings.size())).getStartDateTime()
+                    .plusMinutes(random.nextInt(240) - 120);
+        }
+    }
+
+    /**
+     * Lists every showing that is upcoming at the time the database was generated, as the clock of the run would
+     * leave fewer upcoming showings every day.
+     *
+     * @param blackhole Consumes the showings, so listing them is not optimized away.
+     */
+    @Benchmark
+    public void upcomingShowings(Blackhole blackhole) {
+        for (Showing showing : database.getShowingsStartingBetween(BenchmarkData.REFERENCE_TIME, LocalDateTime.MAX)) {
+            blackhole.consume(showing);
+        }
+    }
+
+    /**
+     * Checks whether a room is free for two and a half hours.
+     *
+     * @return The overlapping showings.
+     */
+    @Benchmark
+    public List<Showing> overlapCheck() {
+        int query = next++ & (QUERY_COUNT - 1);
+        LocalDateTime start = queryStarts[query];
+        return database.findOverlappingShowings(queryRooms[query], start, start.plusMinutes(150));
+    }
+}
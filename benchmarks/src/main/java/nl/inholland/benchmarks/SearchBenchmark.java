@@ -0,0 +1,65 @@
+package nl.inholland.benchmarks;
+
+import nl.inholland.Database;
+import nl.inholland.model.Showing;
+import nl.inholland.model.TitleIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the title filter of the sell and showings views, which searches the title index of the database for
+ * each search text typed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class SearchBenchmark {
+    // The number of search texts that are cycled through
+    private static final int TEXT_COUNT = 1024;
+
+    // The number of showings in the database
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    // The search of one search box
+    private TitleIndex.Search search;
+    // The search texts
+    private String[] texts;
+    // The index of the next search text
+    private int next;
+
+    /**
+     * Creates the database and builds its title index, which is built on first use.
+     */
+    @Setup
+    public void setUp() {
+        Database database = BenchmarkData.createDatabase(size);
+        search = new TitleIndex.Search(database.getTitleIndex());
+        texts = BenchmarkData.createSearchTexts(database, TEXT_COUNT);
+    }
+
+    /**
+     * Filters the showings by a search text unrelated to the previous one.
+     *
+     * @return The showings found.
+     */
+    @Benchmark
+    public List<Showing> titleFilter() {
+        return search.search(texts[next++ & (TEXT_COUNT - 1)]);
+    }
+}
@@ -0,0 +1,102 @@
+package nl.inholland.benchmarks;
+
+import nl.inholland.Database;
+import nl.inholland.model.Showing;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of selling a ticket, directly on a showing and through the database, which also finds the showing by
+ * its ID. Each sold seat is released again, so every operation sells a free seat.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class SellingBenchmark {
+    // The number of sales that are cycled through
+    private static final int SALE_COUNT = 1024;
+
+    // The number of showings in the database
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    // The database
+    private Database database;
+    // The showings and free seats sold
+    private Showing[] saleShowings;
+    private int[][] saleSeats;
+    // The index of the next sale
+    private int next;
+
+    /**
+     * Creates the database and picks free seats of showings spread over the whole schedule.
+     */
+    @Setup
+    public void setUp() {
+        database = BenchmarkData.createDatabase(size);
+
+        Random random = new Random(BenchmarkData.SEED);
+        List<Showing> showings = database.getShowings();
+        saleShowings = new Showing[SALE_COUNT];
+        saleSeats = new int[SALE_COUNT][];
+
+        for (int i = 0; i < SALE_COUNT; i++) {
+            Showing showing;
+            int[] seat;
+
+            do {
+                showing = showings.get(random.nextInt(showings.size()));
+                seat = new int[]{random.nextInt(showing.getSeatMap().getRows()),
+                        random.nextInt(showing.getSeatMap().getColumns())};
+            } while (showing.getSeatMap().isReserved(seat[0], seat[1]));
+
+            saleShowings[i] = showing;
+            saleSeats[i] = seat;
+        }
+    }
+
+    /**
+     * Sells a ticket of a showing at hand.
+     *
+     * @return Whether the seat was free.
+     */
+    @Benchmark
+    public boolean showingSellTicket() {
+        int sale = next++ & (SALE_COUNT - 1);
+        int[] seat = saleSeats[sale];
+        boolean sold = saleShowings[sale].sellTicket(seat);
+        saleShowings[sale].getSeatMap().release(seat[0], seat[1]);
+        return sold;
+    }
+
+    /**
+     * Sells a ticket of a showing by its ID, as the sell view does.
+     *
+     * @return The number of tickets sold for the showing.
+     */
+    @Benchmark
+    public int databaseSellTicket() {
+        int sale = next++ & (SALE_COUNT - 1);
+        int[] seat = saleSeats[sale];
+        database.sellTicket(saleShowings[sale].getId(), seat);
+        int ticketsSold = saleShowings[sale].getTicketsSold();
+        saleShowings[sale].getSeatMap().release(seat[0], seat[1]);
+        return ticketsSold;
+    }
+}
@@ -0,0 +1,98 @@
+package nl.inholland.benchmarks;
+
+import nl.inholland.Database;
+import nl.inholland.model.Showing;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of sorting a table column of dates: by the dates themselves, as the typed table columns do, and by the
+ * formatted dates with a comparator that parses both texts for every comparison, as the columns did before.
+ * Sorting formatted dates is slow enough to run each sort only once per iteration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class SortBenchmark {
+    // Formatter for date and time values in dd-MM-yyyy HH:mm format, as displayed in the tables
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm");
+    // Compares formatted dates by parsing them, like the comparator the date columns used to have
+    private static final Comparator<String> DATE_STRING_COMPARATOR = (date1, date2) -> {
+        LocalDateTime dt1 = LocalDateTime.parse(date1, FORMATTER);
+        LocalDateTime dt2 = LocalDateTime.parse(date2, FORMATTER);
+        return dt1.compareTo(dt2);
+    };
+
+    // The number of showings in the database
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    // The start times of the showings, in the order of the database
+    private List<LocalDateTime> starts;
+    // The start times as displayed
+    private List<String> formattedStarts;
+
+    /**
+     * Creates the database and collects the start times of its showings.
+     */
+    @Setup
+    public void setUp() {
+        Database database = BenchmarkData.createDatabase(size);
+        starts = new ArrayList<>(size);
+        formattedStarts = new ArrayList<>(size);
+
+        // Shuffle deterministically, as the database keeps its showings roughly in order
+        List<Showing> showings = new ArrayList<>(database.getShowings());
+        Collections.shuffle(showings, new Random(BenchmarkData.SEED));
+
+        for (Showing showing : showings) {
+            starts.add(showing.getStartDateTime());
+            formattedStarts.add(FORMATTER.format(showing.getStartDateTime()));
+        }
+    }
+
+    /**
+     * Sorts the start times by value.
+     *
+     * @return The sorted start times.
+     */
+    @Benchmark
+    public List<LocalDateTime> typedComparator() {
+        List<LocalDateTime> sorted = new ArrayList<>(starts);
+        sorted.sort(Comparator.naturalOrder());
+        return sorted;
+    }
+
+    /**
+     * Sorts the formatted start times by parsing them.
+     *
+     * @return The sorted start times.
+     */
+    @Benchmark
+    public List<String> dateStringComparator() {
+        List<String> sorted = new ArrayList<>(formattedStarts);
+        sorted.sort(DATE_STRING_COMPARATOR);
+        return sorted;
+    }
+}
@@ -1,6 +1,7 @@
 module nl.inholland.view {
     requires javafx.fxml;
     requires javafx.controls;
+    requires java.management;
 
 
     opens nl.inholland.controller to javafx.fxml;
@@ -8,5 +9,13 @@ module nl.inholland.view {
     exports nl.inholland.controller;
     exports nl.inholland;
     exports nl.inholland.model;
+    exports nl.inholland.persistence;
+    exports nl.inholland.booking;
+    exports nl.inholland.search;
+    exports nl.inholland.analytics;
+    exports nl.inholland.export;
+    exports nl.inholland.schedule;
+    exports nl.inholland.dataset;
+    exports nl.inholland.metrics;
     opens nl.inholland to javafx.fxml;
 }
\ No newline at end of file
@@ -1,39 +1,135 @@
 package nl.inholland;
 
+import nl.inholland.analytics.SalesAnalytics;
+import nl.inholland.booking.SeatHoldManager;
+import nl.inholland.metrics.Counter;
+import nl.inholland.metrics.LatencyHistogram;
+import nl.inholland.metrics.Metrics;
 import nl.inholland.model.AccessLevel;
+import nl.inholland.model.BookingResult;
+import nl.inholland.model.Room;
+import nl.inholland.model.SeatMap;
 import nl.inholland.model.Selling;
 import nl.inholland.model.Showing;
+import nl.inholland.model.ShowingDetails;
+import nl.inholland.model.ShowingSchedule;
+import nl.inholland.model.TitleIndex;
 import nl.inholland.model.User;
+import nl.inholland.persistence.HistoryPartition;
+import nl.inholland.persistence.InMemorySellingStore;
+import nl.inholland.persistence.Journal;
+import nl.inholland.persistence.SellingStore;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
+import java.io.Serial;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
 
 /**
- * The Database class serves as a mock database for managing users, showings, and ticket sales in the system.
- * It provides methods for retrieving and manipulating data related to users, showings, and sales.
+ * The Database class serves as a mock database for managing users, rooms, showings, and ticket sales in the system.
+ * It provides methods for retrieving and manipulating data related to users, rooms, showings, and sales.
  * This class is designed for use in a simulation environment where it manages the state in memory.
- * Implements {@link Serializable} to allow its instances to be serialized for storage.
+ * Past showings and their sales may be kept out of memory in a {@link HistoryPartition}, which is loaded
+ * the first time all showings or sales are requested. Sales are kept in a {@link SellingStore}, which may page
+ * them in from disk instead of holding them all in memory.
+ * Implements {@link Serializable} so database files of earlier versions, which used Java serialization, stay readable.
  */
 public class Database implements Serializable {
+    // This constant is used to keep track of the version, pinned so older database files stay readable
+    @Serial
+    private static final long serialVersionUID = 4857534806253674809L;
+    // Fields of the Java-serialized form, which keeps the sells in a plain list
+    @Serial
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("users", List.class),
+            new ObjectStreamField("showings", List.class),
+            new ObjectStreamField("sells", List.class),
+            new ObjectStreamField("journalSequence", long.class)
+    };
+    // Latencies of the mutations of the database, including their journal writes, exposed through JMX
+    private static final LatencyHistogram DELETE_SHOWING_LATENCY = Metrics.histogram("database", "deleteShowing");
+    private static final LatencyHistogram ADD_UPDATE_SHOWING_LATENCY = Metrics.histogram("database", "addUpdateShowing");
+    private static final LatencyHistogram ADD_SHOWINGS_LATENCY = Metrics.histogram("database", "addShowings");
+    private static final LatencyHistogram ADD_SELLING_LATENCY = Metrics.histogram("database", "addSelling");
+    private static final LatencyHistogram BOOK_SEATS_LATENCY = Metrics.histogram("database", "bookSeats");
+    private static final LatencyHistogram SELL_TICKET_LATENCY = Metrics.histogram("database", "sellTicket");
+    // Number of bookings that sold nothing because one of their seats had been sold in the meantime
+    private static final Counter BOOKING_CONFLICTS = Metrics.counter("database", "bookingConflicts");
+
     // List of users in the system
     private final List<User> users = new ArrayList<>();
+    // List of the rooms of the cinema, which are not part of the Java-serialized form
+    private final transient List<Room> rooms = new ArrayList<>();
     // List of showings available in the system
     private final List<Showing> showings = new ArrayList<>();
-    // List of sells made in the system
-    private final List<Selling> sells = new ArrayList<>();
+    // The showings in memory by ID, which sells read from disk are resolved through, possibly on other threads
+    private final transient Map<Integer, Showing> showingsById = new ConcurrentHashMap<>();
+    // Store of the sells made in the system
+    private final SellingStore sells;
+    // Sequence number of the last journal entry reflected in this state
+    private long journalSequence;
+    // Journal that records every mutation, or null while replaying or when journaling is disabled
+    private transient Journal journal;
+    // Number of mutations made since this instance was created, used to decide when a new snapshot is due
+    private transient volatile long modificationCount;
+    // Past showings and their sales that have not been loaded yet, or null if everything is in memory
+    private transient HistoryPartition history;
+    // The history partition of the last snapshot read or written, also once it has been loaded, or null if none
+    private transient volatile HistoryPartition archive;
+    // IDs of the showings in memory that a segment of the archive holds already
+    private final transient Set<Integer> archivedShowingIds = ConcurrentHashMap.newKeySet();
+    // Number of changes made to showings after a segment of the archive was written with them
+    private final transient AtomicLong archiveChanges = new AtomicLong();
+    // Number of changes to archived showings that the segments of the archive reflect
+    private transient volatile long savedArchiveChanges;
+    // Fully constructed instance built from the Java-serialized form, returned by readResolve
+    private transient Database deserialized;
+    // Shared by bookings claiming seats, held exclusively while copying so a copy never holds half a booking
+    private final transient ReadWriteLock bookingLock = new ReentrantReadWriteLock();
+    // Keeps seats for sales in progress, created when it is first needed
+    private transient SeatHoldManager seatHolds;
+    // Index of the showings in memory by the time they run, built when it is first needed
+    private transient ShowingSchedule schedule;
+    // Index of the showings in memory by their title, built when it is first needed
+    private transient TitleIndex titleIndex;
+    // Running totals of the ticket sales, built when they are first needed
+    private transient SalesAnalytics analytics;
+    // Receive every change made to the database, on the thread that made it
+    private final transient List<Consumer<DatabaseChange>> changeListeners = new CopyOnWriteArrayList<>();
 
     /**
      * Constructs a new Database instance, initializing predefined users, showings, and sells.
      */
     public Database() {
+        sells = new InMemorySellingStore();
+
         // Add some users
         users.add(new User("admin", "admin", AccessLevel.MANAGEMENT));
         users.add(new User("sell", "sell", AccessLevel.SALES));
 
+        // Add the rooms
+        rooms.addAll(createDefaultRooms());
+
         // Create reserved seats
         int[][] reservedSeats10 = new int[][]{
                 {0, 3}, {0, 4}, {0, 5}, {0, 6}, {0, 7}, {0, 8},
@@ -48,35 +144,385 @@ public class Database implements Serializable {
         };
 
         //  Create reservations
-        boolean[][] seats0 = new boolean[6][12];
-        boolean[][] seats10 = new boolean[6][12];
-        boolean[][] seats52 = new boolean[6][12];
+        SeatMap seats0 = new SeatMap(6, 12);
+        SeatMap seats10 = new SeatMap(6, 12);
+        SeatMap seats52 = new SeatMap(6, 12);
 
         // Initialize reserved seats for showings
         initializeSeats(reservedSeats10, seats10);
         initializeSeats(reservedSeats52, seats52);
 
         // Add some showings
-        showings.add(new Showing(0, LocalDateTime.of(2024, 11, 15, 14, 0), 10, LocalTime.of(2, 30), "Joker: Folie à Deux", seats10, true));
-        showings.add(new Showing(1, LocalDateTime.of(2024, 11, 12, 18, 0), 0, LocalTime.of(2, 0), "The Wild Robot", seats0, false));
-        showings.add(new Showing(2, LocalDateTime.of(2024, 10, 10, 16, 30), 52, LocalTime.of(3, 10), "Beetlejuice Beetlejuice", seats52, true));
+        showings.add(new Showing(0, LocalDateTime.of(2024, 11, 15, 14, 0), LocalTime.of(2, 30), "Joker: Folie à Deux", seats10, true));
+        showings.add(new Showing(1, LocalDateTime.of(2024, 11, 12, 18, 0), LocalTime.of(2, 0), "The Wild Robot", seats0, false));
+        showings.add(new Showing(2, LocalDateTime.of(2024, 10, 10, 16, 30), LocalTime.of(3, 10), "Beetlejuice Beetlejuice", seats52, true));
+        for (Showing showing : showings) {
+            showingsById.put(showing.getId(), showing);
+        }
 
         // Add selling data
         addSells();
     }
 
+    /**
+     * Constructs a Database instance holding the given, previously persisted, state of a cinema with the default
+     * rooms, as stored before the cinema had several rooms.
+     *
+     * @param users           The users in the system.
+     * @param showings        The showings in the system.
+     * @param sells           The store holding the sells made in the system.
+     * @param journalSequence The sequence number of the last journal entry reflected in this state.
+     */
+    public Database(List<User> users, List<Showing> showings, SellingStore sells, long journalSequence) {
+        this(users, createDefaultRooms(), showings, sells, journalSequence);
+    }
+
+    /**
+     * Constructs a Database instance holding the given, previously persisted, state.
+     *
+     * @param users           The users in the system.
+     * @param rooms           The rooms of the cinema.
+     * @param showings        The showings in the system.
+     * @param sells           The store holding the sells made in the system.
+     * @param journalSequence The sequence number of the last journal entry reflected in this state.
+     */
+    public Database(List<User> users, List<Room> rooms, List<Showing> showings, SellingStore sells, long journalSequence) {
+        this.users.addAll(users);
+        this.rooms.addAll(rooms);
+        this.showings.addAll(showings);
+        this.sells = sells;
+        this.journalSequence = journalSequence;
+
+        for (Showing showing : showings) {
+            showingsById.put(showing.getId(), showing);
+        }
+
+        // Resolve through the map only, so reading a sell never loads the history or scans the showings
+        sells.setShowingResolver(showingsById::get);
+    }
+
+    /**
+     * Writes the Java-serialized form, holding every sell in a plain list.
+     *
+     * @param out The stream to write to.
+     * @throws IOException If an I/O error occurs while writing.
+     */
+    @Serial
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("users", new ArrayList<>(users));
+        fields.put("showings", new ArrayList<>(getShowings()));
+        fields.put("sells", new ArrayList<>(getSells()));
+        fields.put("journalSequence", journalSequence);
+        out.writeFields();
+    }
+
+    /**
+     * Reads the fields of the Java-serialized form and builds the instance that {@link #readResolve()} returns,
+     * as the final fields of this instance cannot be assigned here.
+     *
+     * @param in The stream to read from.
+     * @throws IOException            If an I/O error occurs while reading.
+     * @throws ClassNotFoundException If the class of a field cannot be found.
+     */
+    @Serial
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        List<User> users = (List<User>) fields.get("users", List.of());
+        List<Showing> showings = (List<Showing>) fields.get("showings", List.of());
+        List<Selling> sells = (List<Selling>) fields.get("sells", List.of());
+        deserialized = new Database(users, showings, new InMemorySellingStore(sells), fields.get("journalSequence", 0L));
+    }
+
+    /**
+     * @return The database built from the Java-serialized form, with its sells in memory.
+     */
+    @Serial
+    private Object readResolve() {
+        return deserialized;
+    }
+
+    /**
+     * Creates a database holding the same state as this one, with its sells moved to another store.
+     * The history is loaded, as the new store must hold every sell.
+     *
+     * @param store The store to move the sells to; any sells it already holds are discarded.
+     * @return A database using the given store, without a journal attached.
+     * @throws IOException If the store cannot be written.
+     */
+    public Database withSellingStore(SellingStore store) throws IOException {
+        List<Selling> allSells = getSells();
+        store.truncate(0);
+        store.addAll(allSells);
+        return new Database(users, rooms, showings, store, journalSequence);
+    }
+
+    /**
+     * Creates the rooms of the cinema. Room 1 has the layout every showing had before the cinema had several rooms.
+     *
+     * @return The 14 rooms of the cinema.
+     */
+    public static List<Room> createDefaultRooms() {
+        int[][] layouts = new int[][]{
+                {6, 12}, {8, 14}, {10, 16}, {12, 18}, {6, 10}, {14, 20}, {20, 30},
+                {9, 12}, {10, 14}, {12, 16}, {7, 10}, {16, 22}, {5, 8}, {18, 26}
+        };
+        List<Room> defaultRooms = new ArrayList<>(layouts.length);
+
+        for (int i = 0; i < layouts.length; i++) {
+            int id = Room.DEFAULT_ID + i;
+            defaultRooms.add(new Room(id, "Room " + id, layouts[i][0], layouts[i][1]));
+        }
+
+        return defaultRooms;
+    }
+
     /**
      * Helper method to initialize reserved seats based on provided coordinates.
      *
      * @param reservedSeats The coordinates of reserved seats.
-     * @param seats         The boolean matrix representing seat availability.
+     * @param seats         The seat map to reserve the seats in.
      */
-    private void initializeSeats(int[][] reservedSeats, boolean[][] seats) {
+    private void initializeSeats(int[][] reservedSeats, SeatMap seats) {
         for (int[] seat : reservedSeats) {
-            seats[seat[0]][seat[1]] = true;
+            seats.reserve(seat[0], seat[1]);
+        }
+    }
+
+    /**
+     * Attaches a journal that receives every subsequent mutation of this database.
+     *
+     * @param journal The journal to append mutations to, or null to stop journaling.
+     */
+    public void attachJournal(Journal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * @return The sequence number of the last journal entry reflected in this state.
+     */
+    public long getJournalSequence() {
+        return journalSequence;
+    }
+
+    /**
+     * @param journalSequence The sequence number of the last journal entry reflected in this state.
+     */
+    public void setJournalSequence(long journalSequence) {
+        this.journalSequence = journalSequence;
+    }
+
+    /**
+     * @return The number of mutations made since this instance was created.
+     */
+    public long getModificationCount() {
+        return modificationCount;
+    }
+
+    /**
+     * Creates a point-in-time copy of this database that can be written to disk on another thread while this
+     * instance keeps changing. Sells are never modified once added, so the copy only captures the sells added so
+     * far; showings are copied because selling tickets changes their seats.
+     * Must be called on the thread that mutates the database. Waits for bookings in progress to finish.
+     *
+     * @return A copy of the current state.
+     */
+    public Database copy() {
+        Lock lock = bookingLock.writeLock();
+        lock.lock();
+
+        try {
+            List<Showing> showingsCopy = new ArrayList<>(showings.size());
+
+            for (Showing showing : showings) {
+                showingsCopy.add(showing.copy());
+            }
+
+            Database copy = new Database(users, rooms, showingsCopy, sells.copy(), journalSequence);
+            copy.history = history;
+            copy.archive = archive;
+            copy.archivedShowingIds.addAll(archivedShowingIds);
+            copy.archiveChanges.set(archiveChanges.get());
+            copy.savedArchiveChanges = savedArchiveChanges;
+            return copy;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Sets the past showings and sales that are kept on disk until they are first requested.
+     * The partition is the archive of the database as well.
+     *
+     * @param history The partition to load on demand, or null if everything is in memory.
+     */
+    public void setHistory(HistoryPartition history) {
+        this.history = history;
+        this.archive = history;
+    }
+
+    /**
+     * @return The past showings and sales that have not been loaded yet, or null if everything is in memory.
+     */
+    public HistoryPartition getHistory() {
+        return history;
+    }
+
+    /**
+     * @return The history partition of the snapshot this database was last read from or written to, which stays
+     * known once the history has been loaded, or null if there is none. Its segments may hold showings that are in
+     * memory as well; those are {@link #isArchived(Showing) archived}.
+     */
+    public HistoryPartition getArchive() {
+        return archive;
+    }
+
+    /**
+     * @param showing A showing in memory.
+     * @return True if a segment of the archive holds the showing, so a snapshot does not need to write it again.
+     */
+    public boolean isArchived(Showing showing) {
+        return archivedShowingIds.contains(showing.getId());
+    }
+
+    /**
+     * @return True if an archived showing has changed since its segment was written, so the next snapshot must write
+     * the archived showings in memory anew.
+     */
+    public boolean isArchiveChanged() {
+        return archiveChanges.get() != savedArchiveChanges;
+    }
+
+    /**
+     * Records that a snapshot of this database moved showings to the history segments. Called by the
+     * {@link nl.inholland.persistence.SnapshotCodec} on the database it wrote.
+     *
+     * @param archive    The history partition of the snapshot.
+     * @param showingIds The IDs of the showings in memory that the snapshot wrote to a new segment.
+     * @param rewritten  True if the new segment replaces the segments of every archived showing in memory, so the
+     *                   changes made to them are reflected.
+     */
+    public void setArchive(HistoryPartition archive, Collection<Integer> showingIds, boolean rewritten) {
+        this.archive = archive;
+        archivedShowingIds.addAll(showingIds);
+
+        if (rewritten) {
+            savedArchiveChanges = archiveChanges.get();
+        }
+    }
+
+    /**
+     * Takes over the archive of a snapshot written from a {@link #copy()} of this database, so the next snapshot
+     * only writes the showings that moved to the history since. A moved showing that has been changed or deleted
+     * since the copy was taken counts as a change to the archive.
+     *
+     * @param saved The copy the snapshot was written from.
+     */
+    public void adoptArchive(Database saved) {
+        if (saved.archive == archive) {
+            return;
+        }
+
+        List<Integer> movedShowingIds = new ArrayList<>();
+
+        for (Integer id : saved.archivedShowingIds) {
+            if (archivedShowingIds.add(id)) {
+                movedShowingIds.add(id);
+            }
+        }
+
+        // Changes made from now on are counted by the mutations; earlier ones differ from what was written
+        for (Integer id : movedShowingIds) {
+            Showing showing = showingsById.get(id);
+
+            if (showing == null || !isUnchanged(saved.showingsById.get(id), showing)) {
+                archiveChanges.incrementAndGet();
+                break;
+            }
+        }
+
+        if (saved.savedArchiveChanges > savedArchiveChanges) {
+            savedArchiveChanges = saved.savedArchiveChanges;
+        }
+
+        archive = saved.archive;
+    }
+
+    /**
+     * @param written The copy of a showing as it was written to a segment.
+     * @param showing The showing as it is now.
+     * @return True if the showing still has the details and sold seats it was written with.
+     */
+    private static boolean isUnchanged(Showing written, Showing showing) {
+        return written != null
+                && written.getStartDateTime().equals(showing.getStartDateTime())
+                && written.getDuration().equals(showing.getDuration())
+                && written.getTitle().equals(showing.getTitle())
+                && written.getRoomId() == showing.getRoomId()
+                && written.getIsAgeChecked() == showing.getIsAgeChecked()
+                && Arrays.equals(written.getSeatMap().getWords(), showing.getSeatMap().getWords());
+    }
+
+    /**
+     * Counts a change to a showing if a segment of the archive holds it, as the segment no longer matches it.
+     *
+     * @param showing The changed showing.
+     */
+    private void noteArchiveChange(Showing showing) {
+        if (showing != null && archivedShowingIds.contains(showing.getId())) {
+            archiveChanges.incrementAndGet();
+        }
+    }
+
+    /**
+     * Loads the history partition into memory if that has not happened yet.
+     *
+     * @throws RuntimeException If the history cannot be read.
+     */
+    private void ensureHistoryLoaded() {
+        if (history == null) {
+            return;
+        }
+
+        try {
+            Database loaded = history.load();
+            showings.addAll(loaded.showings);
+            sells.addAll(loaded.sells);
+            history = null;
+
+            for (Showing showing : loaded.showings) {
+                showingsById.put(showing.getId(), showing);
+                archivedShowingIds.add(showing.getId());
+                indexShowing(showing);
+            }
+
+            // Sells of past showings that were read before the history was loaded have no showing yet
+            sells.setShowingResolver(showingsById::get);
+
+            publish(new DatabaseChange.HistoryLoaded(List.copyOf(loaded.showings)));
+        } catch (IOException e) {
+            throw new RuntimeException("Error loading the sales history: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Finds a showing by its identifier.
+     *
+     * @param id The ID of the showing.
+     * @return The showing with the given ID, or null if there is none.
+     */
+    public Showing findShowing(int id) {
+        Showing showing = showingsById.get(id);
+
+        if (showing == null && history != null) {
+            ensureHistoryLoaded();
+            showing = showingsById.get(id);
+        }
+
+        return showing;
+    }
+
     /**
      * @return List of all users.
      */
@@ -85,16 +531,89 @@ public class Database implements Serializable {
     }
 
     /**
-     * @return List of all showings.
+     * @return List of the rooms of the cinema.
+     */
+    public List<Room> getRooms() {
+        return rooms;
+    }
+
+    /**
+     * Finds a room by its identifier.
+     *
+     * @param id The ID of the room.
+     * @return The room with the given ID, or null if there is none.
+     */
+    public Room findRoom(int id) {
+        for (Room room : rooms) {
+            if (room.getId() == id) {
+                return room;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @return List of all showings, loading the history if needed.
      */
     public List<Showing> getShowings() {
+        ensureHistoryLoaded();
         return showings;
     }
 
     /**
-     * @return List of all sales.
+     * @return List of all sales, loading the history if needed.
      */
     public List<Selling> getSells() {
+        ensureHistoryLoaded();
+        return sells;
+    }
+
+    /**
+     * Creates a point-in-time copy of all sales, loading the history if needed, that can be read on another thread
+     * while sales keep being added, e.g. to export them. Must be called on the thread that mutates the database.
+     * The showings of the copied sales are the live showings, which keep being edited on the thread that mutates
+     * the database; readers of the copy must only use their IDs, and look the details up in a copy made with
+     * {@link #copyShowingDetails()} at the same time.
+     *
+     * @return A read-only copy of all sales made so far.
+     */
+    public SellingStore copySells() {
+        ensureHistoryLoaded();
+        SellingStore copy = sells.copy();
+        Map<Integer, Showing> showingsAtCopy = Map.copyOf(showingsById);
+        copy.setShowingResolver(showingsAtCopy::get);
+        return copy;
+    }
+
+    /**
+     * Takes the details of all showings as they are now, loading the history if needed, so they can be read on
+     * another thread while the showings keep being edited and sold, e.g. to export them. Must be called on the
+     * thread that mutates the database. Only the details are copied, not the seat maps.
+     *
+     * @return The details of all showings, in the order of {@link #getShowings()}.
+     */
+    public List<ShowingDetails> copyShowingDetails() {
+        List<ShowingDetails> details = new ArrayList<>(getShowings().size());
+
+        for (Showing showing : showings) {
+            details.add(ShowingDetails.of(showing));
+        }
+
+        return details;
+    }
+
+    /**
+     * @return List of the showings currently in memory, without loading the history.
+     */
+    public List<Showing> getLoadedShowings() {
+        return showings;
+    }
+
+    /**
+     * @return The store of the sales that are not part of the history, without loading the history.
+     */
+    public SellingStore getSellingStore() {
         return sells;
     }
 
@@ -102,50 +621,514 @@ public class Database implements Serializable {
      * Deletes a showing from the system.
      *
      * @param selectedShowing The showing to delete.
+     * @throws UncheckedIOException If the deletion cannot be written to the journal; the showing is then kept.
      */
     public void deleteShowing(Showing selectedShowing) {
-        showings.remove(selectedShowing);
+        long start = System.nanoTime();
+        int index = showings.indexOf(selectedShowing);
+
+        if (index >= 0) {
+            if (journal != null) {
+                journalSequence = journal.appendDeleteShowing(selectedShowing.getId());
+            }
+
+            showings.remove(index);
+            showingsById.remove(selectedShowing.getId(), selectedShowing);
+            modificationCount++;
+            noteArchiveChange(selectedShowing);
+            unindexShowing(selectedShowing);
+            publish(new DatabaseChange.ShowingRemoved(selectedShowing));
+        }
+
+        DELETE_SHOWING_LATENCY.recordSince(start);
     }
 
     /**
      * Adds or updates a showing in the system.
-     * If the showing is new (id is -1), it is added as a new showing.
+     * If the showing is new (id is -1), it is added as a new showing with the next free id.
      *
      * @param showing The showing to add or update.
+     * @throws UncheckedIOException     If the change cannot be written to the journal; a new showing is then not
+     *                                  added and keeps an id of -1, and the stored showings are not updated.
+     * @throws IllegalArgumentException If the showing has an id, but there is no showing with that id; nothing is
+     *                                  then written to the journal.
      */
     public void addUpdateShowing(Showing showing) {
+        long start = System.nanoTime();
+
         if (showing.getId() == -1) {
-            showing.setId(showings.size());
+            showing.setId(nextShowingId());
+
+            if (journal != null) {
+                try {
+                    journalSequence = journal.appendAddShowing(showing);
+                } catch (UncheckedIOException e) {
+                    showing.setId(-1);
+                    throw e;
+                }
+            }
+
             showings.add(showing);
+            showingsById.put(showing.getId(), showing);
+            modificationCount++;
+            indexShowing(showing);
+            publish(new DatabaseChange.ShowingAdded(showing));
         } else {
-            showings.set(showing.getId(), showing);
+            int index = showings.indexOf(findShowing(showing.getId()));
+
+            // Checked before journaling, so a record that cannot be replayed is never written
+            if (index < 0) {
+                throw new IllegalArgumentException("Unknown showing: " + showing.getId());
+            }
+
+            if (journal != null) {
+                journalSequence = journal.appendUpdateShowing(showing);
+            }
+
+            showings.set(index, showing);
+            showingsById.put(showing.getId(), showing);
+            modificationCount++;
+            noteArchiveChange(showing);
+            indexShowing(showing);
+            publish(new DatabaseChange.ShowingUpdated(showing));
         }
+
+        ADD_UPDATE_SHOWING_LATENCY.recordSince(start);
     }
 
     /**
-     * @return List of upcoming showings based on the current date and time.
+     * Adds a batch of new showings at once, e.g. an imported schedule. The showings get consecutive IDs in the order
+     * given, are written to the journal with a single disk flush and are published one by one.
+     * Overlaps are not checked; the caller must have validated the showings against each other and the schedule.
+     *
+     * @param added The new showings, with an ID of -1.
+     * @throws UncheckedIOException If the showings cannot be written to the journal; none of them is then added,
+     *                              and they keep an ID of -1.
      */
-    public List<Showing> getUpcomingShowings() {
-        List<Showing> upcomingShowings = new ArrayList<>();
-        LocalDateTime now = LocalDateTime.now();
+    public void addShowings(List<Showing> added) {
+        if (added.isEmpty()) {
+            return;
+        }
 
-        for (Showing showing : showings) {
-            if (showing.getStartDateTime().isAfter(now)) {
-                upcomingShowings.add(showing);
+        long start = System.nanoTime();
+        int id = nextShowingId();
+
+        for (Showing showing : added) {
+            showing.setId(id++);
+        }
+
+        if (journal != null) {
+            try {
+                journalSequence = journal.appendAddShowings(added);
+            } catch (UncheckedIOException e) {
+                for (Showing showing : added) {
+                    showing.setId(-1);
+                }
+                throw e;
             }
         }
 
-        return upcomingShowings;
+        showings.addAll(added);
+        modificationCount++;
+
+        for (Showing showing : added) {
+            showingsById.put(showing.getId(), showing);
+        }
+        for (Showing showing : added) {
+            indexShowing(showing);
+        }
+        for (Showing showing : added) {
+            publish(new DatabaseChange.ShowingAdded(showing));
+        }
+
+        ADD_SHOWINGS_LATENCY.recordSince(start);
+    }
+
+    /**
+     * Adds a listener that receives every change made to the database from now on, e.g. to keep a view up to date.
+     * Listeners are called on the thread that made the change, which is not always the JavaFX Application Thread,
+     * so they should only hand the change over to the thread that applies it.
+     *
+     * @param listener The listener.
+     */
+    public void addChangeListener(Consumer<DatabaseChange> listener) {
+        changeListeners.add(listener);
+    }
+
+    /**
+     * Removes a listener added with {@link #addChangeListener(Consumer)}.
+     *
+     * @param listener The listener.
+     */
+    public void removeChangeListener(Consumer<DatabaseChange> listener) {
+        changeListeners.remove(listener);
+    }
+
+    /**
+     * Passes a change to every change listener.
+     *
+     * @param change The change that was made.
+     */
+    private void publish(DatabaseChange change) {
+        for (Consumer<DatabaseChange> listener : changeListeners) {
+            listener.accept(change);
+        }
+    }
+
+    /**
+     * Adds a showing to the indexes that have been built, or updates it in them.
+     *
+     * @param showing The showing that was added, changed or loaded.
+     */
+    private void indexShowing(Showing showing) {
+        if (schedule != null) {
+            schedule.add(showing);
+        }
+        if (titleIndex != null) {
+            titleIndex.add(showing);
+        }
+    }
+
+    /**
+     * Removes a showing from the indexes that have been built.
+     *
+     * @param showing The showing that was deleted.
+     */
+    private void unindexShowing(Showing showing) {
+        if (schedule != null) {
+            schedule.remove(showing.getId());
+        }
+        if (titleIndex != null) {
+            titleIndex.remove(showing.getId());
+        }
+    }
+
+    /**
+     * Finds the showings that run in a room during a period, i.e. that start before it ends and end after it starts.
+     * The history is only loaded if it holds a showing that could overlap the period.
+     *
+     * @param roomId The ID of the room.
+     * @param start  The start of the period.
+     * @param end    The end of the period.
+     * @return The overlapping showings, sorted by start time.
+     */
+    public List<Showing> findOverlappingShowings(int roomId, LocalDateTime start, LocalDateTime end) {
+        if (history != null && start.isBefore(history.latestEnd())) {
+            ensureHistoryLoaded();
+        }
+
+        return getSchedule().findOverlapping(roomId, start, end);
+    }
+
+    /**
+     * Determines the identifier for a new showing. Unlike the list position, the identifier does not
+     * shift when other showings are deleted, so the journal and the sales history can refer to it.
+     *
+     * @return One more than the highest showing ID in use.
+     */
+    private int nextShowingId() {
+        int maxId = history != null ? history.maxShowingId() : -1;
+
+        for (Showing showing : showings) {
+            maxId = Math.max(maxId, showing.getId());
+        }
+
+        return maxId + 1;
+    }
+
+    /**
+     * @return A read-only view of the upcoming showings based on the current date and time, sorted by start time.
+     */
+    public Collection<Showing> getUpcomingShowings() {
+        // Upcoming showings are never part of the history, so it is not loaded here
+        return getSchedule().startingAfter(LocalDateTime.now());
+    }
+
+    /**
+     * @param after The moment after which the showings start.
+     * @param until The last moment at which the showings start.
+     * @return A read-only view of the showings that start after the first and not after the second moment, sorted by
+     * start time, e.g. the showings that are no longer upcoming since a moment. The history is only loaded if it could
+     * hold such a showing.
+     */
+    public Collection<Showing> getShowingsStartingBetween(LocalDateTime after, LocalDateTime until) {
+        if (history != null && after.isBefore(history.latestEnd())) {
+            ensureHistoryLoaded();
+        }
+
+        return getSchedule().startingBetween(after, until);
+    }
+
+    /**
+     * @param date The date.
+     * @return A read-only view of the showings that start on the date, sorted by start time.
+     * The history is only loaded if it could hold such a showing.
+     */
+    public Collection<Showing> getShowingsOn(LocalDate date) {
+        if (history != null && date.atStartOfDay().isBefore(history.latestEnd())) {
+            ensureHistoryLoaded();
+        }
+
+        return getSchedule().startingOn(date);
+    }
+
+    /**
+     * @return The index of the showings in memory by their title, built when it is first needed and kept up to date
+     * as showings change. The history is not loaded for it.
+     */
+    public synchronized TitleIndex getTitleIndex() {
+        if (titleIndex == null) {
+            titleIndex = new TitleIndex(showings);
+        }
+
+        return titleIndex;
+    }
+
+    /**
+     * @return The running totals of the ticket sales, built from the showings in memory and the stored totals of the
+     * history when they are first needed, and kept up to date as the database changes. The history is not loaded
+     * for them.
+     */
+    public synchronized SalesAnalytics getAnalytics() {
+        if (analytics == null) {
+            analytics = new SalesAnalytics(showings, history != null ? history.totals() : null);
+            addChangeListener(analytics);
+        }
+
+        return analytics;
+    }
+
+    /**
+     * @return The index of the showings in memory by the time they run, built when it is first needed.
+     */
+    private ShowingSchedule getSchedule() {
+        if (schedule == null) {
+            schedule = new ShowingSchedule(showings);
+        }
+
+        return schedule;
     }
 
     /**
      * Adds a selling record to the system.
      *
      * @param selling The selling record to add.
+     * @throws UncheckedIOException If the selling cannot be written to the journal; it is then not added.
+     */
+    public synchronized void addSelling(Selling selling) {
+        long start = System.nanoTime();
+        recordSelling(selling, journal != null ? journal::appendAddSelling : null);
+        publish(new DatabaseChange.SellingAdded(selling));
+        ADD_SELLING_LATENCY.recordSince(start);
+    }
+
+    /**
+     * Books several seats of a showing for a customer in one atomic step: either every seat is sold and the
+     * selling is committed, or no seat is sold at all.
+     *
+     * @param showingId The ID of the showing.
+     * @param seats     The coordinates of the seats to book.
+     * @param customer  The name of the customer.
+     * @return The committed selling, or the seats that were already sold.
+     * @throws IllegalArgumentException If there is no showing with the given ID.
+     */
+    public BookingResult bookSeats(int showingId, List<int[]> seats, String customer) {
+        Showing showing = findShowing(showingId);
+
+        if (showing == null) {
+            throw new IllegalArgumentException("Unknown showing: " + showingId);
+        }
+
+        return bookSeats(new Selling(-1, LocalDateTime.now(), seats.size(), showing, customer, List.copyOf(seats)));
+    }
+
+    /**
+     * Books the seats of a selling in one atomic step: either every seat is sold and the selling is committed,
+     * or no seat is sold at all.
+     * Seats are claimed with compare-and-set operations on the seat map rather than under a global lock, so
+     * bookings for different seats, e.g. from several terminals, do not wait for each other; only assigning the
+     * selling ID and appending it to the journal is serialized.
+     *
+     * @param selling The selling to commit, holding the showing and the seats to book.
+     * @return The committed selling, or the seats that were already sold.
+     */
+    public BookingResult bookSeats(Selling selling) {
+        return bookHeldSeats(selling, List.of());
+    }
+
+    /**
+     * Books the seats of a selling like {@link #bookSeats(Selling)}, where some of the seats are already held
+     * for it. Held seats are sold as they are; the other seats are claimed. If any of those has been sold in the
+     * meantime, nothing is sold and the held seats are released.
+     *
+     * @param selling   The selling to commit, holding the showing and the seats to book.
+     * @param heldSeats The seats of the selling that are held for it.
+     * @return The committed selling, or the seats that were already sold.
+     * @throws UncheckedIOException If the selling cannot be written to the journal; nothing is then sold and the
+     *                              held seats are released.
+     */
+    public BookingResult bookHeldSeats(Selling selling, List<int[]> heldSeats) {
+        long start = System.nanoTime();
+        Lock lock = bookingLock.readLock();
+        lock.lock();
+
+        try {
+            SeatMap seatMap = selling.getShowing().getSeatMap();
+            List<int[]> otherSeats = new ArrayList<>();
+
+            for (int[] seat : selling.getSeats()) {
+                if (!containsSeat(heldSeats, seat)) {
+                    otherSeats.add(seat);
+                }
+            }
+
+            List<int[]> lostSeats = seatMap.reserveAll(otherSeats);
+
+            if (!lostSeats.isEmpty()) {
+                seatMap.releaseHeld(heldSeats);
+                publishReleased(selling.getShowing(), heldSeats);
+                BOOKING_CONFLICTS.increment();
+                return BookingResult.conflict(lostSeats);
+            }
+
+            try {
+                commitBooking(selling);
+            } catch (UncheckedIOException e) {
+                for (int[] seat : otherSeats) {
+                    seatMap.release(seat[0], seat[1]);
+                }
+                seatMap.releaseHeld(heldSeats);
+                publishReleased(selling.getShowing(), selling.getSeats());
+                throw e;
+            }
+
+            seatMap.sellHeld(heldSeats);
+            publish(new DatabaseChange.SeatsSold(selling.getShowing(), selling.getSeats()));
+            publish(new DatabaseChange.SellingAdded(selling));
+            return BookingResult.committed(selling);
+        } finally {
+            lock.unlock();
+            BOOK_SEATS_LATENCY.recordSince(start);
+        }
+    }
+
+    /**
+     * @return The manager that keeps seats for sales in progress, created with the default time-to-live when it is
+     * first requested.
+     */
+    public synchronized SeatHoldManager getSeatHolds() {
+        if (seatHolds == null) {
+            seatHolds = new SeatHoldManager(this, SeatHoldManager.DEFAULT_TTL);
+        }
+
+        return seatHolds;
+    }
+
+    /**
+     * Holds seats of a showing for a sale in progress, all of them or none. Held seats cannot be booked by anyone
+     * else until they are released or booked with {@link #bookHeldSeats(Selling, List)}. Holds are not journaled,
+     * but they are published, so other terminals show the seats as taken.
+     *
+     * @param showing The showing the seats belong to.
+     * @param seats   The coordinates of the seats to hold.
+     * @return The seats that were already sold or held, or an empty list if all seats are held now.
+     */
+    public List<int[]> holdSeats(Showing showing, List<int[]> seats) {
+        Lock lock = bookingLock.readLock();
+        lock.lock();
+
+        try {
+            List<int[]> lostSeats = showing.getSeatMap().hold(seats);
+
+            if (lostSeats.isEmpty()) {
+                publish(new DatabaseChange.SeatsHeld(showing, seats));
+            }
+
+            return lostSeats;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Frees seats that were held with {@link #holdSeats(Showing, List)}, and publishes that they are free again.
+     *
+     * @param showing The showing the seats belong to.
+     * @param seats   The coordinates of the held seats.
+     */
+    public void releaseHeldSeats(Showing showing, List<int[]> seats) {
+        Lock lock = bookingLock.readLock();
+        lock.lock();
+
+        try {
+            showing.getSeatMap().releaseHeld(seats);
+            publishReleased(showing, seats);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Publishes that seats of a showing were freed without being sold, unless there are none.
+     *
+     * @param showing The showing the seats belong to.
+     * @param seats   The coordinates of the freed seats.
+     */
+    private void publishReleased(Showing showing, List<int[]> seats) {
+        if (!seats.isEmpty()) {
+            publish(new DatabaseChange.SeatsReleased(showing, seats));
+        }
+    }
+
+    /**
+     * @param seats The coordinates of seats.
+     * @param seat  The coordinates of a seat.
+     * @return True if the seat is among the seats.
      */
-    public void addSelling(Selling selling) {
-        selling.setId(sells.size());
+    private static boolean containsSeat(List<int[]> seats, int[] seat) {
+        for (int[] other : seats) {
+            if (other[0] == seat[0] && other[1] == seat[1]) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Assigns the ID of a booked selling, records it in the journal and stores it. The caller publishes the sale.
+     *
+     * @param selling The selling whose seats have been claimed.
+     * @throws UncheckedIOException If the selling cannot be written to the journal; it is then not stored.
+     */
+    private synchronized void commitBooking(Selling selling) {
+        recordSelling(selling, journal != null ? journal::appendBookSeats : null);
+    }
+
+    /**
+     * Assigns the ID of a selling, writes it to the journal and only then stores it, so a selling that is not in the
+     * journal is not stored either. Must be called while holding the lock of this instance.
+     *
+     * @param selling The selling.
+     * @param append  Appends the selling to the journal and returns the sequence number of the record, or null if
+     *                no journal is attached.
+     * @throws UncheckedIOException If the selling cannot be written to the journal; it then keeps an ID of -1.
+     */
+    private void recordSelling(Selling selling, ToLongFunction<Selling> append) {
+        selling.setId(sells.size() + (history != null ? history.sellCount() : 0));
+
+        if (append != null) {
+            try {
+                journalSequence = append.applyAsLong(selling);
+            } catch (UncheckedIOException e) {
+                selling.setId(-1);
+                throw e;
+            }
+        }
+
         sells.add(selling);
+        modificationCount++;
+        noteArchiveChange(selling.getShowing());
     }
 
     /**
@@ -153,10 +1136,28 @@ public class Database implements Serializable {
      *
      * @param showingId The ID of the showing.
      * @param seat      The coordinates of the seat to mark as sold.
+     * @throws UncheckedIOException     If the sale cannot be written to the journal; the seat is then not sold.
+     * @throws IllegalArgumentException If there is no showing with the given ID; nothing is then written to the
+     *                                  journal.
      */
-    public void sellTicket(int showingId, int[] seat) {
-        Showing showing = showings.get(showingId);
+    public synchronized void sellTicket(int showingId, int[] seat) {
+        long start = System.nanoTime();
+        Showing showing = findShowing(showingId);
+
+        if (showing == null) {
+            throw new IllegalArgumentException("Unknown showing: " + showingId);
+        }
+
+        if (journal != null) {
+            journalSequence = journal.appendSellTicket(showingId, seat);
+        }
+
         showing.sellTicket(seat);
+        modificationCount++;
+        noteArchiveChange(showing);
+
+        publish(new DatabaseChange.SeatsSold(showing, List.of(seat)));
+        SELL_TICKET_LATENCY.recordSince(start);
     }
 
     /**
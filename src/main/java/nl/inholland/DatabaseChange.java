@@ -0,0 +1,81 @@
+package nl.inholland;
+
+import nl.inholland.model.Selling;
+import nl.inholland.model.Showing;
+
+import java.util.List;
+
+/**
+ * The DatabaseChange interface describes a change made to the {@link Database}, as published to the listeners
+ * added with {@link Database#addChangeListener(java.util.function.Consumer)}.
+ * Views that list data of the database apply these changes to their lists instead of building them again.
+ */
+public sealed interface DatabaseChange {
+    /**
+     * A showing was added.
+     *
+     * @param showing The added showing.
+     */
+    record ShowingAdded(Showing showing) implements DatabaseChange {
+    }
+
+    /**
+     * A showing was edited, e.g. its title, start time or room changed.
+     *
+     * @param showing The edited showing.
+     */
+    record ShowingUpdated(Showing showing) implements DatabaseChange {
+    }
+
+    /**
+     * A showing was deleted.
+     *
+     * @param showing The deleted showing.
+     */
+    record ShowingRemoved(Showing showing) implements DatabaseChange {
+    }
+
+    /**
+     * Seats of a showing were sold.
+     *
+     * @param showing The showing.
+     * @param seats   The coordinates of the sold seats.
+     */
+    record SeatsSold(Showing showing, List<int[]> seats) implements DatabaseChange {
+    }
+
+    /**
+     * Seats of a showing were held for a sale in progress.
+     *
+     * @param showing The showing.
+     * @param seats   The coordinates of the held seats.
+     */
+    record SeatsHeld(Showing showing, List<int[]> seats) implements DatabaseChange {
+    }
+
+    /**
+     * Seats of a showing were freed without being sold, e.g. because their hold was released or expired, or
+     * because a booking of them failed.
+     *
+     * @param showing The showing.
+     * @param seats   The coordinates of the freed seats.
+     */
+    record SeatsReleased(Showing showing, List<int[]> seats) implements DatabaseChange {
+    }
+
+    /**
+     * A selling was added to the sales history.
+     *
+     * @param selling The added selling.
+     */
+    record SellingAdded(Selling selling) implements DatabaseChange {
+    }
+
+    /**
+     * The history partition was loaded, adding its showings and sales to the database.
+     *
+     * @param showings The showings of the history.
+     */
+    record HistoryLoaded(List<Showing> showings) implements DatabaseChange {
+    }
+}
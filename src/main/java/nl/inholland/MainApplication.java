@@ -1,45 +1,150 @@
 package nl.inholland;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
 import nl.inholland.controller.LoginController;
+import nl.inholland.controller.MainController;
+import nl.inholland.metrics.LatencyHistogram;
+import nl.inholland.metrics.Metrics;
+import nl.inholland.model.User;
+import nl.inholland.persistence.AutoSaver;
+import nl.inholland.persistence.InMemorySellingStore;
+import nl.inholland.persistence.Journal;
+import nl.inholland.persistence.PagedSellingStore;
+import nl.inholland.persistence.SellingStore;
+import nl.inholland.persistence.SnapshotCodec;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * The MainApplication class is the entry point for the JavaFX application.
  * It handles loading the initial scene, managing the application lifecycle,
- * and serializing/deserializing the application state (database).
+ * and serializing/deserializing the application state (database) with the {@link SnapshotCodec}.
+ * Every change to the database is also appended to a journal, which is replayed on top of the serialized
+ * snapshot at startup. An {@link AutoSaver} compacts the journal into a new snapshot in the background,
+ * and a final snapshot is written when the application closes.
+ * Sales are kept in a {@link PagedSellingStore} by default, so only a few pages of the sales history are in memory;
+ * run with -Dselling.store=memory to keep them in memory and in the snapshot instead.
+ * <p>
+ * Startup runs in concurrent stages timed by a {@link StartupReport}: the database is read and brought up to date
+ * with the journal on a background thread, while the users are read on their own so they can log in right away,
+ * the main view is parsed in advance and the login view is shown.
  */
 public class MainApplication extends Application {
-    // Path to the serialized file where the database state is stored
-    private static final String DATABASE_FILE = "database.ser";
+    // Path to the snapshot file where the database state is stored
+    private static final String DATABASE_FILE = "database.snap";
+    // Path to the Java-serialized file used by earlier versions, read once if no snapshot exists yet
+    private static final String LEGACY_DATABASE_FILE = "database.ser";
+    // Path to the journal file where changes made since the last snapshot are appended
+    private static final String JOURNAL_FILE = "database.journal";
+    // Path to the file where the paged selling store keeps the sales
+    private static final String SELLS_FILE = "database.sells";
+    // Whether the sales are kept in memory instead of the paged store, configurable with -Dselling.store=memory
+    private static final boolean SELLS_IN_MEMORY = "memory".equals(System.getProperty("selling.store"));
+    // Maximum number of pages of sales kept in memory by the paged store
+    private static final int SELLS_CACHE_PAGES = 64;
+    // Maximum time changes are kept only in the journal, configurable with -Dautosave.interval=<seconds>
+    private static final Duration AUTOSAVE_INTERVAL = Duration.ofSeconds(Long.getLong("autosave.interval", 60));
+    // Number of unsaved changes that triggers an earlier snapshot, configurable with -Dautosave.threshold=<changes>
+    private static final long AUTOSAVE_DIRTY_THRESHOLD = Long.getLong("autosave.threshold", 1000);
 
+    // Number of startup stages that run in the background at the same time
+    private static final int STARTUP_THREADS = 3;
+    // Latency of reading the database at startup, before the journal is replayed, exposed through JMX
+    private static final LatencyHistogram LOAD_LATENCY = Metrics.histogram("persistence", "load");
+
+    // Times the stages of the startup
+    private final StartupReport startupReport = new StartupReport();
+    // Completed with the database once it has been read and brought up to date with the journal
+    private CompletableFuture<Database> databaseLoaded;
     // Instance of the Database class used for storing application data
     private Database database;
+    // Journal receiving every change made to the database
+    private Journal journal;
+    // File holding the sales, which stays open while the application runs
+    private PagedSellingStore sellingStore;
+    // Writes snapshots of the database in the background
+    private AutoSaver autoSaver;
 
     /**
      * The main entry point for all JavaFX applications. This method is called to start the application.
      *
      * @param stage The primary stage for the JavaFX application, onto which scenes are set.
-     * @throws IOException If an I/O error occurs while loading the FXML.
+     * @throws Exception If an error occurs while loading the FXML of the login view.
      */
     @Override
-    public void start(Stage stage) throws IOException {
-        // Deserialize the database at startup
-        database = loadDatabase();
+    public void start(Stage stage) throws Exception {
+        ExecutorService startupExecutor = Executors.newFixedThreadPool(STARTUP_THREADS, task -> {
+            Thread thread = new Thread(task, "startup");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // Deserialize the database in the background and bring it up to date with the journal
+        databaseLoaded = startupReport.runAsync("database", this::openDatabase, startupExecutor);
+
+        // Read only the users from the snapshot, so users can log in while the rest is still being read
+        CompletableFuture<List<User>> usersLoaded = startupReport
+                .runAsync("users", () -> SnapshotCodec.readUsers(Path.of(DATABASE_FILE)), startupExecutor)
+                .exceptionallyCompose(e -> databaseLoaded.thenApply(Database::getUsers));
+
+        // Parse the main view in advance, it is filled in for the user who logs in
+        CompletableFuture<FXMLLoader> mainViewLoaded = startupReport.runAsync("main view", () -> {
+            FXMLLoader mainLoader = new FXMLLoader(getClass().getResource("/nl/inholland/view/main-view.fxml"));
+            mainLoader.setController(new MainController());
+            mainLoader.load();
+            return mainLoader;
+        }, startupExecutor);
+        startupExecutor.shutdown();
 
         // Load the FXML for the login screen
-        FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("/nl/inholland/view/login-view.fxml"));
-        fxmlLoader.setController(new LoginController(database));
-        Scene scene = new Scene(fxmlLoader.load());
-        scene.getStylesheets().add(Objects.requireNonNull(getClass().getResource("/nl/inholland/view/css/login-view.css")).toExternalForm());
+        Scene scene = startupReport.run("login view", () -> {
+            FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("/nl/inholland/view/login-view.fxml"));
+            fxmlLoader.setController(new LoginController(usersLoaded, databaseLoaded, mainViewLoaded));
+            Scene loginScene = new Scene(fxmlLoader.load());
+            loginScene.getStylesheets().add(Objects.requireNonNull(getClass().getResource("/nl/inholland/view/css/login-view.css")).toExternalForm());
+            return loginScene;
+        });
         stage.setScene(scene);
         stage.show();
         stage.setResizable(false); // Prevent resizing of the window
+        startupReport.mark("login shown");
+
+        CompletableFuture.allOf(databaseLoaded, usersLoaded, mainViewLoaded).whenComplete((result, error) -> {
+            startupReport.mark("ready");
+            startupReport.publish();
+        });
+    }
+
+    /**
+     * Reads the database, brings it up to date with the journal, builds its sales totals and starts saving it in the
+     * background.
+     *
+     * @return The database.
+     * @throws IOException If the database cannot be read, or the selling store or the journal cannot be opened.
+     */
+    private Database openDatabase() throws IOException {
+        database = loadDatabase();
+        journal = Journal.open(Path.of(JOURNAL_FILE), database);
+        database.attachJournal(journal);
+        // Build the sales totals before anyone can sell, from the showings and the stored totals of the history
+        database.getAnalytics();
+        autoSaver = new AutoSaver(database, journal, Path.of(DATABASE_FILE), AUTOSAVE_INTERVAL,
+                AUTOSAVE_DIRTY_THRESHOLD, Platform::runLater);
+        autoSaver.start();
+        return database;
     }
 
     /**
@@ -50,8 +155,20 @@ public class MainApplication extends Application {
      */
     @Override
     public void stop() throws Exception {
+        // Wait for the database if the application is closed while it is still being loaded
+        try {
+            databaseLoaded.join();
+        } catch (CompletionException e) {
+            // Nothing was loaded, so there is nothing to save, and a file that could not be read is kept as it is
+            super.stop();
+            return;
+        }
+
         // Serialize the database before the application closes
-        saveDatabase();
+        autoSaver.close();
+        autoSaver.saveNow();
+        journal.close();
+        sellingStore.close();
         super.stop();
     }
 
@@ -65,33 +182,57 @@ public class MainApplication extends Application {
     }
 
     /**
-     * Serializes the current state of the database and saves it to a file.
-     * This ensures that any changes made during the application's runtime are persisted.
+     * Deserializes the database and opens the selling store to restore the application's state at startup.
+     * If the sales are not kept in the configured kind of store yet, they are moved there; the next save records
+     * the move in the snapshot.
      *
-     * @throws RuntimeException If an I/O error occurs during serialization.
+     * @return The deserialized Database instance, or a new instance if no database has been saved yet.
+     * @throws IOException If the database cannot be read, or the selling store cannot be opened or written.
      */
-    private void saveDatabase() {
-        try (FileOutputStream fos = new FileOutputStream(DATABASE_FILE);
-             ObjectOutputStream oos = new ObjectOutputStream(fos)) {
-            oos.writeObject(database);
-        } catch (IOException e) {
-            throw new RuntimeException("Error saving the database: " + e.getMessage(), e);
+    private Database loadDatabase() throws IOException {
+        long start = System.nanoTime();
+        sellingStore = PagedSellingStore.open(Path.of(SELLS_FILE), SELLS_CACHE_PAGES);
+        Database database = readDatabase();
+        SellingStore target = SELLS_IN_MEMORY ? new InMemorySellingStore() : sellingStore;
+
+        if (database.getSellingStore().isDurable() != target.isDurable()) {
+            database = database.withSellingStore(target);
         }
+
+        LOAD_LATENCY.recordSince(start);
+        return database;
     }
 
     /**
-     * Deserializes the database from a file to restore the application's state at startup.
-     * If the file does not exist or deserialization fails, a new Database instance is returned.
+     * Deserializes the database from a file.
+     * If no snapshot exists yet, the Java-serialized file of earlier versions is read instead; the next save
+     * migrates it to the snapshot format.
+     * If neither file exists, a new Database instance is returned. A file that exists but cannot be read fails the
+     * startup instead, so the file is left as it is rather than overwritten by the next save.
      *
-     * @return The deserialized Database instance or a new instance if an error occurs.
+     * @return The deserialized Database instance, or a new instance if no database has been saved yet.
+     * @throws IOException If the snapshot or the Java-serialized file exists but cannot be read.
      */
-    private Database loadDatabase() {
-        try (FileInputStream fis = new FileInputStream(DATABASE_FILE);
+    private Database readDatabase() throws IOException {
+        if (Files.exists(Path.of(DATABASE_FILE))) {
+            try {
+                return SnapshotCodec.read(Path.of(DATABASE_FILE), sellingStore);
+            } catch (IOException e) {
+                throw new IOException("The database file " + DATABASE_FILE + " cannot be read and has been left as it is: "
+                        + e.getMessage(), e);
+            }
+        }
+
+        if (!Files.exists(Path.of(LEGACY_DATABASE_FILE))) {
+            return new Database();
+        }
+
+        try (FileInputStream fis = new FileInputStream(LEGACY_DATABASE_FILE);
              ObjectInputStream ois = new ObjectInputStream(fis)) {
             return (Database) ois.readObject();
         } catch (IOException | ClassNotFoundException e) {
-            // Return a new database if the file does not exist or deserialization fails
-            return new Database();
+            throw new IOException("The database file " + LEGACY_DATABASE_FILE + " cannot be read and has been left as it is: "
+                    + e.getMessage(), e);
         }
     }
 }
\ No newline at end of file
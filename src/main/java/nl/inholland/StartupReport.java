@@ -0,0 +1,136 @@
+package nl.inholland;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * The StartupReport class times the stages of the application startup, some of which run concurrently, and
+ * reports when each stage started and how long it took, relative to the start of the application.
+ * The report is logged once startup is complete and, when run with -Dstartup.report=&lt;file&gt;, also written to
+ * a file, so startup times can be compared between versions.
+ */
+public class StartupReport {
+    // Logger used to report the startup times
+    private static final System.Logger LOGGER = System.getLogger(StartupReport.class.getName());
+    // File the report is written to, configurable with -Dstartup.report=<file>
+    private static final String REPORT_FILE = System.getProperty("startup.report");
+
+    // The time the application started, in System.nanoTime() terms
+    private final long origin = System.nanoTime();
+    // The stages timed so far, in the order they finished
+    private final List<Stage> stages = new ArrayList<>();
+
+    /**
+     * Runs a stage on the current thread and records its time.
+     *
+     * @param name The name of the stage.
+     * @param work The work of the stage.
+     * @param <T>  The type of the result of the stage.
+     * @return The result of the stage.
+     * @throws Exception If the stage fails; its time is recorded anyway.
+     */
+    public <T> T run(String name, Callable<T> work) throws Exception {
+        long start = System.nanoTime();
+
+        try {
+            return work.call();
+        } finally {
+            record(name, start);
+        }
+    }
+
+    /**
+     * Starts a stage on an executor and records its time once it has finished.
+     *
+     * @param name     The name of the stage.
+     * @param work     The work of the stage.
+     * @param executor The executor to run the stage on.
+     * @param <T>      The type of the result of the stage.
+     * @return A future completed with the result of the stage, or exceptionally if the stage fails.
+     */
+    public <T> CompletableFuture<T> runAsync(String name, Callable<T> work, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return run(name, work);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Records a moment of the startup, such as the first window being shown, as a stage without duration.
+     *
+     * @param name The name of the moment.
+     */
+    public void mark(String name) {
+        record(name, System.nanoTime());
+    }
+
+    /**
+     * @return The stages timed so far, in the order they finished.
+     */
+    public synchronized List<Stage> getStages() {
+        return List.copyOf(stages);
+    }
+
+    /**
+     * Logs the report and writes it to the report file, if one is configured.
+     */
+    public void publish() {
+        String report = format();
+        LOGGER.log(System.Logger.Level.INFO, "Startup report:\n" + report);
+
+        if (REPORT_FILE != null) {
+            try {
+                Files.writeString(Path.of(REPORT_FILE), report);
+            } catch (IOException e) {
+                LOGGER.log(System.Logger.Level.WARNING, "Could not write the startup report to " + REPORT_FILE, e);
+            }
+        }
+    }
+
+    /**
+     * @return The report as text, one stage per line: its name, when it started and how long it took in
+     * milliseconds, and the thread it ran on.
+     */
+    public String format() {
+        StringBuilder report = new StringBuilder();
+
+        for (Stage stage : getStages()) {
+            report.append(String.format("%-20s start %8.1f ms  took %8.1f ms  [%s]%n",
+                    stage.name(), stage.startNanos() / 1e6, stage.durationNanos() / 1e6, stage.thread()));
+        }
+
+        return report.toString();
+    }
+
+    /**
+     * Records a stage that has just finished.
+     *
+     * @param name  The name of the stage.
+     * @param start The time the stage started, in System.nanoTime() terms.
+     */
+    private synchronized void record(String name, long start) {
+        long end = System.nanoTime();
+        stages.add(new Stage(name, start - origin, end - start, Thread.currentThread().getName()));
+    }
+
+    /**
+     * A timed stage of the startup.
+     *
+     * @param name          The name of the stage.
+     * @param startNanos    When the stage started, in nanoseconds since the start of the application.
+     * @param durationNanos How long the stage took, in nanoseconds.
+     * @param thread        The name of the thread the stage ran on.
+     */
+    public record Stage(String name, long startNanos, long durationNanos, String thread) {
+    }
+}
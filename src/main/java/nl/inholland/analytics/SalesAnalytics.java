@@ -0,0 +1,150 @@
+package nl.inholland.analytics;
+
+import nl.inholland.DatabaseChange;
+import nl.inholland.model.Showing;
+
+import java.time.LocalDateTime;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * The SalesAnalytics class keeps running totals of the ticket sales up to date as the database changes: the tickets
+ * sold per showing, per title, per day and per hour of the day, and the occupancy of each. It receives every change
+ * made to the database through {@link #accept(DatabaseChange)}, so a report never scans the sales.
+ * <p>
+ * The totals are built from the seats sold of the showings in memory, plus the stored totals of the history
+ * partition if it has not been loaded, so building them takes time proportional to the number of recent showings.
+ * Each showing counted individually remembers what it was counted as, so editing or deleting it moves its counts
+ * without recounting anything. When the history is loaded, its stored totals are replaced by its showings.
+ * <p>
+ * All methods are synchronized, as changes arrive on the thread that made them and reports are read on the
+ * JavaFX Application Thread.
+ */
+public class SalesAnalytics implements Consumer<DatabaseChange> {
+    // The totals of all showings
+    private final SalesTotals totals = new SalesTotals();
+    // What each showing counted individually was counted as
+    private final Map<Showing, Counted> counted = new IdentityHashMap<>();
+    // The stored totals of the history partition that are part of the totals, or null if there are none
+    private SalesTotals historyTotals;
+
+    /**
+     * Builds the totals of the showings in memory and of the history partition.
+     *
+     * @param showings      The showings in memory.
+     * @param historyTotals The stored totals of the history partition, or null if the history is in memory.
+     */
+    public SalesAnalytics(List<Showing> showings, SalesTotals historyTotals) {
+        for (Showing showing : showings) {
+            count(showing, showing.getTicketsSold());
+        }
+
+        if (historyTotals != null) {
+            this.historyTotals = historyTotals.copy();
+            totals.addAll(this.historyTotals);
+        }
+    }
+
+    /**
+     * Applies a change made to the database to the totals.
+     *
+     * @param change The change.
+     */
+    @Override
+    public synchronized void accept(DatabaseChange change) {
+        switch (change) {
+            case DatabaseChange.ShowingAdded added -> count(added.showing(), 0);
+            case DatabaseChange.ShowingUpdated updated -> {
+                Counted previous = uncount(updated.showing());
+                count(updated.showing(), previous != null ? previous.tickets() : updated.showing().getTicketsSold());
+            }
+            case DatabaseChange.ShowingRemoved removed -> uncount(removed.showing());
+            case DatabaseChange.SeatsSold sold -> {
+                // The tickets are counted with the selling
+            }
+            case DatabaseChange.SeatsHeld held -> {
+                // Held seats are not sold yet
+            }
+            case DatabaseChange.SeatsReleased released -> {
+                // Freed seats were never counted
+            }
+            case DatabaseChange.SellingAdded added -> {
+                Showing showing = added.selling().getShowing();
+
+                if (showing != null) {
+                    Counted previous = uncount(showing);
+                    count(showing, (previous != null ? previous.tickets() : 0) + added.selling().getTicketsSold());
+                }
+            }
+            case DatabaseChange.HistoryLoaded loaded -> {
+                if (historyTotals != null) {
+                    totals.removeAll(historyTotals);
+                    historyTotals = null;
+                }
+
+                for (Showing showing : loaded.showings()) {
+                    if (!counted.containsKey(showing)) {
+                        count(showing, showing.getTicketsSold());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return A copy of the totals of all showings, e.g. to display in a report.
+     */
+    public synchronized SalesTotals getTotals() {
+        return totals.copy();
+    }
+
+    /**
+     * @param showing A showing.
+     * @return The number of tickets sold for the showing, or 0 if it is part of the history partition.
+     */
+    public synchronized long getTickets(Showing showing) {
+        Counted entry = counted.get(showing);
+        return entry != null ? entry.tickets() : 0;
+    }
+
+    /**
+     * Counts a showing individually.
+     *
+     * @param showing The showing.
+     * @param tickets The number of tickets sold for it.
+     */
+    private void count(Showing showing, long tickets) {
+        Counted entry = new Counted(showing.getTitle(), showing.getStartDateTime(), tickets, showing.getNumberOfSeats());
+        counted.put(showing, entry);
+        totals.add(entry.title(), entry.start(), entry.tickets(), entry.seats());
+    }
+
+    /**
+     * Subtracts what a showing was counted as from the totals.
+     *
+     * @param showing The showing.
+     * @return What the showing was counted as, or null if it was not counted individually.
+     */
+    private Counted uncount(Showing showing) {
+        Counted entry = counted.remove(showing);
+
+        if (entry != null) {
+            totals.add(entry.title(), entry.start(), -entry.tickets(), -entry.seats());
+        }
+
+        return entry;
+    }
+
+    /**
+     * What a showing was counted as, which may differ from the showing itself once it has been edited.
+     *
+     * @param title   The title of the showing.
+     * @param start   The start of the showing.
+     * @param tickets The number of tickets sold for the showing.
+     * @param seats   The number of seats of the showing.
+     */
+    private record Counted(String title, LocalDateTime start, long tickets, long seats) {
+    }
+}
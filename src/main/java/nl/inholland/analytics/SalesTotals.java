@@ -0,0 +1,257 @@
+package nl.inholland.analytics;
+
+import nl.inholland.model.Showing;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * The SalesTotals class counts the tickets sold and the seats available for showings, in total and per title, per
+ * day and per hour of the day the showings start. Each count is kept as a {@link Tally}, so its occupancy follows
+ * directly from it.
+ * <p>
+ * Counts are only ever added to or subtracted from, so looking up a single count takes constant time and listing
+ * the counts takes time proportional to the number of titles or days, never to the number of showings or sales.
+ * The history partition of a snapshot stores the totals of its showings, so they do not have to be loaded to count
+ * them.
+ */
+public class SalesTotals {
+    // The number of hours in a day
+    private static final int HOURS = 24;
+
+    // The counts of all showings
+    private Tally total = Tally.ZERO;
+    // The counts per title
+    private final Map<String, Tally> byTitle = new HashMap<>();
+    // The counts per day the showings start on
+    private final NavigableMap<LocalDate, Tally> byDay = new TreeMap<>();
+    // The counts per hour of the day the showings start in
+    private final Tally[] byHour = new Tally[HOURS];
+
+    /**
+     * Constructs new, empty SalesTotals.
+     */
+    public SalesTotals() {
+        Arrays.fill(byHour, Tally.ZERO);
+    }
+
+    /**
+     * Counts the tickets sold and the seats of a showing.
+     *
+     * @param showing The showing.
+     */
+    public void add(Showing showing) {
+        add(showing.getTitle(), showing.getStartDateTime(), showing.getTicketsSold(), showing.getNumberOfSeats());
+    }
+
+    /**
+     * Adds tickets and seats to the counts of a showing, or subtracts them if they are negative.
+     *
+     * @param title   The title of the showing.
+     * @param start   The start of the showing.
+     * @param tickets The number of tickets to add.
+     * @param seats   The number of seats to add.
+     */
+    public void add(String title, LocalDateTime start, long tickets, long seats) {
+        Tally tally = new Tally(tickets, seats);
+
+        total = total.plus(tally);
+        merge(byTitle, title, tally);
+        merge(byDay, start.toLocalDate(), tally);
+        byHour[start.getHour()] = byHour[start.getHour()].plus(tally);
+    }
+
+    /**
+     * Adds all counts of other totals to these totals.
+     *
+     * @param other The other totals.
+     */
+    public void addAll(SalesTotals other) {
+        combine(other, 1);
+    }
+
+    /**
+     * Subtracts all counts of other totals from these totals, e.g. totals that were added before.
+     *
+     * @param other The other totals.
+     */
+    public void removeAll(SalesTotals other) {
+        combine(other, -1);
+    }
+
+    /**
+     * Sets the count of a title, e.g. when reading stored totals.
+     *
+     * @param title The title.
+     * @param tally The count.
+     */
+    public void putTitle(String title, Tally tally) {
+        byTitle.put(title, tally);
+    }
+
+    /**
+     * Sets the count of a day, e.g. when reading stored totals.
+     *
+     * @param day   The day.
+     * @param tally The count.
+     */
+    public void putDay(LocalDate day, Tally tally) {
+        byDay.put(day, tally);
+    }
+
+    /**
+     * Sets the count of an hour of the day, e.g. when reading stored totals. The total is the sum of the hours, so
+     * it is updated as well.
+     *
+     * @param hour  The hour of the day, from 0 to 23.
+     * @param tally The count.
+     */
+    public void putHour(int hour, Tally tally) {
+        total = total.plus(tally).minus(byHour[hour]);
+        byHour[hour] = tally;
+    }
+
+    /**
+     * @return A copy of these totals.
+     */
+    public SalesTotals copy() {
+        SalesTotals copy = new SalesTotals();
+        copy.addAll(this);
+        return copy;
+    }
+
+    // Getter methods for the class fields
+    public Tally getTotal() {
+        return total;
+    }
+
+    /**
+     * @param title The title.
+     * @return The count of the title.
+     */
+    public Tally getTitle(String title) {
+        return byTitle.getOrDefault(title, Tally.ZERO);
+    }
+
+    /**
+     * @param day The day.
+     * @return The count of the showings that start on the day.
+     */
+    public Tally getDay(LocalDate day) {
+        return byDay.getOrDefault(day, Tally.ZERO);
+    }
+
+    /**
+     * @param hour The hour of the day, from 0 to 23.
+     * @return The count of the showings that start in the hour.
+     */
+    public Tally getHour(int hour) {
+        return byHour[hour];
+    }
+
+    /**
+     * @return A read-only view of the counts per title.
+     */
+    public Map<String, Tally> getTitles() {
+        return Collections.unmodifiableMap(byTitle);
+    }
+
+    /**
+     * @return A read-only view of the counts per day, sorted by day.
+     */
+    public NavigableMap<LocalDate, Tally> getDays() {
+        return Collections.unmodifiableNavigableMap(byDay);
+    }
+
+    /**
+     * @return The counts per hour of the day, from hour 0 to 23.
+     */
+    public List<Tally> getHours() {
+        return new ArrayList<>(Arrays.asList(byHour));
+    }
+
+    /**
+     * Adds or subtracts all counts of other totals.
+     *
+     * @param other The other totals.
+     * @param sign  1 to add the counts, -1 to subtract them.
+     */
+    private void combine(SalesTotals other, int sign) {
+        for (Map.Entry<String, Tally> entry : other.byTitle.entrySet()) {
+            merge(byTitle, entry.getKey(), entry.getValue().times(sign));
+        }
+        for (Map.Entry<LocalDate, Tally> entry : other.byDay.entrySet()) {
+            merge(byDay, entry.getKey(), entry.getValue().times(sign));
+        }
+        for (int hour = 0; hour < HOURS; hour++) {
+            byHour[hour] = byHour[hour].plus(other.byHour[hour].times(sign));
+        }
+
+        total = total.plus(other.total.times(sign));
+    }
+
+    /**
+     * Adds a count to a bucket, removing the bucket once nothing is counted in it anymore.
+     *
+     * @param buckets The buckets.
+     * @param key     The key of the bucket.
+     * @param tally   The count to add.
+     * @param <K>     The type of the keys.
+     */
+    private static <K> void merge(Map<K, Tally> buckets, K key, Tally tally) {
+        buckets.merge(key, tally, (current, added) -> {
+            Tally sum = current.plus(added);
+            return sum.equals(Tally.ZERO) ? null : sum;
+        });
+    }
+
+    /**
+     * A number of tickets sold and the number of seats they were sold from.
+     *
+     * @param tickets The number of tickets sold.
+     * @param seats   The number of seats.
+     */
+    public record Tally(long tickets, long seats) {
+        // Nothing counted
+        public static final Tally ZERO = new Tally(0, 0);
+
+        /**
+         * @return The fraction of the seats that was sold, or 0 if there are no seats.
+         */
+        public double occupancy() {
+            return seats == 0 ? 0 : (double) tickets / seats;
+        }
+
+        /**
+         * @param other Another count.
+         * @return The sum of both counts.
+         */
+        public Tally plus(Tally other) {
+            return new Tally(tickets + other.tickets, seats + other.seats);
+        }
+
+        /**
+         * @param other Another count.
+         * @return This count minus the other count.
+         */
+        public Tally minus(Tally other) {
+            return new Tally(tickets - other.tickets, seats - other.seats);
+        }
+
+        /**
+         * @param factor The factor.
+         * @return This count multiplied by the factor.
+         */
+        public Tally times(int factor) {
+            return new Tally(tickets * factor, seats * factor);
+        }
+    }
+}
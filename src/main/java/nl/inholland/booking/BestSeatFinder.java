@@ -0,0 +1,256 @@
+package nl.inholland.booking;
+
+import nl.inholland.model.SeatMap;
+import nl.inholland.model.Showing;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The BestSeatFinder class picks the best available seats for a number of tickets, so a cashier does not have to
+ * choose every seat by hand.
+ * Seats are preferably next to each other in one block. If no row has a block of free seats that is large enough,
+ * the tickets are split over as few blocks as possible, taking the largest blocks first. Among blocks of the same
+ * size, the one closest to the best place in the room wins: a bit behind the middle of the room, seen from the
+ * screen in front of the first row, and in the centre of its row.
+ * <p>
+ * The free seats of each row are searched a word of 64 seats at a time: the starts of all blocks of n free seats
+ * are found with O(log n) shifts and ANDs, and the block closest to the centre with a bit scan, so a room of
+ * hundreds of seats is searched in microseconds.
+ */
+public final class BestSeatFinder {
+    // The best row, as a fraction of the distance from the first to the last row
+    private static final double IDEAL_ROW = 0.6;
+    // The weight of the distance to the best row, relative to the distance to the centre of the row
+    private static final double ROW_WEIGHT = 1.0;
+
+    private BestSeatFinder() {
+    }
+
+    /**
+     * Finds the best available seats of a showing.
+     *
+     * @param showing The showing.
+     * @param count   The number of seats needed.
+     * @return The coordinates of the seats, or an empty list if fewer seats are free.
+     */
+    public static List<int[]> findBestSeats(Showing showing, int count) {
+        return findBestSeats(showing.getSeatMap(), count);
+    }
+
+    /**
+     * Finds the best seats that are neither sold nor held in a seat map.
+     *
+     * @param seats The seat map.
+     * @param count The number of seats needed.
+     * @return The coordinates of the seats, grouped per block, or an empty list if fewer seats are free.
+     */
+    public static List<int[]> findBestSeats(SeatMap seats, int count) {
+        int rows = seats.getRows();
+        int columns = seats.getColumns();
+        int rowWords = (columns + 63) >>> 6;
+
+        if (count <= 0 || count > seats.seatsLeft()) {
+            return List.of();
+        }
+
+        long[][] free = new long[rows][rowWords];
+        for (int row = 0; row < rows; row++) {
+            seats.copyFreeSeats(row, free[row]);
+        }
+
+        long[] starts = new long[rowWords];
+        List<int[]> chosen = new ArrayList<>(count);
+        int remaining = count;
+
+        while (remaining > 0) {
+            int size = longestBlock(free, columns, remaining);
+
+            if (size == 0) {
+                // Seats were taken since they were counted
+                return List.of();
+            }
+
+            int bestRow = -1;
+            int bestColumn = -1;
+            double bestScore = Double.MAX_VALUE;
+
+            for (int row = 0; row < rows; row++) {
+                findBlockStarts(free[row], size, starts);
+                int column = nearestStart(starts, columns, (columns - size) / 2.0);
+
+                if (column >= 0) {
+                    double score = score(row, column, size, rows, columns);
+
+                    if (score < bestScore) {
+                        bestRow = row;
+                        bestColumn = column;
+                        bestScore = score;
+                    }
+                }
+            }
+
+            for (int column = bestColumn; column < bestColumn + size; column++) {
+                free[bestRow][column >>> 6] &= ~(1L << column);
+                chosen.add(new int[]{bestRow, column});
+            }
+
+            remaining -= size;
+        }
+
+        return chosen;
+    }
+
+    /**
+     * @param free    The free seats per row.
+     * @param columns The number of seats in each row.
+     * @param limit   The block size that is large enough.
+     * @return The size of the largest block of free seats in any row, at most the limit.
+     */
+    private static int longestBlock(long[][] free, int columns, int limit) {
+        int longest = 0;
+
+        for (long[] row : free) {
+            int start = nextSet(row, 0, columns);
+
+            while (start < columns && longest < limit) {
+                int end = nextClear(row, start, columns);
+                longest = Math.max(longest, end - start);
+                start = nextSet(row, end, columns);
+            }
+        }
+
+        return Math.min(longest, limit);
+    }
+
+    /**
+     * Finds where the blocks of free seats of a given size start, by repeatedly ANDing the free seats with
+     * themselves shifted by the block size reached so far, which doubles that size with every step.
+     *
+     * @param free   The free seats of a row.
+     * @param size   The size of the blocks.
+     * @param starts Receives a bit per seat, set when the block of the given size starting at that seat is free.
+     */
+    private static void findBlockStarts(long[] free, int size, long[] starts) {
+        System.arraycopy(free, 0, starts, 0, free.length);
+        int reached = 1;
+
+        while (reached < size) {
+            int step = Math.min(reached, size - reached);
+            andShiftedRight(starts, step);
+            reached += step;
+        }
+    }
+
+    /**
+     * ANDs words with themselves shifted towards lower seats.
+     *
+     * @param bits  The words, updated in place.
+     * @param shift The number of seats to shift by.
+     */
+    private static void andShiftedRight(long[] bits, int shift) {
+        int wordShift = shift >>> 6;
+        int bitShift = shift & 63;
+
+        for (int i = 0; i < bits.length; i++) {
+            // Only words at or above i are read, which have not been updated yet
+            long low = i + wordShift < bits.length ? bits[i + wordShift] : 0;
+            long high = i + wordShift + 1 < bits.length ? bits[i + wordShift + 1] : 0;
+            long shifted = bitShift == 0 ? low : low >>> bitShift | high << (64 - bitShift);
+            bits[i] &= shifted;
+        }
+    }
+
+    /**
+     * @param starts  The starts of the free blocks of a row.
+     * @param columns The number of seats in the row.
+     * @param target  The start of the block that would be in the centre of the row.
+     * @return The start closest to the target, or -1 if the row has no free block.
+     */
+    private static int nearestStart(long[] starts, int columns, double target) {
+        int middle = (int) target;
+        int before = previousSet(starts, middle);
+        int after = nextSet(starts, middle, columns);
+
+        if (after >= columns) {
+            return before;
+        }
+        if (before < 0) {
+            return after;
+        }
+
+        return target - before <= after - target ? before : after;
+    }
+
+    /**
+     * @param row     The row of the block.
+     * @param column  The first seat of the block.
+     * @param size    The size of the block.
+     * @param rows    The number of rows in the room.
+     * @param columns The number of seats in each row.
+     * @return How far the block is from the best place in the room; lower is better.
+     */
+    private static double score(int row, int column, int size, int rows, int columns) {
+        double rowDistance = Math.abs(row - IDEAL_ROW * (rows - 1)) / rows;
+        double columnDistance = Math.abs(column + (size - 1) / 2.0 - (columns - 1) / 2.0) / columns;
+        return ROW_WEIGHT * rowDistance + columnDistance;
+    }
+
+    /**
+     * @param bits  The words to search.
+     * @param from  The first bit to look at.
+     * @param limit The bit to stop at.
+     * @return The index of the first set bit from the given one, or {@code limit} if there is none.
+     */
+    private static int nextSet(long[] bits, int from, int limit) {
+        if (from >= limit) {
+            return limit;
+        }
+
+        int wordIndex = from >>> 6;
+        long word = bits[wordIndex] & (-1L << from);
+
+        while (word == 0 && ++wordIndex < bits.length) {
+            word = bits[wordIndex];
+        }
+
+        return word == 0 ? limit : Math.min(limit, (wordIndex << 6) + Long.numberOfTrailingZeros(word));
+    }
+
+    /**
+     * @param bits  The words to search.
+     * @param from  The first bit to look at.
+     * @param limit The bit to stop at.
+     * @return The index of the first clear bit from the given one, or {@code limit} if there is none.
+     */
+    private static int nextClear(long[] bits, int from, int limit) {
+        if (from >= limit) {
+            return limit;
+        }
+
+        int wordIndex = from >>> 6;
+        long word = ~bits[wordIndex] & (-1L << from);
+
+        while (word == 0 && ++wordIndex < bits.length) {
+            word = ~bits[wordIndex];
+        }
+
+        return word == 0 ? limit : Math.min(limit, (wordIndex << 6) + Long.numberOfTrailingZeros(word));
+    }
+
+    /**
+     * @param bits The words to search.
+     * @param from The last bit to look at.
+     * @return The index of the last set bit up to the given one, or -1 if there is none.
+     */
+    private static int previousSet(long[] bits, int from) {
+        int wordIndex = from >>> 6;
+        long word = bits[wordIndex] & (-1L >>> (63 - (from & 63)));
+
+        while (word == 0 && --wordIndex >= 0) {
+            word = bits[wordIndex];
+        }
+
+        return word == 0 ? -1 : (wordIndex << 6) + 63 - Long.numberOfLeadingZeros(word);
+    }
+}
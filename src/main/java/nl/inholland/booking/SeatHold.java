@@ -0,0 +1,113 @@
+package nl.inholland.booking;
+
+import nl.inholland.model.Showing;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The SeatHold class represents seats of a showing that are kept for a sale in progress until a deadline.
+ * Held seats cannot be sold or held by anyone else. A hold ends exactly once: it is converted when the sale
+ * commits, or released when the sale is cancelled or the deadline passes, whichever happens first.
+ */
+public class SeatHold {
+    // The hold keeps its seats
+    private static final int ACTIVE = 0;
+    // The seats were released, because the hold expired or was cancelled
+    private static final int RELEASED = 1;
+    // The seats were sold
+    private static final int CONVERTED = 2;
+
+    // The showing the seats belong to
+    private final Showing showing;
+    // The coordinates of the held seats
+    private final List<int[]> seats;
+    // The time the hold expires
+    private final Instant expiresAt;
+    // The state of the hold
+    private final AtomicInteger state = new AtomicInteger(ACTIVE);
+    // The scheduled expiry of the hold, set right after it is created
+    private volatile TimerWheel.Timeout expiry;
+
+    /**
+     * Constructs a new, active SeatHold instance.
+     *
+     * @param showing   The showing the seats belong to.
+     * @param seats     The coordinates of the held seats.
+     * @param expiresAt The time the hold expires.
+     */
+    SeatHold(Showing showing, List<int[]> seats, Instant expiresAt) {
+        this.showing = showing;
+        this.seats = List.copyOf(seats);
+        this.expiresAt = expiresAt;
+    }
+
+    // Getter methods for the class fields
+    public Showing getShowing() {
+        return showing;
+    }
+    public List<int[]> getSeats() {
+        return seats;
+    }
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    /**
+     * @return True if the hold still keeps its seats.
+     */
+    public boolean isActive() {
+        return state.get() == ACTIVE;
+    }
+
+    /**
+     * Ends the hold because its seats are being sold.
+     *
+     * @return True if the hold was active, false if it had already expired or been released.
+     */
+    boolean convert() {
+        if (state.compareAndSet(ACTIVE, CONVERTED)) {
+            cancelExpiry();
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Ends the hold because its seats are given up.
+     *
+     * @return True if the hold was active, false if it had already ended.
+     */
+    boolean release() {
+        if (state.compareAndSet(ACTIVE, RELEASED)) {
+            cancelExpiry();
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * @param expiry The scheduled expiry of the hold.
+     */
+    void setExpiry(TimerWheel.Timeout expiry) {
+        this.expiry = expiry;
+
+        if (!isActive()) {
+            expiry.cancel();
+        }
+    }
+
+    /**
+     * Cancels the scheduled expiry, so the wheel drops it on its next tick.
+     */
+    private void cancelExpiry() {
+        TimerWheel.Timeout timeout = expiry;
+
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+}
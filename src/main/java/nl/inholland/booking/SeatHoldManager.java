@@ -0,0 +1,117 @@
+package nl.inholland.booking;
+
+import nl.inholland.Database;
+import nl.inholland.model.BookingResult;
+import nl.inholland.model.Selling;
+import nl.inholland.model.Showing;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The SeatHoldManager class keeps seats for sales in progress, e.g. while a cashier is choosing seats or checking
+ * the age of a customer, so no other terminal can sell them in the meantime.
+ * Every hold expires after the time-to-live unless it is converted into a sale or released first. Expiry is driven
+ * by a single {@link TimerWheel} shared by all holds across all showings, rather than a timer per hold.
+ * Holds are not persisted; held seats are left out of snapshots, so a restart releases them.
+ */
+public class SeatHoldManager implements AutoCloseable {
+    // How long seats are held by default, configurable with -Dseat.hold.ttl=<seconds>
+    public static final Duration DEFAULT_TTL = Duration.ofSeconds(Long.getLong("seat.hold.ttl", 300));
+    // The precision of the expiry
+    private static final Duration TICK = Duration.ofMillis(250);
+    // The number of buckets of the timer wheel, covering a bit more than two minutes per turn
+    private static final int WHEEL_SIZE = 512;
+
+    // The database whose seats are held
+    private final Database database;
+    // How long a hold lasts
+    private final Duration ttl;
+    // Releases the holds that expire
+    private final TimerWheel wheel;
+    // The number of holds that are active
+    private final AtomicInteger activeHolds = new AtomicInteger();
+
+    /**
+     * Constructs a new SeatHoldManager instance and starts its expiry thread.
+     *
+     * @param database The database whose seats are held.
+     * @param ttl      How long a hold lasts.
+     */
+    public SeatHoldManager(Database database, Duration ttl) {
+        this.database = database;
+        this.ttl = ttl;
+        this.wheel = new TimerWheel(TICK, WHEEL_SIZE, "seat-hold-expiry");
+    }
+
+    /**
+     * Holds seats of a showing, all of them or none.
+     *
+     * @param showing The showing the seats belong to.
+     * @param seats   The coordinates of the seats to hold.
+     * @return The hold, or null if any of the seats is already sold or held.
+     */
+    public SeatHold hold(Showing showing, List<int[]> seats) {
+        if (!database.holdSeats(showing, seats).isEmpty()) {
+            return null;
+        }
+
+        SeatHold hold = new SeatHold(showing, seats, Instant.now().plus(ttl));
+        activeHolds.incrementAndGet();
+        hold.setExpiry(wheel.schedule(() -> release(hold), ttl));
+        return hold;
+    }
+
+    /**
+     * Gives up the seats of a hold, e.g. because the cashier deselected them or cancelled the sale.
+     * Does nothing if the hold has already ended.
+     *
+     * @param hold The hold to release.
+     */
+    public void release(SeatHold hold) {
+        if (hold.release()) {
+            activeHolds.decrementAndGet();
+            database.releaseHeldSeats(hold.getShowing(), hold.getSeats());
+        }
+    }
+
+    /**
+     * Sells the seats of a selling, converting the holds that cover them. Seats whose hold expired are claimed
+     * again if they are still free; if any of them has been sold in the meantime, nothing is sold and the seats of
+     * the converted holds are released.
+     *
+     * @param selling The selling to commit.
+     * @param holds   The holds on the seats of the selling.
+     * @return The committed selling, or the seats that were sold to someone else.
+     */
+    public BookingResult commit(Selling selling, List<SeatHold> holds) {
+        List<int[]> heldSeats = new ArrayList<>();
+
+        for (SeatHold hold : holds) {
+            if (hold.convert()) {
+                activeHolds.decrementAndGet();
+                heldSeats.addAll(hold.getSeats());
+            }
+        }
+
+        return database.bookHeldSeats(selling, heldSeats);
+    }
+
+    /**
+     * @return The number of holds that are active.
+     */
+    public int getActiveHoldCount() {
+        return activeHolds.get();
+    }
+
+    /**
+     * Stops the expiry thread. Holds that are still active keep their seats until the application stops.
+     */
+    @Override
+    public void close() {
+        wheel.close();
+    }
+}
@@ -0,0 +1,180 @@
+package nl.inholland.booking;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The TimerWheel class runs tasks after a delay using a hashed timing wheel: a ring of buckets that a single
+ * background thread advances one bucket per tick. Scheduling and cancelling a task take constant time and no
+ * thread or timer is created per task, so hundreds of pending tasks cost no more than a few objects each.
+ * <p>
+ * Tasks run on the wheel thread up to one tick late and must be short; a task with a delay longer than one turn
+ * of the wheel stays in its bucket for the remaining number of turns.
+ */
+public final class TimerWheel implements AutoCloseable {
+    // Logger used to report tasks that fail
+    private static final System.Logger LOGGER = System.getLogger(TimerWheel.class.getName());
+
+    // The duration of a tick in nanoseconds
+    private final long tickNanos;
+    // The buckets of the wheel, only accessed by the wheel thread
+    private final ArrayDeque<Timeout>[] buckets;
+    // Masks a tick number to the index of its bucket
+    private final int mask;
+    // Tasks scheduled since the last tick, moved into their buckets by the wheel thread
+    private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+    // The time the wheel started, which ticks are counted from
+    private final long startTime = System.nanoTime();
+    // The thread advancing the wheel and running the tasks
+    private final Thread worker;
+
+    // Set once the wheel is closed
+    private volatile boolean closed;
+    // The number of the next tick, only accessed by the wheel thread
+    private long tick;
+
+    /**
+     * Constructs a new TimerWheel instance and starts its thread.
+     *
+     * @param tickDuration The duration of a tick, which is the precision of the delays.
+     * @param wheelSize    The number of buckets, rounded up to a power of two.
+     * @param threadName   The name of the wheel thread.
+     */
+    public TimerWheel(Duration tickDuration, int wheelSize, String threadName) {
+        int size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        // Generic arrays cannot be created, and the buckets only ever hold timeouts
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        ArrayDeque<Timeout>[] buckets = new ArrayDeque[size];
+
+        this.tickNanos = tickDuration.toNanos();
+        this.buckets = buckets;
+        this.mask = size - 1;
+
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+
+        worker = new Thread(this::run, threadName);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Schedules a task to run once after a delay.
+     *
+     * @param task  The task to run on the wheel thread.
+     * @param delay The delay after which the task runs.
+     * @return The scheduled task, which can be cancelled.
+     */
+    public Timeout schedule(Runnable task, Duration delay) {
+        Timeout timeout = new Timeout(task, System.nanoTime() + delay.toNanos());
+        pending.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Stops the wheel thread. Tasks that have not run yet are dropped.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        worker.interrupt();
+    }
+
+    /**
+     * Advances the wheel one bucket per tick until the wheel is closed.
+     */
+    private void run() {
+        while (!closed) {
+            long deadline = startTime + (tick + 1) * tickNanos;
+            long sleep;
+
+            while ((sleep = deadline - System.nanoTime()) > 0 && !closed) {
+                LockSupport.parkNanos(this, sleep);
+            }
+
+            transferPending();
+            expire(buckets[(int) (tick & mask)], deadline);
+            tick++;
+        }
+    }
+
+    /**
+     * Moves the newly scheduled tasks into the buckets of the ticks they are due in.
+     */
+    private void transferPending() {
+        Timeout timeout;
+
+        while ((timeout = pending.poll()) != null) {
+            if (timeout.cancelled) {
+                continue;
+            }
+
+            long dueTick = Math.max(tick, (timeout.deadline - startTime) / tickNanos);
+            timeout.remainingRounds = (dueTick - tick) / buckets.length;
+            buckets[(int) (dueTick & mask)].add(timeout);
+        }
+    }
+
+    /**
+     * Runs the tasks in a bucket that are due in the current turn of the wheel and drops cancelled ones.
+     *
+     * @param bucket The bucket of the current tick.
+     * @param now    The time of the current tick.
+     */
+    private void expire(ArrayDeque<Timeout> bucket, long now) {
+        Iterator<Timeout> iterator = bucket.iterator();
+
+        while (iterator.hasNext()) {
+            Timeout timeout = iterator.next();
+
+            if (timeout.cancelled) {
+                iterator.remove();
+            } else if (timeout.remainingRounds > 0) {
+                timeout.remainingRounds--;
+            } else if (timeout.deadline - now <= 0) {
+                iterator.remove();
+
+                try {
+                    timeout.task.run();
+                } catch (RuntimeException e) {
+                    LOGGER.log(System.Logger.Level.WARNING, "Timer task failed", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * A task scheduled on the wheel.
+     */
+    public static final class Timeout {
+        // The task to run
+        private final Runnable task;
+        // The time the task is due, in System.nanoTime() terms
+        private final long deadline;
+        // The number of full turns of the wheel left before the task is due, only accessed by the wheel thread
+        private long remainingRounds;
+        // Set when the task should no longer run
+        private volatile boolean cancelled;
+
+        /**
+         * @param task     The task to run.
+         * @param deadline The time the task is due, in System.nanoTime() terms.
+         */
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Prevents the task from running if it has not run yet. It is removed from the wheel on its next tick.
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+}
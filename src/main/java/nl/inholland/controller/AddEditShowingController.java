@@ -1,17 +1,16 @@
 package nl.inholland.controller;
 
+import javafx.collections.FXCollections;
 import javafx.css.PseudoClass;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
-import javafx.scene.Scene;
 import javafx.scene.control.*;
-import javafx.scene.layout.VBox;
 import javafx.util.StringConverter;
 import nl.inholland.Database;
+import nl.inholland.model.Room;
 import nl.inholland.model.Showing;
 
-import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URL;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -25,10 +24,11 @@ import java.util.ResourceBundle;
  * This class is responsible for managing the UI and logic when creating a new showing
  * or editing an existing one. It uses FXML components and binds their values
  * with the appropriate event handlers to manage user input and validate the showing data.
- * It implements the {@link Initializable} interface to set up initial values and listeners
- * for the UI components when the controller is initialized.
+ * It implements the {@link Initializable} interface to set up listeners for the UI components when the controller
+ * is initialized, and the {@link RefreshableView} interface to fill them in for the showing passed to
+ * {@link #setShowing(Showing)} whenever the view is shown.
  */
-public class AddEditShowingController implements Initializable {
+public class AddEditShowingController implements Initializable, RefreshableView {
     // Pseudo-class for error styling
     private final PseudoClass ERROR_CLASS = PseudoClass.getPseudoClass("error");
     // Formatter for date values in dd-MM-yyyy format
@@ -36,12 +36,12 @@ public class AddEditShowingController implements Initializable {
 
     // Reference to the shared Database instance
     private final Database database;
-    // Reference to the root VBox container of the scene
-    private final VBox root;
+    // Reference to the registry that switches between the views
+    private final ViewRegistry views;
     // The selected showing being edited, or null if adding a new showing
-    private final Showing selectedShowing;
+    private Showing selectedShowing;
     // Boolean flag to check if the operation is to add a new showing
-    private final boolean isAdd;
+    private boolean isAdd = true;
 
     // FXML-injected components
     @FXML
@@ -59,6 +59,8 @@ public class AddEditShowingController implements Initializable {
     @FXML
     private TextField titleTextField;
     @FXML
+    private ComboBox<Room> roomComboBox;
+    @FXML
     private DatePicker startDatePicker;
     @FXML
     private Spinner<Integer> startHoursSpinner;
@@ -78,34 +80,51 @@ public class AddEditShowingController implements Initializable {
     /**
      * Constructor for the controller.
      *
-     * @param database        The database instance shared across controllers.
-     * @param root            The root VBox container of the scene.
-     * @param selectedShowing The showing to be edited; if null, a new showing is being added.
+     * @param database The database instance shared across controllers.
+     * @param views    The registry that switches between the views.
      */
-    public AddEditShowingController(Database database, VBox root, Showing selectedShowing) {
+    public AddEditShowingController(Database database, ViewRegistry views) {
         this.database = database;
-        this.root = root;
+        this.views = views;
+    }
+
+    /**
+     * Sets the showing to edit the next time the view is shown.
+     *
+     * @param selectedShowing The showing to be edited; if null, a new showing is being added.
+     */
+    public void setShowing(Showing selectedShowing) {
         this.selectedShowing = selectedShowing;
         isAdd = selectedShowing == null;
     }
 
     /**
-     * Initializes the controller and sets up initial values and listeners for the UI components.
+     * Initializes the controller and sets up the listeners for the UI components.
      */
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
+        setDatePickerConverter();
+        setListenersToRefreshAfterError();
+        addListenersToButtons();
+    }
+
+    /**
+     * Fills the UI components with the data of the showing being edited, or empties them when adding a showing,
+     * and hides the errors of the previous time the view was shown.
+     */
+    @Override
+    public void refresh() {
         titleLabel.setText(isAdd ? "Add Showing" : "Edit Showing");
         confirmButton.setText(isAdd ? "Add showing" : "Edit showing");
 
-        setDatePickerConverter();
         setSpinnerFactories();
+        setRoomComboBox();
+        fillShowingData();
 
-        if (!isAdd) {
-            fillShowingData();
-        }
-
-        setListenersToRefreshAfterError();
-        addListenersToButtons();
+        showTitleError(false);
+        showStartDateError(false);
+        showDurationTimeError(false);
+        showRoomAvailabilityError(false);
     }
 
     /**
@@ -131,6 +150,23 @@ public class AddEditShowingController implements Initializable {
         startDatePicker.setConverter(converter);
     }
 
+    /**
+     * Fills the room combo box with the rooms of the cinema and selects the room of the showing being edited, or the
+     * first room when adding a showing. The room of a showing cannot change once tickets have been sold, as the seats
+     * of the sold tickets may not exist in another room.
+     */
+    private void setRoomComboBox() {
+        roomComboBox.setItems(FXCollections.observableArrayList(database.getRooms()));
+
+        if (isAdd) {
+            roomComboBox.getSelectionModel().selectFirst();
+            roomComboBox.setDisable(false);
+        } else {
+            roomComboBox.getSelectionModel().select(database.findRoom(selectedShowing.getRoomId()));
+            roomComboBox.setDisable(selectedShowing.isTicketsSold());
+        }
+    }
+
     /**
      * Displays error messages for invalid inputs such as empty title, null start date, or zero duration.
      *
@@ -158,20 +194,21 @@ public class AddEditShowingController implements Initializable {
      * @param startDate The start date of the showing.
      * @param duration  The duration of the showing.
      * @param title     The title of the showing.
+     * @param room      The room the showing runs in.
      * @param isAgeChecked The age restriction status of the showing.
      * @return The updated or new showing instance.
      */
-    private Showing getShowing(LocalDate startDate, LocalTime duration, String title, boolean isAgeChecked) {
+    private Showing getShowing(LocalDate startDate, LocalTime duration, String title, Room room, boolean isAgeChecked) {
         Showing showing;
 
         if (isAdd) {
             showing = new Showing(
                     -1,
                     LocalDateTime.of(startDate, LocalTime.of(startHoursSpinner.getValue(), startMinutesSpinner.getValue())),
-                    0,
                     duration,
                     title,
-                    new boolean[6][12],
+                    room.getId(),
+                    room.createSeatMap(),
                     isAgeChecked
             );
         } else {
@@ -181,27 +218,45 @@ public class AddEditShowingController implements Initializable {
                     LocalDateTime.of(startDate, LocalTime.of(startHoursSpinner.getValue(), startMinutesSpinner.getValue()))
             );
             showing.setDuration(duration);
+            showing.setRoom(room);
             showing.setIsAgeChecked(isAgeChecked);
         }
 
         return showing;
     }
 
+    /**
+     * Puts back the details of an edited showing whose changes could not be saved.
+     *
+     * @param showing  The edited showing.
+     * @param previous A copy of the showing made before it was edited.
+     */
+    private void restoreShowing(Showing showing, Showing previous) {
+        showing.setTitle(previous.getTitle());
+        showing.setStartDateTime(previous.getStartDateTime());
+        showing.setDuration(previous.getDuration());
+        showing.setRoom(database.findRoom(previous.getRoomId()));
+        showing.setIsAgeChecked(previous.getIsAgeChecked());
+    }
+
+    /**
+     * Informs the user that the showing could not be saved, so the entered details can be confirmed again.
+     *
+     * @param e The failure to write the showing.
+     */
+    private void showSaveError(UncheckedIOException e) {
+        Alert alert = new Alert(Alert.AlertType.ERROR);
+        alert.setTitle("Save Showing");
+        alert.setHeaderText("The showing was not saved");
+        alert.setContentText(e.getMessage());
+        alert.showAndWait();
+    }
+
     /**
      * Opens the showings view, replacing the current scene with the showings list view.
      */
     private void openShowingsView() {
-        try {
-            FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("/nl/inholland/view/showings-view.fxml"));
-            fxmlLoader.setController(new ShowingsController(database, root));
-            Scene scene = new Scene(fxmlLoader.load());
-
-            if (root.getChildren().size() > 1)
-                root.getChildren().remove(1);
-            root.getChildren().add(scene.getRoot());
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        views.show(ViewRegistry.SHOWINGS);
     }
 
     /**
@@ -252,12 +307,13 @@ public class AddEditShowingController implements Initializable {
     /**
      * Displays or hides the room availability error based on the input.
      * This method sets the visibility of the room availability prompt label and updates the style
-     * (pseudo-class state) for the DatePicker and Spinner components to indicate an error.
+     * (pseudo-class state) for the room ComboBox, DatePicker and Spinner components to indicate an error.
      *
      * @param show Boolean value to determine whether to show (true) or hide (false) the error indicator.
      */
     private void showRoomAvailabilityError(boolean show) {
         roomAvailabilityPromptLabel.setVisible(show);
+        roomComboBox.pseudoClassStateChanged(ERROR_CLASS, show);
         startDatePicker.pseudoClassStateChanged(ERROR_CLASS, show);
         startHoursSpinner.pseudoClassStateChanged(ERROR_CLASS, show);
         startMinutesSpinner.pseudoClassStateChanged(ERROR_CLASS, show);
@@ -337,13 +393,22 @@ public class AddEditShowingController implements Initializable {
     }
 
     /**
-     * Fills the UI components with data from the selected showing if editing an existing showing.
+     * Fills the UI components with data from the selected showing if editing an existing showing,
+     * or clears them if adding a new showing.
      */
     private void fillShowingData() {
-        titleTextField.setText(selectedShowing.getTitle());
-        startDatePicker.setValue(selectedShowing.getStartDateTime().toLocalDate());
+        if (isAdd) {
+            titleTextField.clear();
+            startDatePicker.setValue(null);
+            startDatePicker.getEditor().clear();
+            ageCheckBox.setSelected(false);
+        } else {
+            titleTextField.setText(selectedShowing.getTitle());
+            startDatePicker.setValue(selectedShowing.getStartDateTime().toLocalDate());
+            ageCheckBox.setSelected(selectedShowing.getIsAgeChecked());
+        }
+
         updateEndDateTimeLabel();
-        ageCheckBox.setSelected(selectedShowing.getIsAgeChecked());
     }
 
     /**
@@ -354,6 +419,10 @@ public class AddEditShowingController implements Initializable {
             showTitleError(false);
         });
 
+        roomComboBox.valueProperty().addListener((observable, oldValue, newValue) -> {
+            showRoomAvailabilityError(false);
+        });
+
         startDatePicker.valueProperty().addListener((observable, oldValue, newValue) -> {
             showStartDateError(false);
             showRoomAvailabilityError(false);
@@ -390,6 +459,7 @@ public class AddEditShowingController implements Initializable {
             LocalDate startDate = tryParseLocalDate(getDatePickerString(startDatePicker));
             LocalTime duration = LocalTime.of(durationHoursSpinner.getValue(), durationMinutesSpinner.getValue());
             int durationInMinutes = duration.getHour() + duration.getMinute();
+            Room room = roomComboBox.getValue();
             boolean isAgeChecked = ageCheckBox.isSelected();
 
             displayErrors(title, startDate, durationInMinutes);
@@ -397,10 +467,20 @@ public class AddEditShowingController implements Initializable {
             if (!title.isEmpty() && startDate != null && durationInMinutes != 0) {
                 LocalDateTime startDateTime = LocalDateTime.of(startDate, LocalTime.of(startHoursSpinner.getValue(), startMinutesSpinner.getValue()));
 
-                if (isRoomAvailable(startDateTime, duration)) {
-                    Showing showing = getShowing(startDate, duration, title, isAgeChecked);
-                    database.addUpdateShowing(showing);
-                    openShowingsView();
+                if (isRoomAvailable(room, startDateTime, duration)) {
+                    // An edit changes the stored showing itself, so its previous details are kept to undo it
+                    Showing previous = isAdd ? null : selectedShowing.copy();
+                    Showing showing = getShowing(startDate, duration, title, room, isAgeChecked);
+
+                    try {
+                        database.addUpdateShowing(showing);
+                        openShowingsView();
+                    } catch (UncheckedIOException e) {
+                        if (previous != null) {
+                            restoreShowing(showing, previous);
+                        }
+                        showSaveError(e);
+                    }
                 } else {
                     // Display an error message if the room is not available
                     showRoomAvailabilityError(true);
@@ -415,28 +495,20 @@ public class AddEditShowingController implements Initializable {
 
     /**
      * Checks if the room is available for a new showing by verifying the time slot does not overlap
-     * with any existing showings in the database. If an existing showing is being edited, it skips the
+     * with any existing showings in that room. If an existing showing is being edited, it skips the
      * check for that specific showing.
      *
+     * @param room          The room of the new or edited showing.
      * @param startDateTime The start date and time of the new or edited showing.
      * @param duration      The duration of the new or edited showing.
      * @return True if the room is available for the given time slot; false if it overlaps with another showing.
      */
-    private boolean isRoomAvailable(LocalDateTime startDateTime, LocalTime duration) {
+    private boolean isRoomAvailable(Room room, LocalDateTime startDateTime, LocalTime duration) {
         LocalDateTime endDateTime = startDateTime.plusHours(duration.getHour()).plusMinutes(duration.getMinute());
 
-        for (Showing existingShowing : database.getShowings()) {
+        for (Showing existingShowing : database.findOverlappingShowings(room.getId(), startDateTime, endDateTime)) {
             // Skip the current showing if editing
-            if (selectedShowing != null && existingShowing.getId() == selectedShowing.getId()) {
-                continue;
-            }
-
-            LocalDateTime existingStart = existingShowing.getStartDateTime();
-            LocalDateTime existingEnd = existingStart.plusHours(existingShowing.getDuration().getHour())
-                    .plusMinutes(existingShowing.getDuration().getMinute());
-
-            // Check if the new showing's time overlaps with any existing showing's time
-            if (startDateTime.isBefore(existingEnd) && endDateTime.isAfter(existingStart)) {
+            if (selectedShowing == null || existingShowing.getId() != selectedShowing.getId()) {
                 return false; // Room is not available
             }
         }
@@ -0,0 +1,74 @@
+package nl.inholland.controller;
+
+import javafx.application.Platform;
+import nl.inholland.DatabaseChange;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * The ChangeBatcher class receives the changes made to the database, on whichever thread made them, and applies
+ * them to a view on the JavaFX Application Thread. Changes that arrive before the view gets its turn are applied
+ * together, so a burst of changes, such as a large booking, is applied to the lists of the view in one go instead
+ * of one change per event.
+ */
+public class ChangeBatcher implements Consumer<DatabaseChange> {
+    // Logger used to report the size and time of the applied batches
+    private static final System.Logger LOGGER = System.getLogger(ChangeBatcher.class.getName());
+
+    // The changes that have not been applied yet
+    private final Queue<DatabaseChange> pending = new ConcurrentLinkedQueue<>();
+    // Whether applying the pending changes has been scheduled on the JavaFX Application Thread
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    // Applies a batch of changes to the view
+    private final Consumer<List<DatabaseChange>> applier;
+
+    /**
+     * Constructs a new ChangeBatcher instance.
+     *
+     * @param applier Applies a batch of changes to the view, in the order they were made; called on the JavaFX
+     *                Application Thread.
+     */
+    public ChangeBatcher(Consumer<List<DatabaseChange>> applier) {
+        this.applier = applier;
+    }
+
+    /**
+     * Queues a change and schedules the pending changes to be applied, unless that has been scheduled already.
+     *
+     * @param change The change made to the database.
+     */
+    @Override
+    public void accept(DatabaseChange change) {
+        pending.add(change);
+
+        if (scheduled.compareAndSet(false, true)) {
+            Platform.runLater(this::flush);
+        }
+    }
+
+    /**
+     * Applies the pending changes right away, e.g. before the view is shown. Must be called on the JavaFX
+     * Application Thread.
+     */
+    public void flush() {
+        scheduled.set(false);
+
+        List<DatabaseChange> batch = new ArrayList<>();
+        DatabaseChange change;
+        while ((change = pending.poll()) != null) {
+            batch.add(change);
+        }
+
+        if (!batch.isEmpty()) {
+            long start = System.nanoTime();
+            applier.accept(batch);
+            LOGGER.log(System.Logger.Level.DEBUG, () -> String.format("Applied %d changes in %d us",
+                    batch.size(), (System.nanoTime() - start) / 1000));
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package nl.inholland.controller;
+
+import javafx.collections.FXCollections;
+import javafx.fxml.FXML;
+import javafx.fxml.Initializable;
+import javafx.scene.chart.BarChart;
+import javafx.scene.chart.XYChart;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import nl.inholland.Database;
+import nl.inholland.analytics.SalesTotals;
+
+import java.net.URL;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.ResourceBundle;
+
+/**
+ * Controller for the sales dashboard of the management.
+ * This class displays the running totals kept by the {@link nl.inholland.analytics.SalesAnalytics} of the database:
+ * the tickets sold and occupancy in total, per title, per day around today and per hour of the day. Reading the
+ * totals takes time proportional to the number of titles and days, so the dashboard is drawn again whenever the
+ * database changes while it is kept.
+ * It implements the {@link Initializable} interface to set up the view when the controller is loaded, and the
+ * {@link RefreshableView} interface to show the current totals whenever the view is shown.
+ */
+public class DashboardController implements Initializable, RefreshableView {
+    // Formatter for the days on the axis of the day chart
+    private final DateTimeFormatter DAY_FORMATTER = DateTimeFormatter.ofPattern("dd-MM");
+    // The number of days shown before and after today
+    private static final int DAYS_AROUND_TODAY = 7;
+
+    // Reference to the shared Database instance
+    private final Database database;
+    // Draws the dashboard again once the changes made to the database have been counted
+    private final ChangeBatcher changes = new ChangeBatcher(batch -> showTotals());
+    // Whether the dashboard listens to the changes made to the database yet
+    private boolean listening;
+
+    // FXML-injected components
+    @FXML
+    private Label totalTicketsLabel;
+    @FXML
+    private Label totalOccupancyLabel;
+    @FXML
+    private Label todayTicketsLabel;
+    @FXML
+    private TableView<Map.Entry<String, SalesTotals.Tally>> titlesTableView;
+    @FXML
+    private TableColumn<Map.Entry<String, SalesTotals.Tally>, String> titleColumn;
+    @FXML
+    private TableColumn<Map.Entry<String, SalesTotals.Tally>, Long> titleTicketsColumn;
+    @FXML
+    private TableColumn<Map.Entry<String, SalesTotals.Tally>, Double> titleOccupancyColumn;
+    @FXML
+    private BarChart<String, Number> dayChart;
+    @FXML
+    private BarChart<String, Number> hourChart;
+
+    /**
+     * Constructor for the controller.
+     *
+     * @param database The database instance shared across controllers.
+     */
+    public DashboardController(Database database) {
+        this.database = database;
+    }
+
+    /**
+     * Initializes the controller and sets up the columns of the table of titles.
+     */
+    @Override
+    public void initialize(URL url, ResourceBundle resourceBundle) {
+        TypedColumns.setColumn(titleColumn, Map.Entry::getKey, (entry, title) -> title);
+        TypedColumns.setColumn(titleTicketsColumn, entry -> entry.getValue().tickets(),
+                (entry, tickets) -> String.valueOf(tickets));
+        TypedColumns.setColumn(titleOccupancyColumn, entry -> entry.getValue().occupancy(),
+                (entry, occupancy) -> formatPercentage(occupancy));
+
+        titleTicketsColumn.setSortType(TableColumn.SortType.DESCENDING); // set default sort order
+        titlesTableView.getSortOrder().add(titleTicketsColumn); // set default sort column
+    }
+
+    /**
+     * Shows the current totals, and keeps them up to date while the view is kept.
+     */
+    @Override
+    public void refresh() {
+        if (!listening) {
+            // The analytics listen to the database before the dashboard does, so they have counted every change shown
+            database.getAnalytics();
+            database.addChangeListener(changes);
+            listening = true;
+        }
+
+        showTotals();
+    }
+
+    /**
+     * Reads the totals and displays them in the labels, the table and the charts.
+     */
+    private void showTotals() {
+        SalesTotals totals = database.getAnalytics().getTotals();
+        LocalDate today = LocalDate.now();
+
+        totalTicketsLabel.setText(String.valueOf(totals.getTotal().tickets()));
+        totalOccupancyLabel.setText(formatPercentage(totals.getTotal().occupancy()));
+        todayTicketsLabel.setText(String.valueOf(totals.getDay(today).tickets()));
+
+        TypedColumns.clearCaches(titlesTableView);
+        titlesTableView.setItems(FXCollections.observableArrayList(new ArrayList<>(totals.getTitles().entrySet())));
+        titlesTableView.sort();
+
+        XYChart.Series<String, Number> days = new XYChart.Series<>();
+        for (int offset = -DAYS_AROUND_TODAY; offset <= DAYS_AROUND_TODAY; offset++) {
+            LocalDate day = today.plusDays(offset);
+            days.getData().add(new XYChart.Data<>(DAY_FORMATTER.format(day), totals.getDay(day).tickets()));
+        }
+        dayChart.setData(FXCollections.observableArrayList(List.of(days)));
+
+        XYChart.Series<String, Number> hours = new XYChart.Series<>();
+        for (int hour = 0; hour < 24; hour++) {
+            hours.getData().add(new XYChart.Data<>(String.format("%02d", hour), totals.getHour(hour).tickets()));
+        }
+        hourChart.setData(FXCollections.observableArrayList(List.of(hours)));
+    }
+
+    /**
+     * @param fraction A fraction between 0 and 1.
+     * @return The fraction as a percentage with one decimal, e.g. "42.5%".
+     */
+    private static String formatPercentage(double fraction) {
+        return String.format("%.1f%%", fraction * 100);
+    }
+}
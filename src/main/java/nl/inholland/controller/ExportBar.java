@@ -0,0 +1,137 @@
+package nl.inholland.controller;
+
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
+import javafx.geometry.Pos;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.layout.HBox;
+import javafx.stage.FileChooser;
+import nl.inholland.export.CsvExportTask;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.function.Function;
+
+/**
+ * The ExportBar class lets the user export a list as a CSV file: it asks where to save the file, runs the export
+ * as a {@link CsvExportTask} in the background and shows its progress, with a button to cancel it. Once the export
+ * has finished, the bar shows how it ended until the next export starts.
+ * The bar is hidden until the first export starts.
+ */
+public class ExportBar extends HBox {
+    // Shows the progress of the running export
+    private final ProgressBar progressBar = new ProgressBar(0);
+    // Shows what the export is doing or how it ended
+    private final Label messageLabel = new Label();
+    // Cancels the running export
+    private final Button cancelButton = new Button("Cancel");
+    // Whether an export is running
+    private final ReadOnlyBooleanWrapper running = new ReadOnlyBooleanWrapper();
+
+    // The running export, or null if there is none
+    private CsvExportTask<?> task;
+
+    /**
+     * Constructs a new, hidden ExportBar instance.
+     */
+    public ExportBar() {
+        getStyleClass().add("spacing-6");
+        setAlignment(Pos.CENTER_LEFT);
+        cancelButton.getStyleClass().add("gray-button");
+        cancelButton.setOnAction(event -> cancel());
+        progressBar.setPrefWidth(200);
+
+        progressBar.managedProperty().bind(progressBar.visibleProperty());
+        cancelButton.managedProperty().bind(cancelButton.visibleProperty());
+
+        getChildren().addAll(progressBar, cancelButton, messageLabel);
+        managedProperty().bind(visibleProperty());
+        setVisible(false);
+    }
+
+    /**
+     * Asks the user where to save a CSV file and starts exporting to it, unless an export is running already or
+     * the user cancels the dialog.
+     *
+     * @param title    The title of the save dialog.
+     * @param fileName The file name suggested in the save dialog.
+     * @param task     Creates the export of the chosen file; called on the JavaFX Application Thread once the file
+     *                 has been chosen, so it can copy the items to export as they are at that moment.
+     */
+    public void export(String title, String fileName, Function<Path, CsvExportTask<?>> task) {
+        if (task != null) {
+            return;
+        }
+
+        // Configure the FileChooser
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle(title);
+        fileChooser.setInitialFileName(fileName);
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV Files", "*.csv"));
+
+        // Show the Save dialog
+        File file = fileChooser.showSaveDialog(getScene().getWindow());
+
+        if (file != null) {
+            start(task.apply(file.toPath()));
+        }
+    }
+
+    /**
+     * Cancels the running export, if any.
+     */
+    public void cancel() {
+        if (task != null) {
+            task.cancel();
+        }
+    }
+
+    /**
+     * @return Whether an export is running, e.g. to disable the button that starts one.
+     */
+    public ReadOnlyBooleanProperty runningProperty() {
+        return running.getReadOnlyProperty();
+    }
+
+    /**
+     * Shows the progress of an export and starts it.
+     *
+     * @param exportTask The export.
+     */
+    private void start(CsvExportTask<?> exportTask) {
+        task = exportTask;
+        running.set(true);
+
+        progressBar.progressProperty().bind(task.progressProperty());
+        messageLabel.textProperty().bind(task.messageProperty());
+        progressBar.setVisible(true);
+        cancelButton.setVisible(true);
+        setVisible(true);
+
+        task.setOnSucceeded(event -> finish(null));
+        task.setOnCancelled(event -> finish("Export cancelled"));
+        task.setOnFailed(event -> finish("Export failed: " + task.getException().getMessage()));
+        task.start();
+    }
+
+    /**
+     * Shows how the running export ended.
+     *
+     * @param message The message to show, or null to keep the last message of the export.
+     */
+    private void finish(String message) {
+        progressBar.progressProperty().unbind();
+        messageLabel.textProperty().unbind();
+        progressBar.setVisible(false);
+        cancelButton.setVisible(false);
+
+        if (message != null) {
+            messageLabel.setText(message);
+        }
+
+        task = null;
+        running.set(false);
+    }
+}
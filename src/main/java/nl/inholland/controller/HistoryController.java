@@ -1,40 +1,61 @@
 package nl.inholland.controller;
 
 import javafx.beans.property.SimpleStringProperty;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
+import javafx.collections.ObservableListBase;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
+import javafx.scene.control.Button;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
 import nl.inholland.Database;
+import nl.inholland.DatabaseChange;
+import nl.inholland.export.CsvExport;
+import nl.inholland.export.CsvExportTask;
 import nl.inholland.model.Selling;
 import nl.inholland.model.Showing;
+import nl.inholland.model.ShowingDetails;
+import nl.inholland.persistence.SellingStore;
 
 import java.net.URL;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.ResourceBundle;
 
 /**
  * Controller for the history view in the application.
  * This class manages the display and functionality of the history table, which shows past ticket sales.
- * It implements the {@link Initializable} interface to set up the view when the controller is loaded.
+ * It implements the {@link Initializable} interface to set up the view when the controller is loaded, and the
+ * {@link RefreshableView} interface to list the sales when the view is first shown. The table reads the sales straight
+ * from the store of the database, newest first, so only the rows on screen are decoded; after that, new sales are
+ * added to the top as the database publishes them. All sales, including those not listed yet, can be exported as a
+ * CSV file in the background.
  */
-public class HistoryController implements Initializable {
+public class HistoryController implements Initializable, RefreshableView {
     // Formatter for date and time values in dd-MM-yyyy HH:mm format
     private final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm");
 
     // Reference to the shared Database instance
     private final Database database;
+    // The listed sales, read from the store of the database on demand
+    private NewestFirstList sells;
+    // Applies the changes made to the database to the listed sales
+    private final ChangeBatcher changes = new ChangeBatcher(this::applyChanges);
 
     // FXML-injected components
     @FXML
     private TableView<Selling> historyTableView;
     @FXML
-    private TableColumn<Selling, String> dateTimeColumn;
+    private TableColumn<Selling, LocalDateTime> dateTimeColumn;
     @FXML
     private TableColumn<Selling, String> showingColumn;
+    @FXML
+    private Button exportSalesButton;
+    @FXML
+    private ExportBar exportBar;
 
     /**
      * Constructor for the controller.
@@ -50,13 +71,58 @@ public class HistoryController implements Initializable {
      */
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
-        ObservableList<Selling> sells = FXCollections.observableArrayList(database.getSells());
-        historyTableView.setItems(sells);
         setCellValueFactory();
-        setComparatorForDateTimeColumn(); // set custom comparator for dateTimeColumn
-        dateTimeColumn.setSortType(TableColumn.SortType.DESCENDING); // set default sort order
-        historyTableView.getSortOrder().add(dateTimeColumn); // set default sort column
-        showingColumn.setSortable(false); // disable sorting for showingColumn
+        // Sorting would decode every sale; the sales are listed newest first instead
+        historyTableView.getColumns().forEach(column -> column.setSortable(false));
+
+        exportSalesButton.setOnAction(event -> exportBar.export("Save Sales as CSV", "sales.csv", file -> {
+            // Copied together, so every copied sale finds its showing as it was when the sale was copied
+            SellingStore sells = database.copySells();
+            Map<Integer, ShowingDetails> showings = new HashMap<>();
+
+            for (ShowingDetails showing : database.copyShowingDetails()) {
+                showings.put(showing.id(), showing);
+            }
+
+            return new CsvExportTask<>(CsvExport.sells(database::findRoom, showings::get), sells, file);
+        }));
+        exportSalesButton.disableProperty().bind(exportBar.runningProperty());
+    }
+
+    /**
+     * Brings the list of ticket sales up to date.
+     * The list is only built the first time; after that, only the pending changes of the database are applied.
+     */
+    @Override
+    public void refresh() {
+        if (sells == null) {
+            // The database is mutated on this thread, so every sale added after this is published to the listener
+            List<Selling> store = database.getSells();
+            database.addChangeListener(changes);
+            sells = new NewestFirstList(store);
+            historyTableView.setItems(sells);
+        } else {
+            changes.flush();
+        }
+    }
+
+    /**
+     * Adds the sales made since the list was built.
+     *
+     * @param batch The changes made to the database, in the order they were made.
+     */
+    private void applyChanges(List<DatabaseChange> batch) {
+        int added = 0;
+
+        for (DatabaseChange change : batch) {
+            if (change instanceof DatabaseChange.SellingAdded) {
+                added++;
+            }
+        }
+
+        if (added > 0) {
+            sells.grow(added);
+        }
     }
 
     /**
@@ -64,28 +130,12 @@ public class HistoryController implements Initializable {
      * This sets how each cell in the table will display data from the {@link Selling} objects.
      */
     private void setCellValueFactory() {
-        dateTimeColumn.setCellValueFactory(
-                c -> new SimpleStringProperty(c.getValue().getDateTime().format(FORMATTER))
-        );
+        TypedColumns.setDateTimeColumn(dateTimeColumn, Selling::getDateTime);
         showingColumn.setCellValueFactory(
                 c -> new SimpleStringProperty(getFormattedSelectedShowing(c.getValue().getShowing()))
         );
     }
 
-    /**
-     * Configures a custom comparator for the dateTimeColumn to correctly sort dates and times.
-     * This method sets up the comparator for the dateTimeColumn, parsing the date strings into
-     * LocalDateTime objects before comparing them. The comparison ensures that the sorting
-     * respects the chronological order of the dates.
-     */
-    private void setComparatorForDateTimeColumn() {
-        dateTimeColumn.setComparator((date1, date2) -> {
-            LocalDateTime dt1 = LocalDateTime.parse(date1, FORMATTER);
-            LocalDateTime dt2 = LocalDateTime.parse(date2, FORMATTER);
-            return dt1.compareTo(dt2);
-        });
-    }
-
     /**
      * Formats the {@link Showing} object associated with each {@link Selling} record.
      * Combines the start date and title of the showing into a single formatted string.
@@ -94,7 +144,55 @@ public class HistoryController implements Initializable {
      * @return A formatted string containing the start date and title of the showing.
      */
     private String getFormattedSelectedShowing(Showing showing) {
+        if (showing == null) {
+            return "";
+        }
+
         String date = FORMATTER.format(showing.getStartDateTime());
         return date + " " + showing.getTitle();
     }
+
+    /**
+     * A read-only list of the first sales of a store, newest first. Reading a row reads the sale from the store, so a
+     * paged store only decodes the pages of the rows on screen. The list grows when sales are appended to the store.
+     */
+    private static class NewestFirstList extends ObservableListBase<Selling> {
+        // The store holding the sales, oldest first
+        private final List<Selling> store;
+        // The number of sales of the store that are listed
+        private int size;
+
+        /**
+         * Creates a list of the sales the store holds now.
+         *
+         * @param store The store holding the sales.
+         */
+        NewestFirstList(List<Selling> store) {
+            this.store = store;
+            this.size = store.size();
+        }
+
+        /**
+         * Lists the sales that were appended to the store since, at the top of the list.
+         *
+         * @param count The number of sales appended.
+         */
+        void grow(int count) {
+            beginChange();
+            size += count;
+            nextAdd(0, count);
+            endChange();
+        }
+
+        @Override
+        public Selling get(int index) {
+            Objects.checkIndex(index, size);
+            return store.get(size - 1 - index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
 }
@@ -0,0 +1,189 @@
+package nl.inholland.controller;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
+import javafx.collections.transformation.SortedList;
+import javafx.scene.control.TableView;
+import nl.inholland.model.Showing;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The ListedShowings class holds the showings listed by a table and keeps them up to date with the changes of the
+ * database without scanning the list: every showing is found through a map of its position. The showings are kept
+ * in no particular order; the table shows them through a {@link FilteredList} that hides the showings not found by
+ * the last search and a {@link SortedList} that moves a changed showing to its place in the sort order of the table.
+ * The sorted list spends time in proportion to all listed showings on every single change, so a large batch of
+ * changes is applied by handing the whole list over at once, which it sorts again in one go.
+ * Must be used on the JavaFX Application Thread, except for {@link #contains(Showing)}.
+ */
+class ListedShowings {
+    // The number of changes in a batch above which handing the list over at once is faster than changing it one by one
+    private static final int REBUILD_THRESHOLD = 100;
+
+    // The table showing the listed showings
+    private final TableView<Showing> table;
+    // The listed showings, in no particular order
+    private final ObservableList<Showing> showings = FXCollections.observableArrayList();
+    // The position of every listed showing in the list, which may be read from a background thread
+    private final Map<Showing, Integer> positions = new ConcurrentHashMap<>();
+    // The listed showings found by the last search, or all of them
+    private final FilteredList<Showing> filteredShowings = new FilteredList<>(showings);
+
+    /**
+     * Constructs a new ListedShowings instance and displays its showings in the table, sorted like the table.
+     *
+     * @param table  The table showing the listed showings.
+     * @param listed  The showings to list; a showing given more than once is listed once.
+     */
+    ListedShowings(TableView<Showing> table, Collection<Showing> listed) {
+        this.table = table;
+
+        // Listed before sorting, so the showings are sorted once instead of inserted one by one
+        List<Showing> initial = new ArrayList<>(listed.size());
+
+        for (Showing showing : listed) {
+            if (positions.putIfAbsent(showing, initial.size()) == null) {
+                initial.add(showing);
+            }
+        }
+
+        showings.setAll(initial);
+
+        SortedList<Showing> sortedShowings = new SortedList<>(filteredShowings);
+        sortedShowings.comparatorProperty().bind(table.comparatorProperty());
+        table.setItems(sortedShowings);
+    }
+
+    /**
+     * Applies a batch of changes to the list. Added showings that are listed already and changed or removed showings
+     * that are not listed are skipped. A showing must not be both added and removed.
+     *
+     * @param added   The showings to list.
+     * @param changed The listed showings that have changed, to be moved to their place in the sort order and displayed
+     *                again.
+     * @param removed The showings to remove from the list.
+     */
+    void update(Collection<Showing> added, Collection<Showing> changed, Collection<Showing> removed) {
+        for (Showing showing : changed) {
+            TypedColumns.invalidate(table, showing);
+        }
+        for (Showing showing : removed) {
+            TypedColumns.invalidate(table, showing);
+        }
+
+        if (added.size() + changed.size() + removed.size() > REBUILD_THRESHOLD) {
+            rebuild(added, removed);
+            return;
+        }
+
+        for (Showing showing : removed) {
+            remove(showing);
+        }
+        for (Showing showing : added) {
+            add(showing);
+        }
+        for (Showing showing : changed) {
+            Integer position = positions.get(showing);
+
+            if (position != null) {
+                showings.set(position, showing);
+            }
+        }
+    }
+
+    /**
+     * Lists a showing, unless it is listed already.
+     *
+     * @param showing The showing.
+     */
+    private void add(Showing showing) {
+        if (positions.putIfAbsent(showing, showings.size()) == null) {
+            showings.add(showing);
+        }
+    }
+
+    /**
+     * Removes a showing from the list, if it is listed. The last showing of the list takes its position.
+     *
+     * @param showing The showing.
+     */
+    private void remove(Showing showing) {
+        Integer position = positions.remove(showing);
+
+        if (position == null) {
+            return;
+        }
+
+        int last = showings.size() - 1;
+
+        if (position != last) {
+            Showing moved = showings.get(last);
+            showings.set(position, moved);
+            positions.put(moved, position);
+        }
+
+        showings.remove(last);
+    }
+
+    /**
+     * Hands the whole list over at once with the given showings added and removed, which also moves every changed
+     * showing to its place in the sort order.
+     *
+     * @param added   The showings to list.
+     * @param removed The showings to remove from the list.
+     */
+    private void rebuild(Collection<Showing> added, Collection<Showing> removed) {
+        for (Showing showing : removed) {
+            positions.remove(showing);
+        }
+
+        List<Showing> rebuilt = new ArrayList<>(showings.size() + added.size());
+
+        for (Showing showing : showings) {
+            if (positions.containsKey(showing)) {
+                positions.put(showing, rebuilt.size());
+                rebuilt.add(showing);
+            }
+        }
+        for (Showing showing : added) {
+            if (positions.putIfAbsent(showing, rebuilt.size()) == null) {
+                rebuilt.add(showing);
+            }
+        }
+
+        showings.setAll(rebuilt);
+    }
+
+    /**
+     * @param showing A showing.
+     * @return True if the showing is listed.
+     */
+    boolean contains(Showing showing) {
+        return positions.containsKey(showing);
+    }
+
+    /**
+     * Displays only the listed showings among the given ones, e.g. the showings found by a search.
+     *
+     * @param found The showings to display if they are listed.
+     */
+    void showOnly(Collection<Showing> found) {
+        Set<Showing> shown = new HashSet<>(found);
+        filteredShowings.setPredicate(shown::contains);
+    }
+
+    /**
+     * Displays all listed showings.
+     */
+    void showAll() {
+        filteredShowings.setPredicate(null);
+    }
+}
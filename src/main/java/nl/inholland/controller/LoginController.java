@@ -1,9 +1,11 @@
 package nl.inholland.controller;
 
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
 import javafx.scene.Scene;
+import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.PasswordField;
@@ -12,19 +14,27 @@ import javafx.stage.Stage;
 import nl.inholland.Database;
 import nl.inholland.model.User;
 
-import java.io.IOException;
 import java.net.URL;
+import java.util.List;
 import java.util.Objects;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Controller for the login view in the application.
  * This class manages the login process, verifies user credentials, and navigates to the main view upon successful login.
  * It implements the {@link Initializable} interface to set up the view when the controller is loaded.
+ * The login view is shown while the application is still starting: checking the credentials only waits for the
+ * users to be read, and the main view is shown once the rest of the database has been loaded as well.
  */
 public class LoginController implements Initializable {
-    // Reference to the shared Database instance
-    private final Database database;
+    // Completed with the users once they have been read
+    private final CompletableFuture<List<User>> users;
+    // Completed with the shared Database instance once it has been loaded
+    private final CompletableFuture<Database> database;
+    // Completed with the loader of the main view once it has been parsed in advance
+    private final CompletableFuture<FXMLLoader> mainView;
 
     // FXML-injected components
     @FXML
@@ -39,10 +49,15 @@ public class LoginController implements Initializable {
     /**
      * Constructor for the LoginController.
      *
-     * @param database The database instance shared across controllers.
+     * @param users    Completed with the users once they have been read.
+     * @param database Completed with the database instance shared across controllers once it has been loaded.
+     * @param mainView Completed with the loader of the main view once it has been parsed in advance.
      */
-    public LoginController(Database database) {
+    public LoginController(CompletableFuture<List<User>> users, CompletableFuture<Database> database,
+                           CompletableFuture<FXMLLoader> mainView) {
+        this.users = users;
         this.database = database;
+        this.mainView = mainView;
     }
 
     /**
@@ -82,8 +97,15 @@ public class LoginController implements Initializable {
 
         String username = usernameTextField.getText();
         String password = passwordField.getText();
+        User user;
 
-        User user = login(username, password);
+        try {
+            user = login(username, password);
+        } catch (CompletionException e) {
+            // Neither the snapshot nor the database could be read
+            showStartupError(e);
+            return;
+        }
 
         showMainView(user);
     }
@@ -108,9 +130,11 @@ public class LoginController implements Initializable {
      *
      * @param username The username to search for.
      * @return The {@link User} object if found, otherwise null.
+     * @throws CompletionException If the users cannot be read.
      */
     private User findUserByUsername(String username) {
-        for (User user : database.getUsers()) {
+        // Only waits if the users are still being read
+        for (User user : users.join()) {
             if (user.getUsername().equals(username)) {
                 return user;
             }
@@ -120,26 +144,65 @@ public class LoginController implements Initializable {
 
     /**
      * Navigates to the main view upon successful login or displays an error if the login fails.
+     * If the database or the main view is still being loaded, the login form is disabled until they are ready.
+     *
+     * If the database or the main view cannot be loaded, the user is told so and the application stops.
      *
      * @param user The {@link User} object of the logged-in user. If null, login failed.
      */
     private void showMainView(User user) {
         if (user != null) {
-            // Successful login, open main-view.fxml
-            try {
-                FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("/nl/inholland/view/main-view.fxml"));
-                fxmlLoader.setController(new MainController(database, user));
-                Scene scene = new Scene(fxmlLoader.load());
-                scene.getStylesheets().add(Objects.requireNonNull(getClass().getResource("/nl/inholland/view/css/main-view.css")).toExternalForm());
-                Stage stage = (Stage) loginButton.getScene().getWindow();
-                stage.setScene(scene);
-                stage.show();
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
+            // Successful login, open main-view.fxml once the database and the main view are ready
+            setLoginDisabled(true);
+            database.thenCombine(mainView, (loadedDatabase, mainLoader) -> mainLoader).whenComplete((mainLoader, error) -> {
+                Platform.runLater(() -> {
+                    if (error != null) {
+                        showStartupError(error);
+                        return;
+                    }
+
+                    MainController mainController = mainLoader.getController();
+                    mainController.showFor(database.join(), user);
+
+                    Scene scene = new Scene(mainLoader.getRoot());
+                    scene.getStylesheets().add(Objects.requireNonNull(getClass().getResource("/nl/inholland/view/css/main-view.css")).toExternalForm());
+                    Stage stage = (Stage) loginButton.getScene().getWindow();
+                    stage.setScene(scene);
+                    stage.show();
+                });
+            });
         } else {
             // Invalid login
             promptLabel.setVisible(true);
         }
     }
+
+    /**
+     * Informs the user that the application could not be started and stops it, as nothing can be done without the
+     * database or the main view.
+     *
+     * @param error The failure to load the database or the main view.
+     */
+    private void showStartupError(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+
+        Alert alert = new Alert(Alert.AlertType.ERROR);
+        alert.setTitle("Login");
+        alert.setHeaderText("The application could not be started");
+        alert.setContentText(cause.getMessage());
+        alert.showAndWait();
+
+        Platform.exit();
+    }
+
+    /**
+     * Disables or enables the login form, e.g. while waiting for the database after a successful login.
+     *
+     * @param disabled True to disable the form.
+     */
+    private void setLoginDisabled(boolean disabled) {
+        usernameTextField.setDisable(disabled);
+        passwordField.setDisable(disabled);
+        loginButton.setDisable(disabled);
+    }
 }
@@ -2,10 +2,8 @@ package nl.inholland.controller;
 
 import javafx.css.PseudoClass;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
 import javafx.scene.Node;
-import javafx.scene.Scene;
 import javafx.scene.control.Button;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
@@ -13,8 +11,8 @@ import nl.inholland.Database;
 import nl.inholland.model.AccessLevel;
 import nl.inholland.model.User;
 
-import java.io.IOException;
 import java.net.URL;
+import java.util.List;
 import java.util.Objects;
 import java.util.ResourceBundle;
 
@@ -22,17 +20,18 @@ import java.util.ResourceBundle;
  * Controller for the main view of the application.
  * This class manages the main menu and its navigation, controlling the visibility and access levels for different
  * menu options based on the current user's access level. It implements the {@link Initializable} interface to set up
- * the view when the controller is loaded.
+ * the view when the controller is loaded. The view is loaded before anyone has logged in, so the user and the
+ * database are passed to {@link #showFor(Database, User)} once the user has logged in.
  */
 public class MainController implements Initializable {
     // Pseudo-classes used to style the active and inactive menu buttons
     private final PseudoClass ACTIVE_CLASS = PseudoClass.getPseudoClass("active");
     private final PseudoClass INACTIVE_CLASS = PseudoClass.getPseudoClass("inactive");
 
-    // Reference to the shared Database instance
-    private final Database database;
     // Reference to the currently logged-in user
-    private final User currentUser;
+    private User currentUser;
+    // Switches between the views shown below the menu
+    private ViewRegistry views;
 
     // FXML-injected components
     @FXML
@@ -44,48 +43,45 @@ public class MainController implements Initializable {
     @FXML
     private Button historyMenuButton;
     @FXML
+    private Button dashboardMenuButton;
+    @FXML
     private HBox header;
 
     /**
-     * Constructor for the MainController.
-     *
-     * @param database    The database instance shared across controllers, used to access application data.
-     * @param currentUser The database instance shared across controllers.
-     */
-    public MainController(Database database, User currentUser) {
-        this.database = database;
-        this.currentUser = currentUser;
-    }
-
-    /**
-     * Initializes the controller and sets up the initial state of the menu and its listeners.
+     * Initializes the controller and sets up the listeners of the menu.
      * This method is called automatically after the FXML file is loaded.
      */
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
-        setMenuBasedOnAccess();
-        setMenuBasedOnClick(null);
         setListenersToMenu();
-        loadScene("/nl/inholland/view/welcome-view.fxml", new WelcomeController(currentUser));
     }
 
     /**
-     * Loads a new scene into the main view based on the provided FXML file and controller.
+     * Sets up the menu for the user who logged in and shows the welcome view.
      *
-     * @param fxmlName   The name of the FXML file to load.
-     * @param controller The controller instance associated with the new view.
+     * @param database    The database instance shared across controllers, used to access application data.
+     * @param currentUser The user who logged in.
      */
-    private void loadScene(String fxmlName, Object controller) {
-        try {
-            FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource(fxmlName));
-            fxmlLoader.setController(controller);
-            Scene scene = new Scene(fxmlLoader.load());
-
-            if (root.getChildren().size() > 1)
-                root.getChildren().remove(1);
-            root.getChildren().add(scene.getRoot());
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+    public void showFor(Database database, User currentUser) {
+        this.currentUser = currentUser;
+
+        setMenuBasedOnClick(null);
+
+        views = new ViewRegistry(database, currentUser, root);
+        views.show(ViewRegistry.WELCOME);
+        preloadViews();
+    }
+
+    /**
+     * Starts loading the views the user has access to in the background, so opening them from the menu does not
+     * wait for their FXML files to be parsed.
+     */
+    private void preloadViews() {
+        if (currentUser.getAccessLevel() == AccessLevel.MANAGEMENT) {
+            views.preload(List.of(ViewRegistry.SHOWINGS, ViewRegistry.ADD_EDIT_SHOWING, ViewRegistry.HISTORY,
+                    ViewRegistry.DASHBOARD));
+        } else {
+            views.preload(List.of(ViewRegistry.SELL, ViewRegistry.SELECT_SEATS));
         }
     }
 
@@ -100,6 +96,7 @@ public class MainController implements Initializable {
         } else {
             Objects.requireNonNull(showingsMenuButton).setDisable(true);
             Objects.requireNonNull(historyMenuButton).setDisable(true);
+            Objects.requireNonNull(dashboardMenuButton).setDisable(true);
         }
     }
 
@@ -127,18 +124,23 @@ public class MainController implements Initializable {
      */
     private void setListenersToMenu() {
         sellMenuButton.setOnAction(event -> {
-            loadScene("/nl/inholland/view/sell-view.fxml", new SellController(database, root));
+            views.show(ViewRegistry.SELL);
             setMenuBasedOnClick(sellMenuButton);
         });
 
         showingsMenuButton.setOnAction(event -> {
-            loadScene("/nl/inholland/view/showings-view.fxml", new ShowingsController(database, root));
+            views.show(ViewRegistry.SHOWINGS);
             setMenuBasedOnClick(showingsMenuButton);
         });
 
         historyMenuButton.setOnAction(event -> {
-            loadScene("/nl/inholland/view/history-view.fxml", new HistoryController(database));
+            views.show(ViewRegistry.HISTORY);
             setMenuBasedOnClick(historyMenuButton);
         });
+
+        dashboardMenuButton.setOnAction(event -> {
+            views.show(ViewRegistry.DASHBOARD);
+            setMenuBasedOnClick(dashboardMenuButton);
+        });
     }
 }
@@ -0,0 +1,15 @@
+package nl.inholland.controller;
+
+/**
+ * The RefreshableView interface is implemented by the controllers of views that are loaded once and shown again
+ * and again by the {@link ViewRegistry}.
+ * Such a controller only sets up the structure of its view in {@code initialize()}, which may run on a background
+ * thread while the view is loaded in advance, and fills the view with data in {@link #refresh()}.
+ */
+public interface RefreshableView {
+    /**
+     * Brings the view up to date with the database and resets its input, just before it is shown.
+     * Called on the JavaFX Application Thread every time the view is shown.
+     */
+    void refresh();
+}
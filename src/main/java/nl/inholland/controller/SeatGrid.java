@@ -0,0 +1,458 @@
+package nl.inholland.controller;
+
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.Text;
+import javafx.scene.text.TextAlignment;
+import nl.inholland.model.SeatMap;
+
+import java.util.function.Consumer;
+
+/**
+ * The SeatGrid class displays the seats of a showing as a grid drawn on a single {@link Canvas}, instead of one
+ * button per seat, so a room of hundreds of seats adds no more nodes to lay out and style than a small one.
+ * <p>
+ * The grid keeps the state of every seat itself, finds the seat under the mouse by its coordinates and can be used
+ * with the keyboard: the arrow keys move the focused seat and space or enter chooses it. The seats are made smaller
+ * to fit large rooms, down to a minimum size; beyond that the grid scrolls, and only the seats in view are drawn.
+ * When the state of a seat changes, only that seat is drawn again.
+ */
+public class SeatGrid extends Region {
+    // The largest and smallest size of a seat, in pixels
+    private static final double MAX_CELL = 40;
+    private static final double MIN_CELL = 20;
+    // The largest preferred size of the seats in view, beyond which seats are made smaller
+    private static final double MAX_VIEWPORT_WIDTH = 800;
+    private static final double MAX_VIEWPORT_HEIGHT = 480;
+    // The height of the area above the seats showing the screen
+    private static final double HEADER_HEIGHT = 30;
+    // The space between the row names and the seats
+    private static final double ROW_NAME_PADDING = 16;
+    // Colors of the seats, the numbers on them and the screen line
+    private static final Color FREE_COLOR = Color.web("#5D5E5E");
+    private static final Color TAKEN_COLOR = Color.web("#FF0000");
+    private static final Color CHOSEN_COLOR = Color.web("#00FF00");
+    private static final Color TEXT_COLOR = Color.WHITE;
+    private static final Color LINE_COLOR = Color.BLACK;
+    // The font of the row names and the screen label
+    private static final Font FONT = Font.getDefault();
+
+    // The canvas the grid is drawn on, as large as the grid itself; only the seats in view are drawn on it
+    private final Canvas canvas = new Canvas();
+
+    // The state of every seat, by index row * columns + column
+    private SeatState[] states = new SeatState[0];
+    // The number of rows and seats per row
+    private int rows;
+    private int columns;
+    // The width of the row names, measured once per seat map
+    private double gutterWidth;
+    // The current size of a seat and the font of the numbers on the seats
+    private double cellSize = MAX_CELL;
+    private Font seatFont = FONT;
+    // How far the seats are scrolled, in pixels
+    private double scrollX;
+    private double scrollY;
+    // The index of the seat under the mouse and of the seat focused with the keyboard, or -1 if there is none
+    private int hoveredIndex = -1;
+    private int focusedIndex = -1;
+    // Called with the coordinates of a free or chosen seat when it is clicked or chosen with the keyboard
+    private Consumer<int[]> onSeatActivated = seat -> {
+    };
+
+    /**
+     * The state of a seat in the grid.
+     */
+    public enum SeatState {
+        // The seat can be chosen
+        FREE,
+        // The seat is sold or held by another sale
+        TAKEN,
+        // The seat is chosen for the current sale
+        CHOSEN
+    }
+
+    /**
+     * Constructs a new, empty SeatGrid instance.
+     */
+    public SeatGrid() {
+        getChildren().add(canvas);
+        setFocusTraversable(true);
+
+        addEventHandler(MouseEvent.MOUSE_MOVED, event -> setHoveredIndex(indexAt(event.getX(), event.getY())));
+        addEventHandler(MouseEvent.MOUSE_EXITED, event -> setHoveredIndex(-1));
+        addEventHandler(MouseEvent.MOUSE_CLICKED, this::handleClick);
+        addEventHandler(KeyEvent.KEY_PRESSED, this::handleKey);
+        addEventHandler(ScrollEvent.SCROLL, this::handleScroll);
+        focusedProperty().addListener((observable, oldValue, newValue) -> drawSeat(focusedIndex));
+    }
+
+    /**
+     * Shows the seats of a seat map: sold and held seats as taken, all others as free.
+     *
+     * @param seats The seat map.
+     */
+    public void setSeatMap(SeatMap seats) {
+        rows = seats.getRows();
+        columns = seats.getColumns();
+        states = new SeatState[rows * columns];
+
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                states[row * columns + column] = seats.isReserved(row, column) ? SeatState.TAKEN : SeatState.FREE;
+            }
+        }
+
+        Text widest = new Text("Row " + rows);
+        widest.setFont(FONT);
+        gutterWidth = Math.ceil(widest.getLayoutBounds().getWidth()) + ROW_NAME_PADDING;
+        scrollX = 0;
+        scrollY = 0;
+        hoveredIndex = -1;
+        focusedIndex = -1;
+
+        requestLayout();
+        drawAll();
+    }
+
+    /**
+     * Changes the state of a seat and draws only that seat again.
+     *
+     * @param row    The row index.
+     * @param column The column index.
+     * @param state  The new state of the seat.
+     */
+    public void setSeatState(int row, int column, SeatState state) {
+        int index = row * columns + column;
+
+        if (states[index] != state) {
+            states[index] = state;
+            drawSeat(index);
+        }
+    }
+
+    /**
+     * @param row    The row index.
+     * @param column The column index.
+     * @return The state of the seat.
+     */
+    public SeatState getSeatState(int row, int column) {
+        return states[row * columns + column];
+    }
+
+    /**
+     * Sets what happens when a seat that is not taken is clicked, or chosen with space or enter.
+     *
+     * @param onSeatActivated Receives the coordinates of the seat.
+     */
+    public void setOnSeatActivated(Consumer<int[]> onSeatActivated) {
+        this.onSeatActivated = onSeatActivated;
+    }
+
+    /**
+     * Computes the preferred width: all seats at their largest size, up to the largest preferred viewport.
+     */
+    @Override
+    protected double computePrefWidth(double height) {
+        return snappedLeftInset() + Math.min(gutterWidth + columns * MAX_CELL, MAX_VIEWPORT_WIDTH) + snappedRightInset();
+    }
+
+    /**
+     * Computes the preferred height: all rows at their largest size, up to the largest preferred viewport.
+     */
+    @Override
+    protected double computePrefHeight(double width) {
+        return snappedTopInset() + Math.min(HEADER_HEIGHT + rows * MAX_CELL, MAX_VIEWPORT_HEIGHT) + snappedBottomInset();
+    }
+
+    /**
+     * Sizes the canvas to the grid, fits the seats into it and draws all seats in view.
+     */
+    @Override
+    protected void layoutChildren() {
+        double width = snapSizeX(getWidth() - snappedLeftInset() - snappedRightInset());
+        double height = snapSizeY(getHeight() - snappedTopInset() - snappedBottomInset());
+        canvas.relocate(snappedLeftInset(), snappedTopInset());
+
+        if (canvas.getWidth() != width || canvas.getHeight() != height) {
+            canvas.setWidth(width);
+            canvas.setHeight(height);
+            drawAll();
+        }
+    }
+
+    /**
+     * Draws the screen, the row names and all seats in view, after fitting the seats into the canvas.
+     */
+    private void drawAll() {
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+
+        if (states.length == 0) {
+            return;
+        }
+
+        fitCells();
+
+        // The screen, centred above the seats in view
+        double seatsWidth = Math.min(columns * cellSize - scrollX, canvas.getWidth() - gutterWidth);
+        gc.setStroke(LINE_COLOR);
+        gc.setLineWidth(2);
+        gc.strokeLine(gutterWidth, 2, gutterWidth + seatsWidth, 2);
+        gc.setFill(LINE_COLOR);
+        gc.setFont(FONT);
+        gc.setTextAlign(TextAlignment.CENTER);
+        gc.setTextBaseline(VPos.CENTER);
+        gc.fillText("Screen", gutterWidth + seatsWidth / 2, HEADER_HEIGHT / 2);
+
+        // The row names and seats in view
+        int firstRow = (int) (scrollY / cellSize);
+        int lastRow = Math.min(rows - 1, (int) ((scrollY + canvas.getHeight() - HEADER_HEIGHT) / cellSize));
+        int firstColumn = (int) (scrollX / cellSize);
+        int lastColumn = Math.min(columns - 1, (int) ((scrollX + canvas.getWidth() - gutterWidth) / cellSize));
+
+        gc.setTextAlign(TextAlignment.LEFT);
+        for (int row = firstRow; row <= lastRow; row++) {
+            double y = HEADER_HEIGHT + row * cellSize - scrollY + cellSize / 2;
+
+            // Names of rows that are scrolled halfway out of view would overlap the screen
+            if (y >= HEADER_HEIGHT) {
+                gc.fillText("Row " + (row + 1), 0, y);
+            }
+        }
+
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                drawSeat(row * columns + column);
+            }
+        }
+    }
+
+    /**
+     * Draws a single seat, if it is in view.
+     *
+     * @param index The index of the seat, or -1 to draw nothing.
+     */
+    private void drawSeat(int index) {
+        if (index < 0 || index >= states.length) {
+            return;
+        }
+
+        double x = gutterWidth + (index % columns) * cellSize - scrollX;
+        double y = HEADER_HEIGHT + (index / columns) * cellSize - scrollY;
+
+        if (x + cellSize <= gutterWidth || y + cellSize <= HEADER_HEIGHT
+                || x >= canvas.getWidth() || y >= canvas.getHeight()) {
+            return;
+        }
+
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        gc.save();
+
+        // Keep seats that are partly in view out of the row names and the screen
+        gc.beginPath();
+        gc.rect(gutterWidth, HEADER_HEIGHT, canvas.getWidth() - gutterWidth, canvas.getHeight() - HEADER_HEIGHT);
+        gc.clip();
+
+        double inset = Math.round(cellSize / 8);
+        double size = cellSize - 2 * inset;
+        gc.clearRect(x, y, cellSize, cellSize);
+        gc.setGlobalAlpha(index == hoveredIndex && states[index] != SeatState.TAKEN ? 0.7 : 1);
+        gc.setFill(switch (states[index]) {
+            case FREE -> FREE_COLOR;
+            case TAKEN -> TAKEN_COLOR;
+            case CHOSEN -> CHOSEN_COLOR;
+        });
+        gc.fillRoundRect(x + inset, y + inset, size, size, 6, 6);
+
+        gc.setGlobalAlpha(1);
+        gc.setFill(TEXT_COLOR);
+        gc.setFont(seatFont);
+        gc.setTextAlign(TextAlignment.CENTER);
+        gc.setTextBaseline(VPos.CENTER);
+        gc.fillText(String.valueOf(index % columns + 1), x + cellSize / 2, y + cellSize / 2);
+
+        if (index == focusedIndex && isFocused()) {
+            gc.setStroke(LINE_COLOR);
+            gc.setLineWidth(2);
+            gc.strokeRoundRect(x + inset / 2, y + inset / 2, cellSize - inset, cellSize - inset, 8, 8);
+        }
+
+        gc.restore();
+    }
+
+    /**
+     * Makes the seats as large as possible while all of them fit in the canvas, between the smallest and largest
+     * seat size, and keeps the scroll position within the seats.
+     */
+    private void fitCells() {
+        double fitWidth = (canvas.getWidth() - gutterWidth) / columns;
+        double fitHeight = (canvas.getHeight() - HEADER_HEIGHT) / rows;
+        double size = Math.floor(Math.max(MIN_CELL, Math.min(MAX_CELL, Math.min(fitWidth, fitHeight))));
+
+        if (size != cellSize || seatFont == FONT) {
+            cellSize = size;
+            seatFont = Font.font(FONT.getFamily(), Math.max(9, cellSize / 3));
+        }
+
+        scrollX = clamp(scrollX, columns * cellSize - (canvas.getWidth() - gutterWidth));
+        scrollY = clamp(scrollY, rows * cellSize - (canvas.getHeight() - HEADER_HEIGHT));
+    }
+
+    /**
+     * @param value The scroll position.
+     * @param max   The largest scroll position, which may be negative if everything is in view.
+     * @return The scroll position, kept between zero and the largest scroll position.
+     */
+    private static double clamp(double value, double max) {
+        return Math.max(0, Math.min(value, max));
+    }
+
+    /**
+     * Finds the seat at a point of the grid.
+     *
+     * @param x The x coordinate, relative to the grid.
+     * @param y The y coordinate, relative to the grid.
+     * @return The index of the seat, or -1 if there is no seat at the point.
+     */
+    private int indexAt(double x, double y) {
+        double seatX = x - snappedLeftInset() - gutterWidth;
+        double seatY = y - snappedTopInset() - HEADER_HEIGHT;
+
+        if (seatX < 0 || seatY < 0) {
+            return -1;
+        }
+
+        int column = (int) ((seatX + scrollX) / cellSize);
+        int row = (int) ((seatY + scrollY) / cellSize);
+
+        return row < rows && column < columns ? row * columns + column : -1;
+    }
+
+    /**
+     * Moves the highlight of the seat under the mouse, drawing only the two seats involved again.
+     *
+     * @param index The index of the seat under the mouse, or -1 if there is none.
+     */
+    private void setHoveredIndex(int index) {
+        int previous = hoveredIndex;
+
+        if (previous != index) {
+            hoveredIndex = index;
+            drawSeat(previous);
+            drawSeat(index);
+        }
+    }
+
+    /**
+     * Moves the keyboard focus to a seat, scrolling it into view if needed.
+     *
+     * @param index The index of the seat.
+     */
+    private void setFocusedIndex(int index) {
+        int previous = focusedIndex;
+        focusedIndex = index;
+
+        double x = (index % columns) * cellSize;
+        double y = (index / columns) * cellSize;
+        double viewWidth = canvas.getWidth() - gutterWidth;
+        double viewHeight = canvas.getHeight() - HEADER_HEIGHT;
+        double newScrollX = Math.min(Math.max(scrollX, x + cellSize - viewWidth), x);
+        double newScrollY = Math.min(Math.max(scrollY, y + cellSize - viewHeight), y);
+
+        if (newScrollX != scrollX || newScrollY != scrollY) {
+            scrollX = newScrollX;
+            scrollY = newScrollY;
+            drawAll();
+        } else {
+            drawSeat(previous);
+            drawSeat(index);
+        }
+    }
+
+    /**
+     * Chooses the seat that was clicked, unless it is taken.
+     *
+     * @param event The mouse event.
+     */
+    private void handleClick(MouseEvent event) {
+        requestFocus();
+        int index = indexAt(event.getX(), event.getY());
+
+        if (index >= 0) {
+            setFocusedIndex(index);
+            activate(index);
+        }
+    }
+
+    /**
+     * Moves the focused seat with the arrow keys and chooses it with space or enter.
+     *
+     * @param event The key event.
+     */
+    private void handleKey(KeyEvent event) {
+        if (states.length == 0) {
+            return;
+        }
+
+        int row = focusedIndex < 0 ? 0 : focusedIndex / columns;
+        int column = focusedIndex < 0 ? 0 : focusedIndex % columns;
+        boolean moved = focusedIndex >= 0;
+
+        switch (event.getCode()) {
+            case UP -> row = Math.max(0, row - 1);
+            case DOWN -> row = Math.min(rows - 1, row + 1);
+            case LEFT -> column = Math.max(0, column - 1);
+            case RIGHT -> column = Math.min(columns - 1, column + 1);
+            case SPACE, ENTER -> {
+                if (focusedIndex >= 0) {
+                    activate(focusedIndex);
+                }
+                event.consume();
+                return;
+            }
+            default -> {
+                return;
+            }
+        }
+
+        // The first arrow key only shows where the focus starts
+        setFocusedIndex(moved ? row * columns + column : 0);
+        event.consume();
+    }
+
+    /**
+     * Scrolls the seats that do not fit in the grid.
+     *
+     * @param event The scroll event.
+     */
+    private void handleScroll(ScrollEvent event) {
+        double newScrollX = clamp(scrollX - event.getDeltaX(), columns * cellSize - (canvas.getWidth() - gutterWidth));
+        double newScrollY = clamp(scrollY - event.getDeltaY(), rows * cellSize - (canvas.getHeight() - HEADER_HEIGHT));
+
+        if (newScrollX != scrollX || newScrollY != scrollY) {
+            scrollX = newScrollX;
+            scrollY = newScrollY;
+            drawAll();
+            event.consume();
+        }
+    }
+
+    /**
+     * Passes a seat to the handler set with {@link #setOnSeatActivated(Consumer)}, unless it is taken.
+     *
+     * @param index The index of the seat.
+     */
+    private void activate(int index) {
+        if (states[index] != SeatState.TAKEN) {
+            onSeatActivated.accept(new int[]{index / columns, index % columns});
+        }
+    }
+}
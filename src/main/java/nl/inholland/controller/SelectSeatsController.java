@@ -3,71 +3,93 @@ package nl.inholland.controller;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
-import javafx.geometry.Insets;
-import javafx.scene.Node;
-import javafx.scene.Scene;
 import javafx.scene.control.*;
-import javafx.scene.layout.HBox;
-import javafx.scene.layout.VBox;
-import javafx.scene.shape.Line;
 import javafx.stage.Stage;
 import nl.inholland.Database;
+import nl.inholland.DatabaseChange;
+import nl.inholland.booking.BestSeatFinder;
+import nl.inholland.booking.SeatHold;
+import nl.inholland.metrics.Counter;
+import nl.inholland.metrics.LatencyHistogram;
+import nl.inholland.metrics.Metrics;
+import nl.inholland.model.BookingResult;
 import nl.inholland.model.Selling;
 import nl.inholland.model.Showing;
 
-import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URL;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
 
 /**
  * Controller for the seat selection view in the application.
  * This class manages the seat selection process, allowing users to select available seats and finalize their selection.
- * It implements the {@link Initializable} interface to set up the view when the controller is loaded.
+ * It implements the {@link Initializable} interface to set up the view when the controller is loaded, and the
+ * {@link RefreshableView} interface to show the seats of the showing passed to {@link #setShowing(Showing)}.
+ * The seats are drawn by a {@link SeatGrid}; seats sold or held elsewhere while the view is shown are marked as taken,
+ * and seats freed elsewhere as free.
  */
-public class SelectSeatsController implements Initializable {
+public class SelectSeatsController implements Initializable, RefreshableView {
+    // Latency of selling the chosen seats, from confirming the sale until it is committed or rejected
+    private static final LatencyHistogram SELL_TICKETS_LATENCY = Metrics.histogram("sales", "sellTickets");
+    // Number of tickets sold through this view
+    private static final Counter TICKETS_SOLD = Metrics.counter("sales", "ticketsSold");
+    // Number of sales rejected because some of the chosen seats were sold in the meantime
+    private static final Counter LOST_SALES = Metrics.counter("sales", "lostSales");
+
     // Reference to the shared Database instance
     private final Database database;
-    // Reference to the root VBox container of the scene
-    private final VBox root;
+    // Reference to the registry that switches between the views
+    private final ViewRegistry views;
     // Reference to the currently selected showing
-    private final Showing selectedShowing;
+    private Showing selectedShowing;
     // Observable list to keep track of the chosen seats
     private ObservableList<int[]> chosenSeats;
+    // Holds on the chosen seats by seat index, so other terminals cannot sell them while the sale is in progress
+    private final Map<Integer, SeatHold> seatHolds = new HashMap<>();
+    // Marks the seats sold, held or freed elsewhere as taken or free
+    private final ChangeBatcher changes = new ChangeBatcher(this::applyChanges);
 
     // FXML-injected components
     @FXML
     private Label selectedShowingLabel;
     @FXML
-    private Label screenLabel;
-    @FXML
     private Button sellButton;
     @FXML
     private Button cancelButton;
     @FXML
-    private VBox roomSeatsVBox;
+    private SeatGrid seatGrid;
+    @FXML
+    private Spinner<Integer> ticketCountSpinner;
     @FXML
     private ListView<int[]> selectedSeatsListView;
     @FXML
     private TextField customerTextField;
-    @FXML
-    private Line screenLine;
 
     /**
      * Constructor for the SelectSeatsController.
      *
-     * @param database        The shared database instance.
-     * @param root            The root layout component.
-     * @param selectedShowing The showing for which seats are being selected.
+     * @param database The shared database instance.
+     * @param views    The registry that switches between the views.
      */
-    public SelectSeatsController(Database database, VBox root, Showing selectedShowing) {
+    public SelectSeatsController(Database database, ViewRegistry views) {
         this.database = database;
+        this.views = views;
+    }
+
+    /**
+     * Sets the showing for which seats are selected the next time the view is shown.
+     *
+     * @param selectedShowing The showing for which seats are being selected.
+     */
+    public void setShowing(Showing selectedShowing) {
         this.selectedShowing = selectedShowing;
-        this.root = root;
     }
 
     /**
@@ -77,37 +99,72 @@ public class SelectSeatsController implements Initializable {
     public void initialize(URL url, ResourceBundle resourceBundle) {
         chosenSeats = FXCollections.observableArrayList();
         selectedSeatsListView.setItems(chosenSeats);
-        selectedShowingLabel.setText(getFormattedSelectedShowing());
 
         setCellFactory();
-        displaySeats();
+        setTicketCountSpinner();
         addListenersForDisablingSellButton();
         addListenersToButtons();
-        addListenerForDrawingScreenLine();
+        seatGrid.setOnSeatActivated(this::selectSeat);
+        database.addChangeListener(changes);
     }
 
     /**
-     * Draws the screen line relative to the position of the row label.
+     * Shows the seats of the selected showing, with no seats chosen and no customer name entered yet.
+     */
+    @Override
+    public void refresh() {
+        // Seats still held when the view was left through the menu are released
+        releaseSeatHolds();
+        chosenSeats.clear();
+        customerTextField.clear();
+        selectedShowingLabel.setText(getFormattedSelectedShowing());
+        // Sales made before the seats are displayed are part of the seat map already
+        changes.flush();
+        displaySeats();
+
+        SpinnerValueFactory.IntegerSpinnerValueFactory valueFactory =
+                (SpinnerValueFactory.IntegerSpinnerValueFactory) ticketCountSpinner.getValueFactory();
+        valueFactory.setValue(0);
+        valueFactory.setMax(selectedShowing.getSeatsLeft());
+    }
+
+    /**
+     * Displays the seats of the shown showing that were sold, held or freed elsewhere as taken or free, as they are
+     * in the seat map now, unless they are chosen here.
      *
-     * @param rowName The label representing the row.
+     * @param batch The changes made to the database, in the order they were made.
      */
-    private void drawScreenLine(Label rowName) {
-        double labelWidth = rowName.getLayoutBounds().getWidth();
-        double rowWidth = rowName.getParent().getLayoutBounds().getWidth();
-        VBox.setMargin(screenLine, new Insets(0, 0, 0, labelWidth));
-        screenLine.setEndX(rowWidth - labelWidth);
-        double screenLabelX = labelWidth + (rowWidth - labelWidth) / 2 - screenLabel.getLayoutBounds().getWidth() / 2;
-        VBox.setMargin(screenLabel, new Insets(0, 0, 6, screenLabelX));
+    private void applyChanges(List<DatabaseChange> batch) {
+        for (DatabaseChange change : batch) {
+            switch (change) {
+                case DatabaseChange.SeatsSold sold -> updateSeats(sold.showing(), sold.seats());
+                case DatabaseChange.SeatsHeld held -> updateSeats(held.showing(), held.seats());
+                case DatabaseChange.SeatsReleased released -> updateSeats(released.showing(), released.seats());
+                default -> {
+                    // Only the seats of the shown showing are displayed
+                }
+            }
+        }
     }
 
     /**
-     * Adds a listener to draw the screen line after the scene is shown to ensure the line is correctly positioned.
+     * Displays seats of the shown showing as taken or free, as they are in the seat map now, unless they are chosen
+     * here. Seats of other showings are skipped.
+     *
+     * @param showing The showing the seats belong to.
+     * @param seats   The coordinates of the seats.
      */
-    private void addListenerForDrawingScreenLine() {
-        Label rowName = getRowNameLabel();
-        rowName.widthProperty().addListener((observable, oldValue, newValue) -> {
-            drawScreenLine(rowName);
-        });
+    private void updateSeats(Showing showing, List<int[]> seats) {
+        if (showing != selectedShowing) {
+            return;
+        }
+
+        for (int[] seat : seats) {
+            if (seatGrid.getSeatState(seat[0], seat[1]) != SeatGrid.SeatState.CHOSEN) {
+                seatGrid.setSeatState(seat[0], seat[1], showing.getSeatMap().isReserved(seat[0], seat[1])
+                        ? SeatGrid.SeatState.TAKEN : SeatGrid.SeatState.FREE);
+            }
+        }
     }
 
     /**
@@ -139,49 +196,28 @@ public class SelectSeatsController implements Initializable {
     private void addListenersToButtons() {
         sellButton.setOnAction(event -> {
             addSellToDatabase();
-            openSellView();
         });
 
         cancelButton.setOnAction(event -> {
+            releaseSeatHolds();
             openSellView();
         });
     }
 
     /**
-     * Retrieves the label representing the row in the seat layout.
-     *
-     * @return The label for the row.
-     */
-    private Label getRowNameLabel() {
-        Label rowName = null;
-
-        for (Node node : roomSeatsVBox.getChildren()) {
-            if (rowName != null) break;
-
-            for (Node child : ((HBox) node).getChildren()) {
-                if (child instanceof Label) {
-                    rowName = (Label) child;
-                    break;
-                }
-            }
-        }
-
-        return rowName;
-    }
-
-    /**
-     * Formats the selected showing to display the date and title.
+     * Formats the selected showing to display the date, title and room.
      *
      * @return A formatted string representing the showing.
      */
     private String getFormattedSelectedShowing() {
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm");
         String date = formatter.format(selectedShowing.getStartDateTime());
-        return date + " " + selectedShowing.getTitle();
+        return date + " " + selectedShowing.getTitle() + " (" + database.findRoom(selectedShowing.getRoomId()).getName() + ")";
     }
 
     /**
-     * Adds a new sale to the database based on the selected seats and customer name.
+     * Adds a new sale to the database based on the selected seats and customer name,
+     * and returns to the sell view unless some of the seats were sold in the meantime.
      */
     private void addSellToDatabase() {
         String customerName = customerTextField.getText().trim();
@@ -189,7 +225,7 @@ public class SelectSeatsController implements Initializable {
         int ticketsSold = chosenSeats.size();
         Selling selling = new Selling(-1, now, ticketsSold, selectedShowing, customerName, new ArrayList<>(chosenSeats));
 
-        Stage mainStage = (Stage) root.getScene().getWindow();
+        Stage mainStage = (Stage) sellButton.getScene().getWindow();
 
         if (selling.getShowing().getIsAgeChecked()) {
             AgeCheckController ageCheckController = new AgeCheckController(selling);
@@ -198,6 +234,7 @@ public class SelectSeatsController implements Initializable {
             if (isConfirmed) {
                 sellTickets(selling);
             } else {
+                releaseSeatHolds();
                 openSellView();
             }
         } else {
@@ -205,18 +242,86 @@ public class SelectSeatsController implements Initializable {
         }
     }
 
+    /**
+     * Informs the user that some of the chosen seats were sold in the meantime,
+     * and shows the current seats so other seats can be chosen.
+     *
+     * @param lostSeats The chosen seats that were already sold.
+     */
+    private void showLostSeats(List<int[]> lostSeats) {
+        StringBuilder seats = new StringBuilder();
+
+        for (int[] seat : lostSeats) {
+            seats.append(String.format("%nRow %d / Seat %d", seat[0] + 1, seat[1] + 1));
+        }
+
+        Alert alert = new Alert(Alert.AlertType.WARNING);
+        alert.setTitle("Seats no longer available");
+        alert.setHeaderText("Some of the chosen seats have just been sold");
+        alert.setContentText("No tickets were sold. Please choose other seats instead of:" + seats);
+        alert.showAndWait();
+
+        seatHolds.clear();
+        chosenSeats.clear();
+        displaySeats();
+    }
+
+    /**
+     * Informs the user that the sale could not be saved, and shows the current seats so the seats can be chosen
+     * again. The holds on the chosen seats have been released by the failed sale.
+     *
+     * @param e The failure to write the sale.
+     */
+    private void showSaleError(UncheckedIOException e) {
+        Alert alert = new Alert(Alert.AlertType.ERROR);
+        alert.setTitle("Sale not saved");
+        alert.setHeaderText("The sale could not be saved");
+        alert.setContentText("No tickets were sold. " + e.getMessage());
+        alert.showAndWait();
+
+        seatHolds.clear();
+        chosenSeats.clear();
+        displaySeats();
+    }
+
+    /**
+     * Releases the holds on all chosen seats.
+     */
+    private void releaseSeatHolds() {
+        for (SeatHold hold : seatHolds.values()) {
+            database.getSeatHolds().release(hold);
+        }
+
+        seatHolds.clear();
+    }
+
     /**
      * Processes the ticket selling operation for a given showing.
-     * This method adds the selling information to the database and marks each chosen seat as reserved.
+     * This method books all chosen seats at once, converting their holds, so either every seat is sold together
+     * with the selling or, if another sale took one of them after its hold expired, none of them is.
      *
      * @param selling The {@link Selling} object containing details of the transaction, such as the customer name,
      *                number of tickets sold, and showing information.
      */
     public void sellTickets(Selling selling) {
-        database.addSelling(selling);
+        long start = System.nanoTime();
+        BookingResult result;
+
+        try {
+            result = database.getSeatHolds().commit(selling, new ArrayList<>(seatHolds.values()));
+        } catch (UncheckedIOException e) {
+            showSaleError(e);
+            return;
+        } finally {
+            SELL_TICKETS_LATENCY.recordSince(start);
+        }
 
-        for (int[] chosenSeat : chosenSeats) {
-            database.sellTicket(selectedShowing.getId(), chosenSeat);
+        if (result.isCommitted()) {
+            TICKETS_SOLD.add(selling.getTicketsSold());
+            openSellView();
+        } else {
+            LOST_SALES.increment();
+            showLostSeats(result.lostSeats());
         }
     }
 
@@ -224,96 +329,87 @@ public class SelectSeatsController implements Initializable {
      * Opens the sell view when the user cancels or confirms the seat selection.
      */
     private void openSellView() {
-        try {
-            FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("/nl/inholland/view/sell-view.fxml"));
-            fxmlLoader.setController(new SellController(database, root));
-            Scene scene = new Scene(fxmlLoader.load());
-
-            if (root.getChildren().size() > 1)
-                root.getChildren().remove(1);
-            root.getChildren().add(scene.getRoot());
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        views.show(ViewRegistry.SELL);
     }
 
     /**
      * Displays the available and reserved seats for the selected showing.
      */
     private void displaySeats() {
-        roomSeatsVBox.getChildren().clear();
-        boolean[][] seats = selectedShowing.getReservedSeats();
-
-        for (int i = 0; i < seats.length; i++) {
-            HBox rowHBox = createRow(i + 1);
-
-            for (int j = 0; j < seats[i].length; j++) {
-                Button seatButton = createSeatButton(seats, i, j);
-                rowHBox.getChildren().add(seatButton);
-            }
-        }
+        seatGrid.setSeatMap(selectedShowing.getSeatMap());
     }
 
     /**
-     * Creates a seat button for the given row and column, configuring its state and event handler.
-     *
-     * @param seats  The seat availability array.
-     * @param row    The row index.
-     * @param column The column index.
-     * @return The configured Button object representing a seat.
+     * Sets up the spinner for the number of tickets, which pre-selects the best available seats whenever its value
+     * changes, including while a number is being typed. Its maximum is set to the number of seats left whenever the
+     * view is refreshed.
      */
-    private Button createSeatButton(boolean[][] seats, int row, int column) {
-        Button seatButton = new Button();
-        seatButton.setText(String.valueOf(column + 1));
-        seatButton.getStyleClass().add("seat-button");
+    private void setTicketCountSpinner() {
+        SpinnerValueFactory.IntegerSpinnerValueFactory valueFactory =
+                new SpinnerValueFactory.IntegerSpinnerValueFactory(0, 0, 0);
+        ticketCountSpinner.setValueFactory(valueFactory);
 
-        // Store row and column indices as user data
-        seatButton.setUserData(new int[]{row, column});
+        ticketCountSpinner.valueProperty().addListener((observable, oldValue, newValue) -> {
+            selectBestSeats(newValue);
+        });
 
-        if (seats[row][column]) {
-            seatButton.getStyleClass().add("seat-taken");
-            seatButton.setDisable(true);
-        } else {
-            seatButton.getStyleClass().add("seat-free");
-        }
+        ticketCountSpinner.getEditor().textProperty().addListener((observable, oldValue, newValue) -> {
+            try {
+                int count = Integer.parseInt(newValue.trim());
 
-        // Add button click event handler
-        seatButton.setOnAction(event -> {
-            selectSeat(seatButton);
+                if (count >= valueFactory.getMin() && count <= valueFactory.getMax()) {
+                    valueFactory.setValue(count);
+                }
+            } catch (NumberFormatException e) {
+                // Wait until the user has typed a number
+            }
         });
-
-        return seatButton;
     }
 
     /**
-     * Creates a row with a label representing the row number.
+     * Replaces the chosen seats with the best available seats for a number of tickets.
+     * If another terminal takes some of them before they are held, the best seats among the remaining ones are
+     * chosen instead.
      *
-     * @param number The row number.
-     * @return The configured HBox object representing the row.
+     * @param count The number of tickets.
      */
-    private HBox createRow(int number) {
-        HBox rowHBox = new HBox();
-        Label rowName = new Label(String.format("Row %d", number));
-        rowName.getStyleClass().add("row-name");
-        rowHBox.getChildren().add(rowName);
-        roomSeatsVBox.getChildren().add(rowHBox);
-        return rowHBox;
+    private void selectBestSeats(int count) {
+        for (int[] seat : new ArrayList<>(chosenSeats)) {
+            selectSeat(seat);
+        }
+
+        for (int attempt = 0; attempt < 3 && chosenSeats.size() < count; attempt++) {
+            for (int[] seat : BestSeatFinder.findBestSeats(selectedShowing, count - chosenSeats.size())) {
+                selectSeat(seat);
+            }
+        }
     }
 
     /**
-     * Handles seat selection or deselection when a seat button is clicked.
+     * Handles seat selection or deselection when a seat is clicked or chosen with the keyboard.
+     * A chosen seat is held until the sale is completed or cancelled; if another terminal holds or sold it
+     * in the meantime, the seat is shown as taken instead.
      *
-     * @param seatButton The button representing the selected seat.
+     * @param seat The coordinates of the seat.
      */
-    private void selectSeat(Button seatButton) {
-        int[] seat = (int[]) seatButton.getUserData();
+    private void selectSeat(int[] seat) {
+        int index = seat[0] * selectedShowing.getSeatMap().getColumns() + seat[1];
 
-        if (chosenSeats.contains(seat)) {
-            chosenSeats.remove(seat);
-            seatButton.getStyleClass().remove("seat-chosen");
+        if (seatGrid.getSeatState(seat[0], seat[1]) == SeatGrid.SeatState.CHOSEN) {
+            database.getSeatHolds().release(seatHolds.remove(index));
+            chosenSeats.removeIf(chosen -> chosen[0] == seat[0] && chosen[1] == seat[1]);
+            seatGrid.setSeatState(seat[0], seat[1], SeatGrid.SeatState.FREE);
         } else {
+            SeatHold hold = database.getSeatHolds().hold(selectedShowing, List.of(seat));
+
+            if (hold == null) {
+                seatGrid.setSeatState(seat[0], seat[1], SeatGrid.SeatState.TAKEN);
+                return;
+            }
+
+            seatHolds.put(index, hold);
             chosenSeats.add(seat);
-            seatButton.getStyleClass().add("seat-chosen");
+            seatGrid.setSeatState(seat[0], seat[1], SeatGrid.SeatState.CHOSEN);
         }
     }
 
@@ -1,37 +1,54 @@
 package nl.inholland.controller;
 
 import javafx.beans.property.SimpleStringProperty;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
-import javafx.scene.Scene;
 import javafx.scene.control.*;
-import javafx.scene.layout.VBox;
 import nl.inholland.Database;
+import nl.inholland.DatabaseChange;
 import nl.inholland.model.Showing;
+import nl.inholland.model.TitleIndex;
+import nl.inholland.search.FilterPipeline;
 
-import java.io.IOException;
 import java.net.URL;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.ResourceBundle;
+import java.util.Set;
 
 /**
  * Controller for the selling view in the application.
  * This class manages the display and interaction with available showings,
  * allowing users to select a showing and proceed to select seats.
- * It implements the {@link Initializable} interface to set up the view when the controller is loaded.
+ * It implements the {@link Initializable} interface to set up the view when the controller is loaded, and the
+ * {@link RefreshableView} interface to list the upcoming showings when the view is first shown. After that, the list
+ * is kept up to date with the changes published by the database, and showing the view again only removes the
+ * showings that have started since.
  */
-public class SellController implements Initializable {
+public class SellController implements Initializable, RefreshableView {
     // Formatter for date and time values in dd-MM-yyyy HH:mm format
     private final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm");
+    // How long the search text must be unchanged before the showings are filtered
+    private static final Duration SEARCH_DEBOUNCE = Duration.ofMillis(150);
 
     // Reference to the shared Database instance
     private final Database database;
-    // Reference to the root VBox container of the scene
-    private final VBox root;
+    // Reference to the registry that switches between the views
+    private final ViewRegistry views;
+    // The listed showings, displayed sorted like the table and filtered by the search
+    private ListedShowings showings;
+    // Applies the changes made to the database to the listed showings
+    private final ChangeBatcher changes = new ChangeBatcher(this::applyChanges);
+    // The time the listed showings were last checked for showings that have started
+    private LocalDateTime lastRefresh;
+    // Searches the titles of the showings, created when the view is first shown
+    private TitleIndex.Search search;
+    // Filters the showings by title off the JavaFX Application Thread
+    private FilterPipeline<Showing> searchPipeline;
 
     // FXML-injected components
     @FXML
@@ -41,11 +58,13 @@ public class SellController implements Initializable {
     @FXML
     private Button selectSeatsButton;
     @FXML
-    private TableColumn<Showing, String> seatsLeftColumn;
+    private TableColumn<Showing, Integer> seatsLeftColumn;
     @FXML
-    private TableColumn<Showing, String> startColumn;
+    private TableColumn<Showing, LocalDateTime> startColumn;
     @FXML
-    private TableColumn<Showing, String> endColumn;
+    private TableColumn<Showing, LocalDateTime> endColumn;
+    @FXML
+    private TableColumn<Showing, String> roomColumn;
     @FXML
     private TextField searchTextField;
 
@@ -53,11 +72,11 @@ public class SellController implements Initializable {
      * Constructor for the SellController.
      *
      * @param database The database instance shared across controllers.
-     * @param root     The root VBox container of the scene.
+     * @param views    The registry that switches between the views.
      */
-    public SellController(Database database, VBox root) {
+    public SellController(Database database, ViewRegistry views) {
         this.database = database;
-        this.root = root;
+        this.views = views;
     }
 
     /**
@@ -65,12 +84,8 @@ public class SellController implements Initializable {
      */
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
-        ObservableList<Showing> showings = FXCollections.observableArrayList(database.getUpcomingShowings());
-        sellsTableView.setItems(showings);
-
         addSelectionListenerToTableView();
         setCellValueFactories();
-        setComparatorForDateTimeColumns();
         sellsTableView.getSortOrder().add(startColumn); // set default sort column
 
         selectSeatsButton.setOnAction(event -> {
@@ -78,75 +93,180 @@ public class SellController implements Initializable {
         });
 
         // Add search functionality
-        addSearchListener(showings);
+        addSearchListener();
     }
 
     /**
-     * Adds a listener to the search text field to filter the list of showings based on the user's input.
-     * This method updates the displayed list of showings in the TableView as the user types in the search field.
-     * If the user types fewer than 3 characters, all showings are displayed. If the input has 3 or more characters,
-     * the method filters the showings to only display those whose titles contain the input text, ignoring case.
+     * Brings the list of upcoming showings up to date, clearing the search text and the selection.
+     * The list is only built the first time; after that, the pending changes of the database are applied and the
+     * showings that have started since the last refresh are removed.
+     */
+    @Override
+    public void refresh() {
+        LocalDateTime now = LocalDateTime.now();
+
+        if (showings == null) {
+            search = new TitleIndex.Search(database.getTitleIndex());
+            // Listen before listing, so no change is missed; changes already listed are skipped
+            database.addChangeListener(changes);
+            showings = new ListedShowings(sellsTableView, database.getUpcomingShowings());
+        } else {
+            changes.flush();
+            showings.update(List.of(), List.of(), database.getShowingsStartingBetween(lastRefresh, now));
+        }
+        lastRefresh = now;
+
+        searchTextField.clear();
+        filterShowings("");
+        sellsTableView.getSelectionModel().clearSelection();
+        selectedLabel.setText("");
+    }
+
+    /**
+     * Applies changes made to the database to the listed showings. Showings that are added or moved to the future
+     * are listed, showings that are deleted or moved to the past are removed, and showings that are edited or sold
+     * are moved to their place in the sort order and displayed again. The whole batch is applied to the list at once,
+     * so a showing sold several times in the batch is only displayed again once.
      *
-     * @param allShowings The complete list of all available {@link Showing} objects.
+     * @param batch The changes, in the order they were made.
      */
-    private void addSearchListener(ObservableList<Showing> allShowings) {
-        searchTextField.textProperty().addListener((observable, oldValue, newValue) -> {
-            // If the search input has less than 3 characters, show all showings
-            if (newValue.length() < 3) {
-                sellsTableView.setItems(allShowings);
-            } else {
-                // Filter the showings based on the title containing the search text
-                ObservableList<Showing> filteredShowings = FXCollections.observableArrayList(
-                        allShowings.stream()
-                                .filter(showing -> showing.getTitle().toLowerCase().contains(newValue.toLowerCase()))
-                                .toList()
-                );
-                sellsTableView.setItems(filteredShowings);
+    private void applyChanges(List<DatabaseChange> batch) {
+        LocalDateTime now = LocalDateTime.now();
+        Set<Showing> addedShowings = new LinkedHashSet<>();
+        Set<Showing> changedShowings = new LinkedHashSet<>();
+        Set<Showing> removedShowings = new LinkedHashSet<>();
+        boolean titlesChanged = false;
+
+        for (DatabaseChange change : batch) {
+            switch (change) {
+                case DatabaseChange.ShowingAdded added -> {
+                    if (added.showing().getStartDateTime().isAfter(now)) {
+                        listShowing(added.showing(), addedShowings, changedShowings, removedShowings);
+                        titlesChanged = true;
+                    }
+                }
+                case DatabaseChange.ShowingUpdated updated -> {
+                    if (updated.showing().getStartDateTime().isAfter(now)) {
+                        listShowing(updated.showing(), addedShowings, changedShowings, removedShowings);
+                    } else {
+                        unlistShowing(updated.showing(), addedShowings, changedShowings, removedShowings);
+                    }
+                    titlesChanged = true;
+                }
+                case DatabaseChange.ShowingRemoved removed ->
+                        unlistShowing(removed.showing(), addedShowings, changedShowings, removedShowings);
+                case DatabaseChange.SeatsSold sold -> changedShowings.add(sold.showing());
+                case DatabaseChange.SeatsHeld held -> {
+                    // Held seats are taken off the seats left when the showing is next displayed
+                }
+                case DatabaseChange.SeatsReleased released -> {
+                    // Freed seats are added to the seats left when the showing is next displayed
+                }
+                case DatabaseChange.SellingAdded added -> {
+                    // The sold seats are published separately
+                }
+                case DatabaseChange.HistoryLoaded loaded -> {
+                    // Past showings are listed after loading the history, or not at all
+                }
             }
-        });
+        }
+
+        showings.update(addedShowings, changedShowings, removedShowings);
+
+        // Search again if a title may have changed, so a filtered list shows the added and edited showings too
+        if (titlesChanged && searchTextField.getText().length() >= 3) {
+            filterShowings(searchTextField.getText());
+        }
     }
 
     /**
-     * Sets the cell value factories for each column in the table.
-     * This method configures how data is displayed in each column.
+     * Notes in a batch of changes that a showing is to be listed: it is added if it is not listed yet, or displayed
+     * again if it is.
+     *
+     * @param showing         The showing.
+     * @param addedShowings   The showings to list.
+     * @param changedShowings The listed showings to display again.
+     * @param removedShowings The showings to remove from the list.
      */
-    private void setCellValueFactories() {
-        seatsLeftColumn.setCellValueFactory(
-                c -> new SimpleStringProperty(c.getValue().getTicketsSold() + "/" + c.getValue().getNumberOfSeats())
-        );
-        endColumn.setCellValueFactory(
-                c -> new SimpleStringProperty(c.getValue().getStartDateTime().plusSeconds(c.getValue().getDuration().toSecondOfDay()).format(FORMATTER))
-        );
-        startColumn.setCellValueFactory(
-                c -> new SimpleStringProperty(c.getValue().getStartDateTime().format(FORMATTER))
-        );
+    private void listShowing(Showing showing, Set<Showing> addedShowings, Set<Showing> changedShowings,
+                             Set<Showing> removedShowings) {
+        removedShowings.remove(showing);
+
+        if (showings.contains(showing)) {
+            changedShowings.add(showing);
+        } else {
+            addedShowings.add(showing);
+        }
     }
 
     /**
-     * Sets custom comparators for columns containing date-time values to allow proper sorting.
-     * This method assigns a comparator to the start and end columns, ensuring that they are sorted
-     * based on parsed LocalDateTime values.
+     * Notes in a batch of changes that a showing is to be removed from the list.
+     *
+     * @param showing         The showing.
+     * @param addedShowings   The showings to list.
+     * @param changedShowings The listed showings to display again.
+     * @param removedShowings The showings to remove from the list.
      */
-    private void setComparatorForDateTimeColumns() {
-        setComparatorForColumn(startColumn);
-        setComparatorForColumn(endColumn);
+    private void unlistShowing(Showing showing, Set<Showing> addedShowings, Set<Showing> changedShowings,
+                               Set<Showing> removedShowings) {
+        addedShowings.remove(showing);
+        changedShowings.remove(showing);
+        removedShowings.add(showing);
     }
 
     /**
-     * Assigns a comparator to a specified table column that compares date-time values as strings.
-     * The comparator parses the string values into LocalDateTime objects using the formatter and
-     * compares them, enabling accurate sorting in the table.
+     * Adds a listener to the search text field to filter the list of showings based on the user's input.
+     * This method updates the displayed list of showings in the TableView as the user types in the search field.
+     * If the user types fewer than 3 characters, all showings are displayed. If the input has 3 or more characters,
+     * the method filters the showings to only display those whose titles contain the input text, ignoring case and
+     * accents. The titles are looked up in the title index of the database by a {@link FilterPipeline}, which waits
+     * until the user stops typing and searches on a background thread, so typing never waits for the search.
+     */
+    private void addSearchListener() {
+        searchPipeline = new FilterPipeline<>(SEARCH_DEBOUNCE, text -> {
+            // The index holds past showings too, which are not listed here
+            List<Showing> filteredShowings = new ArrayList<>();
+
+            for (Showing showing : search.search(text)) {
+                if (showings.contains(showing)) {
+                    filteredShowings.add(showing);
+                }
+            }
+
+            return filteredShowings;
+        }, filteredShowings -> showings.showOnly(filteredShowings));
+
+        searchTextField.textProperty().addListener((observable, oldValue, newValue) -> filterShowings(newValue));
+    }
+
+    /**
+     * Displays the showings matching a search text: all showings for fewer than 3 characters, otherwise those
+     * found by the search pipeline once it has run.
      *
-     * @param column The TableColumn containing date-time values as strings that need to be sorted.
+     * @param text The search text.
      */
-    private void setComparatorForColumn(TableColumn<Showing, String> column) {
-        column.setComparator((date1, date2) -> {
-            // Parse the date strings into LocalDateTime objects using the formatter
-            LocalDateTime dt1 = LocalDateTime.parse(date1, FORMATTER);
-            LocalDateTime dt2 = LocalDateTime.parse(date2, FORMATTER);
-            // Compare the parsed LocalDateTime objects
-            return dt1.compareTo(dt2);
-        });
+    private void filterShowings(String text) {
+        // If the search input has less than 3 characters, show all showings
+        if (text.length() < 3) {
+            searchPipeline.cancel();
+            showings.showAll();
+        } else {
+            searchPipeline.submit(text);
+        }
+    }
+
+    /**
+     * Sets the cell value factories for each column in the table.
+     * This method configures how data is displayed in each column.
+     */
+    private void setCellValueFactories() {
+        TypedColumns.setDateTimeColumn(startColumn, Showing::getStartDateTime);
+        TypedColumns.setDateTimeColumn(endColumn, Showing::getEndDateTime);
+        roomColumn.setCellValueFactory(
+                c -> new SimpleStringProperty(database.findRoom(c.getValue().getRoomId()).getName())
+        );
+        TypedColumns.setColumn(seatsLeftColumn, Showing::getTicketsSold,
+                (showing, ticketsSold) -> ticketsSold + "/" + showing.getNumberOfSeats());
     }
 
     /**
@@ -179,22 +299,10 @@ public class SellController implements Initializable {
     }
 
     /**
-     * Opens the seat selection view when the "Select Seats" button is clicked.
-     * It loads the new scene and sets the controller for the select seats view.
+     * Opens the seat selection view for the selected showing when the "Select Seats" button is clicked.
      */
     private void showSelectSeatsView() {
-        try {
-            Showing selectedShowing = sellsTableView.getSelectionModel().getSelectedItem();
-
-            FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("/nl/inholland/view/select-seats-view.fxml"));
-            fxmlLoader.setController(new SelectSeatsController(database, root, selectedShowing));
-            Scene scene = new Scene(fxmlLoader.load());
-
-            if (root.getChildren().size() > 1)
-                root.getChildren().remove(1);
-            root.getChildren().add(scene.getRoot());
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        Showing selectedShowing = sellsTableView.getSelectionModel().getSelectedItem();
+        views.show(ViewRegistry.SELECT_SEATS, controller -> controller.setShowing(selectedShowing));
     }
 }
@@ -1,42 +1,62 @@
 package nl.inholland.controller;
 
 import javafx.beans.property.SimpleStringProperty;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
-import javafx.scene.Scene;
 import javafx.scene.control.*;
-import javafx.scene.layout.VBox;
 import javafx.stage.FileChooser;
 import nl.inholland.Database;
+import nl.inholland.DatabaseChange;
+import nl.inholland.export.CsvExport;
+import nl.inholland.export.CsvExportTask;
+import nl.inholland.model.Room;
 import nl.inholland.model.Showing;
+import nl.inholland.model.TitleIndex;
+import nl.inholland.schedule.ImportReport;
+import nl.inholland.schedule.ScheduleImport;
+import nl.inholland.search.FilterPipeline;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URL;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Controller for managing the showings view in the application.
- * This class displays the list of showings, and allows users to add, edit, or delete showings.
- * It implements the {@link Initializable} interface to set up the view when the controller is loaded.
+ * This class displays the list of showings, and allows users to add, edit, or delete showings, to import a schedule
+ * of showings and to export the showings.
+ * It implements the {@link Initializable} interface to set up the view when the controller is loaded, and the
+ * {@link RefreshableView} interface to list the showings when the view is first shown. After that, the list is kept
+ * up to date with the changes published by the database.
  */
-public class ShowingsController implements Initializable {
+public class ShowingsController implements Initializable, RefreshableView {
     // Formatter for date and time values in dd-MM-yyyy HH:mm format
     private final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm");
+    // How long the search text must be unchanged before the showings are filtered
+    private static final Duration SEARCH_DEBOUNCE = Duration.ofMillis(150);
 
     // Reference to the shared Database instance
     private final Database database;
-    // Reference to the root VBox container of the scene
-    private final VBox root;
-    // ObservableList to hold the list of showings
-    private ObservableList<Showing> showings;
+    // Reference to the registry that switches between the views
+    private final ViewRegistry views;
+    // The listed showings, displayed sorted like the table and filtered by the search
+    private ListedShowings showings;
+    // Applies the changes made to the database to the listed showings
+    private final ChangeBatcher changes = new ChangeBatcher(this::applyChanges);
+    // Searches the titles of the showings, created when the view is first shown
+    private TitleIndex.Search search;
+    // Filters the showings by title off the JavaFX Application Thread
+    private FilterPipeline<Showing> searchPipeline;
 
     // FXML-injected components
     @FXML
@@ -50,23 +70,31 @@ public class ShowingsController implements Initializable {
     @FXML
     private Button exportShowingButton;
     @FXML
+    private Button importScheduleButton;
+    @FXML
+    private ExportBar exportBar;
+    @FXML
     private Label errorLabel;
     @FXML
-    private TableColumn<Showing, String> seatsLeftColumn;
+    private TableColumn<Showing, Integer> seatsLeftColumn;
+    @FXML
+    private TableColumn<Showing, LocalDateTime> startColumn;
     @FXML
-    private TableColumn<Showing, String> startColumn;
+    private TableColumn<Showing, LocalDateTime> endColumn;
     @FXML
-    private TableColumn<Showing, String> endColumn;
+    private TableColumn<Showing, String> roomColumn;
+    @FXML
+    private TextField searchTextField;
 
     /**
      * Constructor for the ShowingsController.
      *
      * @param database The database instance shared across controllers.
-     * @param root     The root VBox container of the scene.
+     * @param views    The registry that switches between the views.
      */
-    public ShowingsController(Database database, VBox root) {
+    public ShowingsController(Database database, ViewRegistry views) {
         this.database = database;
-        this.root = root;
+        this.views = views;
     }
 
     /**
@@ -74,55 +102,132 @@ public class ShowingsController implements Initializable {
      */
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
-        showings = FXCollections.observableArrayList(database.getShowings());
-        showingsTableView.setItems(showings);
         setCellValueFactories();
-        setComparatorForDateTimeColumns();
         showingsTableView.getSortOrder().add(startColumn); // set default sort column
         addSelectionListenerToTableView();
         addListenersToButtons();
+        addSearchListener();
     }
 
     /**
-     * Configures the cell value factories for the TableView columns to display the start time, end time, and seats left.
+     * Brings the list of showings up to date, clearing the search text and the selection.
+     * The list is only built the first time; after that, only the pending changes of the database are applied.
      */
-    private void setCellValueFactories() {
-        startColumn.setCellValueFactory(
-                c -> new SimpleStringProperty(c.getValue().getStartDateTime().format(FORMATTER))
-        );
-        endColumn.setCellValueFactory(
-                c -> new SimpleStringProperty(c.getValue().getStartDateTime().plusSeconds(c.getValue().getDuration().toSecondOfDay()).format(FORMATTER))
-        );
-        seatsLeftColumn.setCellValueFactory(
-                c -> new SimpleStringProperty(c.getValue().getTicketsSold() + "/" + c.getValue().getNumberOfSeats())
-        );
+    @Override
+    public void refresh() {
+        if (showings == null) {
+            search = new TitleIndex.Search(database.getTitleIndex());
+            // Listen before listing, so no change is missed; changes already listed are skipped
+            database.addChangeListener(changes);
+            showings = new ListedShowings(showingsTableView, database.getShowings());
+        } else {
+            changes.flush();
+        }
+
+        searchTextField.clear();
+        filterShowings("");
+        showingsTableView.getSelectionModel().clearSelection();
+        errorLabel.setVisible(false);
+    }
+
+    /**
+     * Applies changes made to the database to the listed showings. Added showings are listed, deleted showings are
+     * removed, and showings that are edited or sold are moved to their place in the sort order and displayed again.
+     * The whole batch is applied to the list at once, so a showing sold several times in the batch is only displayed
+     * again once.
+     *
+     * @param batch The changes, in the order they were made.
+     */
+    private void applyChanges(List<DatabaseChange> batch) {
+        Set<Showing> addedShowings = new LinkedHashSet<>();
+        Set<Showing> changedShowings = new LinkedHashSet<>();
+        Set<Showing> removedShowings = new LinkedHashSet<>();
+        boolean titlesChanged = false;
+
+        for (DatabaseChange change : batch) {
+            switch (change) {
+                case DatabaseChange.ShowingAdded added -> {
+                    removedShowings.remove(added.showing());
+
+                    if (showings.contains(added.showing())) {
+                        changedShowings.add(added.showing());
+                    } else {
+                        addedShowings.add(added.showing());
+                    }
+                    titlesChanged = true;
+                }
+                case DatabaseChange.ShowingUpdated updated -> {
+                    changedShowings.add(updated.showing());
+                    titlesChanged = true;
+                }
+                case DatabaseChange.ShowingRemoved removed -> {
+                    addedShowings.remove(removed.showing());
+                    changedShowings.remove(removed.showing());
+                    removedShowings.add(removed.showing());
+                }
+                case DatabaseChange.SeatsSold sold -> changedShowings.add(sold.showing());
+                case DatabaseChange.SeatsHeld held -> {
+                    // Held seats are taken off the seats left when the showing is next displayed
+                }
+                case DatabaseChange.SeatsReleased released -> {
+                    // Freed seats are added to the seats left when the showing is next displayed
+                }
+                case DatabaseChange.SellingAdded added -> {
+                    // The sold seats are published separately
+                }
+                case DatabaseChange.HistoryLoaded loaded -> {
+                    // Past showings are listed after loading the history, or not at all
+                }
+            }
+        }
+
+        showings.update(addedShowings, changedShowings, removedShowings);
+
+        // Search again if a title may have changed, so a filtered list shows the added and edited showings too
+        if (titlesChanged && searchTextField.getText().length() >= 3) {
+            filterShowings(searchTextField.getText());
+        }
     }
 
     /**
-     * Sets custom comparators for columns containing date-time values to allow proper sorting.
-     * This method assigns a comparator to the start and end columns, ensuring that they are sorted
-     * based on parsed LocalDateTime values.
+     * Adds a listener to the search text field to filter the list of showings based on the user's input.
+     * If the user types fewer than 3 characters, all showings are displayed. If the input has 3 or more characters,
+     * only the showings whose titles contain the input text are displayed, ignoring case and accents. The titles are
+     * looked up in the title index of the database by a {@link FilterPipeline}, off the JavaFX Application Thread.
      */
-    private void setComparatorForDateTimeColumns() {
-        setComparatorForColumn(startColumn);
-        setComparatorForColumn(endColumn);
+    private void addSearchListener() {
+        searchPipeline = new FilterPipeline<>(SEARCH_DEBOUNCE, text -> search.search(text),
+                filteredShowings -> showings.showOnly(filteredShowings));
+
+        searchTextField.textProperty().addListener((observable, oldValue, newValue) -> filterShowings(newValue));
     }
 
     /**
-     * Assigns a comparator to a specified table column that compares date-time values as strings.
-     * The comparator parses the string values into LocalDateTime objects using the formatter and
-     * compares them, enabling accurate sorting in the table.
+     * Displays the showings matching a search text: all showings for fewer than 3 characters, otherwise those
+     * found by the search pipeline once it has run.
      *
-     * @param column The TableColumn containing date-time values as strings that need to be sorted.
+     * @param text The search text.
      */
-    private void setComparatorForColumn(TableColumn<Showing, String> column) {
-        column.setComparator((date1, date2) -> {
-            // Parse the date strings into LocalDateTime objects using the formatter
-            LocalDateTime dt1 = LocalDateTime.parse(date1, FORMATTER);
-            LocalDateTime dt2 = LocalDateTime.parse(date2, FORMATTER);
-            // Compare the parsed LocalDateTime objects
-            return dt1.compareTo(dt2);
-        });
+    private void filterShowings(String text) {
+        if (text.length() < 3) {
+            searchPipeline.cancel();
+            showings.showAll();
+        } else {
+            searchPipeline.submit(text);
+        }
+    }
+
+    /**
+     * Configures the cell value factories for the TableView columns to display the start time, end time, room, and seats left.
+     */
+    private void setCellValueFactories() {
+        TypedColumns.setDateTimeColumn(startColumn, Showing::getStartDateTime);
+        TypedColumns.setDateTimeColumn(endColumn, Showing::getEndDateTime);
+        roomColumn.setCellValueFactory(
+                c -> new SimpleStringProperty(database.findRoom(c.getValue().getRoomId()).getName())
+        );
+        TypedColumns.setColumn(seatsLeftColumn, Showing::getTicketsSold,
+                (showing, ticketsSold) -> ticketsSold + "/" + showing.getNumberOfSeats());
     }
 
     /**
@@ -159,8 +264,13 @@ public class ShowingsController implements Initializable {
                 boolean userChoice = showConfirmationDialog(selectedShowing);
 
                 if (userChoice) {
-                    database.deleteShowing(selectedShowing);
-                    showings.remove(selectedShowing);
+                    try {
+                        database.deleteShowing(selectedShowing);
+                        // Remove it right away instead of on the next change batch
+                        changes.flush();
+                    } catch (UncheckedIOException e) {
+                        showSaveError("Delete Showing", "The showing was not deleted", e);
+                    }
                 }
             }
         });
@@ -174,54 +284,110 @@ public class ShowingsController implements Initializable {
         });
 
         exportShowingButton.setOnAction(event -> exportShowingsToCSV());
+        exportShowingButton.disableProperty().bind(exportBar.runningProperty());
+
+        importScheduleButton.setOnAction(event -> importSchedule());
     }
 
     /**
-     * Opens a FileChooser dialog to allow the user to save the showings data as a CSV file.
-     * The method configures the FileChooser to accept only files with a .csv extension.
-     * If the user selects a file, it proceeds to write the showings data into the selected file.
+     * Exports the showings as a CSV file chosen by the user, in the background.
+     * The exported details of the showings are copied first, without their seat maps, so editing showings and
+     * selling tickets while the export runs does not affect it.
      */
     private void exportShowingsToCSV() {
+        exportBar.export("Save Showings as CSV", "showings.csv", file -> new CsvExportTask<>(
+                CsvExport.showings(database::findRoom), database.copyShowingDetails(), file));
+    }
+
+    /**
+     * Imports a schedule file chosen by the user. The file is read in the background; the showings are then checked
+     * for overlaps and added on the JavaFX Application Thread, after which a report of the rows that could not be
+     * imported is shown.
+     */
+    private void importSchedule() {
         // Configure the FileChooser
         FileChooser fileChooser = new FileChooser();
-        fileChooser.setTitle("Save Showings as CSV");
-        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV Files", "*.csv"));
+        fileChooser.setTitle("Import Schedule");
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Schedules", "*.csv", "*.json"));
 
-        // Show the Save dialog
-        File file = fileChooser.showSaveDialog(exportShowingButton.getScene().getWindow());
+        // Show the Open dialog
+        File file = fileChooser.showOpenDialog(importScheduleButton.getScene().getWindow());
 
-        if (file != null) {
-            writeShowingsToCSV(file);
+        if (file == null) {
+            return;
         }
+
+        List<Room> rooms = database.getRooms();
+        Task<ScheduleImport> task = new Task<>() {
+            @Override
+            protected ScheduleImport call() throws IOException {
+                return ScheduleImport.read(file.toPath(), rooms);
+            }
+        };
+
+        task.setOnSucceeded(event -> {
+            importScheduleButton.setDisable(false);
+
+            try {
+                ImportReport report = task.getValue().commit(database);
+                // List the imported showings right away instead of on the next change batch
+                changes.flush();
+                showImportReport(report);
+            } catch (UncheckedIOException e) {
+                showSaveError("Import Schedule", "The showings were not imported", e);
+            }
+        });
+        task.setOnFailed(event -> {
+            importScheduleButton.setDisable(false);
+            Alert alert = new Alert(Alert.AlertType.ERROR);
+            alert.setTitle("Import Schedule");
+            alert.setHeaderText("The schedule could not be read: " + task.getException().getMessage());
+            alert.showAndWait();
+        });
+
+        importScheduleButton.setDisable(true);
+        // The rows are interpreted by a parallel stream, which runs on the common pool as well
+        ForkJoinPool.commonPool().execute(task);
     }
 
     /**
-     * Writes the showings data to the specified file in CSV format.
-     * The method iterates through all the showings in the database and writes each showing's details
-     * (start date and time, end date and time, movie title, and available seats) to the file in a structured format.
+     * Displays how many showings were imported, with the rows that were not and why.
      *
-     * @param file The file where the CSV data will be written.
+     * @param report The outcome of the import.
      */
-    private void writeShowingsToCSV(File file) {
-        try (FileWriter writer = new FileWriter(file)) {
-            // Write the data for each showing
-            for (Showing showing : database.getShowings()) {
-                LocalDateTime startDateTime = showing.getStartDateTime();
-                LocalDateTime endDateTime = startDateTime.plusSeconds(showing.getDuration().toSecondOfDay());
-                String title = showing.getTitle();
-                int seatsLeft = showing.getNumberOfSeats() - showing.getTicketsSold();
-
-                // Format the data in CSV format
-                writer.write(String.format("%s,%s,%s,%d\n",
-                        startDateTime.format(DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm")),
-                        endDateTime.format(DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm")),
-                        title,
-                        seatsLeft));
+    private void showImportReport(ImportReport report) {
+        Alert alert = new Alert(report.errors().isEmpty() ? Alert.AlertType.INFORMATION : Alert.AlertType.WARNING);
+        alert.setTitle("Import Schedule");
+        alert.setHeaderText(report.summary());
+
+        if (!report.errors().isEmpty()) {
+            StringBuilder errors = new StringBuilder();
+
+            for (ImportReport.RowError error : report.errors()) {
+                errors.append(error).append(System.lineSeparator());
             }
-        } catch (IOException e) {
-            // Handle exception (e.g., show an alert dialog)
-            throw new RuntimeException(e);
+
+            TextArea errorsTextArea = new TextArea(errors.toString());
+            errorsTextArea.setEditable(false);
+            alert.getDialogPane().setContent(errorsTextArea);
         }
+
+        alert.showAndWait();
+    }
+
+    /**
+     * Informs the user that a change could not be saved, and so was not made.
+     *
+     * @param title  The title of the dialog.
+     * @param header What was not done.
+     * @param e      The failure to write the change.
+     */
+    private void showSaveError(String title, String header, UncheckedIOException e) {
+        Alert alert = new Alert(Alert.AlertType.ERROR);
+        alert.setTitle(title);
+        alert.setHeaderText(header);
+        alert.setContentText(e.getMessage());
+        alert.showAndWait();
     }
 
     /**
@@ -246,18 +412,7 @@ public class ShowingsController implements Initializable {
      * @param isAdd true if adding a new showing, false if editing an existing one.
      */
     private void openAddEditView(boolean isAdd) {
-        try {
-            Showing selectedShowing = isAdd ? null : showingsTableView.getSelectionModel().getSelectedItem();
-
-            FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("/nl/inholland/view/add-edit-showing-view.fxml"));
-            fxmlLoader.setController(new AddEditShowingController(database, root, selectedShowing));
-            Scene scene = new Scene(fxmlLoader.load());
-
-            if (root.getChildren().size() > 1)
-                root.getChildren().remove(1);
-            root.getChildren().add(scene.getRoot());
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        Showing selectedShowing = isAdd ? null : showingsTableView.getSelectionModel().getSelectedItem();
+        views.show(ViewRegistry.ADD_EDIT_SHOWING, controller -> controller.setShowing(selectedShowing));
     }
 }
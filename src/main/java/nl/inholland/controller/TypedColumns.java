@@ -0,0 +1,105 @@
+package nl.inholland.controller;
+
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.value.ObservableValue;
+import javafx.scene.control.TableCell;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * The TypedColumns class sets up table columns that hold typed values, such as dates and numbers, instead of the
+ * formatted text that is displayed. Values are only formatted when a cell is rendered, and sorting compares the
+ * values themselves, so sorting a column no longer parses the text of two cells for every comparison.
+ * <p>
+ * The value of each row is computed once and cached, as sorting asks for the values of the same rows many times.
+ * The views are kept while the user navigates and patch their rows as the database changes, so they clear the
+ * cached values of a changed row with {@link #invalidate(TableView, Object)}, or of all rows with
+ * {@link #clearCaches(TableView)}.
+ */
+public final class TypedColumns {
+    // The key under which a column keeps its cached values in its properties
+    private static final String CACHE_KEY = TypedColumns.class.getName() + ".cache";
+    // Formatter for date and time values in dd-MM-yyyy HH:mm format
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm");
+
+    private TypedColumns() {
+    }
+
+    /**
+     * Sets up a column of date-time values, displayed in dd-MM-yyyy HH:mm format and sorted chronologically.
+     *
+     * @param column The column.
+     * @param value  Computes the value of a row.
+     * @param <S>    The type of the rows.
+     */
+    public static <S> void setDateTimeColumn(TableColumn<S, LocalDateTime> column, Function<S, LocalDateTime> value) {
+        setColumn(column, value, (row, dateTime) -> dateTime.format(FORMATTER));
+    }
+
+    /**
+     * Sets up a column of typed values that is sorted by the values themselves, which must be {@link Comparable}
+     * unless the column has a comparator of its own.
+     *
+     * @param column    The column.
+     * @param value     Computes the value of a row.
+     * @param formatter Formats the value of a row for display; also receives the row, so the text can include
+     *                  other details of it.
+     * @param <S>       The type of the rows.
+     * @param <T>       The type of the values.
+     */
+    public static <S, T> void setColumn(TableColumn<S, T> column, Function<S, T> value, BiFunction<S, T, String> formatter) {
+        Map<S, ObservableValue<T>> cache = new IdentityHashMap<>();
+        column.getProperties().put(CACHE_KEY, cache);
+
+        column.setCellValueFactory(
+                c -> cache.computeIfAbsent(c.getValue(), row -> new ReadOnlyObjectWrapper<>(value.apply(row)))
+        );
+        column.setCellFactory(c -> new TableCell<>() {
+            @Override
+            protected void updateItem(T item, boolean empty) {
+                super.updateItem(item, empty);
+
+                if (empty || item == null) {
+                    setText(null);
+                } else {
+                    setText(formatter.apply(getTableView().getItems().get(getIndex()), item));
+                }
+            }
+        });
+    }
+
+    /**
+     * Clears the cached values of a row in all typed columns of a table, so they are computed again the next time
+     * the row is rendered or sorted, e.g. after the row has changed.
+     *
+     * @param table The table.
+     * @param row   The row.
+     */
+    public static void invalidate(TableView<?> table, Object row) {
+        for (TableColumn<?, ?> column : table.getColumns()) {
+            if (column.getProperties().get(CACHE_KEY) instanceof Map<?, ?> cache) {
+                cache.remove(row);
+            }
+        }
+    }
+
+    /**
+     * Clears the cached values of all typed columns of a table, so they are computed again from the current rows.
+     *
+     * @param table The table.
+     */
+    public static void clearCaches(TableView<?> table) {
+        for (TableColumn<?, ?> column : table.getColumns()) {
+            if (column.getProperties().get(CACHE_KEY) instanceof Map<?, ?> cache) {
+                cache.clear();
+            }
+        }
+    }
+}
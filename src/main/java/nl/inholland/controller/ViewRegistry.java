@@ -0,0 +1,285 @@
+package nl.inholland.controller;
+
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.scene.layout.VBox;
+import nl.inholland.Database;
+import nl.inholland.metrics.LatencyHistogram;
+import nl.inholland.metrics.Metrics;
+import nl.inholland.model.User;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * The ViewRegistry class switches between the views shown below the menu of the main view.
+ * Each view is loaded from its FXML file only once per login and kept together with its controller; showing it
+ * again only refreshes its data through {@link RefreshableView#refresh()}, instead of parsing the FXML file and
+ * creating the controls again on every navigation.
+ * <p>
+ * Views that are likely to be opened can be loaded in advance on a background thread right after login, so even
+ * the first switch to them does not wait for the FXML file to be parsed. The latency of every switch, up to the
+ * layout of the new view, is logged at debug level and available from {@link #getLastSwitchLatency()}.
+ */
+public class ViewRegistry {
+    // The welcome view shown after login
+    public static final View<WelcomeController> WELCOME = new View<>("welcome-view.fxml",
+            views -> new WelcomeController(views.currentUser));
+    // The list of upcoming showings to sell tickets for
+    public static final View<SellController> SELL = new View<>("sell-view.fxml",
+            views -> new SellController(views.database, views));
+    // The seats of the showing tickets are sold for
+    public static final View<SelectSeatsController> SELECT_SEATS = new View<>("select-seats-view.fxml",
+            views -> new SelectSeatsController(views.database, views));
+    // The list of all showings to manage
+    public static final View<ShowingsController> SHOWINGS = new View<>("showings-view.fxml",
+            views -> new ShowingsController(views.database, views));
+    // The form to add or edit a showing
+    public static final View<AddEditShowingController> ADD_EDIT_SHOWING = new View<>("add-edit-showing-view.fxml",
+            views -> new AddEditShowingController(views.database, views));
+    // The history of ticket sales
+    public static final View<HistoryController> HISTORY = new View<>("history-view.fxml",
+            views -> new HistoryController(views.database));
+    // The sales dashboard
+    public static final View<DashboardController> DASHBOARD = new View<>("dashboard-view.fxml",
+            views -> new DashboardController(views.database));
+
+    // Logger used to report the latency of view switches
+    private static final System.Logger LOGGER = System.getLogger(ViewRegistry.class.getName());
+    // Latency of parsing the FXML file of a view and creating its controller, exposed through JMX
+    private static final LatencyHistogram LOAD_LATENCY = Metrics.histogram("view", "load");
+    // Latency of a view switch up to the layout of the new view, exposed through JMX
+    private static final LatencyHistogram SWITCH_LATENCY = Metrics.histogram("view", "switch");
+    // Loads views in advance for all registries
+    private static final ExecutorService PRELOADER = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "view-preloader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Reference to the shared Database instance
+    private final Database database;
+    // Reference to the currently logged-in user
+    private final User currentUser;
+    // Reference to the root VBox container of the main view, whose second child is the view shown
+    private final VBox root;
+    // The views that have been loaded or are being loaded, only accessed on the JavaFX Application Thread
+    private final Map<View<?>, Future<LoadedView<?>>> views = new HashMap<>();
+
+    // The latency of the last view switch, in nanoseconds
+    private long lastSwitchLatency;
+
+    /**
+     * Constructs a new ViewRegistry instance.
+     *
+     * @param database    The database instance shared across controllers.
+     * @param currentUser The user currently logged into the application.
+     * @param root        The root VBox container of the main view.
+     */
+    public ViewRegistry(Database database, User currentUser, VBox root) {
+        this.database = database;
+        this.currentUser = currentUser;
+        this.root = root;
+    }
+
+    /**
+     * Starts loading views on a background thread, so they can be shown without waiting for their FXML files to
+     * be parsed. Views that have been loaded already are skipped. Must be called on the JavaFX Application Thread.
+     *
+     * @param preloaded The views to load.
+     */
+    public void preload(List<View<?>> preloaded) {
+        for (View<?> view : preloaded) {
+            views.computeIfAbsent(view, key -> CompletableFuture.<LoadedView<?>>supplyAsync(() -> load(key), PRELOADER));
+        }
+    }
+
+    /**
+     * Shows a view below the menu, refreshing its data first.
+     *
+     * @param view The view to show.
+     */
+    public void show(View<?> view) {
+        show(view, controller -> {
+        });
+    }
+
+    /**
+     * Shows a view below the menu, after passing what it should show to its controller and refreshing its data.
+     * Must be called on the JavaFX Application Thread.
+     *
+     * @param view    The view to show.
+     * @param prepare Passes what the view should show to its controller, e.g. the showing to sell tickets for.
+     * @param <C>     The type of the controller of the view.
+     */
+    public <C extends RefreshableView> void show(View<C> view, Consumer<C> prepare) {
+        long start = System.nanoTime();
+        boolean parsed = !views.containsKey(view);
+        LoadedView<C> loaded = get(view);
+
+        prepare.accept(loaded.controller());
+        loaded.controller().refresh();
+
+        if (root.getChildren().size() > 1)
+            root.getChildren().remove(1);
+        root.getChildren().add(loaded.node());
+
+        reportSwitch(view, start, parsed);
+    }
+
+    /**
+     * @return The time the last view switch took up to the layout of the new view, or zero if no switch was
+     * measured yet.
+     */
+    public Duration getLastSwitchLatency() {
+        return Duration.ofNanos(lastSwitchLatency);
+    }
+
+    /**
+     * Returns a view, loading it now unless it has been loaded or is being loaded in advance.
+     * If loading it in advance failed, e.g. because a control could not be created on the background thread, it is
+     * loaded again on the JavaFX Application Thread.
+     *
+     * @param view The view.
+     * @param <C>  The type of the controller of the view.
+     * @return The root node and controller of the view.
+     */
+    @SuppressWarnings("unchecked")
+    private <C extends RefreshableView> LoadedView<C> get(View<C> view) {
+        Future<LoadedView<?>> future = views.get(view);
+
+        if (future != null) {
+            try {
+                return (LoadedView<C>) future.get();
+            } catch (ExecutionException e) {
+                LOGGER.log(System.Logger.Level.WARNING, "Loading " + view + " in advance failed, loading it again", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Error loading " + view + ": " + e.getMessage(), e);
+            }
+        }
+
+        LoadedView<C> loaded = load(view);
+        views.put(view, CompletableFuture.<LoadedView<?>>completedFuture(loaded));
+        return loaded;
+    }
+
+    /**
+     * Loads a view from its FXML file with a new controller.
+     *
+     * @param view The view.
+     * @param <C>  The type of the controller of the view.
+     * @return The root node and controller of the view.
+     */
+    private <C extends RefreshableView> LoadedView<C> load(View<C> view) {
+        long start = System.nanoTime();
+
+        try {
+            C controller = view.factory.apply(this);
+
+            FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource(view.fxmlPath));
+            fxmlLoader.setController(controller);
+            Parent node = fxmlLoader.load();
+
+            LOAD_LATENCY.recordSince(start);
+            return new LoadedView<>(node, controller);
+        } catch (IOException e) {
+            throw new RuntimeException("Error loading " + view + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Records the latency of a view switch once the new view has been laid out, or right away if the main view is
+     * not shown yet.
+     *
+     * @param view   The view switched to.
+     * @param start  The time the switch started, in System.nanoTime() terms.
+     * @param parsed True if the FXML file of the view had to be parsed for this switch.
+     */
+    private void reportSwitch(View<?> view, long start, boolean parsed) {
+        Scene scene = root.getScene();
+
+        if (scene == null) {
+            recordSwitch(view, start, parsed);
+            return;
+        }
+
+        scene.addPostLayoutPulseListener(new Runnable() {
+            @Override
+            public void run() {
+                scene.removePostLayoutPulseListener(this);
+                recordSwitch(view, start, parsed);
+            }
+        });
+    }
+
+    /**
+     * Records and logs the latency of a view switch.
+     *
+     * @param view   The view switched to.
+     * @param start  The time the switch started, in System.nanoTime() terms.
+     * @param parsed True if the FXML file of the view had to be parsed for this switch.
+     */
+    private void recordSwitch(View<?> view, long start, boolean parsed) {
+        lastSwitchLatency = System.nanoTime() - start;
+        SWITCH_LATENCY.record(lastSwitchLatency);
+        LOGGER.log(System.Logger.Level.DEBUG, () -> String.format("Switched to %s in %d us (%s)",
+                view, lastSwitchLatency / 1000, parsed ? "parsed" : "reused"));
+    }
+
+    /**
+     * The View class identifies a view that can be shown by a registry: its FXML file and how to create its
+     * controller.
+     *
+     * @param <C> The type of the controller of the view.
+     */
+    public static final class View<C extends RefreshableView> {
+        // The name of the FXML file of the view
+        private final String fxmlName;
+        // The path of the FXML file of the view
+        private final String fxmlPath;
+        // Creates the controller of the view for a registry
+        private final Function<ViewRegistry, C> factory;
+
+        /**
+         * Constructs a new View instance.
+         *
+         * @param fxmlName The name of the FXML file of the view.
+         * @param factory  Creates the controller of the view for a registry.
+         */
+        private View(String fxmlName, Function<ViewRegistry, C> factory) {
+            this.fxmlName = fxmlName;
+            this.fxmlPath = "/nl/inholland/view/" + fxmlName;
+            this.factory = factory;
+        }
+
+        /**
+         * @return The name of the FXML file of the view, as used in log messages.
+         */
+        @Override
+        public String toString() {
+            return fxmlName;
+        }
+    }
+
+    /**
+     * The root node and controller of a loaded view.
+     *
+     * @param node       The root node of the view.
+     * @param controller The controller of the view.
+     * @param <C>        The type of the controller of the view.
+     */
+    private record LoadedView<C extends RefreshableView>(Parent node, C controller) {
+    }
+}
@@ -17,9 +17,10 @@ import java.util.ResourceBundle;
 /**
  * Controller for the welcome view in the application.
  * This class displays a welcome message to the user, their role, and continuously updates the current date and time.
- * It implements the {@link Initializable} interface to set up the view when the controller is loaded.
+ * It implements the {@link Initializable} interface to set up the view when the controller is loaded, and the
+ * {@link RefreshableView} interface so it can be shown by the {@link ViewRegistry}.
  */
-public class WelcomeController implements Initializable {
+public class WelcomeController implements Initializable, RefreshableView {
     // Reference to the currently logged-in user
     private final User currentUser;
 
@@ -48,6 +49,13 @@ public class WelcomeController implements Initializable {
         updateLabels();
     }
 
+    /**
+     * Does nothing, as the labels keep themselves up to date.
+     */
+    @Override
+    public void refresh() {
+    }
+
     /**
      * Updates the labels with user information and the current date and time.
      * Sets up a {@link Timeline} to refresh the date and time every second.
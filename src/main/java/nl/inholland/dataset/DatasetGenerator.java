@@ -0,0 +1,573 @@
+package nl.inholland.dataset;
+
+import nl.inholland.Database;
+import nl.inholland.analytics.SalesTotals;
+import nl.inholland.booking.BestSeatFinder;
+import nl.inholland.model.AccessLevel;
+import nl.inholland.model.Room;
+import nl.inholland.model.SeatMap;
+import nl.inholland.model.Selling;
+import nl.inholland.model.Showing;
+import nl.inholland.model.User;
+import nl.inholland.persistence.HistoryPartition;
+import nl.inholland.persistence.InMemorySellingStore;
+import nl.inholland.persistence.PagedSellingStore;
+import nl.inholland.persistence.SnapshotCodec;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The DatasetGenerator class makes a cinema of any size with a plausible history, as the shared fixture of
+ * benchmarks and soak tests. Everything follows from the seed of the {@link DatasetSpec} and the time the dataset
+ * is generated at, so the same spec always gives the same data relative to that time.
+ * <p>
+ * Films are released every few days and run for six weeks, the newest being the most popular. Every room shows a
+ * film in each of the time slots of a day, and the more popular the film and the later the slot, the more seats are
+ * sold; weekends sell better than weekdays. Sales are made in the three weeks before a showing, mostly in the last
+ * days, so upcoming showings are only partly sold yet. Customers buy one to six seats at a time, usually the best
+ * block of adjacent seats left, and regular customers come back more often than others.
+ * <p>
+ * A dataset is either created in memory, or written straight to a snapshot, its history segments and a paged
+ * selling store one showing at a time, so a history of many years is generated without holding it in memory.
+ * Sales are numbered in the order of their showings rather than the time they were made.
+ * <p>
+ * From the command line, {@code DatasetGenerator <directory> [--seed n] [--years n] [--past-days n]
+ * [--upcoming-days n] [--rooms n] [--showings-per-day n] [--occupancy f] [--customers n]} writes the files the
+ * application reads at startup to the given directory.
+ */
+public final class DatasetGenerator {
+    // The file name of the snapshot, as read by the application
+    public static final String DATABASE_FILE = "database.snap";
+    // The file name of the selling store, as read by the application
+    public static final String SELLS_FILE = "database.sells";
+
+    // The start of the first showing of a day
+    private static final LocalTime OPENING = LocalTime.of(10, 0);
+    // The minutes from opening time to midnight, divided over the showings of a day
+    private static final int PROGRAMME_MINUTES = 14 * 60;
+    // The minutes between the end of a showing and the start of the next one in the same room
+    private static final int CLEANING_MINUTES = 15;
+    // The number of days between the releases of two films
+    private static final int RELEASE_INTERVAL_DAYS = 3;
+    // The number of days a film runs
+    private static final int RUN_DAYS = 42;
+    // The number of days before a showing that its first tickets are sold
+    private static final int SALE_DAYS = 21;
+    // How much a slot sells compared to the average, from the morning to the late evening
+    private static final double[] SLOT_DEMAND = {0.55, 0.8, 1.3, 1.15};
+    // How much a weekend day sells compared to a weekday
+    private static final double WEEKEND_DEMAND = 1.3;
+    // The probability that a customer takes the best seats left rather than seats of their own choosing
+    private static final double BEST_SEATS_PROBABILITY = 0.75;
+    // The cumulative probability of buying one to six seats at once
+    private static final double[] GROUP_SIZES = {0.15, 0.55, 0.70, 0.90, 0.95, 1.0};
+    // The number of customers in a row that find no seats before a showing counts as sold out
+    private static final int MAX_FAILED_SALES = 3;
+    // The number of showings written to each history segment
+    private static final int SEGMENT_SHOWINGS = 50_000;
+    // The number of pages the selling store keeps in memory while the dataset is written
+    private static final int SELLS_CACHE_PAGES = 16;
+    // The words the titles are made of
+    private static final String[] WORDS = {
+            "Night", "River", "Stone", "Silent", "Golden", "Last", "Broken", "Wild", "Dark", "Crimson", "Frozen",
+            "Hidden", "Iron", "Lost", "Midnight", "Northern", "Paper", "Quiet", "Rising", "Shadow", "Summer", "Winter",
+            "Garden", "Empire", "Kingdom", "Robot", "Ocean", "Mountain", "City", "Dream", "Storm", "Heart", "Moon",
+            "Star", "Road", "House", "Island", "Forest", "Mirror", "Crown"
+    };
+    // The first names of the customers
+    private static final String[] FIRST_NAMES = {
+            "Emma", "Liam", "Olivia", "Noah", "Sophie", "Daan", "Julia", "Sem", "Mila", "Lucas", "Tess", "Finn",
+            "Sara", "Levi", "Anna", "Milan", "Eva", "Jesse", "Nora", "Thomas", "Lotte", "Ruben", "Fleur", "Bram",
+            "Lisa", "Lars", "Iris", "Sam", "Noor", "Max", "Jane", "Alex", "Emily", "Michael", "Sophia", "John",
+            "Yara", "Omar", "Mei", "Ravi"
+    };
+    // The last names of the customers
+    private static final String[] LAST_NAMES = {
+            "de Jong", "Jansen", "de Vries", "van den Berg", "van Dijk", "Bakker", "Janssen", "Visser", "Smit",
+            "Meijer", "de Boer", "Mulder", "de Groot", "Bos", "Vos", "Peters", "Hendriks", "van Leeuwen", "Dekker",
+            "Brouwer", "de Wit", "Dijkstra", "Smits", "de Graaf", "van der Meer", "Smith", "Johnson", "Brown", "Lee",
+            "Davis", "Martinez", "Wilson", "Doe", "Kaya", "Yilmaz", "El Amrani", "Wang", "Nguyen", "Singh", "Rossi"
+    };
+
+    // The size and shape of the dataset
+    private final DatasetSpec spec;
+    // The time the dataset is generated at: showings before it have been held, sales after it have not been made
+    private final LocalDateTime now;
+    // The rooms of the cinema
+    private final List<Room> rooms;
+    // The minutes between the starts of two showings in a room
+    private final int slotMinutes;
+    // The source of the random choices of the current generation
+    private Random random;
+    // The films that run at some point, in order of release
+    private List<Film> films;
+    // The number of showings generated so far
+    private int showingCount;
+    // The number of sales generated so far
+    private int sellCount;
+
+    /**
+     * Constructs a DatasetGenerator instance that generates a dataset up to the current time.
+     *
+     * @param spec The size and shape of the dataset.
+     */
+    public DatasetGenerator(DatasetSpec spec) {
+        this(spec, LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES));
+    }
+
+    /**
+     * Constructs a DatasetGenerator instance.
+     *
+     * @param spec The size and shape of the dataset.
+     * @param now  The time the dataset is generated at, which the past and upcoming days are counted from.
+     */
+    public DatasetGenerator(DatasetSpec spec, LocalDateTime now) {
+        this.spec = spec;
+        this.now = now;
+        this.rooms = createRooms(spec.roomCount());
+        this.slotMinutes = PROGRAMME_MINUTES / spec.showingsPerDay();
+    }
+
+    /**
+     * Generates the dataset in memory.
+     *
+     * @return The database, without a journal.
+     */
+    public Database createDatabase() {
+        List<Showing> showings = new ArrayList<>(spec.showingCount());
+        List<Selling> sells = new ArrayList<>();
+
+        try {
+            generate((showing, showingSells) -> {
+                showings.add(showing);
+                sells.addAll(showingSells);
+            });
+        } catch (IOException e) {
+            // Only writing the dataset to files can fail
+            throw new RuntimeException("Error generating the dataset: " + e.getMessage(), e);
+        }
+
+        return new Database(createUsers(), rooms, showings, new InMemorySellingStore(sells), 0);
+    }
+
+    /**
+     * Generates the dataset and writes it as a snapshot with a selling store, as the application keeps it.
+     * Showings that move to the history partition are written to segments as they are generated, and every sale
+     * is appended to the store right away, so only the upcoming showings are kept in memory.
+     *
+     * @param snapshotPath The path of the snapshot file.
+     * @param sellsPath    The path of the selling store.
+     * @throws IOException If either file already exists, or an I/O error occurs while writing.
+     */
+    public void write(Path snapshotPath, Path sellsPath) throws IOException {
+        if (Files.exists(snapshotPath) || Files.exists(sellsPath)) {
+            throw new IOException("Dataset already exists: " + snapshotPath + ", " + sellsPath);
+        }
+
+        try (PagedSellingStore store = PagedSellingStore.open(sellsPath, SELLS_CACHE_PAGES)) {
+            SnapshotOutput output = new SnapshotOutput(snapshotPath, store, now.minus(SnapshotCodec.HOT_WINDOW));
+            generate(output);
+
+            Database database = new Database(createUsers(), rooms, output.hotShowings, store, 0);
+            database.setHistory(output.finishHistory());
+            SnapshotCodec.write(database, snapshotPath, now);
+        }
+    }
+
+    /**
+     * Generates the showings day by day, in the order of their IDs, each followed by its sales.
+     *
+     * @param output Receives every showing with its sales.
+     * @throws IOException If the output cannot be written.
+     */
+    private void generate(ShowingOutput output) throws IOException {
+        random = new Random(spec.seed());
+        films = createFilms();
+        showingCount = 0;
+        sellCount = 0;
+
+        int dayCount = spec.pastDays() + spec.upcomingDays();
+        LocalDate firstDay = now.toLocalDate().minusDays(spec.pastDays());
+
+        for (int day = 0; day < dayCount; day++) {
+            LocalDate date = firstDay.plusDays(day);
+            boolean weekend = date.getDayOfWeek() == DayOfWeek.SATURDAY || date.getDayOfWeek() == DayOfWeek.SUNDAY;
+
+            for (Room room : rooms) {
+                for (int slot = 0; slot < spec.showingsPerDay(); slot++) {
+                    Film film = pickFilm(day);
+                    LocalDateTime start = date.atTime(OPENING).plusMinutes((long) slot * slotMinutes);
+                    int durationMinutes = Math.min(film.durationMinutes(), slotMinutes - CLEANING_MINUTES);
+                    Showing showing = new Showing(showingCount++, start, LocalTime.of(durationMinutes / 60,
+                            durationMinutes % 60), film.title(), room.getId(), room.createSeatMap(), film.ageChecked());
+
+                    double demand = spec.occupancy() * film.popularity() * slotDemand(slot)
+                            * (weekend ? WEEKEND_DEMAND : 1) * (0.75 + 0.5 * random.nextDouble());
+                    output.accept(showing, sell(showing, room, Math.min(demand, 1)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Sells seats of a showing until the demand for it is met, the showing is sold out, or the remaining sales
+     * would be made after the time the dataset is generated at.
+     *
+     * @param showing The showing.
+     * @param room    The room of the showing.
+     * @param demand  The fraction of the seats that is sold eventually.
+     * @return The sales of the showing.
+     */
+    private List<Selling> sell(Showing showing, Room room, double demand) {
+        List<Selling> sells = new ArrayList<>();
+        SeatMap seatMap = showing.getSeatMap();
+        int target = (int) Math.round(demand * room.getNumberOfSeats());
+        int demanded = 0;
+        int failures = 0;
+
+        while (demanded < target && failures < MAX_FAILED_SALES) {
+            int groupSize = Math.min(groupSize(), target - demanded);
+            demanded += groupSize;
+
+            // Most tickets are bought in the last days before a showing
+            double earliness = random.nextDouble();
+            LocalDateTime dateTime = showing.getStartDateTime()
+                    .minusMinutes(5 + (long) (earliness * earliness * earliness * SALE_DAYS * 24 * 60));
+            String customer = customer();
+
+            if (dateTime.isAfter(now)) {
+                continue;
+            }
+
+            List<int[]> seats = random.nextDouble() < BEST_SEATS_PROBABILITY
+                    ? BestSeatFinder.findBestSeats(seatMap, groupSize)
+                    : chooseSeats(seatMap, groupSize);
+
+            if (seats.isEmpty()) {
+                failures++;
+                continue;
+            }
+
+            failures = 0;
+            for (int[] seat : seats) {
+                showing.sellTicket(seat);
+            }
+
+            sells.add(new Selling(sellCount++, dateTime, seats.size(), showing, customer, seats));
+        }
+
+        return sells;
+    }
+
+    /**
+     * Chooses a block of adjacent free seats in a random row, as a customer who does not take the best seats does.
+     *
+     * @param seatMap The seats of the showing.
+     * @param count   The number of seats.
+     * @return The seats, or an empty list if the row has no block of free seats that is large enough.
+     */
+    private List<int[]> chooseSeats(SeatMap seatMap, int count) {
+        int row = random.nextInt(seatMap.getRows());
+        int column = random.nextInt(Math.max(1, seatMap.getColumns() - count + 1));
+
+        for (int i = 0; i < count; i++) {
+            if (column + i >= seatMap.getColumns() || seatMap.isReserved(row, column + i)) {
+                column = seatMap.findFreeSeats(row, count);
+                break;
+            }
+        }
+
+        if (column < 0) {
+            return List.of();
+        }
+
+        List<int[]> seats = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            seats.add(new int[]{row, column + i});
+        }
+
+        return seats;
+    }
+
+    /**
+     * Picks one of the films running on a day, preferring the newer ones.
+     *
+     * @param day The day, counting from the first day of the dataset.
+     * @return The film.
+     */
+    private Film pickFilm(int day) {
+        int newest = (day + RUN_DAYS) / RELEASE_INTERVAL_DAYS;
+        int running = RUN_DAYS / RELEASE_INTERVAL_DAYS;
+        double age = random.nextDouble();
+
+        return films.get(newest - (int) (age * age * running));
+    }
+
+    /**
+     * @param slot The time slot of a showing, counting from the first showing of the day.
+     * @return How much the slot sells compared to the average.
+     */
+    private double slotDemand(int slot) {
+        return SLOT_DEMAND[slot * SLOT_DEMAND.length / spec.showingsPerDay()];
+    }
+
+    /**
+     * @return The number of seats a customer buys at once.
+     */
+    private int groupSize() {
+        double chance = random.nextDouble();
+        int size = 0;
+
+        while (chance >= GROUP_SIZES[size]) {
+            size++;
+        }
+
+        return size + 1;
+    }
+
+    /**
+     * Picks a customer, regular customers being picked more often than others.
+     *
+     * @return The name of the customer.
+     */
+    private String customer() {
+        double regularity = random.nextDouble();
+        int index = (int) (regularity * regularity * spec.customerCount());
+        int namesPerInitial = FIRST_NAMES.length * LAST_NAMES.length;
+        int combination = index % (namesPerInitial * 26);
+
+        String name = FIRST_NAMES[combination % FIRST_NAMES.length] + " " + (char) ('A' + combination / namesPerInitial)
+                + ". " + LAST_NAMES[combination / FIRST_NAMES.length % LAST_NAMES.length];
+        return index < namesPerInitial * 26 ? name : name + " " + (index / (namesPerInitial * 26) + 1);
+    }
+
+    /**
+     * Creates every film that runs on one of the days of the dataset, including those released before the first
+     * day that still run on it.
+     *
+     * @return The films in order of release.
+     */
+    private List<Film> createFilms() {
+        int filmCount = (spec.pastDays() + spec.upcomingDays() + RUN_DAYS) / RELEASE_INTERVAL_DAYS + 1;
+        List<Film> films = new ArrayList<>(filmCount);
+
+        for (int i = 0; i < filmCount; i++) {
+            String title = "The " + WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)];
+            films.add(new Film(random.nextBoolean() ? title : title + " " + WORDS[random.nextInt(WORDS.length)],
+                    80 + 5 * random.nextInt(25), 0.4 + 1.2 * random.nextDouble(), random.nextInt(3) == 0));
+        }
+
+        return films;
+    }
+
+    /**
+     * Creates the rooms of the cinema, which have the layouts of the default rooms in turn.
+     *
+     * @param roomCount The number of rooms.
+     * @return The rooms.
+     */
+    private static List<Room> createRooms(int roomCount) {
+        List<Room> defaultRooms = Database.createDefaultRooms();
+        List<Room> rooms = new ArrayList<>(roomCount);
+
+        for (int i = 0; i < roomCount; i++) {
+            Room layout = defaultRooms.get(i % defaultRooms.size());
+            int id = Room.DEFAULT_ID + i;
+            rooms.add(new Room(id, "Room " + id, layout.getRows(), layout.getColumns()));
+        }
+
+        return rooms;
+    }
+
+    /**
+     * @return The users of the default database, so the usual login details work.
+     */
+    private static List<User> createUsers() {
+        List<User> users = new ArrayList<>();
+        users.add(new User("admin", "admin", AccessLevel.MANAGEMENT));
+        users.add(new User("sell", "sell", AccessLevel.SALES));
+        return users;
+    }
+
+    // Getter methods for the class fields
+    public DatasetSpec getSpec() {
+        return spec;
+    }
+    public List<Room> getRooms() {
+        return rooms;
+    }
+
+    /**
+     * @return The number of showings of the last dataset generated.
+     */
+    public int getShowingCount() {
+        return showingCount;
+    }
+
+    /**
+     * @return The number of sales of the last dataset generated.
+     */
+    public int getSellCount() {
+        return sellCount;
+    }
+
+    /**
+     * Writes a dataset to a directory, so the application can be started on it.
+     *
+     * @param args The directory, followed by options that change the {@link DatasetSpec#DEFAULT} spec or fix the
+     *             date the dataset is generated on, which is the current time otherwise.
+     * @throws IOException If the dataset cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0 || args.length % 2 == 0) {
+            System.err.println("Usage: DatasetGenerator <directory> [--seed n] [--years n] [--past-days n]"
+                    + " [--upcoming-days n] [--rooms n] [--showings-per-day n] [--occupancy f] [--customers n]"
+                    + " [--date yyyy-mm-dd]");
+            System.exit(2);
+        }
+
+        DatasetSpec spec = DatasetSpec.DEFAULT;
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+
+        for (int i = 1; i < args.length; i += 2) {
+            String value = args[i + 1];
+            if (args[i].equals("--date")) {
+                // The start of the day, so the same date always gives the same files
+                now = LocalDate.parse(value).atStartOfDay();
+                continue;
+            }
+
+            spec = switch (args[i]) {
+                case "--seed" -> spec.withSeed(Long.parseLong(value));
+                case "--years" -> spec.withYears(Integer.parseInt(value));
+                case "--past-days" -> spec.withPastDays(Integer.parseInt(value));
+                case "--upcoming-days" -> spec.withUpcomingDays(Integer.parseInt(value));
+                case "--rooms" -> spec.withRoomCount(Integer.parseInt(value));
+                case "--showings-per-day" -> spec.withShowingsPerDay(Integer.parseInt(value));
+                case "--occupancy" -> spec.withOccupancy(Double.parseDouble(value));
+                case "--customers" -> spec.withCustomerCount(Integer.parseInt(value));
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            };
+        }
+
+        Path directory = Path.of(args[0]);
+        Files.createDirectories(directory);
+
+        long startNanos = System.nanoTime();
+        DatasetGenerator generator = new DatasetGenerator(spec, now);
+        generator.write(directory.resolve(DATABASE_FILE), directory.resolve(SELLS_FILE));
+
+        System.out.printf("Wrote %,d showings and %,d sales to %s in %.1f s%n", generator.getShowingCount(),
+                generator.getSellCount(), directory, (System.nanoTime() - startNanos) / 1e9);
+    }
+
+    /**
+     * A film as it is programmed.
+     *
+     * @param title           The title.
+     * @param durationMinutes The running time in minutes.
+     * @param popularity      How much the film sells compared to the average film.
+     * @param ageChecked      Whether the age of the audience has to be checked.
+     */
+    private record Film(String title, int durationMinutes, double popularity, boolean ageChecked) {
+    }
+
+    /**
+     * Receives the showings of a dataset as they are generated.
+     */
+    @FunctionalInterface
+    private interface ShowingOutput {
+        void accept(Showing showing, List<Selling> sells) throws IOException;
+    }
+
+    /**
+     * Writes the showings to history segments or keeps them for the snapshot, and their sales to the selling store.
+     */
+    private static final class SnapshotOutput implements ShowingOutput {
+        // The path of the snapshot file, next to which the segments are written
+        private final Path snapshotPath;
+        // The store receiving the sales
+        private final PagedSellingStore store;
+        // Showings that started before this time go to the history, as the snapshot codec would move them
+        private final LocalDateTime cutoff;
+        // The showings kept for the snapshot file
+        private final List<Showing> hotShowings = new ArrayList<>();
+        // The showings of the history segment being filled
+        private final List<Showing> segmentShowings = new ArrayList<>();
+        // The history segments written so far
+        private final List<Path> segments = new ArrayList<>();
+        // The ticket totals of the history
+        private final SalesTotals totals = new SalesTotals();
+        // The highest showing ID in the history
+        private int maxShowingId = -1;
+        // The end of the showing in the history that ends last
+        private LocalDateTime latestEnd = LocalDateTime.MIN;
+
+        /**
+         * Constructs a SnapshotOutput instance.
+         *
+         * @param snapshotPath The path of the snapshot file.
+         * @param store        The store receiving the sales.
+         * @param cutoff       The time before which showings started that go to the history.
+         */
+        private SnapshotOutput(Path snapshotPath, PagedSellingStore store, LocalDateTime cutoff) {
+            this.snapshotPath = snapshotPath;
+            this.store = store;
+            this.cutoff = cutoff;
+        }
+
+        @Override
+        public void accept(Showing showing, List<Selling> sells) throws IOException {
+            store.addAll(sells);
+
+            if (!showing.getStartDateTime().isBefore(cutoff)) {
+                hotShowings.add(showing);
+                return;
+            }
+
+            segmentShowings.add(showing);
+            totals.add(showing);
+            maxShowingId = Math.max(maxShowingId, showing.getId());
+            latestEnd = showing.getEndDateTime().isAfter(latestEnd) ? showing.getEndDateTime() : latestEnd;
+
+            if (segmentShowings.size() == SEGMENT_SHOWINGS) {
+                writeSegment();
+            }
+        }
+
+        /**
+         * Writes the last history segment.
+         *
+         * @return The history partition, or null if no showing is old enough for the history.
+         * @throws IOException If an I/O error occurs while writing.
+         */
+        private HistoryPartition finishHistory() throws IOException {
+            if (!segmentShowings.isEmpty()) {
+                writeSegment();
+            }
+
+            return segments.isEmpty() ? null : new HistoryPartition(List.copyOf(segments), 0, maxShowingId, latestEnd,
+                    totals);
+        }
+
+        /**
+         * Writes the showings collected so far to a new history segment. The sales stay in the selling store.
+         *
+         * @throws IOException If an I/O error occurs while writing.
+         */
+        private void writeSegment() throws IOException {
+            segments.add(SnapshotCodec.writeSegment(snapshotPath, segmentShowings, List.of()));
+            segmentShowings.clear();
+        }
+    }
+}
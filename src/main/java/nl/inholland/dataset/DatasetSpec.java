@@ -0,0 +1,113 @@
+package nl.inholland.dataset;
+
+/**
+ * The size and shape of a dataset made by the {@link DatasetGenerator}. The same spec generated at the same time
+ * always gives the same rooms, showings, sales and customers.
+ *
+ * @param seed           The seed of the random choices.
+ * @param roomCount      The number of rooms of the cinema.
+ * @param pastDays       The number of days before today that showings were held on.
+ * @param upcomingDays   The number of days from today on, including today, that showings are scheduled on.
+ * @param showingsPerDay The number of showings of each room a day, from 1 to {@value #MAX_SHOWINGS_PER_DAY}.
+ * @param occupancy      The average fraction of the seats of a showing that is sold once it has started.
+ * @param customerCount  The number of different customers that buy tickets.
+ */
+public record DatasetSpec(long seed, int roomCount, int pastDays, int upcomingDays, int showingsPerDay,
+                          double occupancy, int customerCount) {
+    // The most showings a room can hold a day, as they all start between opening time and midnight
+    public static final int MAX_SHOWINGS_PER_DAY = 8;
+    // A year of history in the default rooms, with four showings a day and a third of the seats sold
+    public static final DatasetSpec DEFAULT = new DatasetSpec(42, 14, 365, 14, 4, 0.35, 50_000);
+
+    /**
+     * Checks that the spec describes a dataset that can be generated.
+     *
+     * @throws IllegalArgumentException If a count is out of range.
+     */
+    public DatasetSpec {
+        if (roomCount < 1 || pastDays < 0 || upcomingDays < 0 || customerCount < 1) {
+            throw new IllegalArgumentException("Invalid dataset of " + roomCount + " rooms, " + pastDays
+                    + " past days, " + upcomingDays + " upcoming days and " + customerCount + " customers");
+        }
+        if (showingsPerDay < 1 || showingsPerDay > MAX_SHOWINGS_PER_DAY) {
+            throw new IllegalArgumentException("Invalid number of showings a day: " + showingsPerDay);
+        }
+        if (!(occupancy >= 0 && occupancy <= 1)) {
+            throw new IllegalArgumentException("Invalid occupancy: " + occupancy);
+        }
+        if (((long) pastDays + upcomingDays) * roomCount * showingsPerDay > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many showings for showing IDs");
+        }
+    }
+
+    /**
+     * @param seed The seed of the random choices.
+     * @return This spec with another seed.
+     */
+    public DatasetSpec withSeed(long seed) {
+        return new DatasetSpec(seed, roomCount, pastDays, upcomingDays, showingsPerDay, occupancy, customerCount);
+    }
+
+    /**
+     * @param roomCount The number of rooms.
+     * @return This spec with another number of rooms.
+     */
+    public DatasetSpec withRoomCount(int roomCount) {
+        return new DatasetSpec(seed, roomCount, pastDays, upcomingDays, showingsPerDay, occupancy, customerCount);
+    }
+
+    /**
+     * @param pastDays The number of days of history.
+     * @return This spec with another length of history.
+     */
+    public DatasetSpec withPastDays(int pastDays) {
+        return new DatasetSpec(seed, roomCount, pastDays, upcomingDays, showingsPerDay, occupancy, customerCount);
+    }
+
+    /**
+     * @param years The number of years of history, counted as 365 days.
+     * @return This spec with another length of history.
+     */
+    public DatasetSpec withYears(int years) {
+        return withPastDays(Math.multiplyExact(years, 365));
+    }
+
+    /**
+     * @param upcomingDays The number of days scheduled from today on.
+     * @return This spec with another length of the schedule.
+     */
+    public DatasetSpec withUpcomingDays(int upcomingDays) {
+        return new DatasetSpec(seed, roomCount, pastDays, upcomingDays, showingsPerDay, occupancy, customerCount);
+    }
+
+    /**
+     * @param showingsPerDay The number of showings of each room a day.
+     * @return This spec with another number of showings a day.
+     */
+    public DatasetSpec withShowingsPerDay(int showingsPerDay) {
+        return new DatasetSpec(seed, roomCount, pastDays, upcomingDays, showingsPerDay, occupancy, customerCount);
+    }
+
+    /**
+     * @param occupancy The average fraction of the seats that is sold.
+     * @return This spec with another occupancy.
+     */
+    public DatasetSpec withOccupancy(double occupancy) {
+        return new DatasetSpec(seed, roomCount, pastDays, upcomingDays, showingsPerDay, occupancy, customerCount);
+    }
+
+    /**
+     * @param customerCount The number of different customers.
+     * @return This spec with another number of customers.
+     */
+    public DatasetSpec withCustomerCount(int customerCount) {
+        return new DatasetSpec(seed, roomCount, pastDays, upcomingDays, showingsPerDay, occupancy, customerCount);
+    }
+
+    /**
+     * @return The number of showings the dataset holds.
+     */
+    public int showingCount() {
+        return (pastDays + upcomingDays) * roomCount * showingsPerDay;
+    }
+}
@@ -0,0 +1,190 @@
+package nl.inholland.export;
+
+import nl.inholland.model.Room;
+import nl.inholland.model.Selling;
+import nl.inholland.model.ShowingDetails;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.function.IntFunction;
+
+/**
+ * The CsvExport class describes how a list of items is exported as a CSV file: the header and how each item is
+ * written as a row. {@link #showings(IntFunction)} and {@link #sells(IntFunction, IntFunction)} describe the exports
+ * of the application. Both read the details of the showings from {@link ShowingDetails} copied beforehand, as the
+ * showings themselves keep being edited while the export runs.
+ * <p>
+ * The rows are streamed to a temporary file next to the target by a {@link CsvWriter}, which is moved over the
+ * target once every row has been written, so a cancelled or failed export never leaves a partial file behind.
+ * Exporting takes time proportional to the number of items and memory independent of it.
+ *
+ * @param <T> The type of the items exported.
+ */
+public class CsvExport<T> {
+    // Formatter for date and time values in dd-MM-yyyy HH:mm format, shared by every row
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm");
+    // The number of rows written between progress reports
+    private static final int PROGRESS_INTERVAL = 4096;
+
+    // The names of the columns
+    private final String[] header;
+    // Writes the fields of an item
+    private final RowWriter<T> rowWriter;
+
+    /**
+     * Constructs a new CsvExport instance.
+     *
+     * @param header    The names of the columns.
+     * @param rowWriter Writes the fields of an item, one per column.
+     */
+    public CsvExport(String[] header, RowWriter<T> rowWriter) {
+        this.header = header.clone();
+        this.rowWriter = rowWriter;
+    }
+
+    /**
+     * Describes the export of showings: start, end, title, seats left and room.
+     *
+     * @param rooms Returns the room with the given ID, or null if there is none.
+     * @return The export.
+     */
+    public static CsvExport<ShowingDetails> showings(IntFunction<Room> rooms) {
+        return new CsvExport<>(new String[]{"Start", "End", "Title", "Seats left", "Room"}, (showing, csv) -> {
+            csv.writeField(showing.startDateTime(), FORMATTER);
+            csv.writeField(showing.endDateTime(), FORMATTER);
+            csv.writeField(showing.title());
+            csv.writeField(showing.seatsLeft());
+            csv.writeField(roomName(rooms, showing));
+        });
+    }
+
+    /**
+     * Describes the export of sales: the sale itself, the showing it was for and the seats sold, each written as
+     * row/seat counting from 1 and separated by spaces.
+     *
+     * @param rooms    Returns the room with the given ID, or null if there is none.
+     * @param showings Returns the details of the showing with the given ID as they were when the sales were copied,
+     *                 or null if there is none; the showing fields of a sale of an unknown showing are left empty.
+     * @return The export.
+     */
+    public static CsvExport<Selling> sells(IntFunction<Room> rooms, IntFunction<ShowingDetails> showings) {
+        StringBuilder seats = new StringBuilder();
+
+        return new CsvExport<>(new String[]{"ID", "Date/time", "Number of tickets", "Customer", "Showing start",
+                "Showing title", "Room", "Seats"}, (selling, csv) -> {
+            // Only the ID is read from the live showing, which is not changed after the showing has been added
+            ShowingDetails showing = selling.getShowing() != null ? showings.apply(selling.getShowing().getId()) : null;
+
+            csv.writeField(selling.getId());
+            csv.writeField(selling.getDateTime(), FORMATTER);
+            csv.writeField(selling.getTicketsSold());
+            csv.writeField(selling.getCustomer());
+            csv.writeField(showing != null ? showing.startDateTime() : null, FORMATTER);
+            csv.writeField(showing != null ? showing.title() : null);
+            csv.writeField(showing != null ? roomName(rooms, showing) : null);
+
+            // Reused for every row, as a task writes its rows on one thread
+            seats.setLength(0);
+
+            if (selling.getSeats() != null) {
+                for (int[] seat : selling.getSeats()) {
+                    if (!seats.isEmpty()) {
+                        seats.append(' ');
+                    }
+
+                    seats.append(seat[0] + 1).append('/').append(seat[1] + 1);
+                }
+            }
+
+            csv.writeField(seats);
+        });
+    }
+
+    /**
+     * Writes the header and a row per item to a file, replacing the file once every row has been written.
+     * Must not be called on the thread that changes the items.
+     *
+     * @param items    The items to export; the list must not change while it is exported.
+     * @param file     The file to write.
+     * @param progress Receives the number of rows written so far every few thousand rows, and decides whether to go on.
+     * @return The number of rows written, excluding the header.
+     * @throws IOException           If an I/O error occurs while writing.
+     * @throws CancellationException If the progress listener stopped the export; the file is left unchanged.
+     */
+    public int write(List<? extends T> items, Path file, Progress progress) throws IOException {
+        Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+        int total = items.size();
+        int written = 0;
+
+        try {
+            try (CsvWriter csv = new CsvWriter(FileChannel.open(temporaryFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))) {
+                csv.writeRow(header);
+
+                for (T item : items) {
+                    if (written % PROGRESS_INTERVAL == 0 && !progress.update(written, total)) {
+                        throw new CancellationException("Export of " + file.getFileName() + " cancelled");
+                    }
+
+                    rowWriter.write(item, csv);
+                    csv.endRow();
+                    written++;
+                }
+            }
+
+            Files.move(temporaryFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            progress.update(written, total);
+            return written;
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporaryFile);
+            throw e;
+        }
+    }
+
+    /**
+     * @param rooms   Returns the room with the given ID, or null if there is none.
+     * @param showing A showing.
+     * @return The name of the room of the showing, or null if it has no room.
+     */
+    private static String roomName(IntFunction<Room> rooms, ShowingDetails showing) {
+        Room room = rooms.apply(showing.roomId());
+        return room != null ? room.getName() : null;
+    }
+
+    /**
+     * Writes the fields of an item as a row of a CSV file.
+     *
+     * @param <T> The type of the items.
+     */
+    @FunctionalInterface
+    public interface RowWriter<T> {
+        /**
+         * Writes one field per column of the export; the row is ended by the caller.
+         *
+         * @param item The item.
+         * @param csv  The writer of the file.
+         * @throws IOException If an I/O error occurs while writing.
+         */
+        void write(T item, CsvWriter csv) throws IOException;
+    }
+
+    /**
+     * Receives the progress of an export.
+     */
+    @FunctionalInterface
+    public interface Progress {
+        /**
+         * @param written The number of rows written so far.
+         * @param total   The number of rows to write.
+         * @return True to go on, false to cancel the export.
+         */
+        boolean update(long written, long total);
+    }
+}
@@ -0,0 +1,79 @@
+package nl.inholland.export;
+
+import javafx.concurrent.Task;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The CsvExportTask class runs a {@link CsvExport} off the JavaFX Application Thread, so exporting a long sales
+ * history does not freeze the user interface. Its progress and message can be bound to a progress bar and a label,
+ * and cancelling it stops the export within a few thousand rows, leaving the target file unchanged.
+ * <p>
+ * All exports share one background thread, so two exports never compete for the disk. The time each export took is
+ * logged at debug level.
+ *
+ * @param <T> The type of the items exported.
+ */
+public class CsvExportTask<T> extends Task<Integer> {
+    // Logger used to report the duration of the exports
+    private static final System.Logger LOGGER = System.getLogger(CsvExportTask.class.getName());
+    // Runs the exports of all tasks
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "csv-export");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Describes the file to write
+    private final CsvExport<T> export;
+    // The items to export
+    private final List<? extends T> items;
+    // The file to write
+    private final Path file;
+
+    /**
+     * Constructs a new CsvExportTask instance.
+     *
+     * @param export Describes the file to write.
+     * @param items  The items to export; the list must not change once the task has started, so pass a copy of a
+     *               list that is changed on the JavaFX Application Thread.
+     * @param file   The file to write.
+     */
+    public CsvExportTask(CsvExport<T> export, List<? extends T> items, Path file) {
+        this.export = export;
+        this.items = items;
+        this.file = file;
+        updateMessage("Exporting " + items.size() + " rows to " + file.getFileName());
+    }
+
+    /**
+     * Starts the task on the shared export thread.
+     */
+    public void start() {
+        EXECUTOR.execute(this);
+    }
+
+    /**
+     * Writes the file, reporting the progress as it goes.
+     *
+     * @return The number of rows written.
+     * @throws Exception If the file cannot be written.
+     */
+    @Override
+    protected Integer call() throws Exception {
+        long startTime = System.nanoTime();
+
+        int written = export.write(items, file, (done, total) -> {
+            updateProgress(done, total);
+            return !isCancelled();
+        });
+
+        LOGGER.log(System.Logger.Level.DEBUG, "Exported {0} rows to {1} in {2} ms", written, file,
+                (System.nanoTime() - startTime) / 1_000_000);
+        updateMessage("Exported " + written + " rows to " + file.getFileName());
+        return written;
+    }
+}
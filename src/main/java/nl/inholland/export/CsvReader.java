@@ -0,0 +1,166 @@
+package nl.inholland.export;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The CsvReader class reads rows of comma-separated values written following RFC 4180, like those of a
+ * {@link CsvWriter}: a field enclosed in double quotes may contain commas, line breaks and doubled double quotes.
+ * Rows may end with CRLF or LF, and a byte order mark at the start of the input is skipped.
+ * A CsvReader is not thread-safe.
+ */
+public class CsvReader implements Closeable {
+    // The byte order mark some tools write at the start of a UTF-8 file
+    private static final char BYTE_ORDER_MARK = '\uFEFF';
+
+    // The input to read from
+    private final Reader in;
+    // Collects the characters of the current field
+    private final StringBuilder field = new StringBuilder();
+    // The line the next character is on, counting from 1
+    private int line = 1;
+    // The line the last row read starts on
+    private int rowLine;
+    // A character read ahead, or -2 if there is none
+    private int peeked = -2;
+    // Whether anything has been read yet
+    private boolean started;
+
+    /**
+     * Constructs a new CsvReader instance. Closing the reader closes the input.
+     *
+     * @param in The input to read from; it should be buffered.
+     */
+    public CsvReader(Reader in) {
+        this.in = in;
+    }
+
+    /**
+     * Reads the next row.
+     *
+     * @return The fields of the row, or null at the end of the input.
+     * @throws IOException If an I/O error occurs while reading, or a quoted field is malformed.
+     */
+    public String[] readRow() throws IOException {
+        int c = read();
+
+        if (c == -1) {
+            return null;
+        }
+
+        rowLine = line;
+        List<String> fields = new ArrayList<>();
+
+        while (true) {
+            field.setLength(0);
+
+            if (c == '"') {
+                c = readQuoted();
+            } else {
+                while (c != ',' && c != '\r' && c != '\n' && c != -1) {
+                    field.append((char) c);
+                    c = read();
+                }
+            }
+
+            fields.add(field.toString());
+
+            if (c == ',') {
+                c = read();
+                continue;
+            }
+            if (c == '\r' && peek() == '\n') {
+                read();
+            }
+            if (c != -1) {
+                line++;
+            }
+
+            return fields.toArray(new String[0]);
+        }
+    }
+
+    /**
+     * @return The line the last row read starts on, counting from 1, e.g. to report an error in it.
+     */
+    public int getLineNumber() {
+        return rowLine;
+    }
+
+    /**
+     * Closes the input.
+     *
+     * @throws IOException If an I/O error occurs while closing.
+     */
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Reads the rest of a quoted field, after its opening double quote, into the field buffer.
+     *
+     * @return The character after the closing double quote.
+     * @throws IOException If an I/O error occurs while reading, or the field is malformed.
+     */
+    private int readQuoted() throws IOException {
+        while (true) {
+            int c = read();
+
+            if (c == -1) {
+                throw new IOException("Quoted field starting on line " + rowLine + " is not closed");
+            }
+
+            if (c == '"') {
+                if (peek() != '"') {
+                    int next = read();
+
+                    if (next != ',' && next != '\r' && next != '\n' && next != -1) {
+                        throw new IOException("Unexpected text after the quoted field on line " + line);
+                    }
+
+                    return next;
+                }
+
+                read();
+            } else if (c == '\n') {
+                line++;
+            }
+
+            field.append((char) c);
+        }
+    }
+
+    /**
+     * @return The next character, or -1 at the end of the input.
+     * @throws IOException If an I/O error occurs while reading.
+     */
+    private int read() throws IOException {
+        int c = peek();
+        peeked = -2;
+        return c;
+    }
+
+    /**
+     * @return The next character without consuming it, or -1 at the end of the input.
+     * @throws IOException If an I/O error occurs while reading.
+     */
+    private int peek() throws IOException {
+        if (peeked == -2) {
+            peeked = in.read();
+
+            if (!started) {
+                started = true;
+
+                if (peeked == BYTE_ORDER_MARK) {
+                    peeked = in.read();
+                }
+            }
+        }
+
+        return peeked;
+    }
+}
@@ -0,0 +1,191 @@
+package nl.inholland.export;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+
+/**
+ * The CsvWriter class writes rows of comma-separated values to a file channel, following RFC 4180: fields are
+ * separated by commas, rows end with CRLF, and a field containing a comma, a double quote or a line break is
+ * enclosed in double quotes, with each double quote in it doubled.
+ * <p>
+ * Characters are collected in a large buffer and encoded as UTF-8 straight into the channel, and numbers and dates
+ * are formatted into a reused buffer, so writing a row creates no objects besides those the caller passes in.
+ * A CsvWriter is not thread-safe.
+ */
+public class CsvWriter implements Closeable {
+    // The number of characters and bytes buffered before writing to the channel
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // The buffered writer encoding into the channel
+    private final Writer writer;
+    // Holds a number or date while it is formatted
+    private final StringBuilder field = new StringBuilder();
+    // Receives the characters of a formatted field, so they can be written without creating a string
+    private char[] fieldChars = new char[64];
+    // Whether the next field is the first of its row
+    private boolean rowStart = true;
+
+    /**
+     * Constructs a new CsvWriter instance. Closing the writer closes the channel.
+     *
+     * @param channel The channel to write to, positioned where the first row is to be written.
+     */
+    public CsvWriter(FileChannel channel) {
+        this.writer = new BufferedWriter(
+                Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), BUFFER_SIZE), BUFFER_SIZE);
+    }
+
+    /**
+     * Writes a row of fields at once, e.g. the header.
+     *
+     * @param values The fields of the row.
+     * @throws IOException If an I/O error occurs while writing.
+     */
+    public void writeRow(String... values) throws IOException {
+        for (String value : values) {
+            writeField(value);
+        }
+
+        endRow();
+    }
+
+    /**
+     * Writes a text field, quoting it if needed.
+     *
+     * @param value The text, or null for an empty field.
+     * @throws IOException If an I/O error occurs while writing.
+     */
+    public void writeField(CharSequence value) throws IOException {
+        startField();
+
+        if (value == null) {
+            return;
+        }
+
+        if (!needsQuotes(value)) {
+            writer.write(value.toString());
+            return;
+        }
+
+        writer.write('"');
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            if (c == '"') {
+                writer.write('"');
+            }
+
+            writer.write(c);
+        }
+
+        writer.write('"');
+    }
+
+    /**
+     * Writes a number field.
+     *
+     * @param value The number.
+     * @throws IOException If an I/O error occurs while writing.
+     */
+    public void writeField(long value) throws IOException {
+        field.setLength(0);
+        field.append(value);
+        writeFormatted();
+    }
+
+    /**
+     * Writes a date or time field.
+     *
+     * @param value     The date or time, or null for an empty field.
+     * @param formatter The formatter for the field; formatters are immutable, so one can be reused for every row.
+     * @throws IOException If an I/O error occurs while writing.
+     */
+    public void writeField(TemporalAccessor value, DateTimeFormatter formatter) throws IOException {
+        if (value == null) {
+            writeField(null);
+            return;
+        }
+
+        field.setLength(0);
+        formatter.formatTo(value, field);
+        writeFormatted();
+    }
+
+    /**
+     * Ends the current row.
+     *
+     * @throws IOException If an I/O error occurs while writing.
+     */
+    public void endRow() throws IOException {
+        writer.write("\r\n");
+        rowStart = true;
+    }
+
+    /**
+     * Writes the buffered rows to the channel and closes it.
+     *
+     * @throws IOException If an I/O error occurs while writing or closing.
+     */
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    /**
+     * Writes the field held in the format buffer, quoting it if needed.
+     *
+     * @throws IOException If an I/O error occurs while writing.
+     */
+    private void writeFormatted() throws IOException {
+        // Formatted fields rarely need quotes, so they are only copied into a new string when they do
+        if (needsQuotes(field)) {
+            writeField(field.toString());
+        } else {
+            startField();
+
+            if (fieldChars.length < field.length()) {
+                fieldChars = new char[field.length()];
+            }
+
+            field.getChars(0, field.length(), fieldChars, 0);
+            writer.write(fieldChars, 0, field.length());
+        }
+    }
+
+    /**
+     * Writes the separator before a field, unless it is the first of its row.
+     *
+     * @throws IOException If an I/O error occurs while writing.
+     */
+    private void startField() throws IOException {
+        if (!rowStart) {
+            writer.write(',');
+        }
+
+        rowStart = false;
+    }
+
+    /**
+     * @param value A field.
+     * @return True if the field contains a comma, a double quote or a line break, and must be quoted.
+     */
+    private static boolean needsQuotes(CharSequence value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            if (c == ',' || c == '"' || c == '\r' || c == '\n') {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
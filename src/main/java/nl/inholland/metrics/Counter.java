@@ -0,0 +1,37 @@
+package nl.inholland.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The Counter class counts events, e.g. tickets sold, without allocating, so it can be updated on every event.
+ */
+public class Counter implements CounterMBean {
+    // The number counted so far
+    private final AtomicLong count = new AtomicLong();
+
+    /**
+     * Counts one event.
+     */
+    public void increment() {
+        count.incrementAndGet();
+    }
+
+    /**
+     * Counts several events at once.
+     *
+     * @param amount The number of events.
+     */
+    public void add(long amount) {
+        count.addAndGet(amount);
+    }
+
+    @Override
+    public long getCount() {
+        return count.get();
+    }
+
+    @Override
+    public void reset() {
+        count.set(0);
+    }
+}
@@ -0,0 +1,16 @@
+package nl.inholland.metrics;
+
+/**
+ * The management interface of a {@link Counter}, as shown by JMX clients such as JConsole.
+ */
+public interface CounterMBean {
+    /**
+     * @return The number counted so far.
+     */
+    long getCount();
+
+    /**
+     * Sets the count back to zero.
+     */
+    void reset();
+}
@@ -0,0 +1,157 @@
+package nl.inholland.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The LatencyHistogram class counts how often an operation took how long, so percentiles of its latency can be read
+ * while the application runs. Like HdrHistogram, it has log-linear buckets: durations below 128 ns are counted
+ * exactly, and every power of two above is split into 64 buckets, so a percentile is within 1.6% of the real value
+ * for durations from nanoseconds to {@link #HIGHEST_TRACKABLE_NANOS} with a fixed array of 2048 counts. Longer
+ * durations are counted as the highest trackable one.
+ * <p>
+ * Recording increments a few atomic longs and allocates nothing, so it can be done on every sale or query.
+ * Reading a percentile walks the counts without locking, so it may miss records made at the same time.
+ */
+public class LatencyHistogram implements LatencyHistogramMBean {
+    // The longest duration that is counted in a bucket of its own, about 137 seconds
+    public static final long HIGHEST_TRACKABLE_NANOS = (1L << 37) - 1;
+
+    // The number of leading bits of a duration that select its bucket; each power of two has 2^(bits - 1) buckets
+    private static final int SUB_BUCKET_BITS = 7;
+    // The number of buckets up to the highest trackable duration
+    private static final int BUCKET_COUNT = bucketIndex(HIGHEST_TRACKABLE_NANOS) + 1;
+    // Nanoseconds per millisecond, the unit of the attributes
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    // The number of durations counted in each bucket
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    // The number of durations recorded
+    private final AtomicLong count = new AtomicLong();
+    // The sum of the durations recorded, in nanoseconds
+    private final AtomicLong totalNanos = new AtomicLong();
+    // The longest duration recorded, in nanoseconds
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Records how long an operation took.
+     *
+     * @param nanos The duration in nanoseconds; negative durations count as zero.
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+
+        counts.incrementAndGet(bucketIndex(Math.min(value, HIGHEST_TRACKABLE_NANOS)));
+        count.incrementAndGet();
+        totalNanos.addAndGet(value);
+
+        long max = maxNanos.get();
+        while (value > max && !maxNanos.compareAndSet(max, value)) {
+            max = maxNanos.get();
+        }
+    }
+
+    /**
+     * Records how long an operation took that started at the given time.
+     *
+     * @param startNanos The time the operation started, in System.nanoTime() terms.
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * @param percentile The percentile, from 0 to 100.
+     * @return The duration in nanoseconds that the given percentage of the recorded durations did not exceed, or
+     * zero if nothing was recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        long[] snapshot = new long[BUCKET_COUNT];
+        long total = 0;
+
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * total));
+        long seen = 0;
+
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += snapshot[i];
+
+            if (seen >= rank) {
+                return Math.min(highestEquivalentValue(i), maxNanos.get());
+            }
+        }
+
+        return 0;
+    }
+
+    @Override
+    public long getCount() {
+        return count.get();
+    }
+
+    @Override
+    public double getMeanMillis() {
+        long recorded = count.get();
+        return recorded == 0 ? 0 : totalNanos.get() / NANOS_PER_MILLI / recorded;
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return maxNanos.get() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getP50Millis() {
+        return getValueAtPercentile(50) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getP90Millis() {
+        return getValueAtPercentile(90) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getP99Millis() {
+        return getValueAtPercentile(99) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getP999Millis() {
+        return getValueAtPercentile(99.9) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+
+        count.set(0);
+        totalNanos.set(0);
+        maxNanos.set(0);
+    }
+
+    /**
+     * @param value A duration in nanoseconds, from zero to the highest trackable one.
+     * @return The bucket the duration is counted in: the duration itself below 128 ns, otherwise the power of two
+     * it falls in and its next six bits.
+     */
+    private static int bucketIndex(long value) {
+        int shift = Math.max(0, 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1));
+        return (shift << (SUB_BUCKET_BITS - 1)) + (int) (value >>> shift);
+    }
+
+    /**
+     * @param index The index of a bucket.
+     * @return The longest duration counted in the bucket.
+     */
+    private static long highestEquivalentValue(int index) {
+        int shift = Math.max(0, (index >>> (SUB_BUCKET_BITS - 1)) - 1);
+        long subBucket = index - ((long) shift << (SUB_BUCKET_BITS - 1));
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,47 @@
+package nl.inholland.metrics;
+
+/**
+ * The management interface of a {@link LatencyHistogram}, as shown by JMX clients such as JConsole.
+ * Durations are in milliseconds.
+ */
+public interface LatencyHistogramMBean {
+    /**
+     * @return The number of durations recorded.
+     */
+    long getCount();
+
+    /**
+     * @return The average duration, or zero if nothing was recorded.
+     */
+    double getMeanMillis();
+
+    /**
+     * @return The longest duration recorded.
+     */
+    double getMaxMillis();
+
+    /**
+     * @return The median duration.
+     */
+    double getP50Millis();
+
+    /**
+     * @return The duration that 90% of the operations did not exceed.
+     */
+    double getP90Millis();
+
+    /**
+     * @return The duration that 99% of the operations did not exceed.
+     */
+    double getP99Millis();
+
+    /**
+     * @return The duration that 99.9% of the operations did not exceed.
+     */
+    double getP999Millis();
+
+    /**
+     * Forgets every duration recorded so far, e.g. before measuring a test run.
+     */
+    void reset();
+}
@@ -0,0 +1,94 @@
+package nl.inholland.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * The Metrics class is the registry of the counters and latency histograms of the application. Every metric is
+ * registered as an MBean of the platform MBean server under {@value #DOMAIN}, with the group and name it was created
+ * with, e.g. {@code nl.inholland:type=database,name=bookSeats}, so it can be watched with JConsole or any other JMX
+ * client while the application runs.
+ * <p>
+ * Looking up a metric is meant to be done once, e.g. in a static field; the hot path only records into the metric.
+ * Asking for the same group and name again returns the same metric.
+ */
+public final class Metrics {
+    // The JMX domain of the metrics
+    public static final String DOMAIN = "nl.inholland";
+
+    // Logger used to report metrics that cannot be registered
+    private static final System.Logger LOGGER = System.getLogger(Metrics.class.getName());
+    // The server the metrics are registered with
+    private static final MBeanServer SERVER = ManagementFactory.getPlatformMBeanServer();
+    // The metrics by object name
+    private static final Map<String, Object> METRICS = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    /**
+     * Returns the counter with the given group and name, creating and registering it if it does not exist yet.
+     *
+     * @param group The group of the metric, e.g. the part of the application that records it.
+     * @param name  The name of the metric within its group; neither may contain characters that are special in
+     *              object names, such as commas.
+     * @return The counter.
+     * @throws IllegalArgumentException If the group and name belong to a histogram.
+     */
+    public static Counter counter(String group, String name) {
+        return metric(group, name, Counter.class, Counter::new);
+    }
+
+    /**
+     * Returns the latency histogram with the given group and name, creating and registering it if it does not exist
+     * yet.
+     *
+     * @param group The group of the metric, e.g. the part of the application that records it.
+     * @param name  The name of the metric within its group; neither may contain characters that are special in
+     *              object names, such as commas.
+     * @return The histogram.
+     * @throws IllegalArgumentException If the group and name belong to a counter.
+     */
+    public static LatencyHistogram histogram(String group, String name) {
+        return metric(group, name, LatencyHistogram.class, LatencyHistogram::new);
+    }
+
+    /**
+     * Returns the metric with the given group and name, creating and registering it if it does not exist yet.
+     * A metric that cannot be registered, e.g. because another copy of the application in the same JVM registered
+     * it first, still counts but is not visible through JMX.
+     *
+     * @param group   The group of the metric.
+     * @param name    The name of the metric within its group.
+     * @param type    The class of the metric.
+     * @param factory Creates the metric.
+     * @param <M>     The type of the metric.
+     * @return The metric.
+     * @throws IllegalArgumentException If the group and name belong to a metric of another type.
+     */
+    private static <M> M metric(String group, String name, Class<M> type, Supplier<M> factory) {
+        String objectName = DOMAIN + ":type=" + group + ",name=" + name;
+        Object metric = METRICS.computeIfAbsent(objectName, key -> {
+            M created = factory.get();
+
+            try {
+                SERVER.registerMBean(created, new ObjectName(key));
+            } catch (JMException e) {
+                LOGGER.log(System.Logger.Level.WARNING, "Could not register metric " + key, e);
+            }
+
+            return created;
+        });
+
+        if (!type.isInstance(metric)) {
+            throw new IllegalArgumentException("Metric " + objectName + " is not a " + type.getSimpleName());
+        }
+
+        return type.cast(metric);
+    }
+}
@@ -0,0 +1,35 @@
+package nl.inholland.model;
+
+import java.util.List;
+
+/**
+ * The BookingResult record represents the outcome of booking several seats at once: either the committed
+ * {@link Selling}, or the seats that another booking claimed first, in which case none of the seats were sold.
+ *
+ * @param selling   The committed selling, or null if the booking conflicted.
+ * @param lostSeats The requested seats that were already reserved; empty if the booking was committed.
+ */
+public record BookingResult(Selling selling, List<int[]> lostSeats) {
+    /**
+     * @param selling The committed selling.
+     * @return The result of a booking that was committed.
+     */
+    public static BookingResult committed(Selling selling) {
+        return new BookingResult(selling, List.of());
+    }
+
+    /**
+     * @param lostSeats The requested seats that were already reserved.
+     * @return The result of a booking that conflicted with another one.
+     */
+    public static BookingResult conflict(List<int[]> lostSeats) {
+        return new BookingResult(null, List.copyOf(lostSeats));
+    }
+
+    /**
+     * @return True if every seat was sold and the selling was committed.
+     */
+    public boolean isCommitted() {
+        return selling != null;
+    }
+}
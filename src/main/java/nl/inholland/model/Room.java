@@ -0,0 +1,81 @@
+package nl.inholland.model;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * The Room class represents an auditorium of the cinema, in which one showing runs at a time.
+ * Each room has its own layout of rows and seats, which the seat maps of its showings follow.
+ * It implements {@link Serializable} to allow instances to be serialized for storage or transmission.
+ */
+public class Room implements Serializable {
+    // This constant is used to keep track of the version
+    @Serial
+    private static final long serialVersionUID = 1L;
+    // The room of showings stored before the cinema had several rooms
+    public static final int DEFAULT_ID = 1;
+
+    // Unique identifier for the room
+    private final int id;
+    // The name of the room shown to the user
+    private final String name;
+    // The number of rows in the room
+    private final int rows;
+    // The number of seats in each row
+    private final int columns;
+
+    /**
+     * Constructs a new Room instance with the specified details.
+     *
+     * @param id      The unique identifier for the room.
+     * @param name    The name of the room shown to the user.
+     * @param rows    The number of rows in the room.
+     * @param columns The number of seats in each row.
+     */
+    public Room(int id, String name, int rows, int columns) {
+        if (rows <= 0 || columns <= 0) {
+            throw new IllegalArgumentException("Invalid layout of " + rows + " x " + columns + " for room " + name);
+        }
+
+        this.id = id;
+        this.name = name;
+        this.rows = rows;
+        this.columns = columns;
+    }
+
+    // Getter methods for the class fields
+    public int getId() {
+        return id;
+    }
+    public String getName() {
+        return name;
+    }
+    public int getRows() {
+        return rows;
+    }
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return The total number of seats in the room.
+     */
+    public int getNumberOfSeats() {
+        return rows * columns;
+    }
+
+    /**
+     * @return A seat map of the layout of this room in which every seat is free.
+     */
+    public SeatMap createSeatMap() {
+        return new SeatMap(rows, columns);
+    }
+
+    /**
+     * @return The name of the room, as shown in lists and combo boxes.
+     */
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,429 @@
+package nl.inholland.model;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The SeatMap class represents which seats of a room are reserved for a showing.
+ * Seats are stored as one bit each in {@code long} words, in row-major order, so a room of 72 seats takes two words
+ * instead of a byte per seat plus an array per row. Counting and searching free seats works on whole words at a time.
+ * Seats are claimed with atomic operations on the words, so bookings from several threads never sell a seat twice.
+ * A seat can also be held for a sale in progress: it is claimed like a sold seat, so nobody else can take it, and
+ * additionally marked in a second set of words that is not persisted and not counted as sold.
+ * It implements {@link Serializable} to allow instances to be serialized for storage or transmission.
+ */
+public class SeatMap implements Serializable {
+    // This constant is used to keep track of the version
+    @Serial
+    private static final long serialVersionUID = 1L;
+    // Atomic access to the elements of the words array
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    // The number of rows in the room
+    private final int rows;
+    // The number of seats in each row
+    private final int columns;
+    // One bit per seat in row-major order, set when the seat is reserved
+    private final long[] words;
+    // One bit per seat in row-major order, set when the reservation is only a hold for a sale in progress
+    private final transient long[] held;
+
+    /**
+     * Constructs a new SeatMap instance in which every seat is free.
+     *
+     * @param rows    The number of rows in the room.
+     * @param columns The number of seats in each row.
+     */
+    public SeatMap(int rows, int columns) {
+        this(rows, columns, new long[wordCount(rows, columns)]);
+    }
+
+    /**
+     * Constructs a SeatMap instance from its words, as returned by {@link #getWords()}.
+     *
+     * @param rows    The number of rows in the room.
+     * @param columns The number of seats in each row.
+     * @param words   One bit per seat in row-major order, set when the seat is reserved.
+     */
+    public SeatMap(int rows, int columns, long[] words) {
+        if (rows <= 0 || columns <= 0 || words.length != wordCount(rows, columns)) {
+            throw new IllegalArgumentException("Invalid seat map of " + rows + " x " + columns + " in " + words.length + " words");
+        }
+
+        this.rows = rows;
+        this.columns = columns;
+        this.words = words;
+        this.held = new long[words.length];
+    }
+
+    /**
+     * @param rows    The number of rows in the room.
+     * @param columns The number of seats in each row.
+     * @return The number of words needed to store a bit per seat.
+     */
+    public static int wordCount(int rows, int columns) {
+        return (rows * columns + 63) >>> 6;
+    }
+
+    // Getter methods for the class fields
+    public int getRows() {
+        return rows;
+    }
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return A copy of the words, one bit per seat in row-major order, set when the seat is sold.
+     * Held seats are left out.
+     */
+    public long[] getWords() {
+        long[] sold = new long[words.length];
+
+        for (int i = 0; i < words.length; i++) {
+            sold[i] = (long) WORDS.getVolatile(words, i) & ~(long) WORDS.getVolatile(held, i);
+        }
+
+        return sold;
+    }
+
+    /**
+     * @param row    The row index.
+     * @param column The column index.
+     * @return True if the seat is sold or held.
+     */
+    public boolean isReserved(int row, int column) {
+        int index = index(row, column);
+        return ((long) WORDS.getVolatile(words, index >>> 6) & (1L << index)) != 0;
+    }
+
+    /**
+     * Marks a seat as reserved.
+     *
+     * @param row    The row index.
+     * @param column The column index.
+     * @return True if the seat was free, false if it was already reserved.
+     */
+    public boolean reserve(int row, int column) {
+        int index = index(row, column);
+        long mask = 1L << index;
+        return ((long) WORDS.getAndBitwiseOr(words, index >>> 6, mask) & mask) == 0;
+    }
+
+    /**
+     * Reserves all given seats or none of them. Each word is claimed with a single compare-and-set, so seats are
+     * only ever claimed by one caller; if any seat turns out to be reserved already, the words claimed so far are
+     * released again.
+     *
+     * @param seats The coordinates of the seats to reserve.
+     * @return The seats that were already reserved, or an empty list if all seats have been reserved.
+     */
+    public List<int[]> reserveAll(List<int[]> seats) {
+        long[] masks = new long[words.length];
+
+        for (int[] seat : seats) {
+            int index = index(seat[0], seat[1]);
+            masks[index >>> 6] |= 1L << index;
+        }
+
+        while (true) {
+            int failed = claimAll(masks);
+
+            if (failed < 0) {
+                return List.of();
+            }
+
+            for (int claimed = 0; claimed < failed; claimed++) {
+                WORDS.getAndBitwiseAnd(words, claimed, ~masks[claimed]);
+            }
+
+            List<int[]> reserved = reservedOf(seats);
+            if (!reserved.isEmpty()) {
+                return reserved;
+            }
+            // The conflicting seat was released in the meantime, so try again
+        }
+    }
+
+    /**
+     * @param row    The row index.
+     * @param column The column index.
+     * @return True if the seat is held for a sale in progress.
+     */
+    public boolean isHeld(int row, int column) {
+        int index = index(row, column);
+        return ((long) WORDS.getVolatile(held, index >>> 6) & (1L << index)) != 0;
+    }
+
+    /**
+     * Holds all given seats or none of them, claiming them like {@link #reserveAll(List)}.
+     *
+     * @param seats The coordinates of the seats to hold.
+     * @return The seats that were already sold or held, or an empty list if all seats are held now.
+     */
+    public List<int[]> hold(List<int[]> seats) {
+        List<int[]> lostSeats = reserveAll(seats);
+
+        if (lostSeats.isEmpty()) {
+            for (int[] seat : seats) {
+                int index = index(seat[0], seat[1]);
+                WORDS.getAndBitwiseOr(held, index >>> 6, 1L << index);
+            }
+        }
+
+        return lostSeats;
+    }
+
+    /**
+     * Turns held seats into sold seats.
+     *
+     * @param seats The coordinates of held seats.
+     */
+    public void sellHeld(List<int[]> seats) {
+        for (int[] seat : seats) {
+            int index = index(seat[0], seat[1]);
+            WORDS.getAndBitwiseAnd(held, index >>> 6, ~(1L << index));
+        }
+    }
+
+    /**
+     * Frees held seats.
+     *
+     * @param seats The coordinates of held seats.
+     */
+    public void releaseHeld(List<int[]> seats) {
+        sellHeld(seats);
+
+        for (int[] seat : seats) {
+            release(seat[0], seat[1]);
+        }
+    }
+
+    /**
+     * Marks a seat as free.
+     *
+     * @param row    The row index.
+     * @param column The column index.
+     */
+    public void release(int row, int column) {
+        int index = index(row, column);
+        WORDS.getAndBitwiseAnd(words, index >>> 6, ~(1L << index));
+    }
+
+    /**
+     * @return The total number of seats in the room.
+     */
+    public int getNumberOfSeats() {
+        return rows * columns;
+    }
+
+    /**
+     * @return The number of sold seats, not counting held seats.
+     */
+    public int getReservedCount() {
+        int count = 0;
+
+        for (long word : getWords()) {
+            count += Long.bitCount(word);
+        }
+
+        return count;
+    }
+
+    /**
+     * @return The number of seats that are neither sold nor held.
+     */
+    public int seatsLeft() {
+        int taken = 0;
+
+        for (int i = 0; i < words.length; i++) {
+            taken += Long.bitCount((long) WORDS.getVolatile(words, i));
+        }
+
+        return getNumberOfSeats() - taken;
+    }
+
+    /**
+     * Finds the first block of adjacent free seats in a row.
+     *
+     * @param row   The row index.
+     * @param count The number of adjacent seats needed.
+     * @return The column of the first seat of the block, or -1 if the row has no such block.
+     */
+    public int findFreeSeats(int row, int count) {
+        int start = row * columns;
+        int end = start + columns;
+        int free = nextFree(start, end);
+
+        while (free + count <= end) {
+            int taken = nextReserved(free, end);
+
+            if (taken - free >= count) {
+                return free - start;
+            }
+
+            free = nextFree(taken, end);
+        }
+
+        return -1;
+    }
+
+    /**
+     * Copies the free seats of a row into words of its own, so the row can be searched a word at a time
+     * regardless of where it starts in the seat map.
+     *
+     * @param row    The row index.
+     * @param target Receives one bit per seat of the row, set when the seat is neither sold nor held; must hold at
+     *               least {@code (columns + 63) / 64} words.
+     */
+    public void copyFreeSeats(int row, long[] target) {
+        int start = index(row, 0);
+        int rowWords = (columns + 63) >>> 6;
+
+        for (int i = 0; i < rowWords; i++) {
+            int from = start + (i << 6);
+            int wordIndex = from >>> 6;
+            int shift = from & 63;
+            long claimed = (long) WORDS.getVolatile(words, wordIndex) >>> shift;
+
+            if (shift != 0 && wordIndex + 1 < words.length) {
+                claimed |= (long) WORDS.getVolatile(words, wordIndex + 1) << (64 - shift);
+            }
+
+            target[i] = ~claimed;
+        }
+
+        int lastBits = columns & 63;
+        if (lastBits != 0) {
+            target[rowWords - 1] &= (1L << lastBits) - 1;
+        }
+    }
+
+    /**
+     * Creates a copy of this seat map that does not share its words. Held seats are free in the copy.
+     *
+     * @return A copy of this seat map.
+     */
+    public SeatMap copy() {
+        return new SeatMap(rows, columns, getWords());
+    }
+
+    /**
+     * @return A seat map with the deserialized seats and no held seats, as the set of held seats is not serialized.
+     */
+    @Serial
+    private Object readResolve() {
+        return new SeatMap(rows, columns, words);
+    }
+
+    /**
+     * @param row    The row index.
+     * @param column The column index.
+     * @return The bit index of the seat.
+     * @throws IndexOutOfBoundsException If the seat is outside the room.
+     */
+    private int index(int row, int column) {
+        if (row < 0 || row >= rows || column < 0 || column >= columns) {
+            throw new IndexOutOfBoundsException("Seat " + row + "/" + column + " is outside a room of " + rows + " x " + columns);
+        }
+
+        return row * columns + column;
+    }
+
+    /**
+     * @param from The first bit index to look at.
+     * @param end  The bit index to stop at.
+     * @return The index of the first free seat in the range, or {@code end} if there is none.
+     */
+    private int nextFree(int from, int end) {
+        if (from >= end) {
+            return end;
+        }
+
+        int wordIndex = from >>> 6;
+        long word = ~words[wordIndex] & (-1L << from);
+
+        while (word == 0 && (++wordIndex << 6) < end) {
+            word = ~words[wordIndex];
+        }
+
+        return word == 0 ? end : Math.min(end, (wordIndex << 6) + Long.numberOfTrailingZeros(word));
+    }
+
+    /**
+     * @param from The first bit index to look at.
+     * @param end  The bit index to stop at.
+     * @return The index of the first reserved seat in the range, or {@code end} if there is none.
+     */
+    private int nextReserved(int from, int end) {
+        if (from >= end) {
+            return end;
+        }
+
+        int wordIndex = from >>> 6;
+        long word = words[wordIndex] & (-1L << from);
+
+        while (word == 0 && (++wordIndex << 6) < end) {
+            word = words[wordIndex];
+        }
+
+        return word == 0 ? end : Math.min(end, (wordIndex << 6) + Long.numberOfTrailingZeros(word));
+    }
+
+    /**
+     * Claims the seats of every word in turn.
+     *
+     * @param masks The bits of the seats to claim, per word.
+     * @return -1 if all seats were claimed, or the index of the first word whose seats could not be claimed;
+     * the words before it have been claimed.
+     */
+    private int claimAll(long[] masks) {
+        for (int i = 0; i < masks.length; i++) {
+            if (masks[i] != 0 && !claim(i, masks[i])) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Claims the seats of a mask in one word if none of them is reserved.
+     *
+     * @param wordIndex The index of the word.
+     * @param mask      The bits of the seats to claim.
+     * @return True if the seats were claimed, false if at least one of them was reserved.
+     */
+    private boolean claim(int wordIndex, long mask) {
+        while (true) {
+            long current = (long) WORDS.getVolatile(words, wordIndex);
+
+            if ((current & mask) != 0) {
+                return false;
+            }
+            if (WORDS.compareAndSet(words, wordIndex, current, current | mask)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @param seats The coordinates of seats.
+     * @return The seats among them that are reserved.
+     */
+    private List<int[]> reservedOf(List<int[]> seats) {
+        List<int[]> reserved = new ArrayList<>();
+
+        for (int[] seat : seats) {
+            if (isReserved(seat[0], seat[1])) {
+                reserved.add(seat);
+            }
+        }
+
+        return reserved;
+    }
+}
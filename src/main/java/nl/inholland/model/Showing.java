@@ -1,5 +1,9 @@
 package nl.inholland.model;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serial;
 import java.io.Serializable;
 import java.time.LocalDateTime;
@@ -8,47 +12,74 @@ import java.time.LocalTime;
 /**
  * The Showing class represents a movie showing in the application.
  * This class stores information about the movie showing, including the start time,
- * duration, title, and reserved seats. It implements {@link Serializable} to allow
+ * duration, title, the {@link Room} it runs in, and reserved seats. The number of tickets sold is derived from the
+ * {@link SeatMap}, so the two cannot drift apart. It implements {@link Serializable} to allow
  * instances to be serialized for storage or transmission.
  */
 public class Showing implements Serializable {
     // This constant is used to keep track of the version
     @Serial
     private static final long serialVersionUID = 1L;
+    // Fields of the Java-serialized form, which keeps the seats in a boolean matrix
+    @Serial
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("id", int.class),
+            new ObjectStreamField("startDateTime", LocalDateTime.class),
+            new ObjectStreamField("ticketsSold", int.class),
+            new ObjectStreamField("duration", LocalTime.class),
+            new ObjectStreamField("title", String.class),
+            new ObjectStreamField("reservedSeats", boolean[][].class),
+            new ObjectStreamField("isAgeChecked", boolean.class),
+            new ObjectStreamField("roomId", int.class)
+    };
 
     // Unique identifier for the showing
     private int id;
     // The date and time when the showing start
     private LocalDateTime startDateTime;
-    // The number of tickets sold for this showing
-    private int ticketsSold;
     // The duration of the movie
     private LocalTime duration;
     // The title of the movie being shown
     private String title;
-    // A 2D boolean array representing reserved seats in the theater
-    private final boolean[][] reservedSeats;
+    // The ID of the room the showing runs in
+    private int roomId;
+    // The reserved seats in the theater
+    private SeatMap seats;
     // A boolean flag to indicate if the movie showing is age restricted
     private boolean isAgeChecked;
 
+    /**
+     * Constructs a new Showing instance in the default room with the specified details.
+     *
+     * @param id The unique identifier for the showing.
+     * @param startDateTime The start date and time of the showing.
+     * @param duration The duration of the showing.
+     * @param title The title of the movie being shown.
+     * @param seats The reserved seats.
+     * @param isAgeChecked A boolean flag to indicate if the movie showing is age restricted.
+     */
+    public Showing(int id, LocalDateTime startDateTime, LocalTime duration, String title, SeatMap seats, boolean isAgeChecked) {
+        this(id, startDateTime, duration, title, Room.DEFAULT_ID, seats, isAgeChecked);
+    }
+
     /**
      * Constructs a new Showing instance with the specified details.
      *
      * @param id The unique identifier for the showing.
      * @param startDateTime The start date and time of the showing.
-     * @param ticketsSold The number of tickets sold.
      * @param duration The duration of the showing.
      * @param title The title of the movie being shown.
-     * @param reservedSeats A 2D boolean array representing the reserved seats.
+     * @param roomId The ID of the room the showing runs in.
+     * @param seats The reserved seats, following the layout of the room.
      * @param isAgeChecked A boolean flag to indicate if the movie showing is age restricted.
      */
-    public Showing(int id, LocalDateTime startDateTime, int ticketsSold, LocalTime duration, String title, boolean[][] reservedSeats, boolean isAgeChecked) {
+    public Showing(int id, LocalDateTime startDateTime, LocalTime duration, String title, int roomId, SeatMap seats, boolean isAgeChecked) {
         this.id = id;
         this.startDateTime = startDateTime;
-        this.ticketsSold = ticketsSold;
         this.duration = duration;
         this.title = title;
-        this.reservedSeats = reservedSeats;
+        this.roomId = roomId;
+        this.seats = seats;
         this.isAgeChecked = isAgeChecked;
     }
 
@@ -71,7 +102,7 @@ public class Showing implements Serializable {
         return startDateTime;
     }
     public int getTicketsSold() {
-        return ticketsSold;
+        return seats.getReservedCount();
     }
     public LocalTime getDuration() {
         return duration;
@@ -79,21 +110,50 @@ public class Showing implements Serializable {
     public String getTitle() {
         return title;
     }
-    public boolean[][] getReservedSeats() {
-        return reservedSeats;
+    public int getRoomId() {
+        return roomId;
+    }
+    public SeatMap getSeatMap() {
+        return seats;
     }
     public boolean getIsAgeChecked() { return isAgeChecked; }
 
     /**
-     * Marks a seat as sold and updates the reserved seats matrix.
-     * This method increments the total number of tickets sold and sets the specific seat
-     * as reserved (true) based on the provided seat coordinates.
+     * Moves the showing to another room, replacing its seat map with an empty one of the layout of that room.
+     *
+     * @param room The room the showing runs in from now on.
+     * @throws IllegalStateException If tickets have been sold for the showing, as their seats may not exist in the room.
+     */
+    public void setRoom(Room room) {
+        if (room.getId() == roomId) {
+            return;
+        }
+        if (isTicketsSold()) {
+            throw new IllegalStateException("Cannot move showing " + id + " to another room after tickets have been sold");
+        }
+
+        roomId = room.getId();
+        seats = room.createSeatMap();
+    }
+
+    /**
+     * Marks a seat as sold in the seat map, which also counts it as a sold ticket.
      *
      * @param seat An array containing the row and column indices of the seat to be reserved.
+     * @return True if the seat was free, false if it had already been sold.
      */
-    public void sellTicket(int[] seat) {
-        ticketsSold++;
-        reservedSeats[seat[0]][seat[1]] = true;
+    public boolean sellTicket(int[] seat) {
+        return seats.reserve(seat[0], seat[1]);
+    }
+
+    /**
+     * Creates a copy of this showing that does not share the seat map,
+     * so later ticket sales do not affect the copy.
+     *
+     * @return A copy of this showing.
+     */
+    public Showing copy() {
+        return new Showing(id, startDateTime, duration, title, roomId, seats.copy(), isAgeChecked);
     }
 
     /**
@@ -102,15 +162,88 @@ public class Showing implements Serializable {
      * @return true if at least one ticket has been sold, false otherwise.
      */
     public boolean isTicketsSold() {
-        return ticketsSold > 0;
+        return getTicketsSold() > 0;
     }
 
     /**
      * Calculates the total number of seats available in the showing.
      *
-     * @return The total number of seats based on the dimensions of the reservedSeats array.
+     * @return The total number of seats based on the dimensions of the seat map.
      */
     public int getNumberOfSeats() {
-        return reservedSeats.length * reservedSeats[0].length;
+        return seats.getNumberOfSeats();
+    }
+
+    /**
+     * @return The date and time at which the showing ends.
+     */
+    public LocalDateTime getEndDateTime() {
+        return startDateTime.plusSeconds(duration.toSecondOfDay());
+    }
+
+    /**
+     * @return The number of seats that have not been sold yet.
+     */
+    public int getSeatsLeft() {
+        return seats.seatsLeft();
+    }
+
+    /**
+     * Writes the Java-serialized form, converting the seat map to a boolean matrix.
+     *
+     * @param out The stream to write to.
+     * @throws IOException If an I/O error occurs while writing.
+     */
+    @Serial
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        boolean[][] reservedSeats = new boolean[seats.getRows()][seats.getColumns()];
+
+        for (int row = 0; row < reservedSeats.length; row++) {
+            for (int column = 0; column < reservedSeats[row].length; column++) {
+                reservedSeats[row][column] = seats.isReserved(row, column);
+            }
+        }
+
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("id", id);
+        fields.put("startDateTime", startDateTime);
+        fields.put("ticketsSold", getTicketsSold());
+        fields.put("duration", duration);
+        fields.put("title", title);
+        fields.put("reservedSeats", reservedSeats);
+        fields.put("isAgeChecked", isAgeChecked);
+        fields.put("roomId", roomId);
+        out.writeFields();
+    }
+
+    /**
+     * Reads the Java-serialized form, converting the boolean matrix to a seat map.
+     * The number of tickets sold is derived from the seats; showings written before the cinema had several rooms
+     * run in the default room.
+     *
+     * @param in The stream to read from.
+     * @throws IOException            If an I/O error occurs while reading.
+     * @throws ClassNotFoundException If the class of a field cannot be found.
+     */
+    @Serial
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        boolean[][] reservedSeats = (boolean[][]) fields.get("reservedSeats", null);
+
+        id = fields.get("id", 0);
+        startDateTime = (LocalDateTime) fields.get("startDateTime", null);
+        duration = (LocalTime) fields.get("duration", null);
+        title = (String) fields.get("title", null);
+        isAgeChecked = fields.get("isAgeChecked", false);
+        roomId = fields.get("roomId", Room.DEFAULT_ID);
+        seats = new SeatMap(reservedSeats.length, reservedSeats[0].length);
+
+        for (int row = 0; row < reservedSeats.length; row++) {
+            for (int column = 0; column < reservedSeats[row].length; column++) {
+                if (reservedSeats[row][column]) {
+                    seats.reserve(row, column);
+                }
+            }
+        }
     }
 }
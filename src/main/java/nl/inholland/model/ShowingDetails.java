@@ -0,0 +1,26 @@
+package nl.inholland.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * The ShowingDetails record holds the details of a {@link Showing} as they were at one moment, e.g. to export them
+ * on another thread while the showing itself keeps being edited and sold on the JavaFX Application Thread.
+ *
+ * @param id            The unique identifier of the showing.
+ * @param startDateTime The start date and time of the showing.
+ * @param endDateTime   The end date and time of the showing.
+ * @param title         The title of the movie being shown.
+ * @param roomId        The ID of the room the showing runs in.
+ * @param seatsLeft     The number of seats that were neither sold nor held.
+ */
+public record ShowingDetails(int id, LocalDateTime startDateTime, LocalDateTime endDateTime, String title, int roomId,
+                             int seatsLeft) {
+    /**
+     * @param showing A showing.
+     * @return The details of the showing as they are now; the seat map is not copied.
+     */
+    public static ShowingDetails of(Showing showing) {
+        return new ShowingDetails(showing.getId(), showing.getStartDateTime(), showing.getEndDateTime(),
+                showing.getTitle(), showing.getRoomId(), showing.getSeatsLeft());
+    }
+}
@@ -0,0 +1,185 @@
+package nl.inholland.model;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * The ShowingSchedule class indexes showings by the time they run, so the showings overlapping a period in a room can
+ * be found without looking at every showing.
+ * Each room has its own index of its showings sorted by start time, together with the longest duration of its
+ * showings. A showing that overlaps a period must start before the period ends and no earlier than the longest
+ * duration before it starts, so an overlap query only visits that range of one room: O(log n + k), where n is the
+ * number of showings in the room and k the number of them starting in the range.
+ * Showings starting after a moment or on a date are returned as read-only views of the index, which cost a lookup
+ * to create and nothing to keep, however many other showings are indexed.
+ * <p>
+ * The index remembers the start, room and duration each showing had when it was indexed, as showings are edited in place
+ * before they are saved; add a showing again once it has been changed.
+ */
+public class ShowingSchedule {
+    // The indexed showings of all rooms, sorted by start time and then by ID
+    private final NavigableMap<Slot, Showing> byStart = new TreeMap<>();
+    // The slot, room and duration of each indexed showing, by showing ID
+    private final Map<Integer, Entry> entriesById = new HashMap<>();
+    // The index of each room that has showings, by room ID
+    private final Map<Integer, RoomIndex> rooms = new HashMap<>();
+
+    /**
+     * Constructs a new ShowingSchedule instance indexing the given showings.
+     *
+     * @param showings The showings to index.
+     */
+    public ShowingSchedule(List<Showing> showings) {
+        for (Showing showing : showings) {
+            add(showing);
+        }
+    }
+
+    /**
+     * Adds a showing to the index, or moves it if a showing with the same ID is already indexed.
+     *
+     * @param showing The showing to index at its current start time and duration.
+     */
+    public void add(Showing showing) {
+        remove(showing.getId());
+
+        Slot slot = new Slot(showing.getStartDateTime(), showing.getId());
+        int duration = showing.getDuration().toSecondOfDay();
+        RoomIndex room = rooms.computeIfAbsent(showing.getRoomId(), roomId -> new RoomIndex());
+
+        byStart.put(slot, showing);
+        entriesById.put(showing.getId(), new Entry(slot, showing.getRoomId(), duration));
+        room.byStart.put(slot, showing);
+        room.durations.merge(duration, 1, Integer::sum);
+    }
+
+    /**
+     * Removes a showing from the index.
+     *
+     * @param showingId The ID of the showing.
+     */
+    public void remove(int showingId) {
+        Entry entry = entriesById.remove(showingId);
+
+        if (entry != null) {
+            RoomIndex room = rooms.get(entry.roomId());
+            byStart.remove(entry.slot());
+            room.byStart.remove(entry.slot());
+            room.durations.computeIfPresent(entry.duration(), (duration, count) -> count == 1 ? null : count - 1);
+
+            if (room.byStart.isEmpty()) {
+                rooms.remove(entry.roomId());
+            }
+        }
+    }
+
+    /**
+     * Finds the showings that run in a room during a period, i.e. that start before it ends and end after it starts.
+     *
+     * @param roomId The ID of the room.
+     * @param start  The start of the period.
+     * @param end    The end of the period.
+     * @return The overlapping showings, sorted by start time.
+     */
+    public List<Showing> findOverlapping(int roomId, LocalDateTime start, LocalDateTime end) {
+        List<Showing> overlapping = new ArrayList<>();
+        RoomIndex room = rooms.get(roomId);
+
+        if (room == null || !start.isBefore(end)) {
+            return overlapping;
+        }
+
+        Slot from = new Slot(start.minusSeconds(room.durations.lastKey()), Integer.MIN_VALUE);
+        Slot to = new Slot(end, Integer.MIN_VALUE);
+
+        for (Map.Entry<Slot, Showing> indexed : room.byStart.subMap(from, true, to, false).entrySet()) {
+            Slot slot = indexed.getKey();
+            LocalDateTime indexedEnd = slot.start().plusSeconds(entriesById.get(slot.showingId()).duration());
+
+            if (indexedEnd.isAfter(start)) {
+                overlapping.add(indexed.getValue());
+            }
+        }
+
+        return overlapping;
+    }
+
+    /**
+     * @param dateTime The moment to look from.
+     * @return A read-only view of the showings that start after the moment, sorted by start time.
+     */
+    public Collection<Showing> startingAfter(LocalDateTime dateTime) {
+        return Collections.unmodifiableCollection(byStart.tailMap(new Slot(dateTime, Integer.MAX_VALUE), false).values());
+    }
+
+    /**
+     * @param after The moment after which the showings start.
+     * @param until The last moment at which the showings start.
+     * @return A read-only view of the showings that start after the first and not after the second moment, sorted
+     * by start time.
+     */
+    public Collection<Showing> startingBetween(LocalDateTime after, LocalDateTime until) {
+        Slot from = new Slot(after, Integer.MAX_VALUE);
+        Slot to = new Slot(until, Integer.MAX_VALUE);
+        return Collections.unmodifiableCollection(byStart.subMap(from, false, to, true).values());
+    }
+
+    /**
+     * @param date The date.
+     * @return A read-only view of the showings that start on the date, sorted by start time.
+     */
+    public Collection<Showing> startingOn(LocalDate date) {
+        Slot from = new Slot(date.atStartOfDay(), Integer.MIN_VALUE);
+        Slot to = new Slot(date.plusDays(1).atStartOfDay(), Integer.MIN_VALUE);
+        return Collections.unmodifiableCollection(byStart.subMap(from, true, to, false).values());
+    }
+
+    /**
+     * @return The number of indexed showings.
+     */
+    public int size() {
+        return byStart.size();
+    }
+
+    /**
+     * The position of a showing in the index.
+     *
+     * @param start     The start time of the showing when it was indexed.
+     * @param showingId The ID of the showing, which tells showings starting at the same time apart.
+     */
+    private record Slot(LocalDateTime start, int showingId) implements Comparable<Slot> {
+        @Override
+        public int compareTo(Slot other) {
+            int byTime = start.compareTo(other.start);
+            return byTime != 0 ? byTime : Integer.compare(showingId, other.showingId);
+        }
+    }
+
+    /**
+     * Where a showing is indexed.
+     *
+     * @param slot     The slot of the showing.
+     * @param roomId   The ID of the room of the showing when it was indexed.
+     * @param duration The duration of the showing in seconds when it was indexed.
+     */
+    private record Entry(Slot slot, int roomId, int duration) {
+    }
+
+    /**
+     * The index of the showings of one room.
+     */
+    private static final class RoomIndex {
+        // The showings of the room, sorted by start time and then by ID
+        private final NavigableMap<Slot, Showing> byStart = new TreeMap<>();
+        // The number of showings of the room per duration in seconds, whose highest key is the longest duration
+        private final NavigableMap<Integer, Integer> durations = new TreeMap<>();
+    }
+}
@@ -0,0 +1,238 @@
+package nl.inholland.model;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * The TitleIndex class finds showings whose title contains a search text, ignoring case and accents, so
+ * "folie a deux" finds "Joker: Folie à Deux".
+ * Titles are normalized once when a showing is indexed and split into trigrams, the overlapping sequences of three
+ * characters. A search looks up the showings that have every trigram of the search text, starting with the rarest
+ * trigram, and only compares the titles of those candidates, instead of comparing every title.
+ * <p>
+ * The index is updated one showing at a time as showings change. It is safe to search from another thread while
+ * it is being updated; every change increments its version, which tells a {@link Search} when its previous result
+ * can no longer be narrowed down.
+ */
+public class TitleIndex {
+    // The number of characters in a trigram
+    private static final int GRAM = 3;
+    // Combining marks, which are left over from accented letters after decomposing them
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    // The indexed showings by ID
+    private final Map<Integer, Showing> showingsById = new HashMap<>();
+    // The normalized title of each indexed showing, by showing ID
+    private final Map<Integer, String> titlesById = new HashMap<>();
+    // The IDs of the showings whose normalized title contains a trigram, by trigram
+    private final Map<Long, Set<Integer>> postings = new HashMap<>();
+    // Incremented on every change of the index
+    private long version;
+
+    /**
+     * Constructs a new TitleIndex instance indexing the given showings.
+     *
+     * @param showings The showings to index.
+     */
+    public TitleIndex(List<Showing> showings) {
+        for (Showing showing : showings) {
+            add(showing);
+        }
+    }
+
+    /**
+     * Brings a title into the form in which it is indexed and searched: lower case, without accents.
+     *
+     * @param text The text to normalize.
+     * @return The normalized text.
+     */
+    public static String normalize(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Adds a showing to the index, or indexes its current title again if it is already indexed.
+     *
+     * @param showing The showing to index.
+     */
+    public synchronized void add(Showing showing) {
+        remove(showing.getId());
+
+        String title = normalize(showing.getTitle());
+        showingsById.put(showing.getId(), showing);
+        titlesById.put(showing.getId(), title);
+
+        for (int i = 0; i + GRAM <= title.length(); i++) {
+            postings.computeIfAbsent(trigram(title, i), key -> new HashSet<>()).add(showing.getId());
+        }
+
+        version++;
+    }
+
+    /**
+     * Removes a showing from the index.
+     *
+     * @param showingId The ID of the showing.
+     */
+    public synchronized void remove(int showingId) {
+        String title = titlesById.remove(showingId);
+
+        if (title == null) {
+            return;
+        }
+
+        showingsById.remove(showingId);
+
+        for (int i = 0; i + GRAM <= title.length(); i++) {
+            long key = trigram(title, i);
+            Set<Integer> ids = postings.get(key);
+
+            if (ids != null && ids.remove(showingId) && ids.isEmpty()) {
+                postings.remove(key);
+            }
+        }
+
+        version++;
+    }
+
+    /**
+     * Finds the showings whose title contains a text, ignoring case and accents.
+     *
+     * @param text The text to search for.
+     * @return The showings whose title contains the text.
+     */
+    public List<Showing> search(String text) {
+        return search(normalize(text), null);
+    }
+
+    /**
+     * @return The number of changes made to the index so far.
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * Finds the showings whose normalized title contains a normalized text.
+     *
+     * @param text       The normalized text to search for.
+     * @param candidates The showings to search among, or null to use the trigrams of the text to find them.
+     * @return The showings whose title contains the text.
+     */
+    private synchronized List<Showing> search(String text, List<Showing> candidates) {
+        List<Showing> found = new ArrayList<>();
+
+        if (candidates != null) {
+            for (Showing showing : candidates) {
+                String title = titlesById.get(showing.getId());
+
+                if (title != null && title.contains(text)) {
+                    found.add(showing);
+                }
+            }
+        } else if (text.length() < GRAM) {
+            // Too short to have a trigram, so every title is compared
+            for (Map.Entry<Integer, String> entry : titlesById.entrySet()) {
+                if (entry.getValue().contains(text)) {
+                    found.add(showingsById.get(entry.getKey()));
+                }
+            }
+        } else {
+            for (int id : candidateIds(text)) {
+                if (titlesById.get(id).contains(text)) {
+                    found.add(showingsById.get(id));
+                }
+            }
+        }
+
+        return found;
+    }
+
+    /**
+     * @param text The normalized text to search for, at least a trigram long.
+     * @return The IDs of the showings whose title has every trigram of the text.
+     */
+    private Set<Integer> candidateIds(String text) {
+        List<Set<Integer>> lists = new ArrayList<>();
+
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            Set<Integer> ids = postings.get(trigram(text, i));
+
+            if (ids == null) {
+                return Set.of();
+            }
+
+            lists.add(ids);
+        }
+
+        lists.sort(Comparator.comparingInt(Set::size));
+        Set<Integer> candidates = new HashSet<>(lists.getFirst());
+
+        for (int i = 1; i < lists.size() && !candidates.isEmpty(); i++) {
+            candidates.retainAll(lists.get(i));
+        }
+
+        return candidates;
+    }
+
+    /**
+     * @param text  The text.
+     * @param start The index of the first character of the trigram.
+     * @return The three characters starting at the index, packed into one number.
+     */
+    private static long trigram(String text, int start) {
+        return (long) text.charAt(start) << 32 | (long) text.charAt(start + 1) << 16 | text.charAt(start + 2);
+    }
+
+    /**
+     * The Search class runs the searches of one search box against a title index. When the search text is
+     * narrowed, e.g. because another character was typed, and the index has not changed since the previous search,
+     * only the showings found by the previous search are compared again.
+     */
+    public static class Search {
+        // The index to search
+        private final TitleIndex index;
+        // The normalized text of the previous search, or null if there was none
+        private String previousText;
+        // The showings found by the previous search
+        private List<Showing> previousResult;
+        // The version of the index at the previous search
+        private long previousVersion;
+
+        /**
+         * Constructs a new Search instance.
+         *
+         * @param index The index to search.
+         */
+        public Search(TitleIndex index) {
+            this.index = index;
+        }
+
+        /**
+         * Finds the showings whose title contains a text, ignoring case and accents.
+         *
+         * @param text The text to search for.
+         * @return The showings whose title contains the text.
+         */
+        public synchronized List<Showing> search(String text) {
+            String normalized = normalize(text);
+            long version = index.getVersion();
+            boolean narrowed = previousText != null && version == previousVersion && normalized.contains(previousText);
+
+            previousResult = index.search(normalized, narrowed ? previousResult : null);
+            previousText = normalized;
+            previousVersion = version;
+            return Collections.unmodifiableList(previousResult);
+        }
+    }
+}
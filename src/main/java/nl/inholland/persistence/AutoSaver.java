@@ -0,0 +1,205 @@
+package nl.inholland.persistence;
+
+import nl.inholland.Database;
+import nl.inholland.metrics.Counter;
+import nl.inholland.metrics.LatencyHistogram;
+import nl.inholland.metrics.Metrics;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The AutoSaver class periodically writes a snapshot of the {@link Database} in the background.
+ * A snapshot is written once the number of unsaved changes reaches the dirty threshold, or once the save interval
+ * has passed with at least one unsaved change.
+ * <p>
+ * Only taking the point-in-time {@link Database#copy() copy} happens on the thread that mutates the database;
+ * encoding, forcing the file to disk and the atomic rename run on a background thread, so cashiers are not paused
+ * while a snapshot is written. Once the snapshot is durable, the journal records it reflects are discarded, and the
+ * database takes over the history segments it wrote, so the next snapshot does not write those showings again.
+ */
+public class AutoSaver implements AutoCloseable {
+    // How often the number of unsaved changes is checked
+    private static final Duration CHECK_INTERVAL = Duration.ofSeconds(1);
+
+    // Logger used to report failed background saves
+    private static final System.Logger LOGGER = System.getLogger(AutoSaver.class.getName());
+    // Latency of writing a snapshot, exposed through JMX
+    private static final LatencyHistogram SAVE_LATENCY = Metrics.histogram("persistence", "save");
+    // Number of snapshots that could not be written
+    private static final Counter SAVE_FAILURES = Metrics.counter("persistence", "saveFailures");
+
+    // The database to save
+    private final Database database;
+    // The journal whose records are discarded once they are reflected in a snapshot
+    private final Journal journal;
+    // The path of the snapshot file
+    private final Path snapshotPath;
+    // The maximum time unsaved changes are kept only in the journal
+    private final Duration saveInterval;
+    // The number of unsaved changes that triggers a snapshot before the interval has passed
+    private final long dirtyThreshold;
+    // Runs tasks on the thread that mutates the database
+    private final Executor databaseThread;
+    // Runs the periodic checks and the background saves
+    private final ScheduledExecutorService scheduler;
+
+    // Modification count of the database reflected in the last snapshot; changes replayed from the journal
+    // at startup count as unsaved
+    private volatile long savedModificationCount;
+    // The time the last snapshot was written
+    private volatile Instant lastSaveTime = Instant.now();
+    // The time it took to encode, force and rename the last snapshot
+    private volatile Duration lastSaveLatency = Duration.ZERO;
+
+    /**
+     * Constructs a new AutoSaver instance. Call {@link #start()} to begin saving in the background.
+     *
+     * @param database       The database to save.
+     * @param journal        The journal attached to the database.
+     * @param snapshotPath   The path of the snapshot file.
+     * @param saveInterval   The maximum time unsaved changes are kept only in the journal.
+     * @param dirtyThreshold The number of unsaved changes that triggers a snapshot before the interval has passed.
+     * @param databaseThread Runs tasks on the thread that mutates the database, e.g. {@code Platform::runLater}.
+     */
+    public AutoSaver(Database database, Journal journal, Path snapshotPath, Duration saveInterval, long dirtyThreshold,
+                     Executor databaseThread) {
+        this.database = database;
+        this.journal = journal;
+        this.snapshotPath = snapshotPath;
+        this.saveInterval = saveInterval;
+        this.dirtyThreshold = dirtyThreshold;
+        this.databaseThread = databaseThread;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "autosave");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts checking for unsaved changes in the background.
+     */
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::saveIfDue,
+                CHECK_INTERVAL.toMillis(), CHECK_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Writes a snapshot immediately on the calling thread, which must be the thread that mutates the database.
+     */
+    public void saveNow() {
+        while (!save(capture())) {
+            // A background save moved showings to the history after the copy was taken, so take a new one
+        }
+    }
+
+    /**
+     * @return The time the last snapshot was written.
+     */
+    public Instant getLastSaveTime() {
+        return lastSaveTime;
+    }
+
+    /**
+     * @return The time it took to encode, force and rename the last snapshot.
+     */
+    public Duration getLastSaveLatency() {
+        return lastSaveLatency;
+    }
+
+    /**
+     * @return The number of changes not yet reflected in a snapshot.
+     */
+    public long getUnsavedChanges() {
+        return database.getModificationCount() - savedModificationCount;
+    }
+
+    /**
+     * Stops the background saves. Does not wait for a save in progress, because it may be waiting for a copy from
+     * the calling thread; a following {@link #saveNow()} waits for it instead.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdown();
+    }
+
+    /**
+     * Writes a snapshot in the background if enough changes have accumulated or the save interval has passed.
+     */
+    private void saveIfDue() {
+        long unsavedChanges = getUnsavedChanges();
+        boolean intervalPassed = Duration.between(lastSaveTime, Instant.now()).compareTo(saveInterval) >= 0;
+
+        if (unsavedChanges >= dirtyThreshold || (unsavedChanges > 0 && intervalPassed)) {
+            try {
+                // A copy taken before the last save moved showings to the history is retried on the next check
+                save(CompletableFuture.supplyAsync(this::capture, databaseThread).join());
+            } catch (RuntimeException e) {
+                // Keep the changes in the journal and retry on the next check
+                LOGGER.log(System.Logger.Level.WARNING, "Autosave failed", e);
+            }
+        }
+    }
+
+    /**
+     * A point-in-time copy of the database together with the modification count it reflects.
+     *
+     * @param copy              The copy of the database.
+     * @param modificationCount The modification count of the database when the copy was taken.
+     */
+    private record Capture(Database copy, long modificationCount) {
+    }
+
+    /**
+     * Takes a point-in-time copy of the database. Must run on the thread that mutates the database.
+     *
+     * @return The copy and the modification count it reflects.
+     */
+    private Capture capture() {
+        return new Capture(database.copy(), database.getModificationCount());
+    }
+
+    /**
+     * Writes the captured copy as the new snapshot, discards the journal records it reflects and lets the database
+     * take over the history segments of the snapshot.
+     *
+     * @param capture A point-in-time copy of the database.
+     * @return False if the copy was taken before the last snapshot moved showings to the history, in which case
+     * nothing is written, as its snapshot would refer to segments that have been replaced; true otherwise.
+     */
+    private synchronized boolean save(Capture capture) {
+        if (capture.copy().getArchive() != database.getArchive()) {
+            return false;
+        }
+        if (capture.modificationCount() < savedModificationCount) {
+            // A newer snapshot has been written in the meantime
+            return true;
+        }
+
+        long start = System.nanoTime();
+
+        try {
+            SnapshotCodec.write(capture.copy(), snapshotPath);
+        } catch (IOException e) {
+            SAVE_FAILURES.increment();
+            throw new RuntimeException("Error saving the database: " + e.getMessage(), e);
+        }
+
+        database.adoptArchive(capture.copy());
+        journal.discardThrough(capture.copy().getJournalSequence());
+
+        savedModificationCount = Math.max(savedModificationCount, capture.modificationCount());
+        lastSaveTime = Instant.now();
+        lastSaveLatency = Duration.ofNanos(System.nanoTime() - start);
+        SAVE_LATENCY.record(lastSaveLatency.toNanos());
+        return true;
+    }
+}
@@ -0,0 +1,34 @@
+package nl.inholland.persistence;
+
+import nl.inholland.Database;
+import nl.inholland.analytics.SalesTotals;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * The HistoryPartition class describes the cold partition of a snapshot: showings that started a while ago and
+ * their sales. It is stored in immutable segment files next to the snapshot and is only read when it is needed,
+ * so startup time and heap use do not grow with the length of the history.
+ *
+ * @param segments     The segment files holding the partition, in the order they were written.
+ * @param sellCount    The number of sells in the partition.
+ * @param maxShowingId The highest showing ID in the partition, or -1 if it holds no showings.
+ * @param latestEnd    The end of the showing in the partition that ends last, or {@link LocalDateTime#MIN} if it
+ *                     holds no showings.
+ * @param totals       The ticket totals of the showings in the partition, which must not be modified.
+ */
+public record HistoryPartition(List<Path> segments, int sellCount, int maxShowingId, LocalDateTime latestEnd,
+                               SalesTotals totals) {
+    /**
+     * Reads every segment of the partition.
+     *
+     * @return A database holding the showings and sells of the partition, without users.
+     * @throws IOException If a segment cannot be read.
+     */
+    public Database load() throws IOException {
+        return SnapshotCodec.readHistory(this);
+    }
+}
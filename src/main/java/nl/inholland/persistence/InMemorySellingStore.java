@@ -0,0 +1,58 @@
+package nl.inholland.persistence;
+
+import nl.inholland.model.Selling;
+import nl.inholland.model.Showing;
+
+import java.io.Serial;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.function.IntFunction;
+
+/**
+ * The InMemorySellingStore class keeps every sell on the heap. The sells are written as part of each snapshot,
+ * so this store suits small databases and tests.
+ */
+public class InMemorySellingStore extends ArrayList<Selling> implements SellingStore {
+    // This constant is used to keep track of the version
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructs a new, empty InMemorySellingStore instance.
+     */
+    public InMemorySellingStore() {
+    }
+
+    /**
+     * Constructs an InMemorySellingStore instance holding the given sells.
+     *
+     * @param sells The sells to hold, in the order of their IDs.
+     */
+    public InMemorySellingStore(Collection<Selling> sells) {
+        super(sells);
+    }
+
+    @Override
+    public boolean isDurable() {
+        return false;
+    }
+
+    @Override
+    public void force() {
+    }
+
+    @Override
+    public void truncate(int size) {
+        subList(size, size()).clear();
+    }
+
+    @Override
+    public SellingStore copy() {
+        return new InMemorySellingStore(this);
+    }
+
+    @Override
+    public void setShowingResolver(IntFunction<Showing> showingResolver) {
+        // Sells in memory keep a reference to their showing
+    }
+}
@@ -0,0 +1,601 @@
+package nl.inholland.persistence;
+
+import nl.inholland.Database;
+import nl.inholland.model.Room;
+import nl.inholland.model.SeatMap;
+import nl.inholland.model.Selling;
+import nl.inholland.model.Showing;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * The Journal class is an append-only write-ahead log of {@link Database} mutations.
+ * Every mutation is appended as a small, checksummed record as soon as it happens, so a crash loses at most
+ * the record that was being written. On startup the journal is replayed on top of the last snapshot, and after
+ * a new snapshot has been written the journal is truncated (compacted).
+ * <p>
+ * Each record consists of the body length, the body (sequence number, entry type and payload) and a CRC32
+ * checksum of the body. Records with a sequence number that is already reflected in the snapshot are skipped
+ * during replay, which keeps replay correct if the application stops between writing a snapshot and truncating
+ * the journal. A torn record at the end of the file is discarded.
+ * <p>
+ * Records are appended before the mutation is applied. If a record cannot be written, the append throws an
+ * {@link UncheckedIOException} and leaves the journal as it was, so the database can leave its state unchanged too.
+ */
+public class Journal implements Closeable {
+    // The types of mutations that can be recorded
+    private enum EntryType {
+        ADD_SHOWING,
+        UPDATE_SHOWING,
+        DELETE_SHOWING,
+        ADD_SELLING,
+        SELL_TICKET,
+        BOOK_SEATS
+    }
+
+    // Logger used to report records that are skipped while replaying
+    private static final System.Logger LOGGER = System.getLogger(Journal.class.getName());
+
+    // Size of the length prefix and the checksum that surround every record body
+    private static final int LENGTH_SIZE = Integer.BYTES;
+    private static final int CHECKSUM_SIZE = Integer.BYTES;
+
+    // The path of the journal file
+    private final Path path;
+    // The channel the records are appended to
+    private FileChannel channel;
+    // Sequence number of the last record in the journal
+    private long lastSequence;
+
+    /**
+     * Constructs a new Journal instance on top of an opened channel.
+     *
+     * @param path         The path of the journal file.
+     * @param channel      The channel positioned at the end of the last valid record.
+     * @param lastSequence The sequence number of the last record written so far.
+     */
+    private Journal(Path path, FileChannel channel, long lastSequence) {
+        this.path = path;
+        this.channel = channel;
+        this.lastSequence = lastSequence;
+    }
+
+    /**
+     * Opens the journal at the given path, creating it if it does not exist, and replays every record
+     * that is newer than the state of the given database onto it.
+     * The database must not have a journal attached while it is being replayed.
+     *
+     * @param path     The path of the journal file.
+     * @param database The database restored from the last snapshot.
+     * @return The opened journal, ready to append new records.
+     * @throws IOException If the journal cannot be read or opened.
+     */
+    public static Journal open(Path path, Database database) throws IOException {
+        long validLength = 0;
+        long lastSequence = database.getJournalSequence();
+
+        if (Files.exists(path)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+                byte[] body;
+
+                while ((body = readRecord(in)) != null) {
+                    long sequence = replayRecord(body, database);
+                    lastSequence = Math.max(lastSequence, sequence);
+                    validLength += LENGTH_SIZE + body.length + CHECKSUM_SIZE;
+                }
+            }
+        }
+
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        // Drop a torn record left behind by an interrupted write
+        channel.truncate(validLength);
+        channel.position(validLength);
+
+        return new Journal(path, channel, lastSequence);
+    }
+
+    /**
+     * Appends a record for a showing that was added.
+     *
+     * @param showing The added showing.
+     * @return The sequence number of the appended record.
+     */
+    public long appendAddShowing(Showing showing) {
+        return append(EntryType.ADD_SHOWING, out -> writeAddedShowing(out, showing));
+    }
+
+    /**
+     * Appends a record for each showing of a batch that was added, forcing them to disk at once.
+     *
+     * @param showings The added showings, in the order they were added.
+     * @return The sequence number of the last appended record.
+     */
+    public long appendAddShowings(List<Showing> showings) {
+        List<PayloadWriter> payloads = new ArrayList<>(showings.size());
+
+        for (Showing showing : showings) {
+            payloads.add(out -> writeAddedShowing(out, showing));
+        }
+
+        return appendAll(EntryType.ADD_SHOWING, payloads);
+    }
+
+    /**
+     * Appends a record for a showing that was updated.
+     *
+     * @param showing The updated showing.
+     * @return The sequence number of the appended record.
+     */
+    public long appendUpdateShowing(Showing showing) {
+        return append(EntryType.UPDATE_SHOWING, out -> {
+            writeShowingDetails(out, showing);
+            out.writeInt(showing.getRoomId());
+        });
+    }
+
+    /**
+     * Appends a record for a showing that was deleted.
+     *
+     * @param showingId The ID of the deleted showing.
+     * @return The sequence number of the appended record.
+     */
+    public long appendDeleteShowing(int showingId) {
+        return append(EntryType.DELETE_SHOWING, out -> out.writeInt(showingId));
+    }
+
+    /**
+     * Appends a record for a selling that was added.
+     *
+     * @param selling The added selling.
+     * @return The sequence number of the appended record.
+     */
+    public long appendAddSelling(Selling selling) {
+        return append(EntryType.ADD_SELLING, out -> writeSelling(out, selling));
+    }
+
+    /**
+     * Appends a record for a booking, a selling whose seats were claimed at once. Unlike
+     * {@link #appendAddSelling(Selling)} followed by {@link #appendSellTicket(int, int[])}, the selling and its
+     * seats are recorded in a single record, so a crash cannot leave one without the other.
+     *
+     * @param selling The committed selling.
+     * @return The sequence number of the appended record.
+     */
+    public long appendBookSeats(Selling selling) {
+        return append(EntryType.BOOK_SEATS, out -> writeSelling(out, selling));
+    }
+
+    /**
+     * Appends a record for a seat that was sold.
+     *
+     * @param showingId The ID of the showing.
+     * @param seat      The coordinates of the sold seat.
+     * @return The sequence number of the appended record.
+     */
+    public long appendSellTicket(int showingId, int[] seat) {
+        return append(EntryType.SELL_TICKET, out -> {
+            out.writeInt(showingId);
+            out.writeInt(seat[0]);
+            out.writeInt(seat[1]);
+        });
+    }
+
+    /**
+     * @return The current size of the journal in bytes.
+     */
+    public synchronized long size() {
+        try {
+            return channel.size();
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading the journal size: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Discards the records up to and including the given sequence number.
+     * Must only be called after a snapshot reflecting those records has been written. Records appended after the
+     * snapshot was taken are kept: they are copied to a new journal file, which atomically replaces the old one.
+     *
+     * @param sequence The journal sequence number reflected in the written snapshot.
+     */
+    public synchronized void discardThrough(long sequence) {
+        try {
+            if (sequence >= lastSequence) {
+                channel.truncate(0);
+                channel.position(0);
+                channel.force(true);
+                return;
+            }
+
+            ByteBuffer records = ByteBuffer.allocate((int) channel.size());
+            channel.read(records, 0);
+            records.flip();
+
+            // Skip the records reflected in the snapshot; the sequence number leads every record body
+            while (records.remaining() > LENGTH_SIZE && records.getLong(records.position() + LENGTH_SIZE) <= sequence) {
+                records.position(records.position() + LENGTH_SIZE + records.getInt(records.position()) + CHECKSUM_SIZE);
+            }
+
+            Path temporaryPath = path.resolveSibling(path.getFileName() + ".tmp");
+            try (FileChannel temporary = FileChannel.open(temporaryPath, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (records.hasRemaining()) {
+                    temporary.write(records);
+                }
+                temporary.force(true);
+            }
+
+            channel.close();
+            Files.move(temporaryPath, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            channel.position(channel.size());
+        } catch (IOException e) {
+            throw new RuntimeException("Error compacting the journal: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Closes the underlying file.
+     *
+     * @throws IOException If an I/O error occurs while closing.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Writes the entry-specific payload of a record.
+     */
+    @FunctionalInterface
+    private interface PayloadWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * Encodes a record, appends it to the journal and forces it to disk.
+     *
+     * @param type    The type of the entry.
+     * @param payload Writes the entry-specific payload.
+     * @return The sequence number of the appended record.
+     */
+    private long append(EntryType type, PayloadWriter payload) {
+        return appendAll(type, List.of(payload));
+    }
+
+    /**
+     * Encodes records of the same type, appends them to the journal with a single write and forces them to disk
+     * once, so a batch costs one disk flush instead of one per record.
+     * If the records cannot be written, the journal is cut back to where they started, so no torn record is left
+     * in front of the records appended later.
+     *
+     * @param type     The type of the entries.
+     * @param payloads Write the entry-specific payloads, one per record.
+     * @return The sequence number of the last appended record.
+     * @throws UncheckedIOException If the records cannot be written; none of them is then in the journal.
+     */
+    private synchronized long appendAll(EntryType type, List<PayloadWriter> payloads) {
+        long start = -1;
+
+        try {
+            start = channel.position();
+            long sequence = lastSequence;
+
+            ByteArrayOutputStream records = new ByteArrayOutputStream(64 * payloads.size());
+            DataOutputStream recordsOut = new DataOutputStream(records);
+
+            for (PayloadWriter payload : payloads) {
+                sequence++;
+
+                ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream(64);
+                DataOutputStream out = new DataOutputStream(bodyBytes);
+                out.writeLong(sequence);
+                out.writeByte(type.ordinal());
+                payload.write(out);
+                byte[] body = bodyBytes.toByteArray();
+
+                CRC32 crc = new CRC32();
+                crc.update(body);
+
+                recordsOut.writeInt(body.length);
+                recordsOut.write(body);
+                recordsOut.writeInt((int) crc.getValue());
+            }
+
+            ByteBuffer buffer = ByteBuffer.wrap(records.toByteArray());
+
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+
+            lastSequence = sequence;
+            return sequence;
+        } catch (IOException e) {
+            if (start >= 0) {
+                discardFrom(start, e);
+            }
+
+            throw new UncheckedIOException("Error writing to the journal: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Cuts the journal back to the given position after a failed write. A failure to do so is added to the
+     * failure of the write, as the next append may then follow a torn record.
+     *
+     * @param position The position the failed write started at.
+     * @param failure  The failure of the write.
+     */
+    private void discardFrom(long position, IOException failure) {
+        try {
+            channel.truncate(position);
+            channel.position(position);
+        } catch (IOException e) {
+            failure.addSuppressed(e);
+        }
+    }
+
+    /**
+     * Reads the next record body and verifies its checksum.
+     *
+     * @param in The stream to read from.
+     * @return The record body, or null at the end of the journal or at a torn or corrupted record.
+     * @throws IOException If an I/O error occurs while reading.
+     */
+    private static byte[] readRecord(DataInputStream in) throws IOException {
+        try {
+            int length = in.readInt();
+
+            if (length <= 0) {
+                return null;
+            }
+
+            byte[] body = in.readNBytes(length);
+
+            if (body.length < length) {
+                return null;
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(body);
+
+            return in.readInt() == (int) crc.getValue() ? body : null;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Applies a record to the database unless its effect is already part of the database state.
+     *
+     * @param body     The record body.
+     * @param database The database to apply the record to.
+     * @return The sequence number of the record.
+     * @throws IOException If the record cannot be decoded.
+     */
+    private static long replayRecord(byte[] body, Database database) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+        long sequence = in.readLong();
+        EntryType type = EntryType.values()[in.readByte()];
+
+        if (sequence <= database.getJournalSequence()) {
+            return sequence;
+        }
+
+        switch (type) {
+            case ADD_SHOWING -> {
+                in.readInt(); // The ID is assigned again by the database in the same order
+                LocalDateTime startDateTime = readDateTime(in);
+                LocalTime duration = LocalTime.ofSecondOfDay(in.readInt());
+                String title = in.readUTF();
+                boolean isAgeChecked = in.readBoolean();
+                in.readInt(); // The number of tickets sold follows from the seats
+                int rows = in.readInt();
+                int columns = in.readInt();
+                long[] words = new long[SeatMap.wordCount(rows, columns)];
+
+                for (int i = 0; i < words.length; i++) {
+                    words[i] = in.readLong();
+                }
+
+                SeatMap seats = new SeatMap(rows, columns, words);
+
+                database.addUpdateShowing(new Showing(-1, startDateTime, duration, title, readRoomId(in), seats, isAgeChecked));
+            }
+            case UPDATE_SHOWING -> {
+                Showing showing = findReplayedShowing(database, in.readInt(), sequence);
+
+                if (showing == null) {
+                    break;
+                }
+
+                showing.setStartDateTime(readDateTime(in));
+                showing.setDuration(LocalTime.ofSecondOfDay(in.readInt()));
+                showing.setTitle(in.readUTF());
+                showing.setIsAgeChecked(in.readBoolean());
+                showing.setRoom(database.findRoom(readRoomId(in)));
+                database.addUpdateShowing(showing);
+            }
+            case DELETE_SHOWING -> database.deleteShowing(database.findShowing(in.readInt()));
+            case ADD_SELLING -> database.addSelling(readSelling(in, database));
+            case SELL_TICKET -> {
+                int showingId = in.readInt();
+                int[] seat = new int[]{in.readInt(), in.readInt()};
+
+                if (findReplayedShowing(database, showingId, sequence) != null) {
+                    database.sellTicket(showingId, seat);
+                }
+            }
+            case BOOK_SEATS -> {
+                // The booking was committed, so its seats are claimed without checking them again
+                Selling selling = readSelling(in, database);
+
+                if (selling.getShowing() == null) {
+                    LOGGER.log(System.Logger.Level.WARNING, "Skipped journal record " + sequence
+                            + ": it books seats of a showing that does not exist");
+                    break;
+                }
+
+                database.addSelling(selling);
+
+                for (int[] seat : selling.getSeats()) {
+                    database.sellTicket(selling.getShowing().getId(), seat);
+                }
+            }
+        }
+
+        database.setJournalSequence(sequence);
+        return sequence;
+    }
+
+    /**
+     * Writes a showing that was added, including its sold seats as the bit words of its seat map, like the snapshot
+     * does, and its room.
+     *
+     * @param out     The output to write to.
+     * @param showing The added showing.
+     * @throws IOException If an I/O error occurs while writing.
+     */
+    private static void writeAddedShowing(DataOutputStream out, Showing showing) throws IOException {
+        writeShowingDetails(out, showing);
+        out.writeInt(showing.getTicketsSold());
+
+        SeatMap seats = showing.getSeatMap();
+        out.writeInt(seats.getRows());
+        out.writeInt(seats.getColumns());
+
+        for (long word : seats.getWords()) {
+            out.writeLong(word);
+        }
+
+        out.writeInt(showing.getRoomId());
+    }
+
+    /**
+     * Reads the room ID at the end of a showing record.
+     *
+     * @param in The input to read from.
+     * @return The room ID, or {@link Room#DEFAULT_ID} for records written before the cinema had several rooms.
+     * @throws IOException If an I/O error occurs while reading.
+     */
+    private static int readRoomId(DataInputStream in) throws IOException {
+        return in.available() >= Integer.BYTES ? in.readInt() : Room.DEFAULT_ID;
+    }
+
+    /**
+     * Writes a selling, including its seats.
+     *
+     * @param out     The output to write to.
+     * @param selling The selling to write.
+     * @throws IOException If an I/O error occurs while writing.
+     */
+    private static void writeSelling(DataOutputStream out, Selling selling) throws IOException {
+        out.writeInt(selling.getId());
+        writeDateTime(out, selling.getDateTime());
+        out.writeInt(selling.getTicketsSold());
+        out.writeInt(selling.getShowing().getId());
+        out.writeUTF(selling.getCustomer());
+        out.writeInt(selling.getSeats().size());
+
+        for (int[] seat : selling.getSeats()) {
+            out.writeInt(seat[0]);
+            out.writeInt(seat[1]);
+        }
+    }
+
+    /**
+     * Looks up the showing a replayed record refers to. A record of a showing that does not exist cannot have
+     * taken effect when it was written, so it is skipped with a warning instead of failing every startup.
+     *
+     * @param database  The database being replayed.
+     * @param showingId The ID of the showing.
+     * @param sequence  The sequence number of the record.
+     * @return The showing, or null if there is no showing with the given ID.
+     */
+    private static Showing findReplayedShowing(Database database, int showingId, long sequence) {
+        Showing showing = database.findShowing(showingId);
+
+        if (showing == null) {
+            LOGGER.log(System.Logger.Level.WARNING, "Skipped journal record " + sequence + ": showing " + showingId
+                    + " does not exist");
+        }
+
+        return showing;
+    }
+
+    /**
+     * Reads a selling written by {@link #writeSelling(DataOutputStream, Selling)}.
+     *
+     * @param in       The input to read from.
+     * @param database The database the showing of the selling is looked up in.
+     * @return The selling, without an ID; the ID is assigned again by the database in the same order.
+     * @throws IOException If an I/O error occurs while reading.
+     */
+    private static Selling readSelling(DataInputStream in, Database database) throws IOException {
+        in.readInt();
+        LocalDateTime dateTime = readDateTime(in);
+        int ticketsSold = in.readInt();
+        Showing showing = database.findShowing(in.readInt());
+        String customer = in.readUTF();
+        int seatCount = in.readInt();
+        List<int[]> seats = new ArrayList<>(seatCount);
+
+        for (int i = 0; i < seatCount; i++) {
+            seats.add(new int[]{in.readInt(), in.readInt()});
+        }
+
+        return new Selling(-1, dateTime, ticketsSold, showing, customer, seats);
+    }
+
+    /**
+     * Writes the fields of a showing that can be changed after it has been created.
+     *
+     * @param out     The output to write to.
+     * @param showing The showing to write.
+     * @throws IOException If an I/O error occurs while writing.
+     */
+    private static void writeShowingDetails(DataOutputStream out, Showing showing) throws IOException {
+        out.writeInt(showing.getId());
+        writeDateTime(out, showing.getStartDateTime());
+        out.writeInt(showing.getDuration().toSecondOfDay());
+        out.writeUTF(showing.getTitle());
+        out.writeBoolean(showing.getIsAgeChecked());
+    }
+
+    /**
+     * Writes a date and time without loss of precision.
+     *
+     * @param out      The output to write to.
+     * @param dateTime The date and time to write.
+     * @throws IOException If an I/O error occurs while writing.
+     */
+    private static void writeDateTime(DataOutputStream out, LocalDateTime dateTime) throws IOException {
+        out.writeLong(dateTime.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(dateTime.getNano());
+    }
+
+    /**
+     * Reads a date and time written by {@link #writeDateTime(DataOutputStream, LocalDateTime)}.
+     *
+     * @param in The input to read from.
+     * @return The date and time.
+     * @throws IOException If an I/O error occurs while reading.
+     */
+    private static LocalDateTime readDateTime(DataInputStream in) throws IOException {
+        return LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+    }
+}
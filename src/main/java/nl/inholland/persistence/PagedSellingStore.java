@@ -0,0 +1,515 @@
+package nl.inholland.persistence;
+
+import nl.inholland.model.Selling;
+import nl.inholland.model.Showing;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.IntFunction;
+
+/**
+ * The PagedSellingStore class keeps the sells in a file of fixed-size records, so the sell at any position is found
+ * without an index. Records are read a page at a time and the most recently used pages are kept in a small cache;
+ * the least recently used page is evicted once the cache is full, so memory use is bounded no matter how long the
+ * sales history grows.
+ * <p>
+ * Layout of a record, all numbers big-endian:
+ * <pre>
+ * id (int), date and time (int, epoch minutes), tickets sold (int), showing id (int, -1 if none),
+ * flags (byte), customer length (byte), seat count (short), overflow offset (long, the overflow end if none),
+ * customer (40 bytes, UTF-8), seats (15 ints, row &lt;&lt; 16 | column)
+ * </pre>
+ * A customer or a list of seats that does not fit in the record is written to an overflow file next to the records
+ * instead, as the customer (string) followed by the seats (int[]), and the record refers to it by offset. A record
+ * without overflow data holds the end of the overflow data of the records before it instead, so the overflow file
+ * can be cut back together with the records.
+ * <p>
+ * Records are written without forcing them; the snapshot records how many sells are durable, and sells added after
+ * it are replayed from the journal after the store is truncated at startup.
+ */
+public class PagedSellingStore extends AbstractList<Selling> implements SellingStore, Closeable {
+    // The size of a record in bytes
+    static final int RECORD_SIZE = 128;
+    // The number of records read from disk at once
+    static final int RECORDS_PER_PAGE = 64;
+    // The number of bytes of the customer kept in the record itself
+    private static final int INLINE_CUSTOMER_BYTES = 40;
+    // The number of seats kept in the record itself
+    private static final int INLINE_SEATS = 15;
+    // Flag set when the customer and seats are stored in the overflow file
+    private static final byte FLAG_OVERFLOW = 1;
+    // Suffix added to the records file name to get the overflow file name
+    private static final String OVERFLOW_SUFFIX = ".overflow";
+
+    // The file holding the fixed-size records
+    private final FileChannel records;
+    // The file holding customers and seats that do not fit in a record
+    private final FileChannel overflow;
+    // The end of the overflow data of the records in the store, where the next overflow data is written
+    private long overflowEnd;
+    // Pages read from disk by page number, in least recently used order
+    private final Map<Integer, Selling[]> pageCache;
+    // Looks up the showing of a sell read from disk
+    private volatile IntFunction<Showing> showingResolver = id -> null;
+    // The number of sells in the store
+    private int size;
+
+    /**
+     * Constructs a PagedSellingStore instance on open files.
+     *
+     * @param records    The file holding the fixed-size records.
+     * @param overflow   The file holding customers and seats that do not fit in a record.
+     * @param cachePages The maximum number of pages kept in memory.
+     * @throws IOException If the files cannot be read.
+     */
+    private PagedSellingStore(FileChannel records, FileChannel overflow, int cachePages) throws IOException {
+        this.records = records;
+        this.overflow = overflow;
+        this.size = (int) (records.size() / RECORD_SIZE);
+        // Drops overflow data whose record was never written
+        this.overflowEnd = overflowEndAt(size);
+        overflow.truncate(overflowEnd);
+        this.pageCache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Selling[]> eldest) {
+                return size() > cachePages;
+            }
+        };
+    }
+
+    /**
+     * Opens the store at the given path, creating it if it does not exist. A record that was only partly written
+     * when the application stopped is discarded, and so is overflow data that no record refers to.
+     *
+     * @param path       The path of the records file.
+     * @param cachePages The maximum number of pages kept in memory.
+     * @return The opened store.
+     * @throws IOException If the files cannot be opened.
+     */
+    public static PagedSellingStore open(Path path, int cachePages) throws IOException {
+        FileChannel records = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileChannel overflow = FileChannel.open(path.resolveSibling(path.getFileName() + OVERFLOW_SUFFIX),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        records.truncate(records.size() / RECORD_SIZE * RECORD_SIZE);
+        return new PagedSellingStore(records, overflow, cachePages);
+    }
+
+    @Override
+    public synchronized Selling get(int index) {
+        Objects.checkIndex(index, size);
+        return page(index / RECORDS_PER_PAGE)[index % RECORDS_PER_PAGE];
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Appends a sell to the store. Sells can only be appended, so the index must be the size of the store.
+     *
+     * @param index   The position of the sell, which must be the size of the store.
+     * @param selling The sell to append.
+     */
+    @Override
+    public synchronized void add(int index, Selling selling) {
+        if (index != size) {
+            throw new UnsupportedOperationException("Sells can only be appended");
+        }
+
+        try {
+            ByteBuffer record = encode(selling);
+            long position = (long) size * RECORD_SIZE;
+            while (record.hasRemaining()) {
+                records.write(record, position + record.position());
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error writing to the selling store: " + e.getMessage(), e);
+        }
+
+        Selling[] page = pageCache.get(size / RECORDS_PER_PAGE);
+        if (page != null) {
+            page[size % RECORDS_PER_PAGE] = selling;
+        }
+
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public boolean isDurable() {
+        return true;
+    }
+
+    @Override
+    public void force() throws IOException {
+        // Overflow data first, so a durable record never refers to data that is not
+        overflow.force(false);
+        records.force(false);
+    }
+
+    @Override
+    public synchronized void truncate(int size) throws IOException {
+        if (size < this.size) {
+            records.truncate((long) size * RECORD_SIZE);
+            overflowEnd = overflowEndAt(size);
+            overflow.truncate(overflowEnd);
+            this.size = size;
+            pageCache.clear();
+            modCount++;
+        }
+    }
+
+    @Override
+    public synchronized SellingStore copy() {
+        return new View(size);
+    }
+
+    @Override
+    public void setShowingResolver(IntFunction<Showing> showingResolver) {
+        this.showingResolver = showingResolver;
+        synchronized (this) {
+            // Cached sells were resolved with the previous resolver
+            pageCache.clear();
+        }
+    }
+
+    /**
+     * Closes the records and overflow files.
+     *
+     * @throws IOException If an I/O error occurs while closing.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try (overflow) {
+            records.close();
+        }
+    }
+
+    /**
+     * Returns a page from the cache, reading it from disk if it is not cached.
+     *
+     * @param pageNumber The number of the page.
+     * @return The sells on the page; positions past the end of the store are null.
+     */
+    private Selling[] page(int pageNumber) {
+        Selling[] page = pageCache.get(pageNumber);
+
+        if (page == null) {
+            page = readPage(pageNumber, size, showingResolver);
+            pageCache.put(pageNumber, page);
+        }
+
+        return page;
+    }
+
+    /**
+     * Reads and decodes a page of records. Only positional reads are used, so pages can be read on several threads.
+     *
+     * @param pageNumber The number of the page.
+     * @param size       The number of sells to read the page of.
+     * @param resolver   Looks up the showings of the sells.
+     * @return The sells on the page; positions past the end of the store are null.
+     * @throws RuntimeException If the page cannot be read.
+     */
+    private Selling[] readPage(int pageNumber, int size, IntFunction<Showing> resolver) {
+        int first = pageNumber * RECORDS_PER_PAGE;
+        int count = Math.min(RECORDS_PER_PAGE, size - first);
+        ByteBuffer buffer = ByteBuffer.allocate(count * RECORD_SIZE);
+        Selling[] page = new Selling[RECORDS_PER_PAGE];
+
+        try {
+            long position = (long) first * RECORD_SIZE;
+            while (buffer.hasRemaining()) {
+                int read = records.read(buffer, position + buffer.position());
+                if (read < 0) {
+                    throw new IOException("Unexpected end of the selling store");
+                }
+            }
+            buffer.flip();
+
+            for (int i = 0; i < count; i++) {
+                page[i] = decode(buffer.slice(i * RECORD_SIZE, RECORD_SIZE), resolver);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading from the selling store: " + e.getMessage(), e);
+        }
+
+        return page;
+    }
+
+    /**
+     * Encodes a sell as a record, writing its customer and seats to the overflow file if they do not fit.
+     *
+     * @param selling The sell to encode.
+     * @return A buffer holding the record, ready to be written.
+     * @throws IOException If the overflow file cannot be written.
+     */
+    private ByteBuffer encode(Selling selling) throws IOException {
+        byte[] customer = selling.getCustomer().getBytes(StandardCharsets.UTF_8);
+        List<int[]> seats = selling.getSeats();
+        boolean overflows = customer.length > INLINE_CUSTOMER_BYTES || seats.size() > INLINE_SEATS;
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+
+        record.putInt(selling.getId());
+        record.putInt(SnapshotCodec.toEpochMinutes(selling.getDateTime()));
+        record.putInt(selling.getTicketsSold());
+        record.putInt(selling.getShowing() != null ? selling.getShowing().getId() : -1);
+        record.put(overflows ? FLAG_OVERFLOW : 0);
+        record.put((byte) (overflows ? 0 : customer.length));
+        record.putShort((short) (overflows ? 0 : seats.size()));
+
+        if (overflows) {
+            record.putLong(writeOverflow(customer, seats));
+        } else {
+            record.putLong(overflowEnd);
+            record.put(customer);
+            record.position(record.position() + INLINE_CUSTOMER_BYTES - customer.length);
+            for (int[] seat : seats) {
+                record.putInt(seat[0] << 16 | seat[1]);
+            }
+        }
+
+        return record.clear();
+    }
+
+    /**
+     * Decodes a record written by {@link #encode(Selling)}.
+     *
+     * @param record   A buffer holding the record.
+     * @param resolver Looks up the showing of the sell.
+     * @return The decoded sell.
+     * @throws IOException If the overflow file cannot be read.
+     */
+    private Selling decode(ByteBuffer record, IntFunction<Showing> resolver) throws IOException {
+        int id = record.getInt();
+        LocalDateTime dateTime = SnapshotCodec.fromEpochMinutes(record.getInt());
+        int ticketsSold = record.getInt();
+        int showingId = record.getInt();
+        Showing showing = showingId >= 0 ? resolver.apply(showingId) : null;
+        boolean overflows = (record.get() & FLAG_OVERFLOW) != 0;
+        int customerLength = record.get();
+        int seatCount = record.getShort();
+        long overflowOffset = record.getLong();
+
+        if (overflows) {
+            return readOverflow(overflowOffset, id, dateTime, ticketsSold, showing);
+        }
+
+        byte[] customer = new byte[customerLength];
+        record.get(customer);
+        record.position(record.position() + INLINE_CUSTOMER_BYTES - customerLength);
+
+        return new Selling(id, dateTime, ticketsSold, showing, new String(customer, StandardCharsets.UTF_8),
+                readSeats(record, seatCount));
+    }
+
+    /**
+     * Appends a customer and seats that do not fit in a record to the overflow file.
+     *
+     * @param customer The UTF-8 bytes of the customer.
+     * @param seats    The seats.
+     * @return The offset of the data in the overflow file.
+     * @throws IOException If the overflow file cannot be written.
+     */
+    private long writeOverflow(byte[] customer, List<int[]> seats) throws IOException {
+        ByteBuffer data = ByteBuffer.allocate(Integer.BYTES * 2 + customer.length + Integer.BYTES * seats.size());
+        data.putInt(customer.length).put(customer).putInt(seats.size());
+        for (int[] seat : seats) {
+            data.putInt(seat[0] << 16 | seat[1]);
+        }
+        data.flip();
+
+        long offset = overflowEnd;
+        while (data.hasRemaining()) {
+            overflow.write(data, offset + data.position());
+        }
+        overflowEnd = offset + data.limit();
+        return offset;
+    }
+
+    /**
+     * Finds the end of the overflow data of the first sells of the store from the last of their records.
+     *
+     * @param count The number of sells.
+     * @return The offset in the overflow file right after the overflow data of the sells.
+     * @throws IOException If the files cannot be read.
+     */
+    private long overflowEndAt(int count) throws IOException {
+        if (count == 0) {
+            return 0;
+        }
+
+        // The flags, customer length, seat count and overflow offset follow the first four ints of the record
+        ByteBuffer header = ByteBuffer.allocate(Byte.BYTES * 2 + Short.BYTES + Long.BYTES);
+        long position = (long) (count - 1) * RECORD_SIZE + Integer.BYTES * 4;
+
+        while (header.hasRemaining()) {
+            if (records.read(header, position + header.position()) < 0) {
+                throw new IOException("Unexpected end of the selling store");
+            }
+        }
+        header.flip();
+
+        boolean overflows = (header.get() & FLAG_OVERFLOW) != 0;
+        header.get(); // customer length
+        header.getShort(); // seat count
+        long offset = header.getLong();
+
+        if (!overflows) {
+            return offset;
+        }
+
+        int customerLength = readFully(offset, Integer.BYTES).getInt();
+        long seatsOffset = offset + Integer.BYTES + customerLength;
+        int seatCount = readFully(seatsOffset, Integer.BYTES).getInt();
+        return seatsOffset + Integer.BYTES + (long) seatCount * Integer.BYTES;
+    }
+
+    /**
+     * Reads the customer and seats of a sell from the overflow file and builds the sell.
+     *
+     * @param offset      The offset of the data in the overflow file.
+     * @param id          The ID of the sell.
+     * @param dateTime    The date and time of the sell.
+     * @param ticketsSold The number of tickets sold.
+     * @param showing     The showing of the sell.
+     * @return The decoded sell.
+     * @throws IOException If the overflow file cannot be read.
+     */
+    private Selling readOverflow(long offset, int id, LocalDateTime dateTime, int ticketsSold, Showing showing)
+            throws IOException {
+        ByteBuffer length = readFully(offset, Integer.BYTES);
+        byte[] customer = new byte[length.getInt()];
+        readFully(offset + Integer.BYTES, customer.length).get(customer);
+
+        long seatsOffset = offset + Integer.BYTES + customer.length;
+        int seatCount = readFully(seatsOffset, Integer.BYTES).getInt();
+        ByteBuffer seats = readFully(seatsOffset + Integer.BYTES, seatCount * Integer.BYTES);
+
+        return new Selling(id, dateTime, ticketsSold, showing, new String(customer, StandardCharsets.UTF_8),
+                readSeats(seats, seatCount));
+    }
+
+    /**
+     * Reads a number of bytes from the overflow file.
+     *
+     * @param offset The offset to read from.
+     * @param length The number of bytes to read.
+     * @return A buffer holding the bytes, ready to be read.
+     * @throws IOException If the file ends before all bytes are read.
+     */
+    private ByteBuffer readFully(long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+
+        while (buffer.hasRemaining()) {
+            if (overflow.read(buffer, offset + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of the selling store overflow file");
+            }
+        }
+
+        return buffer.flip();
+    }
+
+    /**
+     * Unpacks seats written as {@code row << 16 | column}.
+     *
+     * @param in        The buffer to read from.
+     * @param seatCount The number of seats.
+     * @return The seat coordinates.
+     */
+    private static List<int[]> readSeats(ByteBuffer in, int seatCount) {
+        List<int[]> seats = new ArrayList<>(seatCount);
+
+        for (int i = 0; i < seatCount; i++) {
+            int packed = in.getInt();
+            seats.add(new int[]{packed >>> 16, packed & 0xFFFF});
+        }
+
+        return seats;
+    }
+
+    /**
+     * A read-only view of the first sells of the store, returned by {@link #copy()}. It reads through the cache of
+     * the store until it gets a showing resolver of its own; from then on it reads pages itself and resolves their
+     * showings with that resolver, so a view read on another thread does not depend on the live showings.
+     */
+    private class View extends AbstractList<Selling> implements SellingStore {
+        // The number of sells in the store when the view was created
+        private final int size;
+        // Looks up the showings of the sells read by the view, or null to read through the cache of the store
+        private IntFunction<Showing> resolver;
+        // The number of the page last read by the view itself
+        private int lastPageNumber = -1;
+        // The page last read by the view itself, as views are mostly read in order
+        private Selling[] lastPage;
+
+        /**
+         * @param size The number of sells visible through the view.
+         */
+        View(int size) {
+            this.size = size;
+        }
+
+        @Override
+        public synchronized Selling get(int index) {
+            Objects.checkIndex(index, size);
+
+            if (resolver == null) {
+                return PagedSellingStore.this.get(index);
+            }
+
+            int pageNumber = index / RECORDS_PER_PAGE;
+            if (pageNumber != lastPageNumber) {
+                lastPage = readPage(pageNumber, size, resolver);
+                lastPageNumber = pageNumber;
+            }
+
+            return lastPage[index % RECORDS_PER_PAGE];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean isDurable() {
+            return true;
+        }
+
+        @Override
+        public void force() throws IOException {
+            PagedSellingStore.this.force();
+        }
+
+        @Override
+        public void truncate(int size) {
+            throw new UnsupportedOperationException("A copy of a selling store is read-only");
+        }
+
+        @Override
+        public SellingStore copy() {
+            return this;
+        }
+
+        @Override
+        public synchronized void setShowingResolver(IntFunction<Showing> showingResolver) {
+            this.resolver = showingResolver;
+            lastPageNumber = -1;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package nl.inholland.persistence;
+
+import nl.inholland.model.Selling;
+import nl.inholland.model.Showing;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * The SellingStore interface describes where the {@link Selling sells} of the database are kept.
+ * Sells are only ever appended, in the order of their IDs, and read back by position.
+ * <p>
+ * {@link InMemorySellingStore} keeps every sell on the heap and leaves persisting them to the snapshot.
+ * {@link PagedSellingStore} keeps them in a file of fixed-size records and only holds a few pages in memory,
+ * so the heap does not grow with the length of the sales history.
+ */
+public interface SellingStore extends List<Selling> {
+    /**
+     * @return True if the store keeps the sells on disk itself, so a snapshot only records how many there are;
+     * false if the snapshot must contain the sells.
+     */
+    boolean isDurable();
+
+    /**
+     * Forces every sell added so far to disk. Does nothing for a store that is not durable.
+     *
+     * @throws IOException If an I/O error occurs while forcing.
+     */
+    void force() throws IOException;
+
+    /**
+     * Discards every sell from the given position on, e.g. sells that were added after the last snapshot and
+     * are about to be replayed from the journal.
+     *
+     * @param size The number of sells to keep.
+     * @throws IOException If an I/O error occurs while truncating.
+     */
+    void truncate(int size) throws IOException;
+
+    /**
+     * Creates a point-in-time copy of this store that can be read on another thread while this store keeps
+     * growing. Must be called on the thread that adds to the store.
+     *
+     * @return A read-only copy holding the sells added so far.
+     */
+    SellingStore copy();
+
+    /**
+     * Sets how the showing of a sell is looked up when the sell is read back from disk.
+     *
+     * @param showingResolver Returns the showing with the given ID, or null if there is none.
+     */
+    void setShowingResolver(IntFunction<Showing> showingResolver);
+}
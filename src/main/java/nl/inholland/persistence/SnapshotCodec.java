@@ -0,0 +1,814 @@
+package nl.inholland.persistence;
+
+import nl.inholland.Database;
+import nl.inholland.analytics.SalesTotals;
+import nl.inholland.model.AccessLevel;
+import nl.inholland.model.Room;
+import nl.inholland.model.SeatMap;
+import nl.inholland.model.Selling;
+import nl.inholland.model.Showing;
+import nl.inholland.model.User;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The SnapshotCodec class reads and writes a snapshot of the {@link Database} in a compact binary format.
+ * Unlike Java serialization, the format does not depend on the shape of the model classes: every snapshot
+ * starts with a magic number and an explicit schema version, so a reader can tell a file it cannot decode.
+ * Database files of earlier versions, which used Java serialization, are imported by the application instead.
+ * <p>
+ * A snapshot is partitioned. The snapshot file holds the hot partition: the users, the rooms, the showings that
+ * started less than {@link #HOT_WINDOW} ago or are upcoming, and their sales. Older showings and their sales form
+ * the cold partition, a {@link HistoryPartition} stored in immutable segment files next to the snapshot, which are
+ * only read when the history is requested. Segments are never rewritten in place: a save writes a new segment for
+ * the showings that moved out of the hot partition, and deletes the segments that are no longer referenced only
+ * after the new snapshot file is in place. The snapshot records when the last showing of the history ends and the
+ * ticket totals of the history, so checking a period for showings and sales reports do not load the history.
+ * <p>
+ * The sells may be kept in a durable {@link SellingStore} instead. The snapshot then holds no sells and records how
+ * many sells of the store it reflects; the store is forced to disk before the snapshot is written, and sells added
+ * after it are discarded when the snapshot is read, as the journal replays them.
+ * <p>
+ * Layout, all numbers big-endian:
+ * <pre>
+ * header   magic (int, "FCDB"), version (int), journal sequence (long)
+ * store    stored sell count (int, -1 if the sells are part of the snapshot)
+ * history  segment count (int), segment file names (string[]), sell count (int), max showing id (int),
+ *          latest end (int, epoch minutes, {@link Integer#MIN_VALUE} if the history holds no showings),
+ *          title count (int), per title: title (string), tickets (long), seats (long); day count (int), per day:
+ *          epoch day (int), tickets (long), seats (long); per hour of the day from 0 to 23: tickets (long),
+ *          seats (long)
+ * users    count (int), then per user: username (string), password (string), access level (byte)
+ * rooms    count (int), then per room: id (int), name (string), rows (int), columns (int)
+ * showings count (int), then per showing: id (int), start (int, epoch minutes), duration (int, minutes),
+ *          title (string), age checked (byte), room id (int), tickets sold (int, derived from the seats when read),
+ *          rows (int), columns (int), seat words (long[(rows * columns + 63) / 64], as in {@link SeatMap})
+ * sells    count (int), then per selling: id (int), date and time (int, epoch minutes), tickets sold (int),
+ *          showing id (int), customer (string), seat count (int), seats (int[], row &lt;&lt; 16 | column)
+ * </pre>
+ * A history segment consists of a header (magic "FCHS", version) followed by showings and sells as above.
+ * Strings are written as their UTF-8 length (int) followed by the UTF-8 bytes.
+ */
+public final class SnapshotCodec {
+    // Marks a file as a Fantastic Cinema snapshot ("FCDB")
+    private static final int MAGIC = 0x46434442;
+    // Marks a file as a Fantastic Cinema history segment ("FCHS")
+    private static final int HISTORY_MAGIC = 0x46434853;
+    // The schema version written and read by this codec
+    private static final int VERSION = 1;
+    // Showings that started longer ago than this move to the history partition together with their sales
+    public static final Duration HOT_WINDOW = Duration.ofDays(7);
+    // Separates the snapshot file name from the unique part of a history segment file name
+    private static final String SEGMENT_INFIX = ".history-";
+
+    private SnapshotCodec() {
+    }
+
+    /**
+     * Writes a snapshot of the database to the given path, replacing any existing file.
+     * Every file is written to a temporary file next to the target, forced to disk and then atomically renamed,
+     * so the target always holds either the previous or the new snapshot, even if the write is interrupted.
+     * If the sells are kept in a durable store, the store is forced to disk first.
+     * <p>
+     * Only the showings that moved out of the hot partition since the last snapshot are written to a new segment;
+     * showings that are {@link Database#isArchived(Showing) archived} already are skipped, so a save does not grow
+     * with the history. If an archived showing has changed, the archived showings in memory are written anew instead,
+     * replacing every segment except those of the history that has not been loaded. Afterwards the database records
+     * the new archive, see {@link Database#setArchive(HistoryPartition, Collection, boolean)}.
+     *
+     * @param database The database to write.
+     * @param path     The path of the snapshot file.
+     * @throws IOException If an I/O error occurs while writing.
+     */
+    public static void write(Database database, Path path) throws IOException {
+        write(database, path, LocalDateTime.now());
+    }
+
+    /**
+     * Writes a snapshot of the database as {@link #write(Database, Path)} does, moving the showings that started
+     * longer than {@link #HOT_WINDOW} before the given time to the history, so a generated dataset is split the same
+     * way whenever it is written.
+     *
+     * @param database The database to write.
+     * @param path     The path of the snapshot file.
+     * @param now      The time the hot window is counted back from.
+     * @throws IOException If an I/O error occurs while writing.
+     */
+    public static void write(Database database, Path path, LocalDateTime now) throws IOException {
+        LocalDateTime cutoff = now.minus(HOT_WINDOW);
+        boolean rewrite = database.isArchiveChanged();
+        // The segments that are kept: all of them, or on a rewrite those whose showings are not in memory
+        HistoryPartition history = rewrite ? database.getHistory() : database.getArchive();
+        List<Path> segments = new ArrayList<>(history != null ? history.segments() : List.of());
+        int historySellCount = history != null ? history.sellCount() : 0;
+        int historyMaxShowingId = history != null ? history.maxShowingId() : -1;
+        LocalDateTime historyLatestEnd = history != null ? history.latestEnd() : LocalDateTime.MIN;
+        SalesTotals historyTotals = history != null ? history.totals().copy() : new SalesTotals();
+
+        // Split the showings in memory into hot ones, archived ones and ones that move to the history with their sales
+        List<Showing> hotShowings = new ArrayList<>();
+        List<Showing> movingShowings = new ArrayList<>();
+        Set<Integer> movingShowingIds = new HashSet<>();
+        Set<Integer> skippedShowingIds = new HashSet<>();
+
+        for (Showing showing : database.getLoadedShowings()) {
+            if (!rewrite && database.isArchived(showing)) {
+                skippedShowingIds.add(showing.getId());
+            } else if (showing.getStartDateTime().isBefore(cutoff)) {
+                movingShowings.add(showing);
+                movingShowingIds.add(showing.getId());
+                historyMaxShowingId = Math.max(historyMaxShowingId, showing.getId());
+                LocalDateTime end = showing.getEndDateTime();
+                historyLatestEnd = end.isAfter(historyLatestEnd) ? end : historyLatestEnd;
+                historyTotals.add(showing);
+            } else {
+                hotShowings.add(showing);
+            }
+        }
+
+        List<Selling> hotSells = new ArrayList<>();
+        List<Selling> movingSells = new ArrayList<>();
+        SellingStore store = database.getSellingStore();
+
+        if (store.isDurable()) {
+            // The store keeps the sells itself, the snapshot only records how many of them it reflects
+            store.force();
+        } else {
+            for (Selling selling : store) {
+                // A sale whose showing is unknown stays in the hot partition, so it is not moved on every save
+                int showingId = selling.getShowing() != null ? selling.getShowing().getId() : -1;
+
+                if (movingShowingIds.contains(showingId)) {
+                    movingSells.add(selling);
+                } else if (!skippedShowingIds.contains(showingId)) {
+                    hotSells.add(selling);
+                }
+            }
+        }
+
+        if (!movingShowings.isEmpty() || !movingSells.isEmpty()) {
+            segments.add(writeSegment(path, movingShowings, movingSells));
+            historySellCount += movingSells.size();
+        }
+
+        HistoryPartition newHistory = new HistoryPartition(segments, historySellCount, historyMaxShowingId, historyLatestEnd,
+                historyTotals);
+        writeAtomically(path, out -> {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(database.getJournalSequence());
+            out.writeInt(store.isDurable() ? store.size() : -1);
+            writeHistory(out, newHistory);
+            writeUsers(out, database.getUsers());
+            writeRooms(out, database.getRooms());
+            writeShowings(out, hotShowings);
+            writeSells(out, hotSells);
+        });
+
+        deleteUnreferencedSegments(path, segments);
+
+        if (rewrite || !movingShowings.isEmpty()) {
+            database.setArchive(newHistory, movingShowingIds, rewrite);
+        }
+    }
+
+    /**
+     * Writes a new history segment next to the snapshot file, e.g. to build a long history a segment at a time
+     * without holding it in memory. The segment is only kept if a snapshot that refers to it is written next,
+     * through a database whose {@link HistoryPartition} lists it.
+     *
+     * @param path     The path of the snapshot file.
+     * @param showings The showings of the segment.
+     * @param sells    The sells of the segment, which must be empty if the sells are kept in a durable store.
+     * @return The path of the new segment.
+     * @throws IOException If an I/O error occurs while writing.
+     */
+    public static Path writeSegment(Path path, List<Showing> showings, List<Selling> sells) throws IOException {
+        Path segment = newSegmentPath(path);
+        writeAtomically(segment, out -> {
+            out.writeInt(HISTORY_MAGIC);
+            out.writeInt(VERSION);
+            writeShowings(out, showings);
+            writeSells(out, sells);
+        });
+        return segment;
+    }
+
+    /**
+     * Reads the hot partition of a snapshot from the given path.
+     * The history partition, if any, is attached to the database and read on first use.
+     * <p>
+     * If the snapshot keeps its sells in a store, the given durable store is used and truncated to the sells the
+     * snapshot reflects. Otherwise the sells are read into memory and the given store is left untouched; callers
+     * can move them with {@link Database#withSellingStore(SellingStore)}.
+     *
+     * @param path  The path of the snapshot file.
+     * @param store The durable store holding the sells, used if the snapshot was written with one.
+     * @return The database restored from the snapshot.
+     * @throws IOException If the file cannot be read, is not a snapshot of a supported version, or keeps its sells
+     *                     in a store that holds fewer sells than it reflects.
+     */
+    public static Database read(Path path, SellingStore store) throws IOException {
+        try {
+            ByteBuffer in = readFile(path);
+            readHeader(in, MAGIC, path);
+            long journalSequence = in.getLong();
+            int storedSellCount = in.getInt();
+            HistoryPartition history = readHistory(in, path);
+
+            List<User> users = readUsers(in);
+            List<Room> rooms = readRooms(in);
+            Map<Integer, Showing> showingsById = new HashMap<>();
+            List<Showing> showings = readShowings(in, showingsById);
+            List<Selling> sells = readSells(in, showingsById);
+            SellingStore sellingStore;
+
+            if (storedSellCount >= 0) {
+                if (!store.isDurable() || store.size() < storedSellCount) {
+                    throw new IOException("Selling store does not hold the " + storedSellCount
+                            + " sells of the database snapshot: " + path);
+                }
+                store.truncate(storedSellCount);
+                sellingStore = store;
+            } else {
+                sellingStore = new InMemorySellingStore(sells);
+            }
+
+            Database database = new Database(users, rooms, showings, sellingStore, journalSequence);
+            database.setHistory(!history.segments().isEmpty() ? history : null);
+            return database;
+        } catch (RuntimeException e) {
+            // Buffer underflows and unknown enum values mean the file is truncated or corrupted
+            throw new IOException("Corrupted database snapshot: " + path, e);
+        }
+    }
+
+    /**
+     * Reads only the users of a snapshot, which come before the showings and sells, so the users can log in
+     * before the rest of the database has been read.
+     *
+     * @param path The path of the snapshot file.
+     * @return The users of the snapshot.
+     * @throws IOException If the file cannot be read or is not a snapshot of a supported version.
+     */
+    public static List<User> readUsers(Path path) throws IOException {
+        try {
+            ByteBuffer in = readFile(path);
+            readHeader(in, MAGIC, path);
+            in.getLong(); // journal sequence
+            in.getInt(); // stored sell count
+            readHistory(in, path);
+
+            return readUsers(in);
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupted database snapshot: " + path, e);
+        }
+    }
+
+    /**
+     * Reads every segment of a history partition.
+     *
+     * @param history The partition to read.
+     * @return A database holding the showings and sells of the partition, without users.
+     * @throws IOException If a segment cannot be read or is corrupted.
+     */
+    static Database readHistory(HistoryPartition history) throws IOException {
+        List<Showing> showings = new ArrayList<>();
+        List<Selling> sells = new ArrayList<>(history.sellCount());
+        Map<Integer, Showing> showingsById = new HashMap<>();
+
+        for (Path segment : history.segments()) {
+            try {
+                ByteBuffer in = readFile(segment);
+                readHeader(in, HISTORY_MAGIC, segment);
+                showings.addAll(readShowings(in, showingsById));
+                sells.addAll(readSells(in, showingsById));
+            } catch (RuntimeException e) {
+                throw new IOException("Corrupted history segment: " + segment, e);
+            }
+        }
+
+        return new Database(List.of(), showings, new InMemorySellingStore(sells), 0);
+    }
+
+    /**
+     * Reads a whole file into a heap buffer. The file is not memory-mapped: a mapping stays open until the buffer is
+     * garbage collected, and on Windows an open mapping keeps the file from being replaced or deleted by the next
+     * save.
+     *
+     * @param path The path of the file.
+     * @return The contents of the file.
+     * @throws IOException If the file cannot be read or is too large for a buffer.
+     */
+    private static ByteBuffer readFile(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File too large to read: " + path);
+            }
+
+            ByteBuffer in = ByteBuffer.allocate((int) size);
+
+            while (in.hasRemaining() && channel.read(in) >= 0) {
+                // Keep reading until the buffer is full or the file ends
+            }
+
+            return in.flip();
+        }
+    }
+
+    /**
+     * Writes a file to a temporary file next to the target, forces it to disk and atomically renames it.
+     *
+     * @param path   The path of the file.
+     * @param writer Writes the contents of the file.
+     * @throws IOException If an I/O error occurs while writing.
+     */
+    private static void writeAtomically(Path path, ContentWriter writer) throws IOException {
+        Path temporaryPath = path.resolveSibling(path.getFileName() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temporaryPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+            writer.write(out);
+            out.flush();
+            channel.force(true);
+        }
+
+        Files.move(temporaryPath, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Writes the contents of a file for {@link #writeAtomically(Path, ContentWriter)}.
+     */
+    @FunctionalInterface
+    private interface ContentWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * Chooses a file name for a new history segment that is not in use yet.
+     *
+     * @param path The path of the snapshot file.
+     * @return The path of the new segment.
+     */
+    private static Path newSegmentPath(Path path) {
+        long unique = System.currentTimeMillis();
+        Path segment;
+
+        do {
+            segment = path.resolveSibling(path.getFileName() + SEGMENT_INFIX + Long.toString(unique++, 36));
+        } while (Files.exists(segment));
+
+        return segment;
+    }
+
+    /**
+     * Deletes the history segments of the snapshot that the snapshot file no longer refers to.
+     *
+     * @param path       The path of the snapshot file.
+     * @param referenced The segments the snapshot file refers to.
+     * @throws IOException If the directory cannot be listed.
+     */
+    private static void deleteUnreferencedSegments(Path path, List<Path> referenced) throws IOException {
+        Path directory = path.toAbsolutePath().getParent();
+        String prefix = path.getFileName() + SEGMENT_INFIX;
+        Set<Path> keep = new HashSet<>();
+
+        for (Path segment : referenced) {
+            keep.add(segment.toAbsolutePath());
+        }
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix + "*")) {
+            for (Path file : files) {
+                if (!keep.contains(file.toAbsolutePath())) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads and checks the magic number and version at the start of a file.
+     *
+     * @param in    The buffer to read from.
+     * @param magic The expected magic number.
+     * @param path  The path of the file, for error messages.
+     * @throws IOException If the file does not start with the magic number or has an unsupported version.
+     */
+    private static void readHeader(ByteBuffer in, int magic, Path path) throws IOException {
+        if (in.remaining() < Integer.BYTES * 2 || in.getInt() != magic) {
+            throw new IOException("Not a database snapshot: " + path);
+        }
+
+        int version = in.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot version " + version + ": " + path);
+        }
+    }
+
+    /**
+     * Writes the description of the history partition, with segment paths relative to the snapshot file.
+     *
+     * @param out     The output to write to.
+     * @param history The history partition.
+     * @throws IOException If an I/O error occurs while writing.
+     */
+    private static void writeHistory(DataOutputStream out, HistoryPartition history) throws IOException {
+        out.writeInt(history.segments().size());
+        for (Path segment : history.segments()) {
+            writeString(out, segment.getFileName().toString());
+        }
+        out.writeInt(history.sellCount());
+        out.writeInt(history.maxShowingId());
+        out.writeInt(history.latestEnd().equals(LocalDateTime.MIN) ? Integer.MIN_VALUE
+                : toEpochMinutes(history.latestEnd()));
+        writeTotals(out, history.totals());
+    }
+
+    /**
+     * Reads the description of the history partition written by {@link #writeHistory(DataOutputStream, HistoryPartition)}.
+     *
+     * @param in   The buffer to read from.
+     * @param path The path of the snapshot file, which the segment paths are relative to.
+     * @return The history partition.
+     */
+    private static HistoryPartition readHistory(ByteBuffer in, Path path) {
+        int segmentCount = in.getInt();
+        List<Path> segments = new ArrayList<>(segmentCount);
+
+        for (int i = 0; i < segmentCount; i++) {
+            segments.add(path.resolveSibling(readString(in)));
+        }
+
+        int sellCount = in.getInt();
+        int maxShowingId = in.getInt();
+        int latestEndMinutes = in.getInt();
+        LocalDateTime latestEnd = latestEndMinutes == Integer.MIN_VALUE ? LocalDateTime.MIN
+                : fromEpochMinutes(latestEndMinutes);
+
+        return new HistoryPartition(List.copyOf(segments), sellCount, maxShowingId, latestEnd, readTotals(in));
+    }
+
+    /**
+     * Writes ticket totals.
+     *
+     * @param out    The output to write to.
+     * @param totals The totals to write.
+     * @throws IOException If an I/O error occurs while writing.
+     */
+    private static void writeTotals(DataOutputStream out, SalesTotals totals) throws IOException {
+        out.writeInt(totals.getTitles().size());
+        for (Map.Entry<String, SalesTotals.Tally> entry : totals.getTitles().entrySet()) {
+            writeString(out, entry.getKey());
+            writeTally(out, entry.getValue());
+        }
+
+        out.writeInt(totals.getDays().size());
+        for (Map.Entry<LocalDate, SalesTotals.Tally> entry : totals.getDays().entrySet()) {
+            out.writeInt((int) entry.getKey().toEpochDay());
+            writeTally(out, entry.getValue());
+        }
+
+        for (SalesTotals.Tally hour : totals.getHours()) {
+            writeTally(out, hour);
+        }
+    }
+
+    /**
+     * Reads ticket totals written by {@link #writeTotals(DataOutputStream, SalesTotals)}.
+     *
+     * @param in The buffer to read from.
+     * @return The totals.
+     */
+    private static SalesTotals readTotals(ByteBuffer in) {
+        SalesTotals totals = new SalesTotals();
+
+        int titleCount = in.getInt();
+        for (int i = 0; i < titleCount; i++) {
+            totals.putTitle(readString(in), readTally(in));
+        }
+
+        int dayCount = in.getInt();
+        for (int i = 0; i < dayCount; i++) {
+            totals.putDay(LocalDate.ofEpochDay(in.getInt()), readTally(in));
+        }
+
+        for (int hour = 0; hour < 24; hour++) {
+            totals.putHour(hour, readTally(in));
+        }
+
+        return totals;
+    }
+
+    /**
+     * Writes a number of tickets and seats.
+     *
+     * @param out   The output to write to.
+     * @param tally The tickets and seats.
+     * @throws IOException If an I/O error occurs while writing.
+     */
+    private static void writeTally(DataOutputStream out, SalesTotals.Tally tally) throws IOException {
+        out.writeLong(tally.tickets());
+        out.writeLong(tally.seats());
+    }
+
+    /**
+     * Reads a number of tickets and seats written by {@link #writeTally(DataOutputStream, SalesTotals.Tally)}.
+     *
+     * @param in The buffer to read from.
+     * @return The tickets and seats.
+     */
+    private static SalesTotals.Tally readTally(ByteBuffer in) {
+        return new SalesTotals.Tally(in.getLong(), in.getLong());
+    }
+
+    /**
+     * Writes the users.
+     *
+     * @param out   The output to write to.
+     * @param users The users to write.
+     * @throws IOException If an I/O error occurs while writing.
+     */
+    private static void writeUsers(DataOutputStream out, List<User> users) throws IOException {
+        out.writeInt(users.size());
+        for (User user : users) {
+            writeString(out, user.getUsername());
+            writeString(out, user.getPassword());
+            out.writeByte(user.getAccessLevel().ordinal());
+        }
+    }
+
+    /**
+     * Reads the users written by {@link #writeUsers(DataOutputStream, List)}.
+     *
+     * @param in The buffer to read from.
+     * @return The decoded users.
+     */
+    private static List<User> readUsers(ByteBuffer in) {
+        int userCount = in.getInt();
+        List<User> users = new ArrayList<>(userCount);
+
+        for (int i = 0; i < userCount; i++) {
+            users.add(new User(readString(in), readString(in), AccessLevel.values()[in.get()]));
+        }
+
+        return users;
+    }
+
+    /**
+     * Writes the rooms.
+     *
+     * @param out   The output to write to.
+     * @param rooms The rooms to write.
+     * @throws IOException If an I/O error occurs while writing.
+     */
+    private static void writeRooms(DataOutputStream out, List<Room> rooms) throws IOException {
+        out.writeInt(rooms.size());
+        for (Room room : rooms) {
+            out.writeInt(room.getId());
+            writeString(out, room.getName());
+            out.writeInt(room.getRows());
+            out.writeInt(room.getColumns());
+        }
+    }
+
+    /**
+     * Reads the rooms written by {@link #writeRooms(DataOutputStream, List)}.
+     *
+     * @param in The buffer to read from.
+     * @return The decoded rooms.
+     */
+    private static List<Room> readRooms(ByteBuffer in) {
+        int roomCount = in.getInt();
+        List<Room> rooms = new ArrayList<>(roomCount);
+
+        for (int i = 0; i < roomCount; i++) {
+            rooms.add(new Room(in.getInt(), readString(in), in.getInt(), in.getInt()));
+        }
+
+        return rooms;
+    }
+
+    /**
+     * Writes a list of showings.
+     *
+     * @param out      The output to write to.
+     * @param showings The showings to write.
+     * @throws IOException If an I/O error occurs while writing.
+     */
+    private static void writeShowings(DataOutputStream out, List<Showing> showings) throws IOException {
+        out.writeInt(showings.size());
+        for (Showing showing : showings) {
+            writeShowing(out, showing);
+        }
+    }
+
+    /**
+     * Reads a list of showings written by {@link #writeShowings(DataOutputStream, List)}.
+     *
+     * @param in           The buffer to read from.
+     * @param showingsById Receives the decoded showings by ID, so sells can refer to them.
+     * @return The decoded showings.
+     */
+    private static List<Showing> readShowings(ByteBuffer in, Map<Integer, Showing> showingsById) {
+        int showingCount = in.getInt();
+        List<Showing> showings = new ArrayList<>(showingCount);
+
+        for (int i = 0; i < showingCount; i++) {
+            Showing showing = readShowing(in);
+            showings.add(showing);
+            showingsById.put(showing.getId(), showing);
+        }
+
+        return showings;
+    }
+
+    /**
+     * Writes a list of sells.
+     *
+     * @param out   The output to write to.
+     * @param sells The sells to write.
+     * @throws IOException If an I/O error occurs while writing.
+     */
+    private static void writeSells(DataOutputStream out, List<Selling> sells) throws IOException {
+        out.writeInt(sells.size());
+        for (Selling selling : sells) {
+            writeSelling(out, selling);
+        }
+    }
+
+    /**
+     * Reads a list of sells written by {@link #writeSells(DataOutputStream, List)}.
+     *
+     * @param in           The buffer to read from.
+     * @param showingsById The showings the sells may refer to, by ID.
+     * @return The decoded sells.
+     */
+    private static List<Selling> readSells(ByteBuffer in, Map<Integer, Showing> showingsById) {
+        int sellingCount = in.getInt();
+        List<Selling> sells = new ArrayList<>(sellingCount);
+
+        for (int i = 0; i < sellingCount; i++) {
+            sells.add(readSelling(in, showingsById));
+        }
+
+        return sells;
+    }
+
+    /**
+     * Writes a showing, including the bit words of its seat map.
+     *
+     * @param out     The output to write to.
+     * @param showing The showing to write.
+     * @throws IOException If an I/O error occurs while writing.
+     */
+    private static void writeShowing(DataOutputStream out, Showing showing) throws IOException {
+        out.writeInt(showing.getId());
+        out.writeInt(toEpochMinutes(showing.getStartDateTime()));
+        out.writeInt(showing.getDuration().toSecondOfDay() / 60);
+        writeString(out, showing.getTitle());
+        out.writeByte(showing.getIsAgeChecked() ? 1 : 0);
+        out.writeInt(showing.getRoomId());
+        out.writeInt(showing.getTicketsSold());
+
+        SeatMap seats = showing.getSeatMap();
+        out.writeInt(seats.getRows());
+        out.writeInt(seats.getColumns());
+        for (long word : seats.getWords()) {
+            out.writeLong(word);
+        }
+    }
+
+    /**
+     * Reads a showing written by {@link #writeShowing(DataOutputStream, Showing)}.
+     *
+     * @param in The buffer to read from.
+     * @return The decoded showing.
+     */
+    private static Showing readShowing(ByteBuffer in) {
+        int id = in.getInt();
+        LocalDateTime startDateTime = fromEpochMinutes(in.getInt());
+        LocalTime duration = LocalTime.ofSecondOfDay(in.getInt() * 60L);
+        String title = readString(in);
+        boolean isAgeChecked = in.get() != 0;
+        int roomId = in.getInt();
+        in.getInt(); // The number of tickets sold follows from the seats
+        int rows = in.getInt();
+        int columns = in.getInt();
+        long[] words = new long[SeatMap.wordCount(rows, columns)];
+
+        for (int i = 0; i < words.length; i++) {
+            words[i] = in.getLong();
+        }
+
+        return new Showing(id, startDateTime, duration, title, roomId, new SeatMap(rows, columns, words), isAgeChecked);
+    }
+
+    /**
+     * Writes a selling, packing each seat into a single int.
+     *
+     * @param out     The output to write to.
+     * @param selling The selling to write.
+     * @throws IOException If an I/O error occurs while writing.
+     */
+    private static void writeSelling(DataOutputStream out, Selling selling) throws IOException {
+        out.writeInt(selling.getId());
+        out.writeInt(toEpochMinutes(selling.getDateTime()));
+        out.writeInt(selling.getTicketsSold());
+        out.writeInt(selling.getShowing().getId());
+        writeString(out, selling.getCustomer());
+        out.writeInt(selling.getSeats().size());
+
+        for (int[] seat : selling.getSeats()) {
+            out.writeInt(seat[0] << 16 | seat[1]);
+        }
+    }
+
+    /**
+     * Reads a selling written by {@link #writeSelling(DataOutputStream, Selling)}.
+     *
+     * @param in           The buffer to read from.
+     * @param showingsById The showings already read, by ID.
+     * @return The decoded selling.
+     */
+    private static Selling readSelling(ByteBuffer in, Map<Integer, Showing> showingsById) {
+        int id = in.getInt();
+        LocalDateTime dateTime = fromEpochMinutes(in.getInt());
+        int ticketsSold = in.getInt();
+        Showing showing = showingsById.get(in.getInt());
+        String customer = readString(in);
+        int seatCount = in.getInt();
+        List<int[]> seats = new ArrayList<>(seatCount);
+
+        for (int i = 0; i < seatCount; i++) {
+            int packed = in.getInt();
+            seats.add(new int[]{packed >>> 16, packed & 0xFFFF});
+        }
+
+        return new Selling(id, dateTime, ticketsSold, showing, customer, seats);
+    }
+
+    /**
+     * Writes a string as its UTF-8 length followed by the UTF-8 bytes.
+     *
+     * @param out   The output to write to.
+     * @param value The string to write.
+     * @throws IOException If an I/O error occurs while writing.
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string written by {@link #writeString(DataOutputStream, String)}.
+     *
+     * @param in The buffer to read from.
+     * @return The decoded string.
+     */
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param dateTime The date and time to convert.
+     * @return The number of minutes since the epoch, dropping seconds.
+     */
+    static int toEpochMinutes(LocalDateTime dateTime) {
+        return (int) Math.floorDiv(dateTime.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    /**
+     * @param epochMinutes The number of minutes since the epoch.
+     * @return The corresponding date and time.
+     */
+    static LocalDateTime fromEpochMinutes(int epochMinutes) {
+        return LocalDateTime.ofEpochSecond(epochMinutes * 60L, 0, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,38 @@
+package nl.inholland.schedule;
+
+import nl.inholland.model.Showing;
+
+import java.util.List;
+
+/**
+ * The outcome of importing a schedule: the showings that were added and why the other rows were not.
+ *
+ * @param rowCount The number of rows in the file, excluding the header of a CSV file.
+ * @param imported The showings that were added, sorted by start time.
+ * @param errors   The rows that were not imported, sorted by line.
+ */
+public record ImportReport(int rowCount, List<Showing> imported, List<RowError> errors) {
+    /**
+     * @return A one-line summary, e.g. to show above the errors.
+     */
+    public String summary() {
+        return "Imported " + imported.size() + " of " + rowCount + " showings"
+                + (errors.isEmpty() ? "." : "; " + errors.size() + " rows have errors.");
+    }
+
+    /**
+     * A row that was not imported.
+     *
+     * @param line    The line the row starts on, counting from 1.
+     * @param message Why the row was not imported.
+     */
+    public record RowError(int line, String message) {
+        /**
+         * @return The error as a line of a report, e.g. "Line 12: Room 3 does not exist".
+         */
+        @Override
+        public String toString() {
+            return "Line " + line + ": " + message;
+        }
+    }
+}
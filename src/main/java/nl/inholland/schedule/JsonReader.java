@@ -0,0 +1,245 @@
+package nl.inholland.schedule;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The JsonReader class reads a schedule written as JSON: an array of flat objects, one per showing, whose values
+ * are strings, numbers, booleans or null. Nested arrays and objects are not needed for a schedule and are rejected.
+ * Values are returned as the text they were written as, so they are interpreted like the fields of a CSV file.
+ * The application has no other use for JSON, so this small reader is used instead of a library.
+ */
+final class JsonReader {
+    // The text being read
+    private final String text;
+    // The position of the next character
+    private int position;
+    // The line the next character is on, counting from 1
+    private int line = 1;
+
+    /**
+     * Constructs a new JsonReader instance.
+     *
+     * @param text The text to read.
+     */
+    private JsonReader(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Reads an array of flat objects.
+     *
+     * @param text The JSON text.
+     * @return A row per object, with the line it starts on and its values by normalized name.
+     * @throws IOException If the text is not an array of flat objects.
+     */
+    static List<SourceRow> readRows(String text) throws IOException {
+        JsonReader reader = new JsonReader(text);
+        List<SourceRow> rows = new ArrayList<>();
+
+        reader.skipWhitespace();
+        reader.expect('[');
+        reader.skipWhitespace();
+
+        if (reader.peek() == ']') {
+            reader.position++;
+        } else {
+            do {
+                reader.skipWhitespace();
+                rows.add(reader.readObject());
+                reader.skipWhitespace();
+            } while (reader.consume(','));
+
+            reader.expect(']');
+        }
+
+        reader.skipWhitespace();
+
+        if (reader.position < text.length()) {
+            throw reader.error("Unexpected text after the array");
+        }
+
+        return rows;
+    }
+
+    /**
+     * Reads a flat object.
+     *
+     * @return The object as a row.
+     * @throws IOException If the object is malformed or has a nested value.
+     */
+    private SourceRow readObject() throws IOException {
+        int startLine = line;
+        Map<String, String> fields = new HashMap<>();
+
+        expect('{');
+        skipWhitespace();
+
+        if (!consume('}')) {
+            do {
+                skipWhitespace();
+                String name = readString();
+                skipWhitespace();
+                expect(':');
+                skipWhitespace();
+                fields.put(ScheduleImport.normalizeName(name), readValue());
+                skipWhitespace();
+            } while (consume(','));
+
+            expect('}');
+        }
+
+        return new SourceRow(startLine, fields);
+    }
+
+    /**
+     * Reads a string, number, boolean or null.
+     *
+     * @return The text of the value, or null for null.
+     * @throws IOException If the value is malformed or is an array or object.
+     */
+    private String readValue() throws IOException {
+        char c = peek();
+
+        if (c == '"') {
+            return readString();
+        }
+        if (c == '[' || c == '{') {
+            throw error("Nested arrays and objects are not supported");
+        }
+
+        int start = position;
+
+        while (position < text.length() && "-+.0123456789eEtruefalsn".indexOf(text.charAt(position)) >= 0) {
+            position++;
+        }
+
+        String literal = text.substring(start, position);
+
+        if (literal.isEmpty()) {
+            throw error("Expected a value");
+        }
+
+        return literal.equals("null") ? null : literal;
+    }
+
+    /**
+     * Reads a string, including its escape sequences.
+     *
+     * @return The string.
+     * @throws IOException If the string is malformed.
+     */
+    private String readString() throws IOException {
+        expect('"');
+        StringBuilder value = new StringBuilder();
+
+        while (true) {
+            if (position >= text.length()) {
+                throw error("String is not closed");
+            }
+
+            char c = text.charAt(position++);
+
+            if (c == '"') {
+                return value.toString();
+            }
+            if (c == '\n') {
+                throw error("Line break in a string");
+            }
+            if (c != '\\') {
+                value.append(c);
+                continue;
+            }
+            if (position >= text.length()) {
+                throw error("String is not closed");
+            }
+
+            char escaped = text.charAt(position++);
+
+            switch (escaped) {
+                case '"', '\\', '/' -> value.append(escaped);
+                case 'b' -> value.append('\b');
+                case 'f' -> value.append('\f');
+                case 'n' -> value.append('\n');
+                case 'r' -> value.append('\r');
+                case 't' -> value.append('\t');
+                case 'u' -> {
+                    if (position + 4 > text.length()) {
+                        throw error("Incomplete escape sequence");
+                    }
+
+                    try {
+                        value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw error("Invalid escape sequence");
+                    }
+
+                    position += 4;
+                }
+                default -> throw error("Invalid escape sequence");
+            }
+        }
+    }
+
+    /**
+     * Skips spaces, tabs, line breaks and a byte order mark, counting the lines.
+     */
+    private void skipWhitespace() {
+        while (position < text.length()) {
+            char c = text.charAt(position);
+
+            if (c == '\n') {
+                line++;
+            } else if (c != ' ' && c != '\t' && c != '\r' && c != '\uFEFF') {
+                return;
+            }
+
+            position++;
+        }
+    }
+
+    /**
+     * @return The next character, or 0 at the end of the text.
+     */
+    private char peek() {
+        return position < text.length() ? text.charAt(position) : 0;
+    }
+
+    /**
+     * Skips the next character if it is the given one.
+     *
+     * @param c The character.
+     * @return True if the character was skipped.
+     */
+    private boolean consume(char c) {
+        if (peek() == c) {
+            position++;
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Skips the next character, which must be the given one.
+     *
+     * @param c The character.
+     * @throws IOException If the next character is another one.
+     */
+    private void expect(char c) throws IOException {
+        if (!consume(c)) {
+            throw error("Expected '" + c + "'");
+        }
+    }
+
+    /**
+     * @param message What is wrong.
+     * @return An exception describing what is wrong where.
+     */
+    private IOException error(String message) {
+        return new IOException(message + " on line " + line);
+    }
+}
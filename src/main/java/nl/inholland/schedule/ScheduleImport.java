@@ -0,0 +1,431 @@
+package nl.inholland.schedule;
+
+import nl.inholland.Database;
+import nl.inholland.export.CsvReader;
+import nl.inholland.model.Room;
+import nl.inholland.model.Showing;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The ScheduleImport class adds a whole schedule of showings from a CSV or JSON file at once, instead of one showing
+ * at a time through the add showing form.
+ * <p>
+ * Importing takes two steps. {@link #read(Path, List)} reads the file and interprets its rows in parallel, and
+ * sorts the showings found by room and start time; it does not touch the database, so it can run on any thread.
+ * {@link #commit(Database)} then checks every showing for overlaps with a single sweep per room over the sorted
+ * showings and the existing showings of the room, which are found with one schedule query per room, and adds the
+ * showings without overlaps in one batch. Checking takes O(n log n) time for n rows, instead of a schedule query
+ * per row. Of two imported showings that overlap, the one starting first is imported.
+ * <p>
+ * A CSV file starts with a header; a JSON file is an array of objects. Both name their fields the same way, ignoring
+ * case, spaces and underscores:
+ * <ul>
+ *     <li>title: the title of the movie;</li>
+ *     <li>room: the name or ID of the room;</li>
+ *     <li>start: the start as dd-MM-yyyy HH:mm or yyyy-MM-ddTHH:mm;</li>
+ *     <li>end, or duration as H:mm or a number of minutes: when the showing ends;</li>
+ *     <li>age checked: optionally true or false, whether the age of customers is checked.</li>
+ * </ul>
+ * Other fields are ignored, so a file exported from the showings view can be imported again.
+ */
+public class ScheduleImport {
+    // Logger used to report how long the steps of an import take
+    private static final System.Logger LOGGER = System.getLogger(ScheduleImport.class.getName());
+    // Formatter for date and time values in dd-MM-yyyy HH:mm format, like the exports
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm");
+    // Formatter for durations in H:mm format
+    private static final DateTimeFormatter DURATION_FORMATTER = DateTimeFormatter.ofPattern("H:mm");
+    // Orders the showings read by room and start time, and then by line
+    private static final Comparator<Candidate> BY_ROOM_AND_START = Comparator
+            .comparingInt((Candidate candidate) -> candidate.showing().getRoomId())
+            .thenComparing(candidate -> candidate.showing().getStartDateTime())
+            .thenComparingInt(Candidate::line);
+
+    // The number of rows read, excluding the header
+    private final int rowCount;
+    // The showings read, sorted by room and start time
+    private final List<Candidate> candidates;
+    // The rows that could not be interpreted
+    private final List<ImportReport.RowError> errors;
+    // Whether the showings have been added to a database
+    private boolean committed;
+
+    /**
+     * Constructs a new ScheduleImport instance.
+     *
+     * @param rowCount   The number of rows read, excluding the header.
+     * @param candidates The showings read, sorted by room and start time.
+     * @param errors     The rows that could not be interpreted.
+     */
+    private ScheduleImport(int rowCount, List<Candidate> candidates, List<ImportReport.RowError> errors) {
+        this.rowCount = rowCount;
+        this.candidates = candidates;
+        this.errors = errors;
+    }
+
+    /**
+     * Reads a schedule file: JSON if its name ends with .json, CSV otherwise.
+     *
+     * @param file  The file.
+     * @param rooms The rooms of the cinema.
+     * @return The import, ready to be committed.
+     * @throws IOException If the file cannot be read or is not valid CSV or JSON.
+     */
+    public static ScheduleImport read(Path file, List<Room> rooms) throws IOException {
+        long startTime = System.nanoTime();
+        List<SourceRow> rows = file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".json")
+                ? JsonReader.readRows(Files.readString(file))
+                : readCsvRows(file);
+
+        ScheduleImport scheduleImport = read(rows, rooms);
+        LOGGER.log(System.Logger.Level.DEBUG, "Read {0} rows from {1} in {2} ms", rows.size(), file,
+                (System.nanoTime() - startTime) / 1_000_000);
+        return scheduleImport;
+    }
+
+    /**
+     * Interprets rows in parallel and sorts the showings found by room and start time.
+     *
+     * @param rows  The rows.
+     * @param rooms The rooms of the cinema.
+     * @return The import, ready to be committed.
+     */
+    static ScheduleImport read(List<SourceRow> rows, List<Room> rooms) {
+        Map<String, Room> roomsByName = new HashMap<>();
+
+        for (Room room : rooms) {
+            roomsByName.put(String.valueOf(room.getId()), room);
+        }
+        for (Room room : rooms) {
+            roomsByName.put(normalizeName(room.getName()), room);
+        }
+
+        // Parsing the dates dominates, and rows do not depend on each other
+        List<Candidate> parsed = rows.parallelStream().map(row -> parseRow(row, roomsByName)).toList();
+
+        List<Candidate> candidates = new ArrayList<>(parsed.size());
+        List<ImportReport.RowError> errors = new ArrayList<>();
+
+        for (Candidate candidate : parsed) {
+            if (candidate.error() != null) {
+                errors.add(new ImportReport.RowError(candidate.line(), candidate.error()));
+            } else {
+                candidates.add(candidate);
+            }
+        }
+
+        candidates.sort(BY_ROOM_AND_START);
+        return new ScheduleImport(rows.size(), candidates, errors);
+    }
+
+    /**
+     * Checks the showings read for overlaps with each other and with the showings of the database, and adds those
+     * without overlaps in one batch. Must be called on the thread that mutates the database, and only once.
+     *
+     * @param database The database to add the showings to.
+     * @return Which showings were added and why the other rows were not.
+     * @throws java.io.UncheckedIOException If the showings cannot be written to the journal; none of them is then
+     *                                      added.
+     */
+    public ImportReport commit(Database database) {
+        if (committed) {
+            throw new IllegalStateException("The schedule has been imported already");
+        }
+
+        committed = true;
+        long startTime = System.nanoTime();
+        List<Showing> accepted = new ArrayList<>(candidates.size());
+        List<ImportReport.RowError> rejected = new ArrayList<>(errors);
+
+        int from = 0;
+
+        while (from < candidates.size()) {
+            int roomId = candidates.get(from).showing().getRoomId();
+            LocalDateTime roomEnd = LocalDateTime.MIN;
+            int to = from;
+
+            while (to < candidates.size() && candidates.get(to).showing().getRoomId() == roomId) {
+                LocalDateTime end = candidates.get(to).showing().getEndDateTime();
+                roomEnd = end.isAfter(roomEnd) ? end : roomEnd;
+                to++;
+            }
+
+            sweepRoom(database, candidates.subList(from, to), roomEnd, accepted, rejected);
+            from = to;
+        }
+
+        accepted.sort(Comparator.comparing(Showing::getStartDateTime));
+        database.addShowings(accepted);
+        rejected.sort(Comparator.comparingInt(ImportReport.RowError::line));
+
+        LOGGER.log(System.Logger.Level.DEBUG, "Checked {0} showings and imported {1} in {2} ms", candidates.size(),
+                accepted.size(), (System.nanoTime() - startTime) / 1_000_000);
+        return new ImportReport(rowCount, accepted, rejected);
+    }
+
+    /**
+     * @return The number of rows read, excluding the header.
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Normalizes the name of a field or room, so it can be written in any case and with or without spaces,
+     * underscores and dashes.
+     *
+     * @param name The name as written.
+     * @return The normalized name.
+     */
+    static String normalizeName(String name) {
+        StringBuilder normalized = new StringBuilder(name.length());
+
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+
+            if (c != ' ' && c != '_' && c != '-') {
+                normalized.append(Character.toLowerCase(c));
+            }
+        }
+
+        return normalized.toString();
+    }
+
+    /**
+     * Sweeps over the showings read for one room and the showings the room already has, both sorted by start time,
+     * keeping the end of the last showing the room is busy with. A showing read is accepted if it starts after that
+     * end and ends before the next existing showing starts.
+     *
+     * @param database   The database.
+     * @param candidates The showings read for the room, sorted by start time.
+     * @param roomEnd    The end of the showing read that ends last.
+     * @param accepted   Receives the showings without overlaps.
+     * @param rejected   Receives the rows of the showings with overlaps.
+     */
+    private static void sweepRoom(Database database, List<Candidate> candidates, LocalDateTime roomEnd,
+                                  List<Showing> accepted, List<ImportReport.RowError> rejected) {
+        int roomId = candidates.get(0).showing().getRoomId();
+        List<Showing> existing = database.findOverlappingShowings(roomId,
+                candidates.get(0).showing().getStartDateTime(), roomEnd);
+
+        int next = 0;
+        LocalDateTime busyUntil = LocalDateTime.MIN;
+        String busyWith = null;
+
+        for (Candidate candidate : candidates) {
+            Showing showing = candidate.showing();
+
+            // Existing showings starting before this one keep the room busy until they end
+            while (next < existing.size() && !existing.get(next).getStartDateTime().isAfter(showing.getStartDateTime())) {
+                Showing before = existing.get(next++);
+
+                if (before.getEndDateTime().isAfter(busyUntil)) {
+                    busyUntil = before.getEndDateTime();
+                    busyWith = describe(before);
+                }
+            }
+
+            if (busyUntil.isAfter(showing.getStartDateTime())) {
+                rejected.add(new ImportReport.RowError(candidate.line(), "Overlaps " + busyWith));
+            } else if (next < existing.size() && existing.get(next).getStartDateTime().isBefore(showing.getEndDateTime())) {
+                rejected.add(new ImportReport.RowError(candidate.line(), "Overlaps " + describe(existing.get(next))));
+            } else {
+                accepted.add(showing);
+                busyUntil = showing.getEndDateTime();
+                busyWith = "the showing on line " + candidate.line();
+            }
+        }
+    }
+
+    /**
+     * @param showing An existing showing.
+     * @return A description of the showing for an error message.
+     */
+    private static String describe(Showing showing) {
+        return "\"" + showing.getTitle() + "\" at " + FORMATTER.format(showing.getStartDateTime());
+    }
+
+    /**
+     * Reads the rows of a CSV file, naming the fields of each row after the header.
+     *
+     * @param file The file.
+     * @return The rows after the header, without empty lines.
+     * @throws IOException If the file cannot be read or is not valid CSV.
+     */
+    private static List<SourceRow> readCsvRows(Path file) throws IOException {
+        List<SourceRow> rows = new ArrayList<>();
+
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+             CsvReader csv = new CsvReader(in)) {
+            String[] header = csv.readRow();
+
+            if (header == null) {
+                return rows;
+            }
+
+            for (int i = 0; i < header.length; i++) {
+                header[i] = normalizeName(header[i]);
+            }
+
+            String[] values;
+
+            while ((values = csv.readRow()) != null) {
+                if (values.length == 1 && values[0].isBlank()) {
+                    continue;
+                }
+
+                Map<String, String> fields = new HashMap<>();
+
+                for (int i = 0; i < Math.min(header.length, values.length); i++) {
+                    fields.put(header[i], values[i]);
+                }
+
+                rows.add(new SourceRow(csv.getLineNumber(), fields));
+            }
+        }
+
+        return rows;
+    }
+
+    /**
+     * Interprets a row as a new showing.
+     *
+     * @param row         The row.
+     * @param roomsByName The rooms by normalized name and by ID.
+     * @return The showing, or why the row is not a valid showing.
+     */
+    private static Candidate parseRow(SourceRow row, Map<String, Room> roomsByName) {
+        String title = field(row, "title");
+        String roomName = field(row, "room");
+        String start = field(row, "start");
+
+        if (title.isEmpty()) {
+            return Candidate.error(row, "The title is missing");
+        }
+        if (roomName.isEmpty()) {
+            return Candidate.error(row, "The room is missing");
+        }
+
+        Room room = roomsByName.get(normalizeName(roomName));
+
+        if (room == null) {
+            return Candidate.error(row, "Room \"" + roomName + "\" does not exist");
+        }
+
+        LocalDateTime startDateTime = parseDateTime(start);
+
+        if (startDateTime == null) {
+            return Candidate.error(row, "The start \"" + start + "\" is not a date and time");
+        }
+
+        LocalTime duration = parseDuration(row, startDateTime);
+
+        if (duration == null) {
+            return Candidate.error(row, "The end or duration is missing, invalid or not within a day of the start");
+        }
+
+        String ageChecked = field(row, "agechecked").toLowerCase(Locale.ROOT);
+        boolean isAgeChecked = ageChecked.equals("true") || ageChecked.equals("yes") || ageChecked.equals("1");
+
+        if (!isAgeChecked && !ageChecked.isEmpty() && !ageChecked.equals("false") && !ageChecked.equals("no")
+                && !ageChecked.equals("0")) {
+            return Candidate.error(row, "Age checked must be true or false");
+        }
+
+        Showing showing = new Showing(-1, startDateTime, duration, title, room.getId(), room.createSeatMap(),
+                isAgeChecked);
+        return new Candidate(row.line(), showing, null);
+    }
+
+    /**
+     * @param row  A row.
+     * @param name The normalized name of a field.
+     * @return The trimmed value of the field, or an empty string if the row does not have it.
+     */
+    private static String field(SourceRow row, String name) {
+        String value = row.fields().get(name);
+        return value != null ? value.trim() : "";
+    }
+
+    /**
+     * @param text A date and time as dd-MM-yyyy HH:mm or yyyy-MM-ddTHH:mm.
+     * @return The date and time, or null if the text is neither.
+     */
+    private static LocalDateTime parseDateTime(String text) {
+        try {
+            return LocalDateTime.parse(text, FORMATTER);
+        } catch (DateTimeParseException e) {
+            try {
+                return LocalDateTime.parse(text);
+            } catch (DateTimeParseException isoException) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Determines the duration of a showing from its end or duration field.
+     *
+     * @param row   The row of the showing.
+     * @param start The start of the showing.
+     * @return The duration, or null if neither field is a valid end or duration of less than a day.
+     */
+    private static LocalTime parseDuration(SourceRow row, LocalDateTime start) {
+        String duration = field(row, "duration");
+        long minutes;
+
+        if (!duration.isEmpty()) {
+            try {
+                minutes = duration.indexOf(':') >= 0
+                        ? LocalTime.parse(duration, DURATION_FORMATTER).toSecondOfDay() / 60
+                        : Long.parseLong(duration);
+            } catch (DateTimeParseException | NumberFormatException e) {
+                return null;
+            }
+        } else {
+            LocalDateTime end = parseDateTime(field(row, "end"));
+
+            if (end == null) {
+                return null;
+            }
+
+            minutes = start.until(end, ChronoUnit.MINUTES);
+        }
+
+        return minutes > 0 && minutes < 24 * 60 ? LocalTime.ofSecondOfDay(minutes * 60) : null;
+    }
+
+    /**
+     * A row interpreted as a new showing, or why it could not be.
+     *
+     * @param line    The line the row starts on.
+     * @param showing The new showing, or null if the row is not valid.
+     * @param error   Why the row is not valid, or null if it is.
+     */
+    private record Candidate(int line, Showing showing, String error) {
+        /**
+         * @param row     The row.
+         * @param message Why the row is not valid.
+         * @return A candidate for an invalid row.
+         */
+        private static Candidate error(SourceRow row, String message) {
+            return new Candidate(row.line(), null, message);
+        }
+    }
+}
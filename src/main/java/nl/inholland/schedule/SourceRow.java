@@ -0,0 +1,12 @@
+package nl.inholland.schedule;
+
+import java.util.Map;
+
+/**
+ * A row of a schedule file as read, before its fields are interpreted.
+ *
+ * @param line   The line the row starts on, counting from 1, to report errors in it.
+ * @param fields The fields of the row by normalized name, see {@link ScheduleImport#normalizeName(String)}.
+ */
+record SourceRow(int line, Map<String, String> fields) {
+}
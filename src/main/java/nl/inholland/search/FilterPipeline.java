@@ -0,0 +1,143 @@
+package nl.inholland.search;
+
+import javafx.application.Platform;
+import nl.inholland.metrics.LatencyHistogram;
+import nl.inholland.metrics.Metrics;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * The FilterPipeline class runs the query behind a search box off the JavaFX Application Thread, so typing stays
+ * responsive however large the list being searched is.
+ * Input is debounced: a query only starts once the user has stopped typing for a moment. Each input supersedes the
+ * previous one; a query that has not started yet is cancelled, and the result of a query that was overtaken by newer
+ * input is dropped instead of published. Results are published on the JavaFX Application Thread.
+ * <p>
+ * All pipelines share one background thread, as queries of different search boxes never need to run at the same
+ * time. The latency of every published query is logged at debug level and available from {@link #getLastLatency()}.
+ *
+ * @param <T> The type of the items found by the query.
+ */
+public class FilterPipeline<T> {
+    // Logger used to report the latency of the queries
+    private static final System.Logger LOGGER = System.getLogger(FilterPipeline.class.getName());
+    // Latency of the queries of all pipelines, exposed through JMX
+    private static final LatencyHistogram QUERY_LATENCY = Metrics.histogram("search", "query");
+    // Latency from the input to the publication of its result, including the debounce delay
+    private static final LatencyHistogram PUBLISH_LATENCY = Metrics.histogram("search", "publish");
+    // Runs the queries of all pipelines
+    private static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "filter-pipeline");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // How long the input must be unchanged before the query starts
+    private final Duration debounce;
+    // Finds the items for a search text, called on the background thread
+    private final Function<String, List<T>> query;
+    // Receives the items found, called on the JavaFX Application Thread
+    private final Consumer<List<T>> publisher;
+    // Numbers the inputs, so results of superseded inputs can be recognized
+    private final AtomicLong generation = new AtomicLong();
+
+    // The query waiting for the debounce delay or running, or null if there is none
+    private Future<?> pending;
+    // The time from the last input to the publication of its result, in nanoseconds
+    private volatile long lastLatency;
+
+    /**
+     * Constructs a new FilterPipeline instance.
+     *
+     * @param debounce  How long the input must be unchanged before the query starts.
+     * @param query     Finds the items for a search text; called on a background thread, so it must only read data
+     *                  that is safe to read from another thread.
+     * @param publisher Receives the items found; called on the JavaFX Application Thread.
+     */
+    public FilterPipeline(Duration debounce, Function<String, List<T>> query, Consumer<List<T>> publisher) {
+        this.debounce = debounce;
+        this.query = query;
+        this.publisher = publisher;
+    }
+
+    /**
+     * Starts a query for new input once the debounce delay has passed, superseding any earlier input.
+     * Must be called on the JavaFX Application Thread.
+     *
+     * @param text The search text.
+     */
+    public void submit(String text) {
+        long inputGeneration = cancelPending();
+        long inputTime = System.nanoTime();
+
+        pending = EXECUTOR.schedule(() -> run(text, inputGeneration, inputTime), debounce.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Supersedes any earlier input without starting a new query, e.g. because the input is handled directly.
+     * Must be called on the JavaFX Application Thread.
+     */
+    public void cancel() {
+        cancelPending();
+    }
+
+    /**
+     * @return The time from the last input to the publication of its result, or zero if nothing was published yet.
+     */
+    public Duration getLastLatency() {
+        return Duration.ofNanos(lastLatency);
+    }
+
+    /**
+     * Cancels the pending query and makes the results of earlier input stale.
+     *
+     * @return The generation of the next input.
+     */
+    private long cancelPending() {
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+
+        return generation.incrementAndGet();
+    }
+
+    /**
+     * Runs the query on the background thread and publishes its result unless newer input arrived.
+     *
+     * @param text            The search text.
+     * @param inputGeneration The generation of the input.
+     * @param inputTime       The time of the input, in System.nanoTime() terms.
+     */
+    private void run(String text, long inputGeneration, long inputTime) {
+        if (generation.get() != inputGeneration) {
+            return;
+        }
+
+        long queryStart = System.nanoTime();
+        List<T> items = query.apply(text);
+        long queryTime = System.nanoTime() - queryStart;
+        QUERY_LATENCY.record(queryTime);
+
+        Platform.runLater(() -> {
+            if (generation.get() != inputGeneration) {
+                return;
+            }
+
+            publisher.accept(items);
+            lastLatency = System.nanoTime() - inputTime;
+            PUBLISH_LATENCY.record(lastLatency);
+            LOGGER.log(System.Logger.Level.DEBUG, () -> String.format(
+                    "Filter query \"%s\" found %d items in %d us, published %d us after the input",
+                    text, items.size(), queryTime / 1000, lastLatency / 1000));
+        });
+    }
+}
@@ -0,0 +1,118 @@
+package nl.inholland.export;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the {@link CsvWriter}: separating and quoting fields as RFC 4180 describes.
+ */
+class CsvWriterTest {
+    // The directory holding the written files
+    @TempDir
+    Path directory;
+
+    /**
+     * Plain fields are separated by commas and rows end with CRLF.
+     */
+    @Test
+    void separatesFieldsAndRows() throws IOException {
+        String csv = write(writer -> {
+            writer.writeRow("Title", "Room");
+            writer.writeField("Dune");
+            writer.writeField(3);
+            writer.endRow();
+        });
+
+        assertEquals("Title,Room\r\nDune,3\r\n", csv);
+    }
+
+    /**
+     * Fields with a comma, a double quote or a line break are quoted, with double quotes doubled.
+     */
+    @Test
+    void quotesSpecialFields() throws IOException {
+        String csv = write(writer -> writer.writeRow("Doe, John", "The \"Best\" Film", "Line\nbreak", "Carriage\rreturn",
+                "\""));
+
+        assertEquals("\"Doe, John\",\"The \"\"Best\"\" Film\",\"Line\nbreak\",\"Carriage\rreturn\",\"\"\"\"\r\n", csv);
+    }
+
+    /**
+     * Other characters, such as spaces, single quotes and semicolons, are written as they are.
+     */
+    @Test
+    void leavesOtherFieldsUnquoted() throws IOException {
+        String csv = write(writer -> writer.writeRow(" padded ", "it's", "a;b", "Amélie"));
+
+        assertEquals(" padded ,it's,a;b,Amélie\r\n", csv);
+    }
+
+    /**
+     * Null and empty fields are written as empty fields, keeping their separators.
+     */
+    @Test
+    void writesEmptyFields() throws IOException {
+        String csv = write(writer -> {
+            writer.writeField(null);
+            writer.writeField("");
+            writer.writeField(null, DateTimeFormatter.ISO_LOCAL_DATE);
+            writer.endRow();
+        });
+
+        assertEquals(",,\r\n", csv);
+    }
+
+    /**
+     * Formatted dates are quoted too if the format puts a comma in them.
+     */
+    @Test
+    void quotesFormattedFields() throws IOException {
+        LocalDateTime dateTime = LocalDateTime.of(2025, 3, 1, 20, 15);
+
+        String csv = write(writer -> {
+            writer.writeField(dateTime, DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm"));
+            writer.writeField(dateTime, DateTimeFormatter.ofPattern("d-M, yyyy"));
+            writer.writeField(-42);
+            writer.endRow();
+        });
+
+        assertEquals("2025-03-01 20:15,\"1-3, 2025\",-42\r\n", csv);
+    }
+
+    /**
+     * Writes rows to a new file.
+     *
+     * @param rows Writes the rows.
+     * @return The contents of the file.
+     * @throws IOException If the file cannot be written or read.
+     */
+    private String write(Rows rows) throws IOException {
+        Path path = directory.resolve("export.csv");
+
+        try (CsvWriter writer = new CsvWriter(FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.WRITE))) {
+            rows.write(writer);
+        }
+
+        return Files.readString(path, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes rows with a CsvWriter.
+     */
+    @FunctionalInterface
+    private interface Rows {
+        void write(CsvWriter writer) throws IOException;
+    }
+}
@@ -0,0 +1,123 @@
+package nl.inholland.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the {@link LatencyHistogram}: the bounds of its buckets and the percentiles read from them.
+ */
+class LatencyHistogramTest {
+    // A duration far above the ones under test, recorded so the maximum does not cap the percentile read
+    private static final long MARKER_NANOS = 1L << 36;
+
+    /**
+     * Durations below 128 ns are counted exactly.
+     */
+    @Test
+    void countsShortDurationsExactly() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        for (int nanos = 0; nanos < 128; nanos++) {
+            histogram.record(nanos);
+        }
+
+        assertEquals(0, histogram.getValueAtPercentile(0));
+        assertEquals(63, histogram.getValueAtPercentile(50));
+        assertEquals(126, histogram.getValueAtPercentile(99));
+        assertEquals(127, histogram.getValueAtPercentile(100));
+    }
+
+    /**
+     * From 128 ns on the buckets are two wide, from 256 ns four wide, and so on, and a percentile reads the highest
+     * duration of its bucket.
+     */
+    @Test
+    void readsHighestValueOfBucket() {
+        assertEquals(127, lowestPercentile(127));
+        assertEquals(129, lowestPercentile(128));
+        assertEquals(129, lowestPercentile(129));
+        assertEquals(131, lowestPercentile(130));
+        assertEquals(255, lowestPercentile(254));
+        assertEquals(259, lowestPercentile(256));
+        assertEquals(259, lowestPercentile(259));
+        assertEquals(263, lowestPercentile(260));
+    }
+
+    /**
+     * A percentile is never below the duration recorded and at most 1/64 above it, over the whole trackable range.
+     */
+    @Test
+    void staysWithinPrecision() {
+        Random random = new Random(42);
+
+        for (int bits = 7; bits < 36; bits++) {
+            for (int i = 0; i < 100; i++) {
+                long nanos = (1L << bits) + (random.nextLong() & ((1L << bits) - 1));
+                long read = lowestPercentile(nanos);
+
+                assertTrue(read >= nanos, nanos + " read as " + read);
+                assertTrue(read - nanos <= nanos / 64, nanos + " read as " + read);
+            }
+        }
+    }
+
+    /**
+     * A percentile is capped at the longest duration recorded, rather than the end of its bucket.
+     */
+    @Test
+    void capsAtMaximum() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1_000_000);
+
+        assertEquals(1_000_000, histogram.getValueAtPercentile(50));
+        assertEquals(1.0, histogram.getMaxMillis());
+    }
+
+    /**
+     * Durations above the highest trackable one are counted as that one, while the maximum and mean keep the real
+     * duration; negative durations count as zero.
+     */
+    @Test
+    void clampsOutOfRangeDurations() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(LatencyHistogram.HIGHEST_TRACKABLE_NANOS * 2);
+
+        assertEquals(0, histogram.getValueAtPercentile(50));
+        assertEquals(LatencyHistogram.HIGHEST_TRACKABLE_NANOS, histogram.getValueAtPercentile(100));
+        assertEquals(LatencyHistogram.HIGHEST_TRACKABLE_NANOS * 2 / 1_000_000.0, histogram.getMaxMillis());
+        assertEquals(LatencyHistogram.HIGHEST_TRACKABLE_NANOS / 1_000_000.0, histogram.getMeanMillis());
+    }
+
+    /**
+     * An empty or reset histogram reads zero everywhere.
+     */
+    @Test
+    void readsZeroWhenEmpty() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getValueAtPercentile(99));
+
+        histogram.record(5_000);
+        histogram.reset();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+        assertEquals(0, histogram.getMeanMillis());
+        assertEquals(0, histogram.getMaxMillis());
+    }
+
+    /**
+     * @param nanos A duration.
+     * @return The lowest percentile of a histogram of the duration and a much longer one, which is the highest
+     * duration of the bucket the duration is counted in.
+     */
+    private static long lowestPercentile(long nanos) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(nanos);
+        histogram.record(MARKER_NANOS);
+        return histogram.getValueAtPercentile(50);
+    }
+}
@@ -0,0 +1,161 @@
+package nl.inholland.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the {@link SeatMap}: reserving and holding several seats at once, and what happens when some of them are
+ * taken already.
+ */
+class SeatMapTest {
+    /**
+     * Free seats are all reserved at once.
+     */
+    @Test
+    void reservesAllFreeSeats() {
+        SeatMap seats = new SeatMap(6, 12);
+
+        assertTrue(seats.reserveAll(List.of(new int[]{0, 0}, new int[]{5, 11})).isEmpty());
+        assertTrue(seats.isReserved(0, 0));
+        assertTrue(seats.isReserved(5, 11));
+        assertEquals(2, seats.getReservedCount());
+        assertEquals(70, seats.seatsLeft());
+    }
+
+    /**
+     * If one seat is taken, none of the seats is reserved, including those in words claimed before the conflict
+     * was found, and only the taken seat is reported.
+     */
+    @Test
+    void reservesNoneOnConflict() {
+        SeatMap seats = new SeatMap(6, 12);
+        assertTrue(seats.reserve(5, 11));
+
+        List<int[]> lost = seats.reserveAll(List.of(new int[]{0, 0}, new int[]{0, 1}, new int[]{5, 11}));
+
+        assertEquals(1, lost.size());
+        assertArrayEquals(new int[]{5, 11}, lost.get(0));
+        assertFalse(seats.isReserved(0, 0));
+        assertFalse(seats.isReserved(0, 1));
+        assertEquals(1, seats.getReservedCount());
+    }
+
+    /**
+     * Held seats cannot be reserved or held by anyone else, but are not counted as sold until they are sold.
+     */
+    @Test
+    void holdsSeatsAgainstOthers() {
+        SeatMap seats = new SeatMap(6, 12);
+
+        assertTrue(seats.hold(List.of(new int[]{2, 3}, new int[]{2, 4})).isEmpty());
+        assertTrue(seats.isHeld(2, 3));
+        assertTrue(seats.isReserved(2, 3));
+        assertEquals(0, seats.getReservedCount());
+        assertEquals(70, seats.seatsLeft());
+
+        List<int[]> lost = seats.hold(List.of(new int[]{2, 4}, new int[]{2, 5}));
+        assertEquals(1, lost.size());
+        assertArrayEquals(new int[]{2, 4}, lost.get(0));
+        assertFalse(seats.isReserved(2, 5));
+        assertFalse(seats.isHeld(2, 5));
+
+        assertEquals(1, seats.reserveAll(List.of(new int[]{2, 3})).size());
+    }
+
+    /**
+     * Held seats become sold seats when sold, and free seats when released.
+     */
+    @Test
+    void sellsAndReleasesHeldSeats() {
+        SeatMap seats = new SeatMap(6, 12);
+        List<int[]> sold = List.of(new int[]{1, 1});
+        List<int[]> released = List.of(new int[]{1, 2});
+        seats.hold(sold);
+        seats.hold(released);
+
+        seats.sellHeld(sold);
+        seats.releaseHeld(released);
+
+        assertFalse(seats.isHeld(1, 1));
+        assertTrue(seats.isReserved(1, 1));
+        assertFalse(seats.isReserved(1, 2));
+        assertEquals(1, seats.getReservedCount());
+        assertEquals(71, seats.seatsLeft());
+    }
+
+    /**
+     * Held seats are left out of the persisted words and of copies.
+     */
+    @Test
+    void leavesHeldSeatsOutOfWords() {
+        SeatMap seats = new SeatMap(6, 12);
+        seats.reserve(0, 0);
+        seats.hold(List.of(new int[]{0, 1}));
+
+        assertArrayEquals(new long[]{1, 0}, seats.getWords());
+        assertFalse(seats.copy().isReserved(0, 1));
+    }
+
+    /**
+     * Seats outside the room are rejected.
+     */
+    @Test
+    void rejectsSeatsOutsideRoom() {
+        SeatMap seats = new SeatMap(6, 12);
+
+        assertThrows(IndexOutOfBoundsException.class, () -> seats.reserveAll(List.of(new int[]{6, 0})));
+        assertThrows(IndexOutOfBoundsException.class, () -> seats.hold(List.of(new int[]{0, 12})));
+    }
+
+    /**
+     * Threads booking overlapping pairs of seats at the same time never sell a seat twice.
+     */
+    @Test
+    void sellsEverySeatOnce() throws InterruptedException {
+        SeatMap seats = new SeatMap(6, 12);
+        AtomicIntegerArray owners = new AtomicIntegerArray(72);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+
+        for (int t = 0; t < 8; t++) {
+            int thread = t;
+            threads.add(Thread.ofPlatform().start(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+
+                // Every thread tries every pair of neighbouring seats, starting at a different seat
+                for (int i = 0; i < 71; i++) {
+                    int seat = (i + thread * 9) % 71;
+                    int[] first = {seat / 12, seat % 12};
+                    int[] second = {(seat + 1) / 12, (seat + 1) % 12};
+
+                    if (seats.reserveAll(List.of(first, second)).isEmpty()) {
+                        owners.incrementAndGet(seat);
+                        owners.incrementAndGet(seat + 1);
+                    }
+                }
+            }));
+        }
+
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        int sold = 0;
+        for (int seat = 0; seat < 72; seat++) {
+            assertTrue(owners.get(seat) <= 1, "Seat " + seat + " was sold twice");
+            sold += owners.get(seat);
+        }
+        assertEquals(sold, seats.getReservedCount());
+    }
+}
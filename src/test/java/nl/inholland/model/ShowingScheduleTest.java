@@ -0,0 +1,149 @@
+package nl.inholland.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the {@link ShowingSchedule}: the edges of the overlap rule, showings of other rooms, and keeping the
+ * index right as showings are moved and removed.
+ */
+class ShowingScheduleTest {
+    // The day the showings run on
+    private static final LocalDate DAY = LocalDate.of(2025, 3, 1);
+
+    /**
+     * A showing that ends exactly when the period starts, or starts exactly when it ends, does not overlap it.
+     */
+    @Test
+    void excludesTouchingShowings() {
+        Showing before = createShowing(0, 1, at(14, 0), 2);
+        Showing after = createShowing(1, 1, at(19, 0), 2);
+        ShowingSchedule schedule = new ShowingSchedule(List.of(before, after));
+
+        assertEquals(List.of(), ids(schedule.findOverlapping(1, at(16, 0), at(19, 0))));
+    }
+
+    /**
+     * A showing that runs into the period by a minute at either end overlaps it.
+     */
+    @Test
+    void includesShowingsOverlappingByAMinute() {
+        Showing before = createShowing(0, 1, at(14, 1), 2);
+        Showing after = createShowing(1, 1, at(18, 59), 2);
+        ShowingSchedule schedule = new ShowingSchedule(List.of(after, before));
+
+        assertEquals(List.of(0, 1), ids(schedule.findOverlapping(1, at(16, 0), at(19, 0))));
+    }
+
+    /**
+     * A showing that covers the whole period overlaps it, although it starts long before the period.
+     */
+    @Test
+    void includesShowingsCoveringPeriod() {
+        Showing longShowing = createShowing(0, 1, at(10, 0), 10);
+        Showing shortShowing = createShowing(1, 1, at(11, 0), 1);
+        ShowingSchedule schedule = new ShowingSchedule(List.of(longShowing, shortShowing));
+
+        assertEquals(List.of(0), ids(schedule.findOverlapping(1, at(18, 0), at(18, 30))));
+    }
+
+    /**
+     * Showings in other rooms never overlap, and an empty period overlaps nothing.
+     */
+    @Test
+    void ignoresOtherRoomsAndEmptyPeriods() {
+        ShowingSchedule schedule = new ShowingSchedule(List.of(createShowing(0, 1, at(14, 0), 2)));
+
+        assertEquals(List.of(), ids(schedule.findOverlapping(2, at(14, 0), at(16, 0))));
+        assertEquals(List.of(), ids(schedule.findOverlapping(1, at(15, 0), at(15, 0))));
+        assertEquals(List.of(), ids(schedule.findOverlapping(1, at(16, 0), at(15, 0))));
+    }
+
+    /**
+     * Showings starting at the same time are all found, in the order of their IDs.
+     */
+    @Test
+    void includesShowingsStartingTogether() {
+        ShowingSchedule schedule = new ShowingSchedule(List.of(createShowing(2, 1, at(14, 0), 2),
+                createShowing(1, 1, at(14, 0), 1)));
+
+        assertEquals(List.of(1, 2), ids(schedule.findOverlapping(1, at(14, 0), at(14, 1))));
+    }
+
+    /**
+     * A moved showing is only found at its new time and in its new room, and a removed one is not found at all.
+     * Removing the longest showing of a room no longer widens the range searched for other showings.
+     */
+    @Test
+    void followsMovedAndRemovedShowings() {
+        Showing moved = createShowing(0, 1, at(14, 0), 2);
+        Showing removed = createShowing(1, 1, at(8, 0), 12);
+        ShowingSchedule schedule = new ShowingSchedule(List.of(moved, removed));
+
+        moved.setStartDateTime(at(20, 0));
+        moved.setRoom(new Room(2, "Room 2", 6, 12));
+        schedule.add(moved);
+        schedule.remove(1);
+
+        assertEquals(List.of(), ids(schedule.findOverlapping(1, at(8, 0), at(23, 0))));
+        assertEquals(List.of(0), ids(schedule.findOverlapping(2, at(21, 0), at(21, 30))));
+        assertEquals(1, schedule.size());
+    }
+
+    /**
+     * Showings starting exactly at a moment are not counted as starting after it, and showings on a date include
+     * those starting at midnight but not those of the next day.
+     */
+    @Test
+    void listsShowingsByStart() {
+        Showing midnight = createShowing(0, 1, at(0, 0), 2);
+        Showing evening = createShowing(1, 1, at(20, 0), 2);
+        Showing nextDay = createShowing(2, 1, DAY.plusDays(1).atStartOfDay(), 2);
+        ShowingSchedule schedule = new ShowingSchedule(List.of(nextDay, evening, midnight));
+
+        assertEquals(List.of(1, 2), ids(schedule.startingAfter(at(0, 0))));
+        assertEquals(List.of(0, 1), ids(schedule.startingOn(DAY)));
+        assertEquals(List.of(1, 2), ids(schedule.startingBetween(at(0, 0), DAY.plusDays(1).atStartOfDay())));
+    }
+
+    /**
+     * @param showings The showings.
+     * @return The IDs of the showings, in order.
+     */
+    private static List<Integer> ids(Iterable<Showing> showings) {
+        List<Integer> ids = new ArrayList<>();
+
+        for (Showing showing : showings) {
+            ids.add(showing.getId());
+        }
+
+        return ids;
+    }
+
+    /**
+     * @param hour   The hour of the day.
+     * @param minute The minute of the hour.
+     * @return The time on the day the showings run on.
+     */
+    private static LocalDateTime at(int hour, int minute) {
+        return DAY.atTime(hour, minute);
+    }
+
+    /**
+     * @param id     The ID of the showing.
+     * @param roomId The ID of the room.
+     * @param start  The start of the showing.
+     * @param hours  The duration of the showing in hours.
+     * @return A new showing.
+     */
+    private static Showing createShowing(int id, int roomId, LocalDateTime start, int hours) {
+        return new Showing(id, start, LocalTime.of(hours, 0), "Showing " + id, roomId, new SeatMap(6, 12), false);
+    }
+}
@@ -0,0 +1,201 @@
+package nl.inholland.persistence;
+
+import nl.inholland.Database;
+import nl.inholland.model.Room;
+import nl.inholland.model.Selling;
+import nl.inholland.model.Showing;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the {@link Journal}: replaying the recorded mutations onto the snapshot they follow, and recovering from
+ * records that were torn or corrupted.
+ */
+class JournalTest {
+    // The start of the showings recorded in the journal
+    private static final LocalDateTime START = LocalDateTime.of(2025, 3, 1, 20, 0);
+
+    // The directory holding the journal
+    @TempDir
+    Path directory;
+
+    /**
+     * Replaying a journal onto an empty database restores the added showing, its update and the booking.
+     */
+    @Test
+    void replaysMutations() throws IOException {
+        Path path = directory.resolve("database.journal");
+        writeShowingWithBooking(path);
+
+        Database replayed = emptyDatabase();
+        try (Journal journal = Journal.open(path, replayed)) {
+            Showing showing = replayed.findShowing(0);
+
+            assertNotNull(showing);
+            assertEquals("Updated", showing.getTitle());
+            assertTrue(showing.getSeatMap().isReserved(0, 1));
+            assertTrue(showing.getSeatMap().isReserved(0, 2));
+            assertFalse(showing.getSeatMap().isReserved(0, 3));
+            assertEquals(1, replayed.getSells().size());
+            assertEquals("Customer", replayed.getSells().get(0).getCustomer());
+            assertEquals(3, replayed.getJournalSequence());
+            assertEquals(Files.size(path), journal.size());
+        }
+    }
+
+    /**
+     * Records whose sequence number is already reflected in the snapshot are skipped.
+     */
+    @Test
+    void skipsRecordsInSnapshot() throws IOException {
+        Path path = directory.resolve("database.journal");
+        writeShowingWithBooking(path);
+
+        // A snapshot taken after the showing was added, but before it was updated
+        Database snapshot = emptyDatabase();
+        snapshot.addUpdateShowing(createShowing("Original"));
+        snapshot.setJournalSequence(1);
+
+        try (Journal ignored = Journal.open(path, snapshot)) {
+            assertEquals(1, snapshot.getShowings().size());
+            assertEquals("Updated", snapshot.findShowing(0).getTitle());
+            assertEquals(1, snapshot.getSells().size());
+        }
+    }
+
+    /**
+     * A record that was only partly written is discarded, and the next record is appended in its place.
+     */
+    @Test
+    void discardsTornRecord() throws IOException {
+        Path path = directory.resolve("database.journal");
+        writeShowingWithBooking(path);
+        long validSize = Files.size(path);
+        // A length prefix promising more bytes than follow it
+        Files.write(path, new byte[]{0, 0, 0, 100, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        Database replayed = emptyDatabase();
+        try (Journal journal = Journal.open(path, replayed)) {
+            assertEquals(1, replayed.getSells().size());
+            assertEquals(validSize, Files.size(path));
+
+            journal.appendDeleteShowing(0);
+        }
+
+        Database again = emptyDatabase();
+        try (Journal ignored = Journal.open(path, again)) {
+            assertNull(again.findShowing(0));
+            assertEquals(4, again.getJournalSequence());
+        }
+    }
+
+    /**
+     * Replay stops at a record whose checksum does not match its body, keeping the records before it.
+     */
+    @Test
+    void stopsAtCorruptedRecord() throws IOException {
+        Path path = directory.resolve("database.journal");
+        writeShowingWithBooking(path);
+        byte[] bytes = Files.readAllBytes(path);
+        // The last byte of the body of the booking, the last record, just before its checksum
+        bytes[bytes.length - Integer.BYTES - 1] ^= 1;
+        Files.write(path, bytes);
+
+        Database replayed = emptyDatabase();
+        try (Journal ignored = Journal.open(path, replayed)) {
+            assertEquals("Updated", replayed.findShowing(0).getTitle());
+            assertTrue(replayed.getSells().isEmpty());
+            assertFalse(replayed.findShowing(0).getSeatMap().isReserved(0, 1));
+            assertEquals(2, replayed.getJournalSequence());
+        }
+    }
+
+    /**
+     * A record about a showing that does not exist is skipped instead of failing the replay.
+     */
+    @Test
+    void skipsRecordsOfUnknownShowing() throws IOException {
+        Path path = directory.resolve("database.journal");
+
+        try (Journal journal = Journal.open(path, emptyDatabase())) {
+            Showing unknown = createShowing("Unknown");
+            unknown.setId(999);
+            journal.appendUpdateShowing(unknown);
+            journal.appendSellTicket(999, new int[]{0, 0});
+        }
+
+        Database replayed = emptyDatabase();
+        try (Journal ignored = Journal.open(path, replayed)) {
+            assertTrue(replayed.getShowings().isEmpty());
+            assertEquals(2, replayed.getJournalSequence());
+        }
+    }
+
+    /**
+     * Updating a showing that does not exist fails without writing to the journal.
+     */
+    @Test
+    void rejectsUpdateOfUnknownShowing() throws IOException {
+        Path path = directory.resolve("database.journal");
+        Database database = emptyDatabase();
+
+        try (Journal journal = Journal.open(path, database)) {
+            database.attachJournal(journal);
+            Showing unknown = createShowing("Unknown");
+            unknown.setId(999);
+
+            assertThrows(IllegalArgumentException.class, () -> database.addUpdateShowing(unknown));
+            assertEquals(0, journal.size());
+        }
+    }
+
+    /**
+     * Writes a journal recording a new showing, an update of its title and a booking of two of its seats.
+     *
+     * @param path The path of the journal.
+     * @throws IOException If the journal cannot be written.
+     */
+    private static void writeShowingWithBooking(Path path) throws IOException {
+        Database database = emptyDatabase();
+
+        try (Journal journal = Journal.open(path, database)) {
+            database.attachJournal(journal);
+
+            Showing showing = createShowing("Original");
+            database.addUpdateShowing(showing);
+
+            Showing updated = showing.copy();
+            updated.setTitle("Updated");
+            database.addUpdateShowing(updated);
+
+            Selling selling = database.bookSeats(0, List.of(new int[]{0, 1}, new int[]{0, 2}), "Customer").selling();
+            assertNotNull(selling);
+        }
+    }
+
+    /**
+     * @return A database with the default rooms, but without showings or sells.
+     */
+    private static Database emptyDatabase() {
+        return new Database(List.of(), List.of(), new InMemorySellingStore(), 0);
+    }
+
+    /**
+     * @param title The title of the showing.
+     * @return A new showing in the first default room, without an ID.
+     */
+    private static Showing createShowing(String title) {
+        Room room = Database.createDefaultRooms().get(0);
+        return new Showing(-1, START, LocalTime.of(2, 0), title, room.getId(), room.createSeatMap(), false);
+    }
+}
@@ -0,0 +1,150 @@
+package nl.inholland.persistence;
+
+import nl.inholland.Database;
+import nl.inholland.model.Selling;
+import nl.inholland.model.Showing;
+import nl.inholland.model.User;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the {@link SnapshotCodec}: writing a database and reading it back, with its history in segments and its
+ * sells in the snapshot or in a durable store.
+ */
+class SnapshotCodecTest {
+    // The time the snapshots are written at: the sample showing of October goes to the history, the others stay hot
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 11, 1, 12, 0);
+
+    // The directory holding the snapshots
+    @TempDir
+    Path directory;
+
+    /**
+     * A snapshot read back holds the same users, rooms, showings and sells, with the old showings in the history.
+     */
+    @Test
+    void roundTripsDatabase() throws IOException {
+        Path path = directory.resolve("database.snap");
+        Database database = new Database();
+        database.setJournalSequence(42);
+        SnapshotCodec.write(database, path, NOW);
+
+        Database read = SnapshotCodec.read(path, new InMemorySellingStore());
+
+        assertEquals(42, read.getJournalSequence());
+        assertEquals(database.getUsers(), read.getUsers());
+        assertEquals(database.getRooms().size(), read.getRooms().size());
+        assertNotNull(read.getHistory());
+        assertEquals(List.of(0, 1), read.getLoadedShowings().stream().map(Showing::getId).sorted().toList());
+
+        // Reading every showing and sell loads the history
+        assertEquals(database.getShowings().size(), read.getShowings().size());
+        for (Showing showing : database.getShowings()) {
+            assertShowingEquals(showing, read.findShowing(showing.getId()));
+        }
+
+        List<Selling> sells = read.getSells();
+        assertEquals(database.getSells().size(), sells.size());
+        for (Selling expected : database.getSells()) {
+            Selling actual = sells.stream().filter(selling -> selling.getId() == expected.getId()).findFirst()
+                    .orElseThrow();
+            assertEquals(expected.getCustomer(), actual.getCustomer());
+            assertEquals(expected.getShowing().getId(), actual.getShowing().getId());
+            assertEquals(expected.getDateTime().withSecond(0).withNano(0), actual.getDateTime());
+            assertEquals(expected.getSeats().size(), actual.getSeats().size());
+        }
+    }
+
+    /**
+     * The users can be read on their own, before the rest of the snapshot.
+     */
+    @Test
+    void readsUsers() throws IOException {
+        Path path = directory.resolve("database.snap");
+        Database database = new Database();
+        SnapshotCodec.write(database, path, NOW);
+
+        List<User> users = SnapshotCodec.readUsers(path);
+
+        assertEquals(database.getUsers(), users);
+    }
+
+    /**
+     * With a durable store the snapshot keeps only the number of sells, and sells added to the store after the
+     * snapshot are dropped when it is read, as the journal replays them.
+     */
+    @Test
+    void truncatesStoreToSnapshot() throws IOException {
+        Path path = directory.resolve("database.snap");
+        Path sellsPath = directory.resolve("database.sells");
+
+        try (PagedSellingStore store = PagedSellingStore.open(sellsPath, 4)) {
+            Database database = new Database().withSellingStore(store);
+            int sellCount = database.getSells().size();
+            SnapshotCodec.write(database, path, NOW);
+            store.add(new Selling(sellCount, NOW, 1, database.findShowing(0), "Late", List.of(new int[]{5, 0})));
+
+            Database read = SnapshotCodec.read(path, store);
+
+            assertSame(store, read.getSellingStore());
+            assertEquals(sellCount, store.size());
+            assertEquals(sellCount, read.getSells().size());
+        }
+    }
+
+    /**
+     * A snapshot of another version is rejected instead of being misread.
+     */
+    @Test
+    void rejectsOtherVersion() throws IOException {
+        Path path = directory.resolve("database.snap");
+        SnapshotCodec.write(new Database(), path, NOW);
+        byte[] bytes = Files.readAllBytes(path);
+        ByteBuffer.wrap(bytes).putInt(Integer.BYTES, 2);
+        Files.write(path, bytes);
+
+        assertThrows(IOException.class, () -> SnapshotCodec.read(path, new InMemorySellingStore()));
+        assertThrows(IOException.class, () -> SnapshotCodec.readUsers(path));
+    }
+
+    /**
+     * A snapshot that was cut off is reported as corrupted.
+     */
+    @Test
+    void rejectsTruncatedSnapshot() throws IOException {
+        Path path = directory.resolve("database.snap");
+        SnapshotCodec.write(new Database(), path, NOW);
+        byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length / 2));
+
+        IOException e = assertThrows(IOException.class, () -> SnapshotCodec.read(path, new InMemorySellingStore()));
+        assertTrue(e.getMessage().startsWith("Corrupted database snapshot"));
+    }
+
+    /**
+     * Checks that a showing was read back as it was written.
+     *
+     * @param expected The showing written.
+     * @param actual   The showing read.
+     */
+    private static void assertShowingEquals(Showing expected, Showing actual) {
+        assertNotNull(actual);
+        assertEquals(expected.getTitle(), actual.getTitle());
+        assertEquals(expected.getStartDateTime(), actual.getStartDateTime());
+        assertEquals(expected.getDuration(), actual.getDuration());
+        assertEquals(expected.getRoomId(), actual.getRoomId());
+        assertEquals(expected.getIsAgeChecked(), actual.getIsAgeChecked());
+        assertEquals(expected.getTicketsSold(), actual.getTicketsSold());
+        assertArrayEquals(expected.getSeatMap().getWords(), actual.getSeatMap().getWords());
+    }
+}
@@ -0,0 +1,212 @@
+package nl.inholland.schedule;
+
+import nl.inholland.Database;
+import nl.inholland.model.Room;
+import nl.inholland.model.Showing;
+import nl.inholland.persistence.InMemorySellingStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the {@link ScheduleImport}: which of the showings read are added when they overlap each other or the
+ * showings already scheduled, as decided by the sweep over each room.
+ */
+class ScheduleImportTest {
+    // The directory holding the schedule files
+    @TempDir
+    Path directory;
+
+    /**
+     * Of two imported showings that overlap, the one starting first is added, whatever their order in the file.
+     */
+    @Test
+    void keepsFirstOfOverlappingShowings() {
+        Database database = emptyDatabase();
+
+        ImportReport report = commit(database, row(1, "Later", "Room 1", "2025-03-01T15:00", "120"),
+                row(2, "Earlier", "Room 1", "2025-03-01T14:00", "120"));
+
+        assertEquals(List.of("Earlier"), titles(report.imported()));
+        assertEquals(List.of(new ImportReport.RowError(1, "Overlaps the showing on line 2")), report.errors());
+    }
+
+    /**
+     * Of two imported showings starting at the same time, the one on the earlier line is added.
+     */
+    @Test
+    void keepsEarlierLineOfSameStart() {
+        ImportReport report = commit(emptyDatabase(), row(2, "Second", "1", "2025-03-01T14:00", "60"),
+                row(1, "First", "1", "2025-03-01T14:00", "90"));
+
+        assertEquals(List.of("First"), titles(report.imported()));
+        assertEquals(2, report.errors().get(0).line());
+    }
+
+    /**
+     * Showings that follow each other without a gap are all added, and so are showings in other rooms at the
+     * same time.
+     */
+    @Test
+    void acceptsTouchingShowingsAndOtherRooms() {
+        ImportReport report = commit(emptyDatabase(), row(1, "A", "Room 1", "2025-03-01T14:00", "120"),
+                row(2, "B", "Room 1", "2025-03-01T16:00", "120"),
+                row(3, "C", "Room 2", "2025-03-01T15:00", "120"));
+
+        assertEquals(List.of("A", "C", "B"), titles(report.imported()));
+        assertTrue(report.errors().isEmpty());
+    }
+
+    /**
+     * A rejected showing does not keep the room busy, so a showing after the one it overlapped is still added.
+     */
+    @Test
+    void ignoresRejectedShowingsInSweep() {
+        ImportReport report = commit(emptyDatabase(), row(1, "A", "Room 1", "2025-03-01T14:00", "120"),
+                row(2, "B", "Room 1", "2025-03-01T15:00", "120"),
+                row(3, "C", "Room 1", "2025-03-01T16:00", "120"));
+
+        assertEquals(List.of("A", "C"), titles(report.imported()));
+        assertEquals(List.of(2), lines(report.errors()));
+    }
+
+    /**
+     * Imported showings that run into a scheduled showing, start during one or are still running when one starts are
+     * rejected; one that fits exactly between two scheduled showings is added.
+     */
+    @Test
+    void checksScheduledShowings() {
+        Database database = emptyDatabase();
+        addShowing(database, "Morning", LocalDateTime.of(2025, 3, 1, 10, 0), LocalTime.of(3, 0));
+        addShowing(database, "Evening", LocalDateTime.of(2025, 3, 1, 18, 0), LocalTime.of(2, 0));
+
+        ImportReport report = commit(database, row(1, "Into morning", "Room 1", "2025-03-01T09:30", "60"),
+                row(2, "Out of morning", "Room 1", "2025-03-01T12:30", "60"),
+                row(3, "Between", "Room 1", "2025-03-01T13:00", "300"),
+                row(4, "During evening", "Room 1", "2025-03-01T18:30", "30"),
+                row(5, "Out of evening", "Room 1", "2025-03-01T19:30", "60"),
+                row(6, "Other room", "Room 2", "2025-03-01T18:00", "120"));
+
+        assertEquals(List.of("Between", "Other room"), titles(report.imported()));
+        assertEquals(List.of(
+                new ImportReport.RowError(1, "Overlaps \"Morning\" at 01-03-2025 10:00"),
+                new ImportReport.RowError(2, "Overlaps \"Morning\" at 01-03-2025 10:00"),
+                new ImportReport.RowError(4, "Overlaps \"Evening\" at 01-03-2025 18:00"),
+                new ImportReport.RowError(5, "Overlaps \"Evening\" at 01-03-2025 18:00")), report.errors());
+        assertEquals(4, database.getShowings().size());
+    }
+
+    /**
+     * Rows that are not valid showings are reported together with the overlaps, sorted by line.
+     */
+    @Test
+    void reportsInvalidRows() {
+        ImportReport report = commit(emptyDatabase(), row(4, "Fine", "Room 1", "01-03-2025 14:00", "2:00"),
+                row(1, "No room", "Room 99", "2025-03-01T14:00", "60"),
+                row(3, "", "Room 1", "2025-03-01T14:00", "60"),
+                row(2, "Too long", "Room 1", "2025-03-01T14:00", "1440"));
+
+        assertEquals(List.of("Fine"), titles(report.imported()));
+        assertEquals(List.of(1, 2, 3), lines(report.errors()));
+        assertEquals("Imported 1 of 4 showings; 3 rows have errors.", report.summary());
+    }
+
+    /**
+     * A CSV file with an end instead of a duration and a quoted title is read by its header, whose names may differ
+     * in case and underscores, and an import can only be committed once.
+     */
+    @Test
+    void readsCsvFile() throws IOException {
+        Path file = directory.resolve("schedule.csv");
+        Files.writeString(file, "Title,Room,Start,End,Age_Checked\r\n"
+                + "\"Dune, Part Two\",Room 1,01-03-2025 14:00,01-03-2025 16:46,true\r\n"
+                + "\r\n"
+                + "Wicked,Room 1,01-03-2025 16:00,01-03-2025 18:40,false\r\n");
+        Database database = emptyDatabase();
+
+        ScheduleImport scheduleImport = ScheduleImport.read(file, database.getRooms());
+        ImportReport report = scheduleImport.commit(database);
+
+        assertEquals(2, report.rowCount());
+        assertEquals(List.of("Dune, Part Two"), titles(report.imported()));
+        assertTrue(report.imported().get(0).getIsAgeChecked());
+        assertEquals(LocalTime.of(2, 46), report.imported().get(0).getDuration());
+        assertEquals(List.of(4), lines(report.errors()));
+        assertThrows(IllegalStateException.class, () -> scheduleImport.commit(database));
+    }
+
+    /**
+     * Reads rows and commits them to a database.
+     *
+     * @param database The database.
+     * @param rows     The rows.
+     * @return The report of the import.
+     */
+    private static ImportReport commit(Database database, SourceRow... rows) {
+        return ScheduleImport.read(List.of(rows), database.getRooms()).commit(database);
+    }
+
+    /**
+     * @param line     The line of the row.
+     * @param title    The title.
+     * @param room     The name or ID of the room.
+     * @param start    The start.
+     * @param duration The duration.
+     * @return A row with the fields.
+     */
+    private static SourceRow row(int line, String title, String room, String start, String duration) {
+        return new SourceRow(line, Map.of("title", title, "room", room, "start", start, "duration", duration));
+    }
+
+    /**
+     * Adds a showing to the first room of a database.
+     *
+     * @param database The database.
+     * @param title    The title.
+     * @param start    The start.
+     * @param duration The duration.
+     */
+    private static void addShowing(Database database, String title, LocalDateTime start, LocalTime duration) {
+        Room room = database.getRooms().get(0);
+        database.addUpdateShowing(new Showing(-1, start, duration, title, room.getId(), room.createSeatMap(), false));
+    }
+
+    /**
+     * @return A database with the default rooms, but without showings or sells.
+     */
+    private static Database emptyDatabase() {
+        return new Database(List.of(), List.of(), new InMemorySellingStore(), 0);
+    }
+
+    /**
+     * @param showings The showings.
+     * @return The titles of the showings, in order.
+     */
+    private static List<String> titles(List<Showing> showings) {
+        return showings.stream().map(Showing::getTitle).toList();
+    }
+
+    /**
+     * @param errors The errors.
+     * @return The lines of the errors, in order.
+     */
+    private static List<Integer> lines(List<ImportReport.RowError> errors) {
+        List<Integer> lines = new ArrayList<>();
+
+        for (ImportReport.RowError error : errors) {
+            lines.add(error.line());
+        }
+
+        return lines;
+    }
+}